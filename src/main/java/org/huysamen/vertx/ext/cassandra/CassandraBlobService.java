@@ -0,0 +1,93 @@
+package org.huysamen.vertx.ext.cassandra;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+
+import java.util.List;
+
+/**
+ * Reads blob columns as Vert.x buffers, without copying them out of the driver's response frames. Buffers cannot be
+ * carried by the event bus proxy, so this contract is only available in the Vert.x instance running the service,
+ * either by casting the service returned by {@link CassandraService#create} or through {@link #createLocal}.
+ *
+ * <p>The buffers share the memory of the response they were read from, which stays referenced for as long as any of
+ * them is. Handlers are called back on the context of the caller.</p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public interface CassandraBlobService {
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Factory Boilerplate
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public static CassandraBlobService createLocal(final Vertx vertx, final String address) {
+        return CassandraService.factory.createLocalBlobService(vertx, address);
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Service Contracts
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Execute a previously prepared named <code>SELECT</code> statement and read a blob column of every row. The message
+     * has the same fields as for {@link CassandraService#prepared}, with at most one set of values.
+     *
+     * @param statement The message containing the name and values of the statement.
+     * @param column The name of the blob column.
+     * @param handler The asynchronous callback handler, receiving a buffer per row, or null for rows without a value.
+     */
+    public void blobs(final JsonObject statement, final String column, final Handler<AsyncResult<List<Buffer>>> handler);
+
+    /**
+     * Execute a previously prepared named <code>SELECT</code> statement and write a blob column of every row, in order,
+     * to a stream. Writing pauses while the write queue of the stream is full, and further pages of the result are only
+     * fetched once the rows already fetched have been written. The stream is not ended.
+     *
+     * @param statement The message containing the name and values of the statement.
+     * @param column The name of the blob column.
+     * @param target The stream written to, such as an <code>AsyncFile</code> or <code>HttpServerResponse</code>.
+     * @param handler The asynchronous callback handler, receiving the number of bytes written.
+     */
+    public void pipeBlobs(final JsonObject statement, final String column, final WriteStream<Buffer> target,
+                          final Handler<AsyncResult<Long>> handler);
+
+    /**
+     * Write a stream to the large object store, replacing any object with the same id. The stream is split into chunks,
+     * of which several are written concurrently, and it is paused while the writes fall behind. The object becomes
+     * readable once all its chunks have been written. The large object store must be enabled in the configuration.
+     *
+     * @param id The id of the object.
+     * @param source The stream to write, which is read until it ends.
+     * @param handler The asynchronous callback handler, receiving the <code>length</code> and number of
+     *                <code>chunks</code> of the object.
+     */
+    public void writeObject(final String id, final ReadStream<Buffer> source, final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Read an object from the large object store. Its chunks are fetched, several at a time, once a data handler is set
+     * on the stream, and are emitted in order. Each chunk is checked against its checksum, and the whole object against
+     * its length and checksum, with any mismatch reported to the exception handler of the stream.
+     *
+     * @param id The id of the object.
+     * @param handler The asynchronous callback handler, receiving the stream of the object, or failing if there is no
+     *                object with the id.
+     */
+    public void readObject(final String id, final Handler<AsyncResult<ReadStream<Buffer>>> handler);
+
+    /**
+     * Delete an object from the large object store. Deleting an object which does not exist succeeds.
+     *
+     * @param id The id of the object.
+     * @param handler The asynchronous callback handler, receiving the number of <code>chunks</code> deleted.
+     */
+    public void deleteObject(final String id, final Handler<AsyncResult<JsonObject>> handler);
+}
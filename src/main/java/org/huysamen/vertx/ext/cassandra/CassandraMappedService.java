@@ -0,0 +1,55 @@
+package org.huysamen.vertx.ext.cassandra;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.mapping.Mapping;
+
+import java.util.List;
+
+/**
+ * Reads rows into objects and writes objects through generated {@link Mapping}s, without converting them to and from
+ * JSON. Like {@link CassandraBlobService}, this contract is only available in the Vert.x instance running the service,
+ * either by casting the service returned by {@link CassandraService#create} or through {@link #createLocal}. Handlers
+ * are called back on the context of the caller.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public interface CassandraMappedService {
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Factory Boilerplate
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public static CassandraMappedService createLocal(final Vertx vertx, final String address) {
+        return CassandraService.factory.createLocalMappedService(vertx, address);
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Service Contracts
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Execute a previously prepared named <code>SELECT</code> statement and map every row of its result. The message
+     * has the same fields as for {@link CassandraService#prepared}, with at most one set of values.
+     *
+     * @param statement The message containing the name and values of the statement.
+     * @param mapping The mapping of the rows, such as <code>Mappings.of(User.class)</code>.
+     * @param handler The asynchronous callback handler, receiving an object per row.
+     */
+    public <T> void select(final JsonObject statement, final Mapping<T> mapping, final Handler<AsyncResult<List<T>>> handler);
+
+    /**
+     * Execute a previously prepared named statement with its variables bound from the fields of an object.
+     *
+     * @param name The name of the statement.
+     * @param object The object to bind.
+     * @param mapping The mapping of the object, which must map a field to every variable of the statement.
+     * @param handler The asynchronous callback handler.
+     */
+    public <T> void write(final String name, final T object, final Mapping<T> mapping, final Handler<AsyncResult<Void>> handler);
+}
@@ -4,6 +4,7 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.ServiceHelper;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -29,6 +30,10 @@ public interface CassandraService {
         return factory.createEventBusProxy(vertx, address);
     }
 
+    public static CassandraService createEventBusProxy(final Vertx vertx, final String address, final JsonObject locality) {
+        return factory.createEventBusProxy(vertx, address, locality);
+    }
+
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // Service Contracts
@@ -45,10 +50,30 @@ public interface CassandraService {
     public void stop();
 
     /**
-     * Reconnects to the cluster.
+     * Stop the Cassandra cluster, waiting for the requests in flight to drain and the cluster to close.
+     *
+     * @param handler Called once the service has stopped.
+     */
+    public void stop(final Handler<AsyncResult<Void>> handler);
+
+    /**
+     * Reconnects to the cluster. The new session is connected and the prepared statements are prepared on it in the
+     * background, after which it replaces the current session. Requests in flight on the old session are drained before
+     * it is closed.
      */
     public void reconnect();
 
+    /**
+     * Apply configuration changes to the running service. Pooling options, the socket read timeout, the default
+     * consistency level, the drain timeout and the query log are changed in place. Any other change causes a new cluster
+     * to be built and connected in the background, which replaces the current one once the prepared statements have
+     * been prepared on it.
+     *
+     * @param config The configuration fields to change, in the same format as the service configuration.
+     * @param handler The asynchronous callback handler.
+     */
+    public void reconfigure(final JsonObject config, final Handler<AsyncResult<JsonObject>> handler);
+
     /**
      * Test that the current Cassandra service is operational. Useful for simple database health checking.
      *
@@ -64,6 +89,18 @@ public interface CassandraService {
      */
     public void execute(final String statement, final Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * Executes a raw statement asynchronously against the Cassandra cluster, with per request options. The options
+     * object may contain <code>consistency</code>, <code>serial_consistency</code>, <code>idempotent</code>,
+     * <code>fetch_size</code>, <code>timestamp</code> (in microseconds) and <code>routing_key</code> (base64 encoded)
+     * fields.
+     *
+     * @param statement The raw CQL statement to execute.
+     * @param options The request options.
+     * @param handler The asynchronous callback handler.
+     */
+    public void executeWithOptions(final String statement, final JsonObject options, final Handler<AsyncResult<JsonObject>> handler);
+
     /**
      * Prepare a named statement. This will be stored in the service for future use.
      *
@@ -74,10 +111,123 @@ public interface CassandraService {
     public void prepare(final String name, final String statement, final Handler<AsyncResult<JsonObject>> handler);
 
     /**
-     * Execute a previously prepared named statement.
+     * Prepare a named statement with default request options, which apply to every execution of the statement unless
+     * overridden by the request. The accepted options are those of {@link #executeWithOptions}, except for
+     * <code>routing_key</code>, as the routing key of a prepared statement is computed from its bound values.
+     *
+     * @param name The name of the statement.
+     * @param statement The actual statement to prepare.
+     * @param options The default request options.
+     * @param handler The asynchronous callback handler.
+     */
+    public void prepareWithOptions(final String name, final String statement, final JsonObject options,
+                                   final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Execute a previously prepared named statement. The message may also contain the request options accepted by
+     * {@link #executeWithOptions}, except for <code>routing_key</code>.
      *
      * @param statement The message containing the name and values of the statement.
      * @param handler The asynchronous callback handler.
      */
     public void prepared(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Get the result metadata of a named prepared statement: its <code>metadata_id</code> and <code>columns</code>.
+     * Passing the <code>metadata_id</code> along with {@link #prepared(JsonObject, Handler)} requests leaves the columns
+     * out of their responses, for as long as the metadata of the statement does not change.
+     *
+     * @param name The name of the statement.
+     * @param handler The asynchronous callback handler.
+     */
+    public void resultMetadata(final String name, final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Fetch the next part of a truncated result. A response is truncated, with a <code>truncated</code> field set to
+     * true, once it reaches the row or size limits of the service or of the request (its <code>max_rows</code> and
+     * <code>max_bytes</code> fields). It then also has a <code>continuation</code> token, unless too many truncated
+     * results are kept already. The next part holds at most the rows fetched from the cluster so far, or the next page,
+     * and may have a further continuation. Each token can be used once and expires after a while.
+     *
+     * @param continuation The continuation token of the truncated response.
+     * @param handler The asynchronous callback handler.
+     */
+    public void fetchMore(final String continuation, final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Get the keyspaces of the cluster, with their <code>replication</code> options and the names of their
+     * <code>tables</code>. The metadata is kept up to date by the driver, which refreshes it on schema changes, so this
+     * does not query the cluster.
+     *
+     * @param handler The asynchronous callback handler.
+     */
+    public void keyspaces(final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Get the <code>columns</code>, with their names and types, the <code>partition_key</code> and the
+     * <code>clustering_columns</code>, with their order, of a table. Like {@link #keyspaces}, this does not query the
+     * cluster.
+     *
+     * @param keyspace The name of the keyspace.
+     * @param table The name of the table.
+     * @param handler The asynchronous callback handler.
+     */
+    public void tableMetadata(final String keyspace, final String table, final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Execute a schema change, such as a <code>CREATE TABLE</code>, and complete once all hosts which are up agree on
+     * the schema, so that statements using the change can be prepared right away. Fails if the hosts do not agree
+     * within <code>schema_agreement_timeout_millis</code>, although the change has then been applied.
+     *
+     * @param statement The schema change statement.
+     * @param handler The asynchronous callback handler.
+     */
+    public void executeSchemaChange(final String statement, final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Get the location of the service instance: its datacenter (<code>dc</code>) and <code>rack</code>. They are taken
+     * from the <code>routing</code> configuration if given there, and otherwise from the Cassandra host running on the
+     * same machine, or from the local datacenter of the load balancing policy. Either may be null if unknown. If the
+     * instance advertises itself for routing, the result also has its <code>advertise_interval_millis</code>.
+     *
+     * @param handler The asynchronous callback handler.
+     */
+    public void locality(final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Warm the service up before it takes traffic, as configured under <code>warm_up</code>: prepare the statement
+     * catalogue on every host, send probe queries to every local host over the connections of its pool, and run the
+     * warm-up queries a number of times. The result holds the number of <code>statements</code> prepared, the local
+     * <code>hosts</code> reached and the <code>queries</code> executed. Fails if a statement of the catalogue cannot be
+     * prepared; failed probes and queries are only counted.
+     *
+     * @param handler The asynchronous callback handler.
+     */
+    public void warmUp(final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Read a named prepared <code>SELECT</code> statement over the buckets of a time range, such as the daily partitions
+     * of a time series, and merge the rows into one result ordered by a clustering column. The request has the
+     * statement <code>name</code>, its other <code>values</code>, the <code>buckets</code> (either a list of
+     * <code>keys</code>, or a <code>from</code> and <code>to</code> time in milliseconds and a <code>size_millis</code>,
+     * with the <code>index</code> of the bucket among the bound values), the <code>order_by</code> column and its
+     * <code>order</code>, <code>asc</code> or <code>desc</code>, and optionally a <code>limit</code> on the rows and the
+     * number of queries and page fetches to have in flight, <code>max_in_flight</code>. The buckets are queried
+     * concurrently, and no further pages are fetched once the limit is reached.
+     *
+     * @param request The read request.
+     * @param handler The asynchronous callback handler.
+     */
+    public void bucketedRead(final JsonObject request, final Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Execute several operations concurrently, replying once all of them have completed. Each operation is an object
+     * with a <code>type</code> of either <code>execute</code> (with a <code>statement</code> field) or
+     * <code>prepared</code> (with the same fields accepted by {@link #prepared(JsonObject, Handler)}). The results are
+     * returned in the same order as the operations, with failed operations reported in place.
+     *
+     * @param operations The operations to execute.
+     * @param handler The asynchronous callback handler.
+     */
+    public void pipeline(final JsonArray operations, final Handler<AsyncResult<JsonObject>> handler);
 }
@@ -23,7 +23,9 @@ public interface CassandraServiceFactory {
     public CassandraService create(final Vertx vertx, final JsonObject config);
 
     /**
-     * Create a Cassandra service event bus proxy on a given address.
+     * Create a Cassandra service event bus proxy on a given address. While a service is registered locally on the
+     * address in the same Vert.x instance, calls go directly to that service instead, which avoids copying and encoding
+     * requests and results.
      *
      * @param vertx The owning Vert.x container.
      * @param address The event bus address to use in the proxy.
@@ -31,4 +33,61 @@ public interface CassandraServiceFactory {
      * @return The Cassandra service instance.
      */
     public CassandraService createEventBusProxy(final Vertx vertx, final String address);
+
+    /**
+     * Create a proxy which routes requests to the service instances advertising themselves on an address, preferring
+     * those in the same rack as the caller, then those in the same datacenter. Requests with a routing key are sent to
+     * the same instance for the same key, among the preferred ones. Requests go to the address itself until an instance
+     * has advertised itself, and to the local instance while one is registered for local delivery.
+     *
+     * @param vertx The owning Vert.x container.
+     * @param address The event bus address the service instances are registered on.
+     * @param locality The location of the caller: its <code>dc</code> and <code>rack</code>, either of which may be
+     *                 missing.
+     *
+     * @return The Cassandra service instance.
+     */
+    public CassandraService createEventBusProxy(final Vertx vertx, final String address, final JsonObject locality);
+
+    /**
+     * Register a service for local delivery to callers in the same Vert.x instance. Several services may be registered
+     * on the same address, in which case callers are handed the one registered first that is still registered.
+     *
+     * @param vertx The owning Vert.x container.
+     * @param address The event bus address the service is registered on.
+     * @param service The service instance.
+     */
+    public void registerLocal(final Vertx vertx, final String address, final CassandraService service);
+
+    /**
+     * Remove a service previously registered for local delivery. Other services registered on the same address stay
+     * registered.
+     *
+     * @param vertx The owning Vert.x container.
+     * @param address The event bus address the service is registered on.
+     * @param service The service instance.
+     */
+    public void unregisterLocal(final Vertx vertx, final String address, final CassandraService service);
+
+    /**
+     * Get the blob contract of a service registered for local delivery in the same Vert.x instance.
+     *
+     * @param vertx The owning Vert.x container.
+     * @param address The event bus address the service is registered on.
+     *
+     * @return The blob contract of the service.
+     * @throws IllegalStateException If no service supporting it is registered locally on the address.
+     */
+    public CassandraBlobService createLocalBlobService(final Vertx vertx, final String address);
+
+    /**
+     * Get the mapped contract of a service registered for local delivery in the same Vert.x instance.
+     *
+     * @param vertx The owning Vert.x container.
+     * @param address The event bus address the service is registered on.
+     *
+     * @return The mapped contract of the service.
+     * @throws IllegalStateException If no service supporting it is registered locally on the address.
+     */
+    public CassandraMappedService createLocalMappedService(final Vertx vertx, final String address);
 }
@@ -1,10 +1,19 @@
 package org.huysamen.vertx.ext.cassandra;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 
+import java.util.UUID;
+
 /**
- * Verticle to start up a Cassandra service instance.
+ * Verticle to start up a Cassandra service instance. The service is warmed up, if configured to be, before it is
+ * registered on the event bus, and the deployment only completes once it is. A message with the warm-up result is then
+ * published to <code>&lt;address&gt;.ready</code>.
+ *
+ * <p>If the service is configured for <code>routing</code>, it is also registered on an address of its own, which it
+ * advertises with its datacenter and rack on <code>&lt;address&gt;.instances</code> for routing proxies.</p>
  *
  * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
  * @since 1.0
@@ -13,14 +22,94 @@ import io.vertx.core.json.JsonObject;
 public class CassandraServiceVerticle extends AbstractVerticle {
 
     private CassandraService service;
+    private String address;
+    private boolean local;
+    private boolean registered;
+    private String instanceAddress;
+    private long advertiser = -1;
+    private MessageConsumer<?> consumer;
+    private MessageConsumer<?> instanceConsumer;
 
     @Override
-    public void start() throws Exception {
+    public void start(final Future<Void> startFuture) throws Exception {
         final JsonObject config = vertx.context().config();
 
+        address = config.getString("vertx.cassandra", "org.huysamen.vertx.ext.cassandra");
+        local = config.getBoolean("vertx.cassandra.local", false);
+
         service = CassandraService.create(vertx, config);
         service.start();
 
-        vertx.eventBus().registerService(service, config.getString("vertx.cassandra", "org.huysamen.vertx.ext.cassandra"));
+        service.warmUp(result -> {
+            if (result.failed()) {
+                service.stop();
+                startFuture.fail(result.cause());
+                return;
+            }
+
+            consumer = vertx.eventBus().registerService(service, address);
+
+            if (local) {
+                CassandraService.factory.registerLocal(vertx, address, service);
+            }
+
+            registered = true;
+
+            service.locality(locality -> {
+                if (locality.succeeded() && locality.result().containsField("advertise_interval_millis")) {
+                    advertise(locality.result());
+                }
+
+                vertx.eventBus().publish(address + ".ready", result.result());
+                startFuture.complete();
+            });
+        });
+    }
+
+    private void advertise(final JsonObject locality) {
+        final long interval = locality.getLong("advertise_interval_millis");
+
+        instanceAddress = address + "." + UUID.randomUUID();
+
+        final JsonObject advertisement = new JsonObject()
+                .putString("address", instanceAddress)
+                .putString("dc", locality.getString("dc"))
+                .putString("rack", locality.getString("rack"))
+                .putNumber("ttl_millis", 3 * interval);
+
+        instanceConsumer = vertx.eventBus().registerService(service, instanceAddress);
+        vertx.eventBus().publish(address + ".instances", advertisement);
+        advertiser = vertx.setPeriodic(interval, id -> vertx.eventBus().publish(address + ".instances", advertisement));
+    }
+
+    @Override
+    public void stop(final Future<Void> stopFuture) throws Exception {
+        if (advertiser != -1) {
+            vertx.cancelTimer(advertiser);
+            vertx.eventBus().publish(address + ".instances", new JsonObject()
+                    .putString("address", instanceAddress)
+                    .putBoolean("leaving", true));
+        }
+
+        if (instanceConsumer != null) {
+            instanceConsumer.unregister();
+        }
+
+        if (consumer != null) {
+            consumer.unregister();
+        }
+
+        if (local && registered) {
+            CassandraService.factory.unregisterLocal(vertx, address, service);
+        }
+
+        // Also stops a service undeployed while still warming up. The undeployment completes once the requests in
+        // flight are drained, as the timers of the deployment, the drain deadline among them, are cancelled after it
+        if (service == null) {
+            stopFuture.complete();
+            return;
+        }
+
+        service.stop(result -> stopFuture.complete());
     }
 }
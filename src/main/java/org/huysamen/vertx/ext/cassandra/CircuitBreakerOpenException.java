@@ -0,0 +1,15 @@
+package org.huysamen.vertx.ext.cassandra;
+
+/**
+ * Thrown when a request is rejected without being sent to Cassandra because a circuit breaker is open.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,97 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+/**
+ * Options of the connection pool autotuner, which adjusts the pooling options from the observed load.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class AutotuneOptions {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 10000;
+    public static final int DEFAULT_MIN_CONNECTIONS = 1;
+    public static final int DEFAULT_MAX_CONNECTIONS = 8;
+    public static final int DEFAULT_MIN_REQUESTS_PER_CONNECTION = 16;
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 128;
+    public static final long DEFAULT_LATENCY_TARGET_MILLIS = 20;
+
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private int minConnections = DEFAULT_MIN_CONNECTIONS;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int minRequestsPerConnection = DEFAULT_MIN_REQUESTS_PER_CONNECTION;
+    private int maxRequestsPerConnection = DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+    private long latencyTargetMillis = DEFAULT_LATENCY_TARGET_MILLIS;
+
+    /**
+     * How often the load is sampled and the pooling options adjusted.
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public AutotuneOptions setIntervalMillis(final long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        return this;
+    }
+
+    /**
+     * The lower bound for the number of connections per host.
+     */
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public AutotuneOptions setMinConnections(final int minConnections) {
+        this.minConnections = minConnections;
+        return this;
+    }
+
+    /**
+     * The upper bound for the number of connections per host.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public AutotuneOptions setMaxConnections(final int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * The lower bound for the simultaneous requests per connection threshold.
+     */
+    public int getMinRequestsPerConnection() {
+        return minRequestsPerConnection;
+    }
+
+    public AutotuneOptions setMinRequestsPerConnection(final int minRequestsPerConnection) {
+        this.minRequestsPerConnection = minRequestsPerConnection;
+        return this;
+    }
+
+    /**
+     * The upper bound for the simultaneous requests per connection threshold.
+     */
+    public int getMaxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    public AutotuneOptions setMaxRequestsPerConnection(final int maxRequestsPerConnection) {
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        return this;
+    }
+
+    /**
+     * The mean latency above which requests are spread over more connections.
+     */
+    public long getLatencyTargetMillis() {
+        return latencyTargetMillis;
+    }
+
+    public AutotuneOptions setLatencyTargetMillis(final long latencyTargetMillis) {
+        this.latencyTargetMillis = latencyTargetMillis;
+        return this;
+    }
+}
@@ -5,6 +5,7 @@ import com.datastax.driver.core.policies.LoadBalancingPolicy;
 import com.datastax.driver.core.policies.ReconnectionPolicy;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Cassandra cluster configuration contract.
@@ -22,6 +23,13 @@ public interface CassandraConfiguration {
      */
     public List<String> getSeeds();
 
+    /**
+     * The port the seed nodes, and all other nodes of the cluster, listen on for native protocol connections.
+     *
+     * @return The native protocol port.
+     */
+    public int getPort();
+
     /**
      * The load balancing policy for the driver.
      *
@@ -70,4 +78,131 @@ public interface CassandraConfiguration {
      * @return The authentication provider.
      */
     public AuthProvider getAuthProvider();
+
+    /**
+     * The threshold above which executed statements are written to the slow query log. A negative value disables the
+     * slow query log.
+     *
+     * @return The slow query threshold in milliseconds.
+     */
+    public long getSlowQueryThresholdMillis();
+
+    /**
+     * Whether bound values should be redacted from slow query and trace records.
+     *
+     * @return True if values must be redacted.
+     */
+    public boolean isQueryLogRedactValues();
+
+    /**
+     * The fraction of statements, between 0 and 1, for which server side tracing is enabled.
+     *
+     * @return The trace sampling probability.
+     */
+    public double getTraceProbability();
+
+    /**
+     * The event bus address on which slow query and trace records are published, if any.
+     *
+     * @return The event bus address, or null if records are only logged.
+     */
+    public String getQueryLogAddress();
+
+    /**
+     * Whether the time spent in each phase of a request is measured and recorded in the phase histograms.
+     *
+     * @return True if requests are timed per phase.
+     */
+    public boolean isPhaseTimingEnabled();
+
+    /**
+     * Whether the phase timings of a request are attached to its response. Implies phase timing is enabled.
+     *
+     * @return True if every response carries its phase timings.
+     */
+    public boolean isPhaseTimingAttached();
+
+    /**
+     * The circuit breaker options for the service.
+     *
+     * @return The circuit breaker options, or null if circuit breakers are disabled.
+     */
+    public CircuitBreakerOptions getCircuitBreakerOptions();
+
+    /**
+     * The maximum time to wait for requests in flight to complete before a session is closed, on stop or reconnect.
+     *
+     * @return The drain timeout in milliseconds.
+     */
+    public long getDrainTimeoutMillis();
+
+    /**
+     * The maximum time a schema change waits for all hosts to agree on the schema version.
+     *
+     * @return The schema agreement timeout in milliseconds.
+     */
+    public long getSchemaAgreementTimeoutMillis();
+
+    /**
+     * The connection pool autotuner options for the service.
+     *
+     * @return The autotuner options, or null if autotuning is disabled.
+     */
+    public AutotuneOptions getAutotuneOptions();
+
+    /**
+     * The workload recorder options for the service.
+     *
+     * @return The recorder options, or null if recording is disabled.
+     */
+    public RecorderOptions getRecorderOptions();
+
+    /**
+     * The large object store options for the service.
+     *
+     * @return The large object options, or null if the store is disabled.
+     */
+    public LargeObjectOptions getLargeObjectOptions();
+
+    /**
+     * The limits on the size of query results.
+     *
+     * @return The result limit options, or null if results are not limited.
+     */
+    public ResultLimitOptions getResultLimitOptions();
+
+    /**
+     * The traffic lanes of the service, by name.
+     *
+     * @return The lane options, or an empty map if there are no lanes.
+     */
+    public Map<String, LaneOptions> getLaneOptions();
+
+    /**
+     * The lane of requests which do not name one.
+     *
+     * @return The name of the lane, or null if such requests bypass the lanes.
+     */
+    public String getDefaultLane();
+
+    /**
+     * The warm-up options for the service.
+     *
+     * @return The warm-up options, or null if there is no warm-up.
+     */
+    public WarmUpOptions getWarmUpOptions();
+
+    /**
+     * The locality-aware routing options for the service.
+     *
+     * @return The routing options, or null if the service does not advertise itself for routing.
+     */
+    public RoutingOptions getRoutingOptions();
+
+    /**
+     * The secondary clusters managed by the service, by name.
+     *
+     * @return The cluster options, or an empty map if the service only manages its own cluster.
+     */
+    public Map<String, ClusterOptions> getClusterOptions();
 }
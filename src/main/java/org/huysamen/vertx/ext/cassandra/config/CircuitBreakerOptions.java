@@ -0,0 +1,137 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+/**
+ * Options of the circuit breakers protecting named statements and coordinator hosts.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class CircuitBreakerOptions {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 10000;
+    public static final int DEFAULT_MINIMUM_REQUESTS = 20;
+    public static final double DEFAULT_ERROR_RATE = 0.5;
+    public static final long DEFAULT_SLOW_CALL_MILLIS = -1;
+    public static final double DEFAULT_SLOW_CALL_RATE = 0.5;
+    public static final long DEFAULT_OPEN_MILLIS = 5000;
+    public static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+    private boolean statementsEnabled = true;
+    private boolean hostsEnabled = true;
+    private long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private int minimumRequests = DEFAULT_MINIMUM_REQUESTS;
+    private double errorRate = DEFAULT_ERROR_RATE;
+    private long slowCallMillis = DEFAULT_SLOW_CALL_MILLIS;
+    private double slowCallRate = DEFAULT_SLOW_CALL_RATE;
+    private long openMillis = DEFAULT_OPEN_MILLIS;
+    private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+    /**
+     * Whether a circuit breaker is kept per named prepared statement.
+     */
+    public boolean isStatementsEnabled() {
+        return statementsEnabled;
+    }
+
+    public CircuitBreakerOptions setStatementsEnabled(final boolean statementsEnabled) {
+        this.statementsEnabled = statementsEnabled;
+        return this;
+    }
+
+    /**
+     * Whether a circuit breaker is kept per coordinator host.
+     */
+    public boolean isHostsEnabled() {
+        return hostsEnabled;
+    }
+
+    public CircuitBreakerOptions setHostsEnabled(final boolean hostsEnabled) {
+        this.hostsEnabled = hostsEnabled;
+        return this;
+    }
+
+    /**
+     * The length of the window over which error and slow call rates are measured.
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public CircuitBreakerOptions setWindowMillis(final long windowMillis) {
+        this.windowMillis = windowMillis;
+        return this;
+    }
+
+    /**
+     * The number of requests a window must contain before the circuit can open.
+     */
+    public int getMinimumRequests() {
+        return minimumRequests;
+    }
+
+    public CircuitBreakerOptions setMinimumRequests(final int minimumRequests) {
+        this.minimumRequests = minimumRequests;
+        return this;
+    }
+
+    /**
+     * The fraction of failed requests in a window at which the circuit opens.
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public CircuitBreakerOptions setErrorRate(final double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * The latency above which a successful request is counted as slow. A negative value disables slow call tracking.
+     */
+    public long getSlowCallMillis() {
+        return slowCallMillis;
+    }
+
+    public CircuitBreakerOptions setSlowCallMillis(final long slowCallMillis) {
+        this.slowCallMillis = slowCallMillis;
+        return this;
+    }
+
+    /**
+     * The fraction of slow requests in a window at which the circuit opens.
+     */
+    public double getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    public CircuitBreakerOptions setSlowCallRate(final double slowCallRate) {
+        this.slowCallRate = slowCallRate;
+        return this;
+    }
+
+    /**
+     * How long an open circuit rejects requests before letting probes through.
+     */
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public CircuitBreakerOptions setOpenMillis(final long openMillis) {
+        this.openMillis = openMillis;
+        return this;
+    }
+
+    /**
+     * The number of probe requests let through, and required to succeed, while the circuit is half open.
+     */
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    public CircuitBreakerOptions setHalfOpenProbes(final int halfOpenProbes) {
+        this.halfOpenProbes = halfOpenProbes;
+        return this;
+    }
+}
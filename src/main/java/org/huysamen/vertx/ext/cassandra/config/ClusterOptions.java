@@ -0,0 +1,86 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Options of a secondary cluster managed by the service, to which named statements can be routed, writes mirrored and
+ * reads fallen back. The cluster is connected with a service configuration of its own.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class ClusterOptions {
+
+    /**
+     * The name by which statement options refer to the cluster of the service itself.
+     */
+    public static final String PRIMARY = "primary";
+
+    public static final int DEFAULT_MIRROR_MAX_IN_FLIGHT = 64;
+    public static final int DEFAULT_MIRROR_MAX_PENDING = 10000;
+    public static final long DEFAULT_MIRROR_MAX_LAG_MILLIS = 5000;
+
+    private String name;
+    private JsonObject config;
+    private int mirrorMaxInFlight = DEFAULT_MIRROR_MAX_IN_FLIGHT;
+    private int mirrorMaxPending = DEFAULT_MIRROR_MAX_PENDING;
+    private long mirrorMaxLagMillis = DEFAULT_MIRROR_MAX_LAG_MILLIS;
+
+    public String getName() {
+        return name;
+    }
+
+    public ClusterOptions setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * The service configuration of the cluster, with its seeds, policies, pooling and so on.
+     */
+    public JsonObject getConfig() {
+        return config;
+    }
+
+    public ClusterOptions setConfig(final JsonObject config) {
+        this.config = config;
+        return this;
+    }
+
+    /**
+     * The number of writes mirrored to the cluster executing at the same time.
+     */
+    public int getMirrorMaxInFlight() {
+        return mirrorMaxInFlight;
+    }
+
+    public ClusterOptions setMirrorMaxInFlight(final int mirrorMaxInFlight) {
+        this.mirrorMaxInFlight = mirrorMaxInFlight;
+        return this;
+    }
+
+    /**
+     * The number of writes waiting to be mirrored to the cluster, beyond which further writes are not mirrored.
+     */
+    public int getMirrorMaxPending() {
+        return mirrorMaxPending;
+    }
+
+    public ClusterOptions setMirrorMaxPending(final int mirrorMaxPending) {
+        this.mirrorMaxPending = mirrorMaxPending;
+        return this;
+    }
+
+    /**
+     * How long a write may wait to be mirrored to the cluster before it is dropped rather than mirrored late.
+     */
+    public long getMirrorMaxLagMillis() {
+        return mirrorMaxLagMillis;
+    }
+
+    public ClusterOptions setMirrorMaxLagMillis(final long mirrorMaxLagMillis) {
+        this.mirrorMaxLagMillis = mirrorMaxLagMillis;
+        return this;
+    }
+}
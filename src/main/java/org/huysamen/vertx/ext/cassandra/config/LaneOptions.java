@@ -0,0 +1,79 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+/**
+ * Options of a traffic lane, which bounds the requests of one kind of workload so that it cannot starve the others.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class LaneOptions {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final int DEFAULT_MAX_QUEUED = 1024;
+    public static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 1000;
+
+    private String name;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+    private long queueTimeoutMillis = DEFAULT_QUEUE_TIMEOUT_MILLIS;
+    private boolean dedicatedSession;
+
+    public String getName() {
+        return name;
+    }
+
+    public LaneOptions setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * The number of requests of the lane executing at the same time.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public LaneOptions setMaxInFlight(final int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * The number of requests waiting for the lane, beyond which further requests are rejected.
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public LaneOptions setMaxQueued(final int maxQueued) {
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * How long a request waits for the lane before it fails.
+     */
+    public long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    public LaneOptions setQueueTimeoutMillis(final long queueTimeoutMillis) {
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Whether the lane has a session of its own, with its own connection pools, rather than sharing that of the
+     * service.
+     */
+    public boolean isDedicatedSession() {
+        return dedicatedSession;
+    }
+
+    public LaneOptions setDedicatedSession(final boolean dedicatedSession) {
+        this.dedicatedSession = dedicatedSession;
+        return this;
+    }
+}
@@ -0,0 +1,82 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+/**
+ * Options of the large object store, which splits objects into fixed-size chunks stored in their own partitions.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class LargeObjectOptions {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final long DEFAULT_GRACE_PERIOD_MILLIS = 60000;
+
+    private String table;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private boolean createTable = true;
+    private long gracePeriodMillis = DEFAULT_GRACE_PERIOD_MILLIS;
+
+    /**
+     * The keyspace qualified table holding the chunks.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    public LargeObjectOptions setTable(final String table) {
+        this.table = table;
+        return this;
+    }
+
+    /**
+     * The size in bytes of every chunk but the last of an object.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public LargeObjectOptions setChunkSize(final int chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * The number of chunks of an object written or read concurrently.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public LargeObjectOptions setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Whether the table is created when the service starts, if it does not exist.
+     */
+    public boolean isCreateTable() {
+        return createTable;
+    }
+
+    public LargeObjectOptions setCreateTable(final boolean createTable) {
+        this.createTable = createTable;
+        return this;
+    }
+
+    /**
+     * How long the chunks of a replaced version of an object are kept, so that reads of it that already started can
+     * complete.
+     */
+    public long getGracePeriodMillis() {
+        return gracePeriodMillis;
+    }
+
+    public LargeObjectOptions setGracePeriodMillis(final long gracePeriodMillis) {
+        this.gracePeriodMillis = gracePeriodMillis;
+        return this;
+    }
+}
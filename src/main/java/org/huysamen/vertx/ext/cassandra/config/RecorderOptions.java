@@ -0,0 +1,41 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+/**
+ * Options of the workload recorder, which writes the operations executed by the service to a file for later replay.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class RecorderOptions {
+
+    public static final int DEFAULT_QUEUE_SIZE = 65536;
+
+    private String path;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+
+    /**
+     * The file the recording is written to. An existing file is overwritten.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public RecorderOptions setPath(final String path) {
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * The number of operations that may wait to be written. Operations arriving while the queue is full are dropped
+     * rather than slowing down requests.
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public RecorderOptions setQueueSize(final int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+}
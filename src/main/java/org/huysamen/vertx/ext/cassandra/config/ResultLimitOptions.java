@@ -0,0 +1,98 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+/**
+ * Limits on the size of query results, per response and over all responses being built at the same time.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class ResultLimitOptions {
+
+    public static final int DEFAULT_MAX_ROWS = 10000;
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 256 * 1024 * 1024;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 1000;
+    public static final long DEFAULT_CURSOR_TIMEOUT_MILLIS = 60000;
+    public static final int DEFAULT_MAX_CURSORS = 1024;
+
+    private int maxRows = DEFAULT_MAX_ROWS;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long memoryBudgetBytes = DEFAULT_MEMORY_BUDGET_BYTES;
+    private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+    private long cursorTimeoutMillis = DEFAULT_CURSOR_TIMEOUT_MILLIS;
+    private int maxCursors = DEFAULT_MAX_CURSORS;
+
+    /**
+     * The number of rows after which a response is truncated.
+     */
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public ResultLimitOptions setMaxRows(final int maxRows) {
+        this.maxRows = maxRows;
+        return this;
+    }
+
+    /**
+     * The estimated size in bytes after which a response is truncated.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public ResultLimitOptions setMaxBytes(final long maxBytes) {
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * The estimated size in bytes of all responses being built, above which new requests wait.
+     */
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    public ResultLimitOptions setMemoryBudgetBytes(final long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        return this;
+    }
+
+    /**
+     * How long a request waits for the memory budget before it fails.
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public ResultLimitOptions setMaxWaitMillis(final long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+        return this;
+    }
+
+    /**
+     * How long the rest of a truncated result is kept for its continuation to be fetched.
+     */
+    public long getCursorTimeoutMillis() {
+        return cursorTimeoutMillis;
+    }
+
+    public ResultLimitOptions setCursorTimeoutMillis(final long cursorTimeoutMillis) {
+        this.cursorTimeoutMillis = cursorTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * The number of truncated results kept for continuation at the same time. Results truncated while that many are
+     * kept get no continuation.
+     */
+    public int getMaxCursors() {
+        return maxCursors;
+    }
+
+    public ResultLimitOptions setMaxCursors(final int maxCursors) {
+        this.maxCursors = maxCursors;
+        return this;
+    }
+}
@@ -0,0 +1,55 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+/**
+ * Options of locality-aware routing, under which every service instance advertises the datacenter and rack it runs in,
+ * so that routing proxies can prefer instances close to their callers.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class RoutingOptions {
+
+    public static final long DEFAULT_ADVERTISE_INTERVAL_MILLIS = 2000;
+
+    private String datacenter;
+    private String rack;
+    private long advertiseIntervalMillis = DEFAULT_ADVERTISE_INTERVAL_MILLIS;
+
+    /**
+     * The datacenter of the instance, or null to take it from the cluster.
+     */
+    public String getDatacenter() {
+        return datacenter;
+    }
+
+    public RoutingOptions setDatacenter(final String datacenter) {
+        this.datacenter = datacenter;
+        return this;
+    }
+
+    /**
+     * The rack of the instance, or null to take it from the cluster.
+     */
+    public String getRack() {
+        return rack;
+    }
+
+    public RoutingOptions setRack(final String rack) {
+        this.rack = rack;
+        return this;
+    }
+
+    /**
+     * How often the instance advertises itself. Routing proxies forget instances which have not advertised themselves
+     * for three intervals.
+     */
+    public long getAdvertiseIntervalMillis() {
+        return advertiseIntervalMillis;
+    }
+
+    public RoutingOptions setAdvertiseIntervalMillis(final long advertiseIntervalMillis) {
+        this.advertiseIntervalMillis = advertiseIntervalMillis;
+        return this;
+    }
+}
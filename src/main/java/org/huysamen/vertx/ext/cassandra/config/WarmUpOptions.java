@@ -0,0 +1,87 @@
+package org.huysamen.vertx.ext.cassandra.config;
+
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Options of the warm-up run before the service takes traffic, which connects to every local host, prepares the
+ * statement catalogue and runs warm-up queries.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class WarmUpOptions {
+
+    public static final int DEFAULT_PROBES_PER_HOST = 8;
+    public static final int DEFAULT_ITERATIONS = 100;
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    private JsonArray statements = new JsonArray();
+    private JsonArray queries = new JsonArray();
+    private int probesPerHost = DEFAULT_PROBES_PER_HOST;
+    private int iterations = DEFAULT_ITERATIONS;
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /**
+     * The statement catalogue: objects with the <code>name</code>, <code>statement</code> and optional
+     * <code>options</code> of the named statements to prepare.
+     */
+    public JsonArray getStatements() {
+        return statements;
+    }
+
+    public WarmUpOptions setStatements(final JsonArray statements) {
+        this.statements = statements;
+        return this;
+    }
+
+    /**
+     * The warm-up queries: objects with the <code>type</code> <code>prepared</code>, and the <code>name</code> and
+     * <code>values</code> of a named statement, or <code>execute</code>, and a raw <code>statement</code>. Either may
+     * have request <code>options</code>.
+     */
+    public JsonArray getQueries() {
+        return queries;
+    }
+
+    public WarmUpOptions setQueries(final JsonArray queries) {
+        this.queries = queries;
+        return this;
+    }
+
+    /**
+     * The number of probe queries sent per local host, spread over its connections by the load balancing policy.
+     */
+    public int getProbesPerHost() {
+        return probesPerHost;
+    }
+
+    public WarmUpOptions setProbesPerHost(final int probesPerHost) {
+        this.probesPerHost = probesPerHost;
+        return this;
+    }
+
+    /**
+     * The number of times the warm-up queries are run.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    public WarmUpOptions setIterations(final int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * The number of warm-up queries executing at the same time.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public WarmUpOptions setConcurrency(final int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+}
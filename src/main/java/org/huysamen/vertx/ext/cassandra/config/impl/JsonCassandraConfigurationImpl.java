@@ -5,11 +5,24 @@ import com.datastax.driver.core.policies.*;
 import com.google.common.base.Strings;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.config.AutotuneOptions;
 import org.huysamen.vertx.ext.cassandra.config.CassandraConfiguration;
-
+import org.huysamen.vertx.ext.cassandra.config.CircuitBreakerOptions;
+import org.huysamen.vertx.ext.cassandra.config.ClusterOptions;
+import org.huysamen.vertx.ext.cassandra.config.LaneOptions;
+import org.huysamen.vertx.ext.cassandra.config.LargeObjectOptions;
+import org.huysamen.vertx.ext.cassandra.config.RecorderOptions;
+import org.huysamen.vertx.ext.cassandra.config.ResultLimitOptions;
+import org.huysamen.vertx.ext.cassandra.config.RoutingOptions;
+import org.huysamen.vertx.ext.cassandra.config.WarmUpOptions;
+
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of the Cassandra Configuration {@link org.huysamen.vertx.ext.cassandra.config.CassandraConfiguration}
@@ -22,7 +35,13 @@ import java.util.List;
 public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
 
     public static final String CONFIG_SEEDS = "seeds";
+    public static final String CONFIG_PORT = "port";
     public static final String CONFIG_CONSISTENCY_LEVEL = "consistency_level";
+    public static final String CONFIG_DRAIN_TIMEOUT_MILLIS = "drain_timeout_millis";
+    public static final String CONFIG_SCHEMA_AGREEMENT_TIMEOUT_MILLIS = "schema_agreement_timeout_millis";
+
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 10000;
+    public static final long DEFAULT_SCHEMA_AGREEMENT_TIMEOUT_MILLIS = 10000;
 
     public static final String CONSISTENCY_ANY = "ANY";
     public static final String CONSISTENCY_ONE = "ONE";
@@ -33,8 +52,11 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
     public static final String CONSISTENCY_LOCAL_ONE = "LOCAL_ONE";
     public static final String CONSISTENCY_LOCAL_QUORUM = "LOCAL_QUORUM";
     public static final String CONSISTENCY_EACH_QUORUM = "EACH_QUORUM";
+    public static final String CONSISTENCY_SERIAL = "SERIAL";
+    public static final String CONSISTENCY_LOCAL_SERIAL = "LOCAL_SERIAL";
 
     protected List<String> seeds;
+    protected int port = ProtocolOptions.DEFAULT_PORT;
     protected LoadBalancingPolicy loadBalancingPolicy;
     protected ReconnectionPolicy reconnectionPolicy;
     protected PoolingOptions poolingOptions;
@@ -42,6 +64,24 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
     protected QueryOptions queryOptions;
     protected MetricsOptions metricsOptions;
     protected AuthProvider authProvider;
+    protected long slowQueryThresholdMillis = -1;
+    protected boolean queryLogRedactValues;
+    protected double traceProbability;
+    protected String queryLogAddress;
+    protected boolean phaseTimingEnabled;
+    protected boolean phaseTimingAttached;
+    protected CircuitBreakerOptions circuitBreakerOptions;
+    protected long drainTimeoutMillis = DEFAULT_DRAIN_TIMEOUT_MILLIS;
+    protected long schemaAgreementTimeoutMillis = DEFAULT_SCHEMA_AGREEMENT_TIMEOUT_MILLIS;
+    protected AutotuneOptions autotuneOptions;
+    protected RecorderOptions recorderOptions;
+    protected LargeObjectOptions largeObjectOptions;
+    protected ResultLimitOptions resultLimitOptions;
+    protected Map<String, LaneOptions> laneOptions = Collections.emptyMap();
+    protected String defaultLane;
+    protected WarmUpOptions warmUpOptions;
+    protected RoutingOptions routingOptions;
+    protected Map<String, ClusterOptions> clusterOptions = Collections.emptyMap();
 
     public JsonCassandraConfigurationImpl(final JsonObject config) {
         initialise(config);
@@ -52,6 +92,11 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
         return Collections.unmodifiableList(seeds);
     }
 
+    @Override
+    public int getPort() {
+        return port;
+    }
+
     @Override
     public LoadBalancingPolicy getLoadBalancingPolicy() {
         return loadBalancingPolicy;
@@ -87,15 +132,118 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
         return authProvider;
     }
 
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    @Override
+    public boolean isQueryLogRedactValues() {
+        return queryLogRedactValues;
+    }
+
+    @Override
+    public double getTraceProbability() {
+        return traceProbability;
+    }
+
+    @Override
+    public String getQueryLogAddress() {
+        return queryLogAddress;
+    }
+
+    @Override
+    public boolean isPhaseTimingEnabled() {
+        return phaseTimingEnabled;
+    }
+
+    @Override
+    public boolean isPhaseTimingAttached() {
+        return phaseTimingAttached;
+    }
+
+    @Override
+    public CircuitBreakerOptions getCircuitBreakerOptions() {
+        return circuitBreakerOptions;
+    }
+
+    @Override
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+
+    @Override
+    public long getSchemaAgreementTimeoutMillis() {
+        return schemaAgreementTimeoutMillis;
+    }
+
+    @Override
+    public AutotuneOptions getAutotuneOptions() {
+        return autotuneOptions;
+    }
+
+    @Override
+    public RecorderOptions getRecorderOptions() {
+        return recorderOptions;
+    }
+
+    @Override
+    public LargeObjectOptions getLargeObjectOptions() {
+        return largeObjectOptions;
+    }
+
+    @Override
+    public ResultLimitOptions getResultLimitOptions() {
+        return resultLimitOptions;
+    }
+
+    @Override
+    public Map<String, LaneOptions> getLaneOptions() {
+        return laneOptions;
+    }
+
+    @Override
+    public String getDefaultLane() {
+        return defaultLane;
+    }
+
+    @Override
+    public WarmUpOptions getWarmUpOptions() {
+        return warmUpOptions;
+    }
+
+    @Override
+    public RoutingOptions getRoutingOptions() {
+        return routingOptions;
+    }
+
+    @Override
+    public Map<String, ClusterOptions> getClusterOptions() {
+        return clusterOptions;
+    }
+
     protected void initialise(final JsonObject config) {
 
         initSeeds(config);
+        initPort(config);
         initPolicies(config);
         initPoolingOptions(config);
         initSocketOptions(config);
         initQueryOptions(config);
         initMetricsOptions(config);
         initAuthProvider(config);
+        initQueryLog(config);
+        initCircuitBreakers(config);
+        initDrainTimeout(config);
+        initSchemaAgreementTimeout(config);
+        initAutotune(config);
+        initRecorder(config);
+        initLargeObjects(config);
+        initResultLimits(config);
+        initLanes(config);
+        initWarmUp(config);
+        initRouting(config);
+        initClusters(config);
 
     }
 
@@ -113,6 +261,14 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
         }
     }
 
+    protected void initPort(final JsonObject config) {
+        final Integer port = config.getInteger(CONFIG_PORT);
+
+        if (port != null) {
+            this.port = port;
+        }
+    }
+
     protected void initPolicies(final JsonObject config) {
         final JsonObject policyConfig = config.getObject("policies");
 
@@ -131,6 +287,18 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
             return;
         }
 
+        loadBalancingPolicy = createLoadBalancingPolicy(loadBalancing);
+    }
+
+    /**
+     * Create a load balancing policy from its configuration. Wrapping policies take the policy they wrap from a nested
+     * <code>child</code> field, so that policies can be chained.
+     *
+     * @param loadBalancing The load balancing policy configuration.
+     *
+     * @return The load balancing policy.
+     */
+    protected LoadBalancingPolicy createLoadBalancingPolicy(final JsonObject loadBalancing) {
         final String name = loadBalancing.getString("name");
 
         if (name == null || name.isEmpty()) {
@@ -145,7 +313,64 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
                 throw new IllegalArgumentException("A DCAwareRoundRobinPolicy requires a local_dc in configuration.");
             }
 
-            loadBalancingPolicy = new DCAwareRoundRobinPolicy(localDc, usedHostsPerRemoteDc);
+            return new DCAwareRoundRobinPolicy(localDc, usedHostsPerRemoteDc);
+        } else if ("RoundRobinPolicy".equalsIgnoreCase(name)
+                || "com.datastax.driver.core.policies.RoundRobinPolicy".equalsIgnoreCase(name)) {
+
+            return new RoundRobinPolicy();
+        } else if ("TokenAwarePolicy".equalsIgnoreCase(name)
+                || "com.datastax.driver.core.policies.TokenAwarePolicy".equalsIgnoreCase(name)) {
+
+            return new TokenAwarePolicy(createChildPolicy(name, loadBalancing));
+        } else if ("LatencyAwarePolicy".equalsIgnoreCase(name)
+                || "com.datastax.driver.core.policies.LatencyAwarePolicy".equalsIgnoreCase(name)) {
+
+            final LatencyAwarePolicy.Builder builder = LatencyAwarePolicy.builder(createChildPolicy(name, loadBalancing));
+            final Number exclusionThreshold = loadBalancing.getNumber("exclusion_threshold");
+            final Long scaleMillis = loadBalancing.getLong("scale_millis");
+            final Long retryPeriodMillis = loadBalancing.getLong("retry_period_millis");
+            final Long updateRateMillis = loadBalancing.getLong("update_rate_millis");
+            final Integer minimumMeasurements = loadBalancing.getInteger("minimum_measurements");
+
+            if (exclusionThreshold != null) {
+                builder.withExclusionThreshold(exclusionThreshold.doubleValue());
+            }
+
+            if (scaleMillis != null) {
+                builder.withScale(scaleMillis, TimeUnit.MILLISECONDS);
+            }
+
+            if (retryPeriodMillis != null) {
+                builder.withRetryPeriod(retryPeriodMillis, TimeUnit.MILLISECONDS);
+            }
+
+            if (updateRateMillis != null) {
+                builder.withUpdateRate(updateRateMillis, TimeUnit.MILLISECONDS);
+            }
+
+            if (minimumMeasurements != null) {
+                builder.withMininumMeasurements(minimumMeasurements);
+            }
+
+            return builder.build();
+        } else if ("WhiteListPolicy".equalsIgnoreCase(name)
+                || "com.datastax.driver.core.policies.WhiteListPolicy".equalsIgnoreCase(name)) {
+
+            final JsonArray hosts = loadBalancing.getArray("hosts");
+            // The hosts listen on the configured native protocol port unless the policy names another
+            final int port = loadBalancing.getInteger("port", this.port);
+
+            if (hosts == null || hosts.size() == 0) {
+                throw new IllegalArgumentException("A WhiteListPolicy requires hosts in configuration.");
+            }
+
+            final List<InetSocketAddress> whiteList = new ArrayList<>();
+
+            for (int i = 0; i < hosts.size(); i++) {
+                whiteList.add(new InetSocketAddress(hosts.<String>get(i), port));
+            }
+
+            return new WhiteListPolicy(createChildPolicy(name, loadBalancing), whiteList);
         } else {
             Class<?> clazz;
 
@@ -157,7 +382,7 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
 
             if (LoadBalancingPolicy.class.isAssignableFrom(clazz)) {
                 try {
-                    loadBalancingPolicy = (LoadBalancingPolicy) clazz.newInstance();
+                    return (LoadBalancingPolicy) clazz.newInstance();
                 } catch (final IllegalAccessException | InstantiationException e) {
                     throw new RuntimeException(e);
                 }
@@ -167,6 +392,16 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
         }
     }
 
+    private LoadBalancingPolicy createChildPolicy(final String name, final JsonObject loadBalancing) {
+        final JsonObject child = loadBalancing.getObject("child");
+
+        if (child == null) {
+            throw new IllegalArgumentException("A " + name + " requires a child policy in configuration.");
+        }
+
+        return createLoadBalancingPolicy(child);
+    }
+
     protected void initReconnectionPolicy(final JsonObject policyConfig) {
         final JsonObject reconnection = policyConfig.getObject("reconnection");
 
@@ -224,7 +459,17 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
         }
 
         poolingOptions = new PoolingOptions();
+        applyPoolingOptions(poolingConfig, poolingOptions);
+    }
 
+    /**
+     * Apply the fields present in a pooling configuration to the given pooling options. The driver supports changing
+     * these at runtime.
+     *
+     * @param poolingConfig The pooling configuration.
+     * @param options The options to update.
+     */
+    public static void applyPoolingOptions(final JsonObject poolingConfig, final PoolingOptions options) {
         final Integer coreConnectionsPerHostLocal = poolingConfig.getInteger("core_connections_per_host_local");
         final Integer coreConnectionsPerHostRemote = poolingConfig.getInteger("core_connections_per_host_remote");
         final Integer maxConnectionsPerHostLocal = poolingConfig.getInteger("max_connections_per_host_local");
@@ -234,36 +479,42 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
         final Integer maxSimultaneousRequestsLocal = poolingConfig.getInteger("max_simultaneous_requests_local");
         final Integer maxSimultaneousRequestsRemote = poolingConfig.getInteger("max_simultaneous_requests_remote");
 
-        if (coreConnectionsPerHostLocal != null) {
-            poolingOptions.setCoreConnectionsPerHost(HostDistance.LOCAL, coreConnectionsPerHostLocal);
-        }
+        applyConnectionsPerHost(options, HostDistance.LOCAL, coreConnectionsPerHostLocal, maxConnectionsPerHostLocal);
+        applyConnectionsPerHost(options, HostDistance.REMOTE, coreConnectionsPerHostRemote, maxConnectionsPerHostRemote);
 
-        if (coreConnectionsPerHostRemote != null) {
-            poolingOptions.setCoreConnectionsPerHost(HostDistance.REMOTE, coreConnectionsPerHostRemote);
+        if (minSimultaneousRequestsLocal != null) {
+            options.setMinSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL, minSimultaneousRequestsLocal);
         }
 
-        if (maxConnectionsPerHostLocal != null) {
-            poolingOptions.setMaxConnectionsPerHost(HostDistance.LOCAL, maxConnectionsPerHostLocal);
+        if (minSimultaneousRequestsRemote != null) {
+            options.setMinSimultaneousRequestsPerConnectionThreshold(HostDistance.REMOTE, minSimultaneousRequestsRemote);
         }
 
-        if (maxConnectionsPerHostRemote != null) {
-            poolingOptions.setMaxConnectionsPerHost(HostDistance.REMOTE, maxConnectionsPerHostRemote);
+        if (maxSimultaneousRequestsLocal != null) {
+            options.setMaxSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL, maxSimultaneousRequestsLocal);
         }
 
-        if (minSimultaneousRequestsLocal != null) {
-            poolingOptions.setMinSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL, minSimultaneousRequestsLocal);
+        if (maxSimultaneousRequestsRemote != null) {
+            options.setMaxSimultaneousRequestsPerConnectionThreshold(HostDistance.REMOTE, maxSimultaneousRequestsRemote);
         }
+    }
 
-        if (minSimultaneousRequestsRemote != null) {
-            poolingOptions.setMinSimultaneousRequestsPerConnectionThreshold(HostDistance.REMOTE, minSimultaneousRequestsRemote);
+    private static void applyConnectionsPerHost(final PoolingOptions options, final HostDistance distance,
+                                                final Integer core, final Integer max) {
+
+        // The driver rejects a core size above the current maximum, so grow the maximum first when needed
+        if (core != null && max != null && core > options.getMaxConnectionsPerHost(distance)) {
+            options.setMaxConnectionsPerHost(distance, max);
+            options.setCoreConnectionsPerHost(distance, core);
+            return;
         }
 
-        if (maxSimultaneousRequestsLocal != null) {
-            poolingOptions.setMaxSimultaneousRequestsPerConnectionThreshold(HostDistance.LOCAL, maxSimultaneousRequestsLocal);
+        if (core != null) {
+            options.setCoreConnectionsPerHost(distance, core);
         }
 
-        if (maxSimultaneousRequestsRemote != null) {
-            poolingOptions.setMaxSimultaneousRequestsPerConnectionThreshold(HostDistance.REMOTE, maxSimultaneousRequestsRemote);
+        if (max != null) {
+            options.setMaxConnectionsPerHost(distance, max);
         }
     }
 
@@ -329,8 +580,17 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
     }
 
     protected ConsistencyLevel getConsistency(final JsonObject config) {
-        final String consistency = config.getString(CONFIG_CONSISTENCY_LEVEL);
+        return parseConsistency(config.getString(CONFIG_CONSISTENCY_LEVEL));
+    }
 
+    /**
+     * Parse a consistency level name.
+     *
+     * @param consistency The consistency level name, case insensitive.
+     *
+     * @return The consistency level, or null if no name was given.
+     */
+    public static ConsistencyLevel parseConsistency(final String consistency) {
         if (consistency == null || consistency.isEmpty()) {
             return null;
         }
@@ -371,6 +631,14 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
             return ConsistencyLevel.EACH_QUORUM;
         }
 
+        if (consistency.equalsIgnoreCase(CONSISTENCY_SERIAL)) {
+            return ConsistencyLevel.SERIAL;
+        }
+
+        if (consistency.equalsIgnoreCase(CONSISTENCY_LOCAL_SERIAL)) {
+            return ConsistencyLevel.LOCAL_SERIAL;
+        }
+
         throw new IllegalArgumentException("'" + consistency + "' is not a valid consistency level.");
     }
 
@@ -404,4 +672,515 @@ public class JsonCassandraConfigurationImpl implements CassandraConfiguration {
 
         authProvider = new PlainTextAuthProvider(username, password);
     }
+
+    protected void initQueryLog(final JsonObject config) {
+        final JsonObject queryLog = config.getObject("query_log");
+
+        if (queryLog == null) {
+            return;
+        }
+
+        final Long slowThresholdMillis = queryLog.getLong("slow_threshold_millis");
+        final Number probability = queryLog.getNumber("trace_probability");
+
+        if (slowThresholdMillis != null) {
+            slowQueryThresholdMillis = slowThresholdMillis;
+        }
+
+        if (probability != null) {
+            traceProbability = probability.doubleValue();
+
+            if (traceProbability < 0 || traceProbability > 1) {
+                throw new IllegalArgumentException("The query_log trace_probability must be between 0 and 1.");
+            }
+        }
+
+        queryLogRedactValues = queryLog.getBoolean("redact_values", false);
+        queryLogAddress = queryLog.getString("address");
+        phaseTimingAttached = queryLog.getBoolean("attach_timing", false);
+        phaseTimingEnabled = phaseTimingAttached || queryLog.getBoolean("phase_timing", false);
+    }
+
+    protected void initCircuitBreakers(final JsonObject config) {
+        final JsonObject circuitBreakers = config.getObject("circuit_breakers");
+
+        if (circuitBreakers == null) {
+            return;
+        }
+
+        circuitBreakerOptions = new CircuitBreakerOptions();
+
+        final Boolean statements = circuitBreakers.getBoolean("statements");
+        final Boolean hosts = circuitBreakers.getBoolean("hosts");
+        final Long windowMillis = circuitBreakers.getLong("window_millis");
+        final Integer minimumRequests = circuitBreakers.getInteger("minimum_requests");
+        final Number errorRate = circuitBreakers.getNumber("error_rate");
+        final Long slowCallMillis = circuitBreakers.getLong("slow_call_millis");
+        final Number slowCallRate = circuitBreakers.getNumber("slow_call_rate");
+        final Long openMillis = circuitBreakers.getLong("open_millis");
+        final Integer halfOpenProbes = circuitBreakers.getInteger("half_open_probes");
+
+        if (statements != null) {
+            circuitBreakerOptions.setStatementsEnabled(statements);
+        }
+
+        if (hosts != null) {
+            circuitBreakerOptions.setHostsEnabled(hosts);
+        }
+
+        if (windowMillis != null) {
+            circuitBreakerOptions.setWindowMillis(windowMillis);
+        }
+
+        if (minimumRequests != null) {
+            circuitBreakerOptions.setMinimumRequests(minimumRequests);
+        }
+
+        if (errorRate != null) {
+            if (errorRate.doubleValue() <= 0 || errorRate.doubleValue() > 1) {
+                throw new IllegalArgumentException("The circuit_breakers error_rate must be above 0 and at most 1.");
+            }
+
+            circuitBreakerOptions.setErrorRate(errorRate.doubleValue());
+        }
+
+        if (slowCallMillis != null) {
+            circuitBreakerOptions.setSlowCallMillis(slowCallMillis);
+        }
+
+        if (slowCallRate != null) {
+            if (slowCallRate.doubleValue() <= 0 || slowCallRate.doubleValue() > 1) {
+                throw new IllegalArgumentException("The circuit_breakers slow_call_rate must be above 0 and at most 1.");
+            }
+
+            circuitBreakerOptions.setSlowCallRate(slowCallRate.doubleValue());
+        }
+
+        if (openMillis != null) {
+            circuitBreakerOptions.setOpenMillis(openMillis);
+        }
+
+        if (halfOpenProbes != null) {
+            if (halfOpenProbes < 1) {
+                throw new IllegalArgumentException("The circuit_breakers half_open_probes must be at least 1.");
+            }
+
+            circuitBreakerOptions.setHalfOpenProbes(halfOpenProbes);
+        }
+    }
+
+    protected void initDrainTimeout(final JsonObject config) {
+        final Long timeout = config.getLong(CONFIG_DRAIN_TIMEOUT_MILLIS);
+
+        if (timeout == null) {
+            return;
+        }
+
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The drain_timeout_millis must not be negative.");
+        }
+
+        drainTimeoutMillis = timeout;
+    }
+
+    protected void initSchemaAgreementTimeout(final JsonObject config) {
+        final Long timeout = config.getLong(CONFIG_SCHEMA_AGREEMENT_TIMEOUT_MILLIS);
+
+        if (timeout == null) {
+            return;
+        }
+
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The schema_agreement_timeout_millis must not be negative.");
+        }
+
+        schemaAgreementTimeoutMillis = timeout;
+    }
+
+    protected void initAutotune(final JsonObject config) {
+        final JsonObject autotune = config.getObject("autotune");
+
+        if (autotune == null || !autotune.getBoolean("enabled", true)) {
+            return;
+        }
+
+        autotuneOptions = new AutotuneOptions();
+
+        final Long intervalMillis = autotune.getLong("interval_millis");
+        final Integer minConnections = autotune.getInteger("min_connections");
+        final Integer maxConnections = autotune.getInteger("max_connections");
+        final Integer minRequestsPerConnection = autotune.getInteger("min_requests_per_connection");
+        final Integer maxRequestsPerConnection = autotune.getInteger("max_requests_per_connection");
+        final Long latencyTargetMillis = autotune.getLong("latency_target_millis");
+
+        if (intervalMillis != null) {
+            autotuneOptions.setIntervalMillis(intervalMillis);
+        }
+
+        if (minConnections != null) {
+            autotuneOptions.setMinConnections(minConnections);
+        }
+
+        if (maxConnections != null) {
+            autotuneOptions.setMaxConnections(maxConnections);
+        }
+
+        if (minRequestsPerConnection != null) {
+            autotuneOptions.setMinRequestsPerConnection(minRequestsPerConnection);
+        }
+
+        if (maxRequestsPerConnection != null) {
+            autotuneOptions.setMaxRequestsPerConnection(maxRequestsPerConnection);
+        }
+
+        if (latencyTargetMillis != null) {
+            autotuneOptions.setLatencyTargetMillis(latencyTargetMillis);
+        }
+
+        if (autotuneOptions.getMinConnections() < 1 || autotuneOptions.getMinConnections() > autotuneOptions.getMaxConnections()) {
+            throw new IllegalArgumentException("The autotune connection bounds must satisfy 1 <= min_connections <= max_connections.");
+        }
+
+        if (autotuneOptions.getMinRequestsPerConnection() < 1
+                || autotuneOptions.getMinRequestsPerConnection() > autotuneOptions.getMaxRequestsPerConnection()) {
+            throw new IllegalArgumentException("The autotune request bounds must satisfy 1 <= min_requests_per_connection <= max_requests_per_connection.");
+        }
+    }
+
+    protected void initRecorder(final JsonObject config) {
+        final JsonObject recorder = config.getObject("recorder");
+
+        if (recorder == null || !recorder.getBoolean("enabled", true)) {
+            return;
+        }
+
+        final String path = recorder.getString("path");
+        final Integer queueSize = recorder.getInteger("queue_size");
+
+        if (Strings.isNullOrEmpty(path)) {
+            throw new IllegalArgumentException("The recorder path is required.");
+        }
+
+        recorderOptions = new RecorderOptions().setPath(path);
+
+        if (queueSize != null) {
+            if (queueSize < 1) {
+                throw new IllegalArgumentException("The recorder queue_size must be at least 1.");
+            }
+
+            recorderOptions.setQueueSize(queueSize);
+        }
+    }
+
+    protected void initLargeObjects(final JsonObject config) {
+        final JsonObject largeObjects = config.getObject("large_objects");
+
+        if (largeObjects == null || !largeObjects.getBoolean("enabled", true)) {
+            return;
+        }
+
+        final String table = largeObjects.getString("table");
+        final Integer chunkSize = largeObjects.getInteger("chunk_size");
+        final Integer parallelism = largeObjects.getInteger("parallelism");
+        final Long gracePeriodMillis = largeObjects.getLong("grace_period_millis");
+
+        if (Strings.isNullOrEmpty(table)) {
+            throw new IllegalArgumentException("The large_objects table is required.");
+        }
+
+        largeObjectOptions = new LargeObjectOptions()
+                .setTable(table)
+                .setCreateTable(largeObjects.getBoolean("create_table", true));
+
+        if (chunkSize != null) {
+            if (chunkSize < 1024) {
+                throw new IllegalArgumentException("The large_objects chunk_size must be at least 1024.");
+            }
+
+            largeObjectOptions.setChunkSize(chunkSize);
+        }
+
+        if (parallelism != null) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("The large_objects parallelism must be at least 1.");
+            }
+
+            largeObjectOptions.setParallelism(parallelism);
+        }
+
+        if (gracePeriodMillis != null) {
+            if (gracePeriodMillis < 0) {
+                throw new IllegalArgumentException("The large_objects grace_period_millis must be at least 0.");
+            }
+
+            largeObjectOptions.setGracePeriodMillis(gracePeriodMillis);
+        }
+    }
+
+    protected void initResultLimits(final JsonObject config) {
+        final JsonObject limits = config.getObject("result_limits");
+
+        if (limits == null || !limits.getBoolean("enabled", true)) {
+            return;
+        }
+
+        final Integer maxRows = limits.getInteger("max_rows");
+        final Long maxBytes = limits.getLong("max_bytes");
+        final Long memoryBudgetBytes = limits.getLong("memory_budget_bytes");
+        final Long maxWaitMillis = limits.getLong("max_wait_millis");
+        final Long cursorTimeoutMillis = limits.getLong("cursor_timeout_millis");
+        final Integer maxCursors = limits.getInteger("max_cursors");
+
+        resultLimitOptions = new ResultLimitOptions();
+
+        if (maxRows != null) {
+            if (maxRows < 1) {
+                throw new IllegalArgumentException("The result_limits max_rows must be at least 1.");
+            }
+
+            resultLimitOptions.setMaxRows(maxRows);
+        }
+
+        if (maxBytes != null) {
+            if (maxBytes < 1) {
+                throw new IllegalArgumentException("The result_limits max_bytes must be at least 1.");
+            }
+
+            resultLimitOptions.setMaxBytes(maxBytes);
+        }
+
+        if (memoryBudgetBytes != null) {
+            if (memoryBudgetBytes < 1) {
+                throw new IllegalArgumentException("The result_limits memory_budget_bytes must be at least 1.");
+            }
+
+            resultLimitOptions.setMemoryBudgetBytes(memoryBudgetBytes);
+        }
+
+        if (maxWaitMillis != null) {
+            if (maxWaitMillis < 1) {
+                throw new IllegalArgumentException("The result_limits max_wait_millis must be at least 1.");
+            }
+
+            resultLimitOptions.setMaxWaitMillis(maxWaitMillis);
+        }
+
+        if (cursorTimeoutMillis != null) {
+            if (cursorTimeoutMillis < 1) {
+                throw new IllegalArgumentException("The result_limits cursor_timeout_millis must be at least 1.");
+            }
+
+            resultLimitOptions.setCursorTimeoutMillis(cursorTimeoutMillis);
+        }
+
+        if (maxCursors != null) {
+            if (maxCursors < 0) {
+                throw new IllegalArgumentException("The result_limits max_cursors must not be negative.");
+            }
+
+            resultLimitOptions.setMaxCursors(maxCursors);
+        }
+    }
+
+    protected void initLanes(final JsonObject config) {
+        final JsonObject lanes = config.getObject("lanes");
+
+        defaultLane = config.getString("default_lane");
+
+        if (lanes == null) {
+            if (defaultLane != null) {
+                throw new IllegalArgumentException("The default_lane " + defaultLane + " is not defined in lanes.");
+            }
+
+            return;
+        }
+
+        laneOptions = new LinkedHashMap<>();
+
+        for (final String name : lanes.getFieldNames()) {
+            final JsonObject lane = lanes.getObject(name);
+            final Integer maxInFlight = lane.getInteger("max_in_flight");
+            final Integer maxQueued = lane.getInteger("max_queued");
+            final Long queueTimeoutMillis = lane.getLong("queue_timeout_millis");
+            final LaneOptions options = new LaneOptions()
+                    .setName(name)
+                    .setDedicatedSession(lane.getBoolean("dedicated_session", false));
+
+            if (maxInFlight != null) {
+                if (maxInFlight < 1) {
+                    throw new IllegalArgumentException("The max_in_flight of lane " + name + " must be at least 1.");
+                }
+
+                options.setMaxInFlight(maxInFlight);
+            }
+
+            if (maxQueued != null) {
+                if (maxQueued < 0) {
+                    throw new IllegalArgumentException("The max_queued of lane " + name + " must not be negative.");
+                }
+
+                options.setMaxQueued(maxQueued);
+            }
+
+            if (queueTimeoutMillis != null) {
+                if (queueTimeoutMillis < 1) {
+                    throw new IllegalArgumentException("The queue_timeout_millis of lane " + name + " must be at least 1.");
+                }
+
+                options.setQueueTimeoutMillis(queueTimeoutMillis);
+            }
+
+            laneOptions.put(name, options);
+        }
+
+        if (defaultLane != null && !laneOptions.containsKey(defaultLane)) {
+            throw new IllegalArgumentException("The default_lane " + defaultLane + " is not defined in lanes.");
+        }
+    }
+
+    protected void initWarmUp(final JsonObject config) {
+        final JsonObject warmUp = config.getObject("warm_up");
+
+        if (warmUp == null || !warmUp.getBoolean("enabled", true)) {
+            return;
+        }
+
+        final Integer probesPerHost = warmUp.getInteger("probes_per_host");
+        final Integer iterations = warmUp.getInteger("iterations");
+        final Integer concurrency = warmUp.getInteger("concurrency");
+
+        warmUpOptions = new WarmUpOptions()
+                .setStatements(warmUp.getArray("statements", new JsonArray()))
+                .setQueries(warmUp.getArray("queries", new JsonArray()));
+
+        for (int i = 0; i < warmUpOptions.getStatements().size(); i++) {
+            final Object statement = warmUpOptions.getStatements().get(i);
+
+            if (!(statement instanceof JsonObject)
+                    || Strings.isNullOrEmpty(((JsonObject) statement).getString("name"))
+                    || Strings.isNullOrEmpty(((JsonObject) statement).getString("statement"))) {
+                throw new IllegalArgumentException("Every warm_up statement must have a name and a statement.");
+            }
+        }
+
+        for (int i = 0; i < warmUpOptions.getQueries().size(); i++) {
+            final Object query = warmUpOptions.getQueries().get(i);
+
+            if (!(query instanceof JsonObject)) {
+                throw new IllegalArgumentException("Every warm_up query must be an object.");
+            }
+
+            final String field = "prepared".equals(((JsonObject) query).getString("type")) ? "name" : "statement";
+
+            if (Strings.isNullOrEmpty(((JsonObject) query).getString(field))) {
+                throw new IllegalArgumentException("A warm_up query is missing its " + field + ".");
+            }
+        }
+
+        if (probesPerHost != null) {
+            if (probesPerHost < 0) {
+                throw new IllegalArgumentException("The warm_up probes_per_host must not be negative.");
+            }
+
+            warmUpOptions.setProbesPerHost(probesPerHost);
+        }
+
+        if (iterations != null) {
+            if (iterations < 0) {
+                throw new IllegalArgumentException("The warm_up iterations must not be negative.");
+            }
+
+            warmUpOptions.setIterations(iterations);
+        }
+
+        if (concurrency != null) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("The warm_up concurrency must be at least 1.");
+            }
+
+            warmUpOptions.setConcurrency(concurrency);
+        }
+    }
+
+    protected void initRouting(final JsonObject config) {
+        final JsonObject routing = config.getObject("routing");
+
+        if (routing == null || !routing.getBoolean("enabled", true)) {
+            return;
+        }
+
+        final Long advertiseIntervalMillis = routing.getLong("advertise_interval_millis");
+
+        routingOptions = new RoutingOptions()
+                .setDatacenter(routing.getString("dc"))
+                .setRack(routing.getString("rack"));
+
+        if (advertiseIntervalMillis != null) {
+            if (advertiseIntervalMillis < 1) {
+                throw new IllegalArgumentException("The routing advertise_interval_millis must be at least 1.");
+            }
+
+            routingOptions.setAdvertiseIntervalMillis(advertiseIntervalMillis);
+        }
+    }
+
+    protected void initClusters(final JsonObject config) {
+        final JsonObject clusters = config.getObject("clusters");
+
+        if (clusters == null) {
+            return;
+        }
+
+        clusterOptions = new LinkedHashMap<>();
+
+        for (final String name : clusters.getFieldNames()) {
+            if (ClusterOptions.PRIMARY.equals(name)) {
+                throw new IllegalArgumentException("The cluster name " + ClusterOptions.PRIMARY + " is reserved for the cluster of the service.");
+            }
+
+            final JsonObject cluster = clusters.getObject(name);
+            final JsonObject clusterConfig = cluster.getObject("config");
+
+            if (clusterConfig == null) {
+                throw new IllegalArgumentException("The cluster " + name + " has no config.");
+            }
+
+            if (clusterConfig.containsField("clusters")) {
+                throw new IllegalArgumentException("The config of cluster " + name + " cannot have clusters of its own.");
+            }
+
+            final Integer mirrorMaxInFlight = cluster.getInteger("mirror_max_in_flight");
+            final Integer mirrorMaxPending = cluster.getInteger("mirror_max_pending");
+            final Long mirrorMaxLagMillis = cluster.getLong("mirror_max_lag_millis");
+            final ClusterOptions options = new ClusterOptions()
+                    .setName(name)
+                    .setConfig(clusterConfig.copy());
+
+            if (mirrorMaxInFlight != null) {
+                if (mirrorMaxInFlight < 1) {
+                    throw new IllegalArgumentException("The mirror_max_in_flight of cluster " + name + " must be at least 1.");
+                }
+
+                options.setMirrorMaxInFlight(mirrorMaxInFlight);
+            }
+
+            if (mirrorMaxPending != null) {
+                if (mirrorMaxPending < 0) {
+                    throw new IllegalArgumentException("The mirror_max_pending of cluster " + name + " must not be negative.");
+                }
+
+                options.setMirrorMaxPending(mirrorMaxPending);
+            }
+
+            if (mirrorMaxLagMillis != null) {
+                if (mirrorMaxLagMillis < 1) {
+                    throw new IllegalArgumentException("The mirror_max_lag_millis of cluster " + name + " must be at least 1.");
+                }
+
+                options.setMirrorMaxLagMillis(mirrorMaxLagMillis);
+            }
+
+            clusterOptions.put(name, options);
+        }
+    }
 }
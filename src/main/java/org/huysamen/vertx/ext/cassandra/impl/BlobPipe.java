@@ -0,0 +1,155 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.streams.WriteStream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a blob column of every row of a result set to a stream, on the context owning the stream. Rows are written
+ * while the write queue of the stream has room, and the next page is fetched once the current one has been written, so
+ * that no more than a page of the result is held in memory however slow the stream is. The pipe fails if the stream
+ * fails or is closed, or stays full for longer than the stall timeout, so that the request does not stay in flight for
+ * a stream that will never drain.
+ */
+class BlobPipe {
+
+    protected static final long STALL_TIMEOUT_MILLIS = 30000;
+
+    private final Vertx vertx;
+    private final Context context;
+    private final ResultSet resultSet;
+    private final String column;
+    private final WriteStream<Buffer> target;
+    private final Handler<AsyncResult<Long>> handler;
+
+    private long written;
+    private long stallTimer = -1;
+    private boolean finished;
+
+    protected BlobPipe(final Vertx vertx, final Context context, final ResultSet resultSet, final String column,
+                       final WriteStream<Buffer> target, final Handler<AsyncResult<Long>> handler) {
+
+        this.vertx = vertx;
+        this.context = context;
+        this.resultSet = resultSet;
+        this.column = column;
+        this.target = target;
+        this.handler = handler;
+    }
+
+    protected void start() {
+        context.runOnContext(v -> {
+            target.exceptionHandler(this::fail);
+
+            // Closing is only reported by the streams that have a connection to lose
+            if (target instanceof HttpServerResponse) {
+                ((HttpServerResponse) target).closeHandler(c -> fail(new IllegalStateException("The target stream was closed")));
+            } else if (target instanceof NetSocket) {
+                ((NetSocket) target).closeHandler(c -> fail(new IllegalStateException("The target stream was closed")));
+            }
+
+            pump();
+        });
+    }
+
+    /**
+     * Wraps the bytes of a value, as returned by the driver, in a buffer without copying them.
+     */
+    protected static Buffer wrap(final ByteBuffer bytes) {
+        return Buffer.buffer(Unpooled.wrappedBuffer(bytes));
+    }
+
+    private void pump() {
+        if (finished) {
+            return;
+        }
+
+        if (stallTimer != -1) {
+            vertx.cancelTimer(stallTimer);
+            stallTimer = -1;
+        }
+
+        try {
+            while (resultSet.getAvailableWithoutFetching() > 0) {
+                if (target.writeQueueFull()) {
+                    target.drainHandler(v -> pump());
+                    stallTimer = vertx.setTimer(STALL_TIMEOUT_MILLIS, id -> {
+                        stallTimer = -1;
+                        fail(new IllegalStateException("The target stream did not drain within " + STALL_TIMEOUT_MILLIS + " ms"));
+                    });
+                    return;
+                }
+
+                final Row row = resultSet.one();
+
+                if (!row.isNull(column)) {
+                    final Buffer buffer = wrap(row.getBytesUnsafe(column));
+
+                    written += buffer.length();
+                    target.write(buffer);
+                }
+            }
+        } catch (final RuntimeException e) {
+            fail(e);
+            return;
+        }
+
+        if (resultSet.isFullyFetched()) {
+            finish();
+            return;
+        }
+
+        Futures.addCallback(resultSet.fetchMoreResults(), new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(final Object page) {
+                context.runOnContext(v -> pump());
+            }
+
+            @Override
+            public void onFailure(final Throwable throwable) {
+                context.runOnContext(v -> fail(throwable));
+            }
+        });
+    }
+
+    /**
+     * Runs on the context of the stream, as all other steps of the pipe do.
+     */
+    private void finish() {
+        if (!finished) {
+            finished = true;
+            detach();
+            handler.handle(CassandraServiceImpl.createAsyncResult(written));
+        }
+    }
+
+    private void fail(final Throwable error) {
+        if (!finished) {
+            finished = true;
+            detach();
+            handler.handle(CassandraServiceImpl.createAsyncResult(error));
+        }
+    }
+
+    private void detach() {
+        if (stallTimer != -1) {
+            vertx.cancelTimer(stallTimer);
+            stallTimer = -1;
+        }
+
+        target.drainHandler(null);
+        target.exceptionHandler(null);
+    }
+}
@@ -0,0 +1,533 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * A read of the same statement over many buckets of a time range, such as the daily partitions of a time series. The
+ * buckets are queried concurrently, up to a number of queries and page fetches in flight, and their rows, which come in
+ * clustering order, are merged into one ordered result. Once the limit of rows or bytes is reached no further pages are
+ * fetched. The query of a bucket is completed once all of its pages are fetched, or the read is done, so that its page
+ * fetches count as part of it.
+ */
+class BucketedRead {
+
+    protected static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    protected static final int MAX_BUCKETS = 10000;
+    protected static final long DEFAULT_BUCKET_MILLIS = 86400000;
+
+    private static final int PROTOCOL_VERSION = 2;
+
+    private final List<Object> buckets;
+    private final Query query;
+    private final String orderBy;
+    private final boolean descending;
+    private final long limit;
+    private final long maxBytes;
+    private final int maxInFlight;
+    private final Handler<AsyncResult<Result>> handler;
+
+    private final PriorityQueue<Source> heads;
+    private final Queue<Source> fetches = new ArrayDeque<>();
+    private final List<Source> sources = new ArrayList<>();
+    private final List<Runnable> completions = new ArrayList<>();
+    private final List<Row> rows = new ArrayList<>();
+
+    private ColumnDefinitions columns;
+    private int orderIndex = -1;
+    private int started;
+    private int inFlight;
+    private int waiting;
+    private long bytes;
+    private boolean done;
+
+    /**
+     * @param buckets The keys of the buckets, in the order of the merged result.
+     * @param query Queries a bucket.
+     * @param orderBy The column the rows of every bucket are ordered by.
+     * @param descending Whether the rows are in descending order.
+     * @param limit The number of rows to merge, at most.
+     * @param maxBytes The estimated size of the rows to merge, after which no more rows are merged.
+     * @param maxInFlight The number of queries and page fetches in flight at the same time.
+     * @param handler Called with the merged rows.
+     */
+    protected BucketedRead(final List<Object> buckets, final Query query, final String orderBy, final boolean descending,
+                           final long limit, final long maxBytes, final int maxInFlight,
+                           final Handler<AsyncResult<Result>> handler) {
+
+        this.buckets = buckets;
+        this.query = query;
+        this.orderBy = orderBy;
+        this.descending = descending;
+        this.limit = limit;
+        this.maxBytes = maxBytes;
+        this.maxInFlight = maxInFlight;
+        this.handler = handler;
+        this.heads = new PriorityQueue<>(Math.max(1, buckets.size()), this::compare);
+        this.waiting = buckets.size();
+    }
+
+    protected void start() {
+        pump();
+    }
+
+    /**
+     * Starts queries and page fetches while there is room for them, then merges rows while every bucket has either
+     * its next row at hand or no more rows. The queries of buckets that are done with are completed.
+     */
+    private void pump() {
+        final List<Runnable> requests = new ArrayList<>();
+        final List<Runnable> completed;
+
+        synchronized (this) {
+            merge(requests);
+
+            completed = new ArrayList<>(completions);
+            completions.clear();
+        }
+
+        // Completing or sending requests may call back on this thread, so both happen outside of the lock
+        completed.forEach(Runnable::run);
+        requests.forEach(Runnable::run);
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void merge(final List<Runnable> requests) {
+        while (!done && waiting == 0 && rows.size() < limit && bytes < maxBytes && !heads.isEmpty()) {
+            final Source source = heads.poll();
+
+            rows.add(source.head);
+            bytes += CassandraServiceImpl.estimatedBytes(source.head);
+            advance(source);
+        }
+
+        if (done) {
+            return;
+        }
+
+        if (rows.size() >= limit || bytes >= maxBytes || waiting == 0 && heads.isEmpty()) {
+            finish();
+            return;
+        }
+
+        // Fetching the pages the merge waits for comes before querying further buckets
+        while (inFlight < maxInFlight && !fetches.isEmpty()) {
+            final Source source = fetches.poll();
+
+            inFlight++;
+            requests.add(() -> fetch(source));
+        }
+
+        while (inFlight < maxInFlight && started < buckets.size()) {
+            final Source source = new Source(started++);
+
+            sources.add(source);
+            inFlight++;
+            requests.add(() -> query(source));
+        }
+    }
+
+    private void query(final Source source) {
+        query.query(buckets.get(source.index), result -> {
+            synchronized (this) {
+                inFlight--;
+
+                if (result.failed()) {
+                    fail(result.cause());
+                } else {
+                    queried(source, result.result());
+                }
+            }
+
+            pump();
+        });
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void queried(final Source source, final Queried queried) {
+        source.resultSet = queried.resultSet;
+        source.complete = queried.complete;
+
+        // A bucket queried after the read is done is of no more use
+        if (done) {
+            complete(source);
+            return;
+        }
+
+        source.rows = source.resultSet.iterator();
+
+        if (columns == null) {
+            columns = source.resultSet.getColumnDefinitions();
+            orderIndex = columns.getIndexOf(orderBy);
+
+            if (orderIndex == -1) {
+                fail(new IllegalArgumentException("The order_by column " + orderBy + " is not in the result"));
+                return;
+            }
+
+            if (!orderable(columns.getType(orderIndex))) {
+                fail(new IllegalArgumentException("The order_by column " + orderBy + " cannot be ordered by as a "
+                        + columns.getType(orderIndex)));
+                return;
+            }
+        }
+
+        waiting--;
+        advance(source);
+    }
+
+    private void fetch(final Source source) {
+        Futures.addCallback(source.resultSet.fetchMoreResults(), new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(final Object page) {
+                synchronized (BucketedRead.this) {
+                    inFlight--;
+
+                    if (!done) {
+                        waiting--;
+                        advance(source);
+                    }
+                }
+
+                pump();
+            }
+
+            @Override
+            public void onFailure(final Throwable throwable) {
+                synchronized (BucketedRead.this) {
+                    inFlight--;
+                    fail(throwable);
+                }
+
+                pump();
+            }
+        });
+    }
+
+    /**
+     * Moves a bucket on to its next row, if it has one at hand. Otherwise the bucket either has no more rows, or the
+     * merge has to wait for its next page. A row whose key cannot be read fails the read. Once all of its pages are
+     * fetched, the query of the bucket is completed, as the rows left are at hand.
+     */
+    private void advance(final Source source) {
+        if (source.resultSet.isFullyFetched()) {
+            complete(source);
+        }
+
+        if (source.resultSet.getAvailableWithoutFetching() > 0) {
+            source.head = source.rows.next();
+
+            try {
+                source.key = key(columns.getType(orderIndex), source.head.getBytesUnsafe(orderIndex));
+            } catch (final RuntimeException e) {
+                fail(e);
+                return;
+            }
+
+            heads.add(source);
+        } else if (source.resultSet.isFullyFetched()) {
+            source.head = null;
+        } else {
+            waiting++;
+            fetches.add(source);
+        }
+    }
+
+    /**
+     * Must be called while holding the lock. Queues the query of a bucket to be completed, outside of the lock.
+     */
+    private void complete(final Source source) {
+        if (source.complete != null) {
+            completions.add(source.complete);
+            source.complete = null;
+        }
+    }
+
+    private void finish() {
+        if (done) {
+            return;
+        }
+
+        done = true;
+        sources.forEach(this::complete);
+
+        // Buckets not queried yet, or waiting for a page, may hold further rows, as do those with a row at hand
+        final boolean truncated = waiting > 0 || !heads.isEmpty();
+
+        handler.handle(CassandraServiceImpl.createAsyncResult(new Result(columns, rows, truncated)));
+    }
+
+    private void fail(final Throwable error) {
+        if (done) {
+            return;
+        }
+
+        done = true;
+        sources.forEach(this::complete);
+        handler.handle(CassandraServiceImpl.createAsyncResult(error));
+    }
+
+    /**
+     * Whether rows can be merged in the order of a column of the type, which are the types a clustering column orders
+     * rows by, other than collections and custom types.
+     */
+    protected static boolean orderable(final DataType type) {
+        switch (type.getName()) {
+            case ASCII:
+            case BIGINT:
+            case BLOB:
+            case BOOLEAN:
+            case COUNTER:
+            case DECIMAL:
+            case DOUBLE:
+            case FLOAT:
+            case INET:
+            case INT:
+            case TEXT:
+            case TIMESTAMP:
+            case TIMEUUID:
+            case UUID:
+            case VARCHAR:
+            case VARINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The key of a serialized value of an orderable type, which orders values the way Cassandra orders them in a
+     * partition: numbers, timestamps and booleans by their value, time UUIDs by their time, other UUIDs by their
+     * version and then, for time UUIDs, their time, and anything else, text included, by its bytes, unsigned.
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> key(final DataType type, final ByteBuffer serialized) {
+        if (serialized == null) {
+            return null;
+        }
+
+        switch (type.getName()) {
+            case BIGINT:
+            case BOOLEAN:
+            case COUNTER:
+            case DECIMAL:
+            case DOUBLE:
+            case FLOAT:
+            case INT:
+            case TIMESTAMP:
+            case VARINT:
+                return (Comparable<Object>) type.deserialize(serialized, PROTOCOL_VERSION);
+            case TIMEUUID: {
+                final UUID uuid = (UUID) type.deserialize(serialized, PROTOCOL_VERSION);
+
+                return (Comparable<Object>) (Comparable<?>) new BytesKey(0, uuid.timestamp(), serialized);
+            }
+            case UUID: {
+                final UUID uuid = (UUID) type.deserialize(serialized, PROTOCOL_VERSION);
+                final int version = uuid.version();
+
+                return (Comparable<Object>) (Comparable<?>) new BytesKey(version, version == 1 ? uuid.timestamp() : 0, serialized);
+            }
+            default:
+                return (Comparable<Object>) (Comparable<?>) new BytesKey(0, 0, serialized);
+        }
+    }
+
+    /**
+     * The keys of the buckets of a time range, in the order of the merged result. The buckets are either given as a
+     * list of <code>keys</code>, or cover the range from <code>from</code> up to <code>to</code>, in milliseconds since
+     * the epoch, in buckets of <code>size_millis</code>. Each bucket of a range is keyed by the time it starts at, in
+     * the type of the statement variable holding the key: a timestamp, a number of milliseconds for a bigint, a number
+     * of buckets since the epoch for an int, or text in the <code>format</code> of a {@link SimpleDateFormat} in UTC.
+     *
+     * @throws IllegalArgumentException If the buckets cannot be generated for the type.
+     */
+    protected static List<Object> keys(final JsonObject options, final DataType type, final boolean descending) {
+        final JsonArray given = options.getArray("keys");
+        final List<Object> keys = new ArrayList<>();
+
+        if (given != null) {
+            for (int i = 0; i < given.size(); i++) {
+                keys.add(given.get(i));
+            }
+        } else {
+            final Long from = options.getLong("from");
+            final Long to = options.getLong("to");
+            final Long sizeMillis = options.getLong("size_millis");
+            final long size = sizeMillis == null ? DEFAULT_BUCKET_MILLIS : sizeMillis;
+
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("The buckets need either keys, or a from and to time");
+            }
+
+            if (size < 1) {
+                throw new IllegalArgumentException("The bucket size_millis must be at least 1");
+            }
+
+            if (to <= from) {
+                return keys;
+            }
+
+            if ((to - 1) / size - Math.floorDiv(from, size) >= MAX_BUCKETS) {
+                throw new IllegalArgumentException("A read cannot cover more than " + MAX_BUCKETS + " buckets");
+            }
+
+            final SimpleDateFormat format = text(type) ? new SimpleDateFormat(options.getString("format", "yyyy-MM-dd")) : null;
+
+            if (format != null) {
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            }
+
+            for (long start = Math.floorDiv(from, size) * size; start < to; start += size) {
+                keys.add(key(start, size, type, format));
+            }
+        }
+
+        if (keys.size() > MAX_BUCKETS) {
+            throw new IllegalArgumentException("A read cannot cover more than " + MAX_BUCKETS + " buckets");
+        }
+
+        if (descending) {
+            Collections.reverse(keys);
+        }
+
+        return keys;
+    }
+
+    private static Object key(final long start, final long size, final DataType type, final SimpleDateFormat format) {
+        switch (type.getName()) {
+            case TIMESTAMP:
+                return new Date(start);
+            case BIGINT:
+                return start;
+            case INT:
+                return (int) Math.floorDiv(start, size);
+            default:
+                if (format == null) {
+                    throw new IllegalArgumentException("Buckets cannot be keyed by a " + type + " for a time range");
+                }
+
+                return format.format(new Date(start));
+        }
+    }
+
+    private static boolean text(final DataType type) {
+        return type.getName() == DataType.Name.TEXT || type.getName() == DataType.Name.VARCHAR
+                || type.getName() == DataType.Name.ASCII;
+    }
+
+    interface Query {
+        void query(Object bucket, Handler<AsyncResult<Queried>> handler);
+    }
+
+    /**
+     * The first page of a bucket, and the completion of its query, which is run once the read is done with it.
+     */
+    protected static class Queried {
+        private final ResultSet resultSet;
+        private final Runnable complete;
+
+        protected Queried(final ResultSet resultSet, final Runnable complete) {
+            this.resultSet = resultSet;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * Orders values by a version and a time, then by their bytes, unsigned.
+     */
+    private static class BytesKey implements Comparable<BytesKey> {
+        private final int version;
+        private final long time;
+        private final byte[] bytes;
+
+        private BytesKey(final int version, final long time, final ByteBuffer serialized) {
+            this.version = version;
+            this.time = time;
+            this.bytes = new byte[serialized.remaining()];
+
+            serialized.duplicate().get(bytes);
+        }
+
+        @Override
+        public int compareTo(final BytesKey other) {
+            int compared = Integer.compare(version, other.version);
+
+            if (compared == 0) {
+                compared = Long.compare(time, other.time);
+            }
+
+            return compared != 0 ? compared : UnsignedBytes.lexicographicalComparator().compare(bytes, other.bytes);
+        }
+    }
+
+    private static class Source {
+        private final int index;
+
+        private ResultSet resultSet;
+        private Runnable complete;
+        private Iterator<Row> rows;
+        private Row head;
+        private Comparable<Object> key;
+
+        private Source(final int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * The merged rows of a read, and whether any rows were left out of them.
+     */
+    protected static class Result {
+        private final ColumnDefinitions columns;
+        private final List<Row> rows;
+        private final boolean truncated;
+
+        private Result(final ColumnDefinitions columns, final List<Row> rows, final boolean truncated) {
+            this.columns = columns;
+            this.rows = rows;
+            this.truncated = truncated;
+        }
+
+        /**
+         * The columns of the rows, or null if no bucket was queried.
+         */
+        protected ColumnDefinitions getColumns() {
+            return columns;
+        }
+
+        protected List<Row> getRows() {
+            return rows;
+        }
+
+        protected boolean isTruncated() {
+            return truncated;
+        }
+    }
+}
@@ -2,9 +2,17 @@ package org.huysamen.vertx.ext.cassandra.impl;
 
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CassandraBlobService;
+import org.huysamen.vertx.ext.cassandra.CassandraMappedService;
 import org.huysamen.vertx.ext.cassandra.CassandraService;
 import org.huysamen.vertx.ext.cassandra.CassandraServiceFactory;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Implementation of the Cassandra service factory {@link org.huysamen.vertx.ext.cassandra.CassandraServiceFactory}
  * contract.
@@ -15,6 +23,10 @@ import org.huysamen.vertx.ext.cassandra.CassandraServiceFactory;
  */
 public class CassandraServiceFactoryImpl implements CassandraServiceFactory {
 
+    // Several verticle instances may register on the same address, so each keeps its own registration
+    private static final ConcurrentMap<Vertx, ConcurrentMap<String, List<CassandraService>>> localServices = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Vertx, ConcurrentMap<String, RoutingCassandraService>> routers = new ConcurrentHashMap<>();
+
     @Override
     public CassandraService create(final Vertx vertx, final JsonObject config) {
         return new CassandraServiceImpl(vertx, config);
@@ -22,6 +34,81 @@ public class CassandraServiceFactoryImpl implements CassandraServiceFactory {
 
     @Override
     public CassandraService createEventBusProxy(final Vertx vertx, final String address) {
-        return vertx.eventBus().createProxy(CassandraService.class, address);
+        final CassandraService remote = vertx.eventBus().createProxy(CassandraService.class, address);
+
+        return new LocalCassandraService(vertx, () -> local(vertx, address), remote);
+    }
+
+    @Override
+    public CassandraService createEventBusProxy(final Vertx vertx, final String address, final JsonObject locality) {
+        final String datacenter = locality == null ? null : locality.getString("dc");
+        final String rack = locality == null ? null : locality.getString("rack");
+
+        // Routing proxies listen for the advertisements of the instances, so there is one per address and location
+        final CassandraService router = routers.computeIfAbsent(vertx, v -> new ConcurrentHashMap<>())
+                .computeIfAbsent(address + "|" + datacenter + "|" + rack, key -> new RoutingCassandraService(vertx, address, datacenter, rack));
+
+        return new LocalCassandraService(vertx, () -> local(vertx, address), router);
+    }
+
+    @Override
+    public void registerLocal(final Vertx vertx, final String address, final CassandraService service) {
+        localServices.computeIfAbsent(vertx, v -> new ConcurrentHashMap<>()).compute(address, (a, registered) -> {
+            final List<CassandraService> services = registered == null ? new CopyOnWriteArrayList<>() : registered;
+
+            services.add(service);
+            return services;
+        });
+    }
+
+    @Override
+    public void unregisterLocal(final Vertx vertx, final String address, final CassandraService service) {
+        final ConcurrentMap<String, List<CassandraService>> services = localServices.get(vertx);
+
+        if (services != null) {
+            services.computeIfPresent(address, (a, registered) -> {
+                registered.remove(service);
+                return registered.isEmpty() ? null : registered;
+            });
+        }
+    }
+
+    /**
+     * The service registered longest ago for local delivery on an address, if any.
+     */
+    private static CassandraService local(final Vertx vertx, final String address) {
+        final ConcurrentMap<String, List<CassandraService>> services = localServices.get(vertx);
+        final List<CassandraService> registered = services == null ? null : services.get(address);
+
+        if (registered == null) {
+            return null;
+        }
+
+        // The iterator is a snapshot, so the list emptying concurrently is no concern
+        final Iterator<CassandraService> iterator = registered.iterator();
+
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Override
+    public CassandraBlobService createLocalBlobService(final Vertx vertx, final String address) {
+        final CassandraService local = local(vertx, address);
+
+        if (!(local instanceof CassandraBlobService)) {
+            throw new IllegalStateException("No service supporting blobs registered for local delivery on " + address);
+        }
+
+        return (CassandraBlobService) local;
+    }
+
+    @Override
+    public CassandraMappedService createLocalMappedService(final Vertx vertx, final String address) {
+        final CassandraService local = local(vertx, address);
+
+        if (!(local instanceof CassandraMappedService)) {
+            throw new IllegalStateException("No service supporting mappings registered for local delivery on " + address);
+        }
+
+        return (CassandraMappedService) local;
     }
 }
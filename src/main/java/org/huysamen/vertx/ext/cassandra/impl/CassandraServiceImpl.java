@@ -1,20 +1,56 @@
 package org.huysamen.vertx.ext.cassandra.impl;
 
 import com.datastax.driver.core.*;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.Policies;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+import org.huysamen.vertx.ext.cassandra.CassandraBlobService;
+import org.huysamen.vertx.ext.cassandra.CassandraMappedService;
 import org.huysamen.vertx.ext.cassandra.CassandraService;
+import org.huysamen.vertx.ext.cassandra.CircuitBreakerOpenException;
 import org.huysamen.vertx.ext.cassandra.config.CassandraConfiguration;
+import org.huysamen.vertx.ext.cassandra.config.ResultLimitOptions;
+import org.huysamen.vertx.ext.cassandra.config.RoutingOptions;
 import org.huysamen.vertx.ext.cassandra.config.impl.JsonCassandraConfigurationImpl;
-
+import org.huysamen.vertx.ext.cassandra.mapping.Mapping;
+import org.huysamen.vertx.ext.cassandra.mapping.RowMapper;
+import org.huysamen.vertx.ext.cassandra.mapping.StatementBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * Implementation of the Cassandra service {@link org.huysamen.vertx.ext.cassandra.CassandraService} contract.
@@ -23,38 +59,157 @@ import java.util.concurrent.ConcurrentHashMap;
  * @since 1.0
  * @version 1.0
  */
-public class CassandraServiceImpl implements CassandraService {
+public class CassandraServiceImpl implements CassandraService, CassandraBlobService, CassandraMappedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CassandraServiceImpl.class);
 
     private static final int PROTOCOL_VERSION = 2;
 
+    // Estimated size of a value in a response on top of its serialized size
+    private static final int VALUE_OVERHEAD_BYTES = 16;
+
+    // Top level settings which can be applied without rebuilding the cluster, in addition to the socket read timeout
+    private static final Set<String> RUNTIME_FIELDS = new HashSet<>(Arrays.asList(
+            "pooling",
+            JsonCassandraConfigurationImpl.CONFIG_CONSISTENCY_LEVEL,
+            JsonCassandraConfigurationImpl.CONFIG_DRAIN_TIMEOUT_MILLIS,
+            JsonCassandraConfigurationImpl.CONFIG_SCHEMA_AGREEMENT_TIMEOUT_MILLIS,
+            "query_log",
+            "result_limits",
+            "warm_up",
+            "lanes",
+            "default_lane",
+            "autotune",
+            "recorder",
+            "large_objects"));
+
+    // Top level settings of components that live as long as the service, which cannot be reconfigured
+    private static final Set<String> FIXED_FIELDS = new HashSet<>(Arrays.asList(
+            "routing",
+            "clusters"));
+
     private final Vertx vertx;
     private final Map<String, PreparedStatement> statementRegistry = new ConcurrentHashMap<>();
-
-    protected Cluster cluster;
-    protected Session session;
+    private final Map<String, JsonObject> statementOptions = new ConcurrentHashMap<>();
+    private final ResultMetadataCache resultMetadata = new ResultMetadataCache();
+    private final SchemaMetadataCache schemaMetadata = new SchemaMetadataCache();
+    private final Map<String, MappedBinder<?>> binders = new ConcurrentHashMap<>();
+    private final ResultMemory resultMemory;
+    private final ResultCursors cursors;
+    private final AtomicReference<TrackedSession> session = new AtomicReference<>();
+
+    // Connecting blocks, so new sessions are built on a separate thread and reconnects are serialised
+    private final ExecutorService connector = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "vertx-cassandra-connector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected volatile Cluster cluster;
     protected Metrics metrics;
-    protected CassandraConfiguration config;
+    protected volatile QueryLogger queryLogger;
+    protected volatile CircuitBreakers circuitBreakers;
+    protected volatile PoolAutotuner autotuner;
+    protected volatile WorkloadRecorder recorder;
+    protected volatile LargeObjectStore largeObjects;
+    protected volatile Lanes lanes;
+    protected Clusters clusters;
+    protected volatile CassandraConfiguration config;
+    protected volatile JsonObject rawConfig;
 
     public CassandraServiceImpl(final Vertx vertx, final JsonObject config) {
         this.vertx = vertx;
+        this.resultMemory = new ResultMemory(vertx);
+        this.cursors = new ResultCursors(vertx);
+        this.rawConfig = config.copy();
         this.config = new JsonCassandraConfigurationImpl(config);
         this.metrics = new Metrics(this);
+        this.queryLogger = new QueryLogger(this);
+        this.circuitBreakers = createCircuitBreakers(this.config);
+
+        if (this.config.getAutotuneOptions() != null) {
+            this.autotuner = new PoolAutotuner(this, this.config.getAutotuneOptions());
+        }
+
+        if (!this.config.getClusterOptions().isEmpty()) {
+            this.clusters = new Clusters(this, this.config.getClusterOptions());
+        }
+    }
+
+    protected Vertx getVertx() {
+        return vertx;
     }
 
     protected Cluster getCluster() {
         return cluster;
     }
 
+    protected Metrics getMetrics() {
+        return metrics;
+    }
+
+    protected Lanes getLanes() {
+        return lanes;
+    }
+
+    protected Clusters getClusters() {
+        return clusters;
+    }
+
+    protected ResultMemory getResultMemory() {
+        return resultMemory;
+    }
+
+    protected ResultCursors getCursors() {
+        return cursors;
+    }
+
+    protected Session getSession() {
+        final TrackedSession current = session.get();
+
+        return current == null ? null : current.getSession();
+    }
+
     protected CassandraConfiguration getConfig() {
         return config;
     }
 
     protected boolean isClosed() {
-        return session.isClosed();
+        final TrackedSession current = session.get();
+
+        return current == null || current.isClosed();
     }
 
     @Override
     public void start() {
+        cluster = buildCluster(config, circuitBreakers);
+        session.set(new TrackedSession(cluster.connect()));
+        lanes = connectLanes(config, cluster);
+        metrics.afterReconnect();
+
+        if (config.getLargeObjectOptions() != null) {
+            largeObjects = new LargeObjectStore(this, config.getLargeObjectOptions());
+            largeObjects.prepare(getSession());
+        }
+
+        if (autotuner != null) {
+            autotuner.start(metrics);
+        }
+
+        if (config.getRecorderOptions() != null) {
+            try {
+                recorder = new WorkloadRecorder(config.getRecorderOptions(), metrics);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Unable to open workload recording " + config.getRecorderOptions().getPath(), e);
+            }
+        }
+
+        if (clusters != null) {
+            clusters.start();
+        }
+    }
+
+    private Cluster buildCluster(final CassandraConfiguration config, final CircuitBreakers circuitBreakers) {
         final Cluster.Builder clusterBuilder = new Cluster.Builder();
 
         // Get array of IPs, default to localhost
@@ -66,9 +221,16 @@ public class CassandraServiceImpl implements CassandraService {
 
         // Add cassandra cluster contact points
         seeds.forEach(clusterBuilder::addContactPoint);
+        clusterBuilder.withPort(config.getPort());
 
         // Add policies to cluster builder
-        if (config.getLoadBalancingPolicy() != null) {
+        if (circuitBreakers != null) {
+            final LoadBalancingPolicy loadBalancingPolicy = config.getLoadBalancingPolicy() != null
+                    ? config.getLoadBalancingPolicy()
+                    : Policies.defaultLoadBalancingPolicy();
+
+            clusterBuilder.withLoadBalancingPolicy(circuitBreakers.wrap(loadBalancingPolicy));
+        } else if (config.getLoadBalancingPolicy() != null) {
             clusterBuilder.withLoadBalancingPolicy(config.getLoadBalancingPolicy());
         }
 
@@ -100,238 +262,2103 @@ public class CassandraServiceImpl implements CassandraService {
             clusterBuilder.withAuthProvider(config.getAuthProvider());
         }
 
-        // Build cluster and connect
-        cluster = clusterBuilder.build();
-        reconnect();
+        return clusterBuilder.build();
+    }
+
+    private Lanes connectLanes(final CassandraConfiguration config, final Cluster cluster) {
+        if (config.getLaneOptions().isEmpty()) {
+            return null;
+        }
+
+        final Lanes connected = new Lanes(vertx, config.getLaneOptions(), config.getDefaultLane());
+
+        connected.connect(cluster);
+
+        return connected;
+    }
+
+    private CircuitBreakers createCircuitBreakers(final CassandraConfiguration config) {
+        return config.getCircuitBreakerOptions() == null ? null : new CircuitBreakers(config.getCircuitBreakerOptions(), metrics);
     }
 
     @Override
     public void stop() {
+        stop(null);
+    }
+
+    @Override
+    public synchronized void stop(final Handler<AsyncResult<Void>> handler) {
+        final Metrics stoppedMetrics = metrics;
+        final Context context = vertx.context();
+
+        // Stopped once both the secondary clusters and the cluster of the service are closed
+        final AtomicInteger closing = new AtomicInteger(2);
+        final Runnable closed = () -> {
+            if (closing.decrementAndGet() == 0 && handler != null) {
+                context.runOnContext(v -> handler.handle(createAsyncResult((Void) null)));
+            }
+        };
+
+        if (clusters != null) {
+            clusters.stop(closed);
+        } else {
+            closed.run();
+        }
+
+        if (autotuner != null) {
+            autotuner.stop();
+        }
+
+        if (recorder != null) {
+            recorder.close();
+            recorder = null;
+        }
+
+        cursors.clear();
+
         if (metrics != null) {
             metrics.close();
             metrics = null;
         }
 
         if (cluster != null) {
-            cluster.closeAsync().force();
+            final Cluster stoppedCluster = cluster;
+            final TrackedSession stoppedSession = session.getAndSet(null);
+            final Lanes stoppedLanes = lanes;
+
+            // New requests are rejected from here on, while those in flight are given time to complete
             cluster = null;
-            session = null;
-        }
-    }
+            lanes = null;
+            connector.shutdown();
 
-    @Override
-    public void reconnect() {
-        final Session staleSession = session;
+            if (stoppedSession == null) {
+                onClose(stoppedCluster.closeAsync().force(), closed);
+                return;
+            }
 
-        session = cluster.connect();
+            final List<TrackedSession> stoppedSessions = new ArrayList<>();
 
-        if (staleSession != null) {
-            staleSession.closeAsync();
+            stoppedSessions.add(stoppedSession);
+
+            if (stoppedLanes != null) {
+                stoppedSessions.addAll(stoppedLanes.getSessions());
+            }
+
+            drain(stoppedSessions, "stop", stoppedMetrics, () -> onClose(stoppedCluster.closeAsync(), closed),
+                    () -> onClose(stoppedCluster.closeAsync().force(), closed));
+        } else {
+            closed.run();
         }
+    }
 
-        metrics.afterReconnect();
+    private static void onClose(final CloseFuture future, final Runnable closed) {
+        future.addListener(closed, MoreExecutors.sameThreadExecutor());
     }
 
     @Override
-    public void metrics(final Handler<AsyncResult<JsonObject>> handler) {
-        if (metrics == null) {
-            handler.handle(createAsyncResult(simpleResult("OK", "No metrics registered")));
-            return;
+    public void reconnect() {
+        final Cluster current = cluster;
+
+        if (clusters != null) {
+            clusters.reconnect();
         }
 
-        if (cluster != null && !cluster.isClosed()) {
-            // TODO: Serialize metrics for manual checks
-            handler.handle(createAsyncResult(simpleResult("OK", "TODO")));
-        } else {
-            handler.handle(createAsyncResult(simpleResult("BAD", "Cluster closed")));
+        if (current == null) {
+            return;
         }
-    }
 
-    @Override
-    public void execute(final String query, final Handler<AsyncResult<JsonObject>> handler) {
-        final ResultSetFuture future = session.executeAsync(new SimpleStatement(query));
+        final Lanes currentLanes = lanes;
 
-        Futures.addCallback(future, new FutureCallback<ResultSet>() {
-            @Override
-            public void onSuccess(final ResultSet resultSet) {
-                handler.handle(createAsyncResult(resultSetAsJson(resultSet)));
+        connector.execute(() -> {
+            final Session fresh;
+            final Map<Lanes.Lane, TrackedSession> freshLanes;
+
+            try {
+                fresh = current.connect();
+            } catch (final RuntimeException e) {
+                logger.error("Unable to reconnect, keeping the current session", e);
+                return;
             }
 
-            @Override
-            public void onFailure(final Throwable throwable) {
-                handler.handle(createAsyncResult(throwable));
+            try {
+                freshLanes = currentLanes == null ? Collections.emptyMap() : currentLanes.connectSessions(current);
+            } catch (final RuntimeException e) {
+                logger.error("Unable to reconnect the lanes, keeping the current sessions", e);
+                fresh.closeAsync();
+                return;
             }
+
+            prepareRegistered(fresh, () -> swap(current, fresh, currentLanes, freshLanes));
         });
     }
 
-    @Override
-    public void prepare(final String name, final String statement, final Handler<AsyncResult<JsonObject>> handler) {
-        final ListenableFuture<PreparedStatement> future = session.prepareAsync(statement);
+    /**
+     * Prepares all registered statements on a new session, replacing them in the registry, before it takes traffic.
+     */
+    private void prepareRegistered(final Session fresh, final Runnable then) {
+        final List<String> names = new ArrayList<>(statementRegistry.keySet());
+        final List<ListenableFuture<PreparedStatement>> futures = new ArrayList<>(names.size());
 
-        Futures.addCallback(future, new FutureCallback<PreparedStatement>() {
+        names.forEach(name -> futures.add(fresh.prepareAsync(statementRegistry.get(name).getQueryString())));
+
+        Futures.addCallback(Futures.successfulAsList(futures), new FutureCallback<List<PreparedStatement>>() {
             @Override
-            public void onSuccess(final PreparedStatement preparedStatement) {
-                if (statementRegistry.put(name, preparedStatement) == null) {
-                    handler.handle(createAsyncResult(simpleResult("OK", "Added")));
-                } else {
-                    handler.handle(createAsyncResult(simpleResult("OK", "Updated")));
+            public void onSuccess(final List<PreparedStatement> preparedStatements) {
+                for (int i = 0; i < names.size(); i++) {
+                    if (preparedStatements.get(i) != null) {
+                        statementRegistry.put(names.get(i), preparedStatements.get(i));
+                        resultMetadata.invalidate(names.get(i));
+                    } else {
+                        logger.warn("Unable to prepare statement '{}' on the new session", names.get(i));
+                    }
                 }
+
+                then.run();
             }
 
             @Override
             public void onFailure(final Throwable throwable) {
-                handler.handle(createAsyncResult(throwable));
+                then.run();
             }
         });
     }
 
+    private synchronized void swap(final Cluster current, final Session fresh, final Lanes currentLanes,
+                                   final Map<Lanes.Lane, TrackedSession> freshLanes) {
+
+        // The service was stopped or rebuilt while connecting
+        if (cluster != current || lanes != currentLanes) {
+            fresh.closeAsync();
+            freshLanes.values().forEach(laneSession -> laneSession.getSession().closeAsync());
+            return;
+        }
+
+        final List<TrackedSession> staleSessions = new ArrayList<>();
+        final TrackedSession staleSession = session.getAndSet(new TrackedSession(fresh));
+
+        if (staleSession != null) {
+            staleSessions.add(staleSession);
+        }
+
+        if (currentLanes != null) {
+            staleSessions.addAll(currentLanes.swapSessions(freshLanes));
+        }
+
+        drain(staleSessions, "reconnect", metrics,
+                () -> staleSessions.forEach(stale -> stale.getSession().closeAsync()),
+                () -> staleSessions.forEach(stale -> stale.getSession().closeAsync().force()));
+
+        metrics.afterReconnect();
+    }
+
     @Override
-    public void prepared(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
-        final String name = statement.getString("name");
+    public void reconfigure(final JsonObject update, final Handler<AsyncResult<JsonObject>> handler) {
+        final Cluster current = cluster;
 
-        if (name == null || name.length() == 0) {
-            handler.handle(createAsyncResult(simpleResult("BAD", "No name specified")));
+        if (current == null) {
+            handler.handle(createAsyncResult(notAcceptingRequests()));
             return;
         }
 
-        if (!statementRegistry.containsKey(name)) {
-            handler.handle(createAsyncResult(simpleResult("BAD", "No prepared statement matching name found")));
+        for (final String field : update.getFieldNames()) {
+            if (FIXED_FIELDS.contains(field)) {
+                handler.handle(createAsyncResult(new IllegalArgumentException("The " + field + " settings cannot be reconfigured, redeploy the service instead")));
+                return;
+            }
+        }
+
+        final JsonObject merged = merge(rawConfig.copy(), update);
+        final CassandraConfiguration updated;
+
+        try {
+            updated = new JsonCassandraConfigurationImpl(merged);
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
             return;
         }
 
-        final PreparedStatement preparedStatement = statementRegistry.get(name);
-        final BatchStatement query = new BatchStatement();
-        final JsonArray valuesList = statement.getArray("values", new JsonArray());
+        // Connecting lanes, opening the recording and preparing the large object statements block
+        if (requiresRebuild(update)) {
+            connector.execute(() -> rebuild(current, merged, updated, update, handler));
+        } else {
+            connector.execute(() -> apply(current, merged, updated, update, handler));
+        }
+    }
 
-        if (preparedStatement.getQueryString().toLowerCase().startsWith("select") && valuesList.size() > 1) {
-            handler.handle(createAsyncResult(simpleResult("BAD", "Batched SELECT statements are not supported (yet)")));
+    /**
+     * Applies an updated configuration to the running cluster, replacing the lanes and the components of the service
+     * whose settings changed. Runs on the connector thread.
+     */
+    private void apply(final Cluster current, final JsonObject merged, final CassandraConfiguration updated,
+                       final JsonObject update, final Handler<AsyncResult<JsonObject>> handler) {
+
+        final boolean lanesChanged = update.containsField("lanes") || update.containsField("default_lane");
+        final Components components;
+        final Lanes updatedLanes;
+
+        try {
+            components = openComponents(updated, update, getSession());
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
             return;
         }
 
-        if (valuesList.size() > 0) {
-            for (int i = 0; i < valuesList.size(); i++) {
-                final JsonArray values = valuesList.get(i);
+        try {
+            updatedLanes = lanesChanged ? connectLanes(updated, current) : lanes;
+        } catch (final RuntimeException e) {
+            logger.error("Unable to connect the reconfigured lanes, keeping the current ones", e);
+            components.close();
+            handler.handle(createAsyncResult(e));
+            return;
+        }
 
-                if (values != null && values.size() > 0) {
-                    query.add(preparedStatement.bind(values.toArray()));
+        synchronized (this) {
+            if (cluster != current) {
+                components.close();
+
+                if (lanesChanged && updatedLanes != null) {
+                    updatedLanes.getSessions().forEach(laneSession -> laneSession.getSession().closeAsync());
                 }
+
+                handler.handle(createAsyncResult(new IllegalStateException("Cassandra service was stopped or reconfigured concurrently")));
+                return;
+            }
+
+            final Configuration configuration = current.getConfiguration();
+            final JsonObject pooling = update.getObject("pooling");
+            final JsonObject socket = update.getObject("socket");
+
+            try {
+                if (pooling != null) {
+                    JsonCassandraConfigurationImpl.applyPoolingOptions(pooling, configuration.getPoolingOptions());
+                }
+
+                if (socket != null && socket.getInteger("read_timeout_millis") != null) {
+                    configuration.getSocketOptions().setReadTimeoutMillis(socket.getInteger("read_timeout_millis"));
+                }
+
+                if (update.getString(JsonCassandraConfigurationImpl.CONFIG_CONSISTENCY_LEVEL) != null) {
+                    configuration.getQueryOptions().setConsistencyLevel(
+                            JsonCassandraConfigurationImpl.parseConsistency(update.getString(JsonCassandraConfigurationImpl.CONFIG_CONSISTENCY_LEVEL)));
+                }
+            } catch (final RuntimeException e) {
+                components.close();
+
+                if (lanesChanged && updatedLanes != null) {
+                    updatedLanes.getSessions().forEach(laneSession -> laneSession.getSession().closeAsync());
+                }
+
+                handler.handle(createAsyncResult(e));
+                return;
+            }
+
+            final Lanes staleLanes = lanes;
+
+            rawConfig = merged;
+            config = updated;
+            queryLogger = new QueryLogger(this);
+            lanes = updatedLanes;
+            installComponents(components, update, false);
+
+            if (lanesChanged && staleLanes != null) {
+                final List<TrackedSession> staleSessions = staleLanes.getSessions();
+
+                drain(staleSessions, "reconfigure", metrics,
+                        () -> staleSessions.forEach(stale -> stale.getSession().closeAsync()),
+                        () -> staleSessions.forEach(stale -> stale.getSession().closeAsync().force()));
+            }
+
+            if (metrics != null) {
+                metrics.afterReconnect();
             }
         }
 
-        final ResultSetFuture future;
+        handler.handle(createAsyncResult(simpleResult("OK", "Applied")));
+    }
 
-        if (preparedStatement.getQueryString().toLowerCase().startsWith("select")) {
-            future = session.executeAsync(Iterables.get(query.getStatements(), 0));
-        } else {
-            future = session.executeAsync(query);
+    /**
+     * Builds and connects a new cluster from an updated configuration, and swaps it in once the registered statements
+     * have been prepared on it. Runs on the connector thread.
+     */
+    private void rebuild(final Cluster current, final JsonObject merged, final CassandraConfiguration updated,
+                         final JsonObject update, final Handler<AsyncResult<JsonObject>> handler) {
+
+        final CircuitBreakers rebuiltCircuitBreakers = createCircuitBreakers(updated);
+        final Cluster rebuilt;
+        final Session fresh;
+        final Lanes rebuiltLanes;
+        final Components components;
+
+        try {
+            rebuilt = buildCluster(updated, rebuiltCircuitBreakers);
+        } catch (final RuntimeException e) {
+            logger.error("Unable to rebuild the cluster, keeping the current one", e);
+            handler.handle(createAsyncResult(e));
+            return;
         }
 
-        Futures.addCallback(future, new FutureCallback<ResultSet>() {
-            @Override
-            public void onSuccess(final ResultSet resultSet) {
-                handler.handle(createAsyncResult(resultSetAsJson(resultSet)));
-            }
+        try {
+            fresh = rebuilt.connect();
+            rebuiltLanes = connectLanes(updated, rebuilt);
+            components = openComponents(updated, update, fresh);
+        } catch (final RuntimeException e) {
+            logger.error("Unable to rebuild the cluster, keeping the current one", e);
+            rebuilt.closeAsync();
+            handler.handle(createAsyncResult(e));
+            return;
+        }
 
-            @Override
-            public void onFailure(final Throwable throwable) {
-                handler.handle(createAsyncResult(throwable));
+        prepareRegistered(fresh, () -> {
+            synchronized (this) {
+                if (cluster != current) {
+                    components.close();
+                    rebuilt.closeAsync();
+                    handler.handle(createAsyncResult(new IllegalStateException("Cassandra service was stopped or reconfigured concurrently")));
+                    return;
+                }
+
+                metrics.close();
+
+                final Lanes staleLanes = lanes;
+
+                rawConfig = merged;
+                config = updated;
+                circuitBreakers = rebuiltCircuitBreakers;
+                queryLogger = new QueryLogger(this);
+                cluster = rebuilt;
+                lanes = rebuiltLanes;
+
+                final List<TrackedSession> staleSessions = new ArrayList<>();
+                final TrackedSession staleSession = session.getAndSet(new TrackedSession(fresh));
+
+                if (staleSession != null) {
+                    staleSessions.add(staleSession);
+                }
+
+                if (staleLanes != null) {
+                    staleSessions.addAll(staleLanes.getSessions());
+                }
+
+                // The old cluster is closed once the requests on all of its sessions have completed
+                drain(staleSessions, "reconfigure", metrics, current::closeAsync, () -> current.closeAsync().force());
+
+                metrics.afterReconnect();
+
+                // The autotuner tunes the pools of the new cluster, and registers its gauges again
+                installComponents(components, update, true);
             }
+
+            handler.handle(createAsyncResult(simpleResult("OK", "Rebuilt")));
         });
     }
 
-    private AsyncResult<JsonObject> createAsyncResult(final JsonObject result) {
-        return new AsyncResult<JsonObject>() {
-            @Override
-            public JsonObject result() {
-                return result;
-            }
+    /**
+     * Opens the workload recording and the large object store of an updated configuration, if an update changes
+     * them. Blocks, so runs on the connector thread.
+     */
+    private Components openComponents(final CassandraConfiguration updated, final JsonObject update, final Session session) {
+        final Components components = new Components(update.containsField("recorder"), update.containsField("large_objects"));
 
-            @Override
-            public Throwable cause() {
-                return null;
+        try {
+            if (components.recorderChanged && updated.getRecorderOptions() != null) {
+                components.recorder = new WorkloadRecorder(updated.getRecorderOptions(), metrics);
             }
 
-            @Override
-            public boolean succeeded() {
-                return true;
+            if (components.largeObjectsChanged && updated.getLargeObjectOptions() != null) {
+                components.largeObjects = new LargeObjectStore(this, updated.getLargeObjectOptions());
+                components.largeObjects.prepare(session);
             }
+        } catch (final IOException e) {
+            components.close();
+            throw new IllegalStateException("Unable to open workload recording " + updated.getRecorderOptions().getPath(), e);
+        } catch (final RuntimeException e) {
+            components.close();
+            throw e;
+        }
 
-            @Override
-            public boolean failed() {
-                return false;
-            }
-        };
+        return components;
     }
 
-    private AsyncResult<JsonObject> createAsyncResult(final Throwable error) {
-        return new AsyncResult<JsonObject>() {
-            @Override
-            public JsonObject result() {
-                return null;
+    /**
+     * Swaps in the components opened for an update, and starts a new autotuner if its settings or the pooling changed,
+     * or the cluster was rebuilt. Called holding the lock, once the updated configuration is in place.
+     */
+    private void installComponents(final Components components, final JsonObject update, final boolean rebuilt) {
+        if (components.recorderChanged) {
+            final WorkloadRecorder staleRecorder = recorder;
+
+            recorder = components.recorder;
+
+            if (staleRecorder != null) {
+                staleRecorder.close();
             }
+        }
 
-            @Override
-            public Throwable cause() {
-                return error;
+        if (components.largeObjectsChanged) {
+            largeObjects = components.largeObjects;
+        }
+
+        if (rebuilt || update.containsField("autotune") || update.containsField("pooling")) {
+            if (autotuner != null) {
+                autotuner.stop();
             }
 
-            @Override
-            public boolean succeeded() {
-                return false;
+            autotuner = config.getAutotuneOptions() == null ? null : new PoolAutotuner(this, config.getAutotuneOptions());
+
+            if (autotuner != null) {
+                autotuner.start(metrics);
             }
+        }
+    }
 
-            @Override
-            public boolean failed() {
+    /**
+     * Whether an update contains settings that the driver cannot change on a running cluster.
+     */
+    private boolean requiresRebuild(final JsonObject update) {
+        for (final String field : update.getFieldNames()) {
+            if ("socket".equals(field)) {
+                for (final String socketField : update.getObject(field).getFieldNames()) {
+                    if (!"read_timeout_millis".equals(socketField)) {
+                        return true;
+                    }
+                }
+            } else if (!RUNTIME_FIELDS.contains(field)) {
                 return true;
             }
-        };
+        }
+
+        return false;
     }
 
-    private JsonObject simpleResult(final String result, final String message) {
-        final JsonObject response = new JsonObject();
+    private JsonObject merge(final JsonObject target, final JsonObject update) {
+        for (final String field : update.getFieldNames()) {
+            final Object value = update.getValue(field);
+            final Object existing = target.getValue(field);
 
-        response.putString("result", result);
-        response.putString("message", message);
+            if (value instanceof JsonObject && existing instanceof JsonObject) {
+                merge((JsonObject) existing, (JsonObject) value);
+            } else {
+                target.putValue(field, value);
+            }
+        }
 
-        return response;
+        return target;
     }
 
-    private JsonObject resultSetAsJson(final ResultSet resultSet) {
-        final JsonObject result = new JsonObject();
-        final JsonArray columnObjects = new JsonArray();
-        final JsonArray rowObjects = new JsonArray();
+    private void drain(final List<TrackedSession> staleSessions, final String reason, final Metrics currentMetrics,
+                       final Runnable close, final Runnable forceClose) {
 
-        result.putString("result", "OK");
-        result.putNumber("count", resultSet.getAvailableWithoutFetching());
-        result.putArray("columns", columnObjects);
-        result.putArray("rows", rowObjects);
+        if (staleSessions.isEmpty()) {
+            close.run();
+            return;
+        }
 
-        int r = 0;
-        for (final Row row : resultSet) {
-            final ColumnDefinitions columnDefinitions = row.getColumnDefinitions();
-            final JsonArray rowObject = new JsonArray();
+        final AtomicInteger remaining = new AtomicInteger(staleSessions.size());
+        final AtomicBoolean aborted = new AtomicBoolean();
 
-            for (int i = 0; i < columnDefinitions.size(); i++) {
-                if (row.isNull(i)) {
-                    continue;
-                }
+        for (final TrackedSession staleSession : staleSessions) {
+            staleSession.drain(vertx, config.getDrainTimeoutMillis(), result -> {
+                logger.info("Drained {} requests from stale session on {}, aborted {}", result.getDrained(), reason, result.getAborted());
 
-                final JsonObject column = new JsonObject();
-                final Object value = columnDefinitions.getType(i).deserialize(row.getBytesUnsafe(i), PROTOCOL_VERSION);
+                if (currentMetrics != null) {
+                    currentMetrics.drained(reason, result);
+                }
 
-                rowObject.add(value);
+                if (result.getAborted() > 0) {
+                    aborted.set(true);
+                }
 
-                if (r == 0) {
-                    column.putString("name", columnDefinitions.getName(i));
-                    column.putString("type", columnDefinitions.getType(i).getName().name());
-                    columnObjects.add(column);
+                // Closing waits for every session, as closing the cluster closes all of them
+                if (remaining.decrementAndGet() == 0) {
+                    if (aborted.get()) {
+                        forceClose.run();
+                    } else {
+                        close.run();
+                    }
                 }
-            }
+            });
+        }
+    }
 
-            rowObjects.add(rowObject);
-            r++;
+    @Override
+    public void metrics(final Handler<AsyncResult<JsonObject>> handler) {
+        if (metrics == null) {
+            handler.handle(createAsyncResult(simpleResult("OK", "No metrics registered")));
+            return;
         }
 
-        return result;
+        if (cluster != null && !cluster.isClosed()) {
+            // TODO: Serialize metrics for manual checks
+            handler.handle(createAsyncResult(simpleResult("OK", "TODO")));
+        } else {
+            handler.handle(createAsyncResult(simpleResult("BAD", "Cluster closed")));
+        }
+    }
+
+    @Override
+    public void execute(final String query, final Handler<AsyncResult<JsonObject>> handler) {
+        final PhaseTimer timer = config.isPhaseTimingEnabled() ? new PhaseTimer(null) : null;
+
+        executeAsync(null, query, null, new SimpleStatement(query), null, timer, handler);
+    }
+
+    @Override
+    public void executeWithOptions(final String query, final JsonObject options, final Handler<AsyncResult<JsonObject>> handler) {
+        final PhaseTimer timer = config.isPhaseTimingEnabled() ? new PhaseTimer(options) : null;
+        final SimpleStatement statement = new SimpleStatement(query);
+
+        try {
+            RequestOptions.apply(RequestOptions.merge(null, options), statement);
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        executeAsync(null, query, null, statement, options, timer, handler);
+    }
+
+    @Override
+    public void prepare(final String name, final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        prepareWithOptions(name, statement, null, handler);
+    }
+
+    @Override
+    public void prepareWithOptions(final String name, final String statement, final JsonObject options,
+                                   final Handler<AsyncResult<JsonObject>> handler) {
+
+        if (clusters != null && clusters.prepare(name, statement, options, handler)) {
+            return;
+        }
+
+        prepareDirect(name, statement, options, handler);
+    }
+
+    /**
+     * Prepares a statement on the cluster of this service, whichever clusters its options name.
+     */
+    protected void prepareDirect(final String name, final String statement, final JsonObject options,
+                                 final Handler<AsyncResult<JsonObject>> handler) {
+
+        final JsonObject defaults;
+
+        try {
+            // Validate the defaults up front, rather than on every execution
+            defaults = RequestOptions.merge(null, options);
+
+            if (defaults != null && defaults.containsField(RequestOptions.ROUTING_KEY)) {
+                throw new IllegalArgumentException("A routing_key can only be given for raw statements");
+            }
+
+            RequestOptions.apply(defaults, new SimpleStatement(statement));
+
+            final Lanes lanes = this.lanes;
+
+            if (lanes != null && defaults != null && defaults.getString(RequestOptions.LANE) != null) {
+                lanes.select(defaults.getString(RequestOptions.LANE));
+            }
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        final TrackedSession current = session.get();
+
+        if (current == null || !current.tryAcquire()) {
+            handler.handle(createAsyncResult(notAcceptingRequests()));
+            return;
+        }
+
+        final ListenableFuture<PreparedStatement> future = current.getSession().prepareAsync(statement);
+
+        Futures.addCallback(future, new FutureCallback<PreparedStatement>() {
+            @Override
+            public void onSuccess(final PreparedStatement preparedStatement) {
+                current.release();
+
+                resultMetadata.invalidate(name);
+
+                final WorkloadRecorder recorder = CassandraServiceImpl.this.recorder;
+
+                if (recorder != null) {
+                    recorder.prepared(name, statement, options);
+                }
+
+                if (defaults == null) {
+                    statementOptions.remove(name);
+                } else {
+                    statementOptions.put(name, defaults);
+                }
+
+                if (statementRegistry.put(name, preparedStatement) == null) {
+                    handler.handle(createAsyncResult(simpleResult("OK", "Added")));
+                } else {
+                    handler.handle(createAsyncResult(simpleResult("OK", "Updated")));
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable throwable) {
+                current.release();
+                handler.handle(createAsyncResult(throwable));
+            }
+        });
+    }
+
+    @Override
+    public void prepared(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+        if (clusters != null && clusters.prepared(statement, handler)) {
+            return;
+        }
+
+        preparedDirect(statement, handler);
+    }
+
+    /**
+     * Executes a named statement on the cluster of this service, whichever clusters it is routed to.
+     */
+    protected void preparedDirect(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final PhaseTimer timer = config.isPhaseTimingEnabled() ? new PhaseTimer(statement) : null;
+        final String name = statement.getString("name");
+
+        if (name == null || name.length() == 0) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "No name specified")));
+            return;
+        }
+
+        if (!statementRegistry.containsKey(name)) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "No prepared statement matching name found")));
+            return;
+        }
+
+        final PreparedStatement preparedStatement = statementRegistry.get(name);
+        final BatchStatement query = new BatchStatement();
+        final JsonArray valuesList = statement.getArray("values", new JsonArray());
+
+        if (preparedStatement.getQueryString().toLowerCase().startsWith("select") && valuesList.size() > 1) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "Batched SELECT statements are not supported (yet)")));
+            return;
+        }
+
+        final Statement executed;
+
+        try {
+            for (int i = 0; i < valuesList.size(); i++) {
+                final JsonArray values = valuesList.get(i);
+
+                if (values != null && values.size() > 0) {
+                    query.add(preparedStatement.bind(bindable(preparedStatement.getVariables(), values.toArray())));
+                }
+            }
+
+            executed = preparedStatement.getQueryString().toLowerCase().startsWith("select")
+                    ? Iterables.get(query.getStatements(), 0)
+                    : query;
+
+            RequestOptions.apply(RequestOptions.merge(statementOptions.get(name), statement), executed);
+        } catch (final RuntimeException e) {
+            // Such as values of the wrong type for their variables, or values that are not lists
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        executeAsync(name, preparedStatement.getQueryString(), valuesList, executed, statement, timer, handler);
+    }
+
+    @Override
+    public void resultMetadata(final String name, final Handler<AsyncResult<JsonObject>> handler) {
+        final ResultMetadataCache.ResultMetadata metadata = resultMetadata.get(name);
+
+        if (metadata == null) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "No result metadata known for statement")));
+            return;
+        }
+
+        final JsonObject response = new JsonObject();
+
+        response.putString("result", "OK");
+        response.putString("metadata_id", metadata.getId());
+        response.putArray("columns", metadata.getColumns());
+
+        handler.handle(createAsyncResult(response));
+    }
+
+    @Override
+    public void fetchMore(final String continuation, final Handler<AsyncResult<JsonObject>> handler) {
+        if (clusters != null && clusters.fetchMore(continuation, handler)) {
+            return;
+        }
+
+        final ResultCursors.Cursor cursor = continuation == null ? null : cursors.take(continuation);
+
+        if (cursor == null) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "Unknown or expired continuation")));
+            return;
+        }
+
+        final ResultMemory.Account account = resultMemory.open();
+        final Handler<AsyncResult<JsonObject>> released = released(account, handler);
+
+        admit(account, reservation(cursor.getRequest()), () -> {
+            final ResultSet resultSet = cursor.getResultSet();
+
+            if (resultSet.getAvailableWithoutFetching() > 0 || resultSet.isFullyFetched()) {
+                continueResult(cursor, account, released);
+                return;
+            }
+
+            Futures.addCallback(resultSet.fetchMoreResults(), new FutureCallback<Object>() {
+                @Override
+                public void onSuccess(final Object page) {
+                    continueResult(cursor, account, released);
+                }
+
+                @Override
+                public void onFailure(final Throwable throwable) {
+                    released.handle(createAsyncResult(throwable));
+                }
+            });
+        }, released);
+    }
+
+    /**
+     * Converts the rows of a truncated result that have been fetched already, without blocking to fetch more.
+     */
+    private void continueResult(final ResultCursors.Cursor cursor, final ResultMemory.Account account,
+                                final Handler<AsyncResult<JsonObject>> handler) {
+
+        final JsonObject result;
+
+        try {
+            result = resultSetAsJson(cursor.getResultSet(), cursor.getName(), cursor.getRequest(), null, account, false);
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        handler.handle(createAsyncResult(result));
+    }
+
+    @Override
+    public void blobs(final JsonObject statement, final String column, final Handler<AsyncResult<List<Buffer>>> handler) {
+        final ResultMemory.Account account = resultMemory.open();
+
+        executeBlobs(statement, column, account, (resultSet, done) -> collect(resultSet, statement, account,
+                row -> row.isNull(column) ? null : BlobPipe.wrap(row.getBytesUnsafe(column)), done),
+                released(account, onContext(handler)));
+    }
+
+    @Override
+    public void pipeBlobs(final JsonObject statement, final String column, final WriteStream<Buffer> target,
+                          final Handler<AsyncResult<Long>> handler) {
+
+        final Context context = vertx.context();
+
+        // Only a page is held at a time, however large the result, so the pipe reserves no result memory
+        executeBlobs(statement, column, null, (resultSet, done) -> new BlobPipe(vertx, context, resultSet, column, target, done).start(),
+                onContext(handler));
+    }
+
+    @Override
+    public <T> void select(final JsonObject statement, final Mapping<T> mapping, final Handler<AsyncResult<List<T>>> handler) {
+        final ResultMemory.Account account = resultMemory.open();
+
+        executeSelect(statement, account, (resultSet, done) -> {
+            final RowMapper<T> mapper = mapping.rowMapper(resultSet.getColumnDefinitions());
+
+            collect(resultSet, statement, account, mapper::map, done);
+        }, released(account, onContext(handler)));
+    }
+
+    @Override
+    public <T> void write(final String name, final T object, final Mapping<T> mapping, final Handler<AsyncResult<Void>> handler) {
+        final Handler<AsyncResult<Void>> callback = onContext(handler);
+        final PreparedStatement preparedStatement = name == null ? null : statementRegistry.get(name);
+
+        if (preparedStatement == null) {
+            callback.handle(createAsyncResult(new IllegalArgumentException("No prepared statement matching name found")));
+            return;
+        }
+
+        final BoundStatement bound;
+
+        try {
+            bound = binder(name, preparedStatement, mapping).bind(object);
+
+            RequestOptions.apply(statementOptions.get(name), bound);
+        } catch (final RuntimeException e) {
+            callback.handle(createAsyncResult(e));
+            return;
+        }
+
+        executeAsync(name, preparedStatement.getQueryString(), null, bound, null, null,
+                (resultSet, done) -> done.handle(createAsyncResult((Void) null)), callback);
+    }
+
+    /**
+     * The binder of a mapping for a named statement, kept until the statement is prepared again or bound with another
+     * mapping.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> StatementBinder<T> binder(final String name, final PreparedStatement preparedStatement, final Mapping<T> mapping) {
+        final MappedBinder<?> cached = binders.get(name);
+
+        if (cached != null && cached.statement == preparedStatement && cached.mapping == mapping) {
+            return (StatementBinder<T>) cached.binder;
+        }
+
+        final StatementBinder<T> binder = mapping.binder(preparedStatement);
+
+        binders.put(name, new MappedBinder<>(preparedStatement, mapping, binder));
+
+        return binder;
+    }
+
+    @Override
+    public void writeObject(final String id, final ReadStream<Buffer> source, final Handler<AsyncResult<JsonObject>> handler) {
+        final LargeObjectStore store = largeObjects;
+
+        if (store == null) {
+            handler.handle(createAsyncResult(largeObjectsDisabled()));
+            return;
+        }
+
+        store.write(vertx.context(), id, source, handler);
+    }
+
+    @Override
+    public void readObject(final String id, final Handler<AsyncResult<ReadStream<Buffer>>> handler) {
+        final LargeObjectStore store = largeObjects;
+
+        if (store == null) {
+            handler.handle(createAsyncResult(largeObjectsDisabled()));
+            return;
+        }
+
+        store.read(vertx.context(), id, handler);
+    }
+
+    @Override
+    public void deleteObject(final String id, final Handler<AsyncResult<JsonObject>> handler) {
+        final LargeObjectStore store = largeObjects;
+
+        if (store == null) {
+            handler.handle(createAsyncResult(largeObjectsDisabled()));
+            return;
+        }
+
+        store.delete(vertx.context(), id, handler);
+    }
+
+    @Override
+    public void keyspaces(final Handler<AsyncResult<JsonObject>> handler) {
+        final Cluster cluster = this.cluster;
+
+        if (cluster == null || cluster.isClosed()) {
+            handler.handle(createAsyncResult(notAcceptingRequests()));
+            return;
+        }
+
+        handler.handle(createAsyncResult(schemaMetadata.keyspaces(cluster.getMetadata())));
+    }
+
+    @Override
+    public void tableMetadata(final String keyspace, final String table, final Handler<AsyncResult<JsonObject>> handler) {
+        final Cluster cluster = this.cluster;
+
+        if (cluster == null || cluster.isClosed()) {
+            handler.handle(createAsyncResult(notAcceptingRequests()));
+            return;
+        }
+
+        final JsonObject metadata;
+
+        try {
+            metadata = schemaMetadata.table(cluster.getMetadata(), keyspace, table);
+        } catch (final IllegalArgumentException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        handler.handle(createAsyncResult(metadata));
+    }
+
+    @Override
+    public void executeSchemaChange(final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final Context context = vertx.context();
+        final long started = System.currentTimeMillis();
+        final long timeoutMillis = config.getSchemaAgreementTimeoutMillis();
+
+        executeInternal(new SimpleStatement(statement), (resultSet, done) -> done.handle(createAsyncResult(true)), executed -> {
+            if (executed.failed()) {
+                handler.handle(createAsyncResult(executed.cause()));
+                return;
+            }
+
+            // The schema change is applied; completing waits until every host has it, so that it can be used right away
+            new SchemaAgreement(this, vertx, context, timeoutMillis, agreed -> {
+                if (agreed.failed()) {
+                    handler.handle(createAsyncResult(agreed.cause()));
+                } else if (!agreed.result()) {
+                    handler.handle(createAsyncResult(new IllegalStateException(
+                            "The schema change was applied, but the hosts did not agree on the schema within " + timeoutMillis + " ms")));
+                } else {
+                    final JsonObject result = simpleResult("OK", "Schema in agreement");
+
+                    result.putNumber("millis", System.currentTimeMillis() - started);
+                    handler.handle(createAsyncResult(result));
+                }
+            }).start();
+        });
+    }
+
+    @Override
+    public void locality(final Handler<AsyncResult<JsonObject>> handler) {
+        final Cluster cluster = this.cluster;
+        final RoutingOptions routing = config.getRoutingOptions();
+
+        if (cluster == null || cluster.isClosed()) {
+            handler.handle(createAsyncResult(notAcceptingRequests()));
+            return;
+        }
+
+        String datacenter = routing == null ? null : routing.getDatacenter();
+        String rack = routing == null ? null : routing.getRack();
+
+        // A host running on this machine places the instance; otherwise the load balancing policy's local hosts do
+        final LoadBalancingPolicy policy = cluster.getConfiguration().getPolicies().getLoadBalancingPolicy();
+        Host colocated = null;
+        Host local = null;
+
+        for (final Host host : cluster.getMetadata().getAllHosts()) {
+            if (colocated == null && isLocalAddress(host.getAddress())) {
+                colocated = host;
+            }
+
+            if (local == null && policy.distance(host) == HostDistance.LOCAL) {
+                local = host;
+            }
+        }
+
+        if (datacenter == null) {
+            datacenter = colocated != null ? colocated.getDatacenter() : local == null ? null : local.getDatacenter();
+        }
+
+        if (rack == null && colocated != null && colocated.getDatacenter() != null && colocated.getDatacenter().equals(datacenter)) {
+            rack = colocated.getRack();
+        }
+
+        final JsonObject result = new JsonObject()
+                .putString("result", "OK")
+                .putString("dc", datacenter)
+                .putString("rack", rack);
+
+        if (routing != null) {
+            result.putNumber("advertise_interval_millis", routing.getAdvertiseIntervalMillis());
+        }
+
+        handler.handle(createAsyncResult(result));
+    }
+
+    private static boolean isLocalAddress(final InetAddress address) {
+        try {
+            return address.isLoopbackAddress() || NetworkInterface.getByInetAddress(address) != null;
+        } catch (final SocketException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void warmUp(final Handler<AsyncResult<JsonObject>> handler) {
+        if (config.getWarmUpOptions() == null) {
+            handler.handle(createAsyncResult(simpleResult("OK", "No warm-up configured")));
+            return;
+        }
+
+        if (isClosed()) {
+            handler.handle(createAsyncResult(notAcceptingRequests()));
+            return;
+        }
+
+        new WarmUp(this, config.getWarmUpOptions(), vertx.context(), handler).start();
+    }
+
+    /**
+     * Registers a statement prepared by the service itself, so that it is prepared again on new sessions.
+     */
+    protected void register(final String name, final PreparedStatement preparedStatement) {
+        statementRegistry.put(name, preparedStatement);
+    }
+
+    /**
+     * Executes a registered statement with the given values, handing its result set to a consumer.
+     */
+    protected <T> void executeRegistered(final String name, final ResultConsumer<T> consumer, final Handler<AsyncResult<T>> handler,
+                                         final Object... values) {
+
+        final PreparedStatement preparedStatement = statementRegistry.get(name);
+
+        if (preparedStatement == null) {
+            handler.handle(createAsyncResult(new IllegalStateException("No prepared statement registered as " + name)));
+            return;
+        }
+
+        final Statement statement;
+
+        try {
+            statement = preparedStatement.bind(values);
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        executeAsync(name, preparedStatement.getQueryString(), null, statement, null, null, consumer, handler);
+    }
+
+    /**
+     * Executes a raw statement issued by the service itself, handing its result set to a consumer.
+     */
+    protected <T> void executeInternal(final SimpleStatement statement, final ResultConsumer<T> consumer,
+                                       final Handler<AsyncResult<T>> handler) {
+
+        executeAsync(null, statement.getQueryString(), null, statement, null, null, consumer, handler);
+    }
+
+    /**
+     * Executes a named <code>SELECT</code> statement for one of the blob contracts, checking that its result has the
+     * requested blob column before handing it on.
+     */
+    private <T> void executeBlobs(final JsonObject statement, final String column, final ResultMemory.Account account,
+                                  final ResultConsumer<T> consumer, final Handler<AsyncResult<T>> handler) {
+
+        executeSelect(statement, account, (resultSet, done) -> {
+            final ColumnDefinitions columns = resultSet.getColumnDefinitions();
+
+            if (!columns.contains(column) || !DataType.blob().equals(columns.getType(column))) {
+                done.handle(createAsyncResult(new IllegalArgumentException("Result has no blob column " + column)));
+                return;
+            }
+
+            consumer.consume(resultSet, done);
+        }, handler);
+    }
+
+    /**
+     * Executes a named <code>SELECT</code> statement, with at most one set of values, for one of the in-JVM contracts.
+     *
+     * @param account The account to reserve memory for the result on, or null to reserve none.
+     */
+    private <T> void executeSelect(final JsonObject statement, final ResultMemory.Account account, final ResultConsumer<T> consumer,
+                                   final Handler<AsyncResult<T>> handler) {
+
+        final PhaseTimer timer = config.isPhaseTimingEnabled() ? new PhaseTimer(statement) : null;
+        final String name = statement.getString("name");
+        final PreparedStatement preparedStatement = name == null ? null : statementRegistry.get(name);
+
+        if (preparedStatement == null) {
+            handler.handle(createAsyncResult(new IllegalArgumentException("No prepared statement matching name found")));
+            return;
+        }
+
+        final JsonArray valuesList;
+        final BoundStatement bound;
+        final long reserve;
+
+        try {
+            valuesList = statement.getArray("values", new JsonArray());
+            reserve = account == null ? 0 : reservation(statement);
+
+            if (valuesList.size() > 1) {
+                throw new IllegalArgumentException("Only a single SELECT statement can be executed");
+            }
+
+            bound = valuesList.size() == 0
+                    ? preparedStatement.bind()
+                    : preparedStatement.bind(bindable(preparedStatement.getVariables(), valuesList.<JsonArray>get(0).toArray()));
+
+            RequestOptions.apply(RequestOptions.merge(statementOptions.get(name), statement), bound);
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        executeAsync(name, preparedStatement.getQueryString(), valuesList, bound, statement, timer, account, reserve, consumer, handler);
+    }
+
+    /**
+     * Reads the rows of a result set into a list for one of the in-JVM contracts, within the row and byte limits of the
+     * request.
+     */
+    private <T> void collect(final ResultSet resultSet, final JsonObject request, final ResultMemory.Account account,
+                             final Function<Row, T> reader, final Handler<AsyncResult<List<T>>> done) {
+
+        final ResultLimitOptions limits = config.getResultLimitOptions();
+        final long maxRows = limit(limits == null ? Long.MAX_VALUE : limits.getMaxRows(), request, "max_rows");
+        final long maxBytes = limit(limits == null ? Long.MAX_VALUE : limits.getMaxBytes(), request, "max_bytes");
+
+        new RowCollector<>(resultSet, maxRows, maxBytes, account, reader, done).start();
+    }
+
+    @Override
+    public void bucketedRead(final JsonObject request, final Handler<AsyncResult<JsonObject>> handler) {
+        final String name = request.getString("name");
+
+        if (name == null || name.length() == 0) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "No name specified")));
+            return;
+        }
+
+        final PreparedStatement preparedStatement = statementRegistry.get(name);
+
+        if (preparedStatement == null) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "No prepared statement matching name found")));
+            return;
+        }
+
+        if (!preparedStatement.getQueryString().toLowerCase().startsWith("select")) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "Only SELECT statements can be read in buckets")));
+            return;
+        }
+
+        final JsonArray valuesList;
+        final String orderBy;
+        final String order;
+        final Integer maxInFlight;
+        final long limit;
+        final long maxBytes;
+        final JsonObject options;
+        final Object[] values;
+        final int bucketIndex;
+        final List<Object> buckets;
+
+        // Any field of the wrong type fails the request here too, rather than leaving it unanswered
+        try {
+            final JsonObject bucketOptions = request.getObject("buckets");
+            final ResultLimitOptions limits = config.getResultLimitOptions();
+
+            valuesList = request.getArray("values", new JsonArray());
+            orderBy = request.getString("order_by");
+            order = request.getString("order", "asc");
+            maxInFlight = request.getInteger("max_in_flight");
+            limit = limit(limits == null ? Long.MAX_VALUE : limits.getMaxRows(), request, "limit");
+            maxBytes = limit(limits == null ? Long.MAX_VALUE : limits.getMaxBytes(), request, "max_bytes");
+            options = RequestOptions.merge(statementOptions.get(name), request);
+
+            if (bucketOptions == null) {
+                throw new IllegalArgumentException("No buckets specified");
+            }
+
+            if (orderBy == null) {
+                throw new IllegalArgumentException("No order_by column specified");
+            }
+
+            if (!"asc".equals(order) && !"desc".equals(order)) {
+                throw new IllegalArgumentException("The order must be asc or desc");
+            }
+
+            if (valuesList.size() > 1) {
+                throw new IllegalArgumentException("Only a single set of values can be given");
+            }
+
+            if (maxInFlight != null && maxInFlight < 1) {
+                throw new IllegalArgumentException("The max_in_flight must be at least 1");
+            }
+
+            values = valuesList.size() == 0 ? new Object[0] : valuesList.<JsonArray>get(0).toArray();
+            bucketIndex = bucketOptions.getInteger("index") == null ? 0 : bucketOptions.getInteger("index");
+
+            if (bucketIndex < 0 || bucketIndex > values.length || bucketIndex >= preparedStatement.getVariables().size()) {
+                throw new IllegalArgumentException("The bucket index is out of range");
+            }
+
+            final DataType orderType = columnType(preparedStatement, orderBy);
+
+            // Columns missing from the schema, such as aliases, are checked against the first result instead
+            if (orderType != null && !BucketedRead.orderable(orderType)) {
+                throw new IllegalArgumentException("The order_by column " + orderBy + " cannot be ordered by as a " + orderType);
+            }
+
+            buckets = BucketedRead.keys(bucketOptions, preparedStatement.getVariables().getType(bucketIndex), "desc".equals(order));
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        final ResultMemory.Account account = resultMemory.open();
+        final Handler<AsyncResult<JsonObject>> released = released(account, handler);
+        final BucketedRead.Query query = (bucket, done) -> {
+            final Object[] bucketValues = new Object[values.length + 1];
+            final BoundStatement statement;
+
+            System.arraycopy(values, 0, bucketValues, 0, bucketIndex);
+            bucketValues[bucketIndex] = bucket;
+            System.arraycopy(values, bucketIndex, bucketValues, bucketIndex + 1, values.length - bucketIndex);
+
+            try {
+                statement = preparedStatement.bind(bindable(preparedStatement.getVariables(), bucketValues));
+                RequestOptions.apply(options, statement);
+            } catch (final RuntimeException e) {
+                done.handle(createAsyncResult(e));
+                return;
+            }
+
+            // No bucket contributes more than the limit, so larger pages would only be fetched to be dropped
+            final Cluster current = cluster;
+
+            if (statement.getFetchSize() <= 0 && current != null
+                    && limit < current.getConfiguration().getQueryOptions().getFetchSize()) {
+                statement.setFetchSize((int) limit);
+            }
+
+            // The read is recorded as a whole, as the queries of its buckets cannot be replayed on their own, and
+            // admitted as a whole, so its queries run on its reservation. The request of a bucket stays in flight, on
+            // its session, lane and breakers, until the read no longer fetches pages of it.
+            final AtomicBoolean queried = new AtomicBoolean();
+
+            executeAsync(name, preparedStatement.getQueryString(), valuesList, statement, options, null, account, 0,
+                    (resultSet, consumed) -> {
+                        queried.set(true);
+                        done.handle(createAsyncResult(new BucketedRead.Queried(resultSet,
+                                () -> consumed.handle(createAsyncResult(resultSet)))));
+                    },
+                    result -> {
+                        // Only failures before the result set was handed on are left to report
+                        if (result.failed() && !queried.get()) {
+                            done.handle(createAsyncResult(result.cause()));
+                        }
+                    });
+        };
+
+        final WorkloadRecorder recorder = this.recorder;
+
+        if (recorder != null) {
+            recorder.bucketedRead(name, request);
+        }
+
+        final BucketedRead read = new BucketedRead(buckets, query, orderBy, "desc".equals(order), limit, maxBytes,
+                maxInFlight == null ? BucketedRead.DEFAULT_MAX_IN_FLIGHT : maxInFlight, result -> {
+
+            if (result.failed()) {
+                released.handle(createAsyncResult(result.cause()));
+                return;
+            }
+
+            final JsonObject merged;
+
+            try {
+                merged = mergedAsJson(name, request, buckets.size(), result.result(), account);
+            } catch (final RuntimeException e) {
+                released.handle(createAsyncResult(e));
+                return;
+            }
+
+            released.handle(createAsyncResult(merged));
+        });
+
+        admit(account, reservation(request), read::start, released);
+    }
+
+    /**
+     * The type of a column of the table a statement reads, or null if the table or column is not known.
+     */
+    private DataType columnType(final PreparedStatement preparedStatement, final String column) {
+        final Cluster current = cluster;
+        final ColumnDefinitions variables = preparedStatement.getVariables();
+
+        if (current == null || variables.size() == 0) {
+            return null;
+        }
+
+        final KeyspaceMetadata keyspace = current.getMetadata().getKeyspace(variables.getKeyspace(0));
+        final TableMetadata table = keyspace == null ? null : keyspace.getTable(variables.getTable(0));
+        final ColumnMetadata metadata = table == null ? null : table.getColumn(column);
+
+        return metadata == null ? null : metadata.getType();
+    }
+
+    @Override
+    public void pipeline(final JsonArray operations, final Handler<AsyncResult<JsonObject>> handler) {
+        if (operations == null || operations.size() == 0) {
+            handler.handle(createAsyncResult(simpleResult("BAD", "No operations specified")));
+            return;
+        }
+
+        final JsonObject[] results = new JsonObject[operations.size()];
+        final AtomicInteger remaining = new AtomicInteger(results.length);
+
+        for (int i = 0; i < results.length; i++) {
+            final int index = i;
+            final Object operation = operations.get(i);
+
+            final Handler<AsyncResult<JsonObject>> operationHandler = result -> {
+                results[index] = result.succeeded()
+                        ? result.result()
+                        : simpleResult("ERROR", String.valueOf(result.cause().getMessage()));
+
+                if (remaining.decrementAndGet() == 0) {
+                    final JsonObject response = new JsonObject();
+                    final JsonArray responses = new JsonArray();
+
+                    for (final JsonObject r : results) {
+                        responses.addObject(r);
+                    }
+
+                    response.putString("result", "OK");
+                    response.putArray("results", responses);
+                    handler.handle(createAsyncResult(response));
+                }
+            };
+
+            if (!(operation instanceof JsonObject)) {
+                operationHandler.handle(createAsyncResult(simpleResult("BAD", "Operation is not an object")));
+                continue;
+            }
+
+            final JsonObject op = (JsonObject) operation;
+            final String type = op.getString("type");
+
+            try {
+                if ("execute".equals(type)) {
+                    executeWithOptions(op.getString("statement"), op, operationHandler);
+                } else if ("prepared".equals(type)) {
+                    prepared(op, operationHandler);
+                } else {
+                    operationHandler.handle(createAsyncResult(simpleResult("BAD", "Unknown operation type: " + type)));
+                }
+            } catch (final RuntimeException e) {
+                operationHandler.handle(createAsyncResult(e));
+            }
+        }
+    }
+
+    /**
+     * Execute a statement on the current session.
+     *
+     * @param name The name of the prepared statement, or null for raw statements.
+     * @param query The CQL text of the statement.
+     * @param values The bound values, or null if there are none.
+     * @param statement The statement to execute.
+     * @param request The request message, which may hold options on how to build the response, or null.
+     * @param timer The phase timer of the request, or null if it is not timed.
+     * @param handler The asynchronous callback handler.
+     */
+    private void executeAsync(final String name, final String query, final JsonArray values, final Statement statement,
+                              final JsonObject request, final PhaseTimer timer, final Handler<AsyncResult<JsonObject>> handler) {
+
+        final boolean attachTiming = timer != null
+                && (config.isPhaseTimingAttached() || request != null && request.getBoolean("timing", false));
+
+        final ResultMemory.Account account = resultMemory.open();
+
+        // Only statements returning rows reserve memory for their response, as the responses of others hold none
+        final long reserve = returnsRows(query) ? reservation(request) : 0;
+
+        executeAsync(name, query, values, statement, request, timer, account, reserve, (resultSet, done) -> {
+            // Converting may fetch further pages, so the request stays in flight until it is done
+            final JsonObject result = resultSetAsJson(resultSet, name, request, timer, account, true);
+
+            if (timer != null) {
+                timer.end(PhaseTimer.Phase.CONVERT);
+
+                if (attachTiming) {
+                    result.putObject("timing", timer.asJson());
+                }
+            }
+
+            done.handle(createAsyncResult(result));
+        }, released(account, handler));
+    }
+
+    /**
+     * Execute a statement on the current session, and hand its result set to a consumer. The request stays in flight
+     * until the consumer is done with the result set.
+     *
+     * @param name The name of the prepared statement, or null for raw statements.
+     * @param query The CQL text of the statement.
+     * @param values The bound values, or null if there are none.
+     * @param statement The statement to execute.
+     * @param request The request message, or null.
+     * @param timer The phase timer of the request, or null if it is not timed.
+     * @param consumer The consumer of the result set.
+     * @param handler The asynchronous callback handler.
+     */
+    private <T> void executeAsync(final String name, final String query, final JsonArray values, final Statement statement,
+                                  final JsonObject request, final PhaseTimer timer, final ResultConsumer<T> consumer,
+                                  final Handler<AsyncResult<T>> handler) {
+
+        executeAsync(name, query, values, statement, request, timer, null, 0, consumer, handler);
+    }
+
+    /**
+     * Execute a statement on the current session once it is admitted with a reservation of result memory, and hand
+     * its result set to a consumer.
+     *
+     * @param account The account holding the reservation, which the caller closes once the response is handed on, or
+     * null to reserve nothing. A request made on behalf of an admitted one, with its account, is not admitted again.
+     * @param reserve The number of bytes to reserve.
+     */
+    private <T> void executeAsync(final String name, final String query, final JsonArray values, final Statement statement,
+                                  final JsonObject request, final PhaseTimer timer, final ResultMemory.Account account,
+                                  final long reserve, final ResultConsumer<T> consumer, final Handler<AsyncResult<T>> handler) {
+
+        // Binding ends here, so that waiting for admission and the lane is timed as queueing
+        if (timer != null) {
+            timer.end(PhaseTimer.Phase.BIND);
+        }
+
+        final Lanes lanes = this.lanes;
+        final Lanes.Lane lane;
+
+        try {
+            lane = lanes == null ? null : lanes.select(laneName(name, request));
+        } catch (final RuntimeException e) {
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        if (lane == null) {
+            admit(account, reserve, () -> submit(null, name, query, values, statement, request, timer, consumer, handler), handler);
+            return;
+        }
+
+        final Metrics metrics = this.metrics;
+        final long queued = System.nanoTime();
+
+        admit(account, reserve, () -> lane.acquire(() -> {
+            final long started = System.nanoTime();
+
+            submit(lane, name, query, values, statement, request, timer, consumer, result -> {
+                try {
+                    handler.handle(result);
+                } finally {
+                    lane.release();
+
+                    if (metrics != null) {
+                        metrics.laneCompleted(lane.getName(), started - queued, System.nanoTime() - started);
+                    }
+                }
+            });
+        }, error -> {
+            if (metrics != null) {
+                metrics.laneRejected(lane.getName());
+            }
+
+            handler.handle(createAsyncResult(error));
+        }), handler);
+    }
+
+    /**
+     * The lane named by a request, or else by the default options of its named statement.
+     */
+    private String laneName(final String name, final JsonObject request) {
+        if (request != null && request.getString(RequestOptions.LANE) != null) {
+            return request.getString(RequestOptions.LANE);
+        }
+
+        final JsonObject defaults = name == null ? null : statementOptions.get(name);
+
+        return defaults == null ? null : defaults.getString(RequestOptions.LANE);
+    }
+
+    /**
+     * Runs a request once its reservation fits in the memory budget, if results are limited. Requests made on behalf
+     * of an admitted request run straight away.
+     */
+    private <T> void admit(final ResultMemory.Account account, final long reserve, final Runnable proceed,
+                           final Handler<AsyncResult<T>> handler) {
+
+        final ResultLimitOptions limits = config.getResultLimitOptions();
+        final Metrics metrics = this.metrics;
+
+        if (limits == null || account != null && account.isAdmitted()) {
+            proceed.run();
+            return;
+        }
+
+        final boolean waited = resultMemory.admit(limits.getMemoryBudgetBytes(), limits.getMaxWaitMillis(), account, reserve, proceed, error -> {
+            if (metrics != null) {
+                metrics.resultRejected();
+            }
+
+            handler.handle(createAsyncResult(error));
+        });
+
+        if (waited && metrics != null) {
+            metrics.resultThrottled();
+        }
+    }
+
+    /**
+     * The memory reserved for the response of a request while it executes, which is the most the response may hold.
+     */
+    private long reservation(final JsonObject request) {
+        final ResultLimitOptions limits = config.getResultLimitOptions();
+
+        return limits == null ? 0 : limit(limits.getMaxBytes(), request, "max_bytes");
+    }
+
+    private static boolean returnsRows(final String query) {
+        return query != null && query.trim().regionMatches(true, 0, "select", 0, 6);
+    }
+
+    /**
+     * Closes the account of a response once the response has been handed on.
+     */
+    private static <T> Handler<AsyncResult<T>> released(final ResultMemory.Account account, final Handler<AsyncResult<T>> handler) {
+        return result -> {
+            try {
+                handler.handle(result);
+            } finally {
+                account.close();
+            }
+        };
+    }
+
+    private <T> void submit(final Lanes.Lane lane, final String name, final String query, final JsonArray values,
+                            final Statement statement, final JsonObject request, final PhaseTimer timer,
+                            final ResultConsumer<T> consumer, final Handler<AsyncResult<T>> handler) {
+
+        final TrackedSession current = acquireSession(lane);
+
+        if (current == null) {
+            handler.handle(createAsyncResult(notAcceptingRequests()));
+            return;
+        }
+
+        final Cluster cluster = this.cluster;
+        final Metrics metrics = this.metrics;
+        final CircuitBreakers circuitBreakers = this.circuitBreakers;
+        final QueryLogger queryLogger = this.queryLogger;
+
+        if (circuitBreakers != null) {
+            try {
+                circuitBreakers.acquire(name, statement);
+            } catch (final CircuitBreakerOpenException e) {
+                current.release();
+                handler.handle(createAsyncResult(e));
+                return;
+            }
+        }
+
+        final WorkloadRecorder recorder = this.recorder;
+
+        if (recorder != null) {
+            recorder.executed(name, query, request, statement);
+        }
+
+        final long started = System.nanoTime();
+        final QueryLogger.Entry entry = queryLogger.begin(name, query, values, statement);
+
+        if (timer != null) {
+            timer.end(PhaseTimer.Phase.QUEUE);
+        }
+
+        final ResultSetFuture future;
+
+        try {
+            future = current.getSession().executeAsync(statement);
+        } catch (final RuntimeException e) {
+            // Such as a bound statement with unset variables, which is rejected before anything is sent
+            if (circuitBreakers != null) {
+                circuitBreakers.abandon(name, statement);
+            }
+
+            current.release();
+            queryLogger.fail(entry, e);
+            handler.handle(createAsyncResult(e));
+            return;
+        }
+
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(final ResultSet resultSet) {
+                if (timer != null) {
+                    timer.end(PhaseTimer.Phase.EXECUTE);
+                }
+
+                final AtomicBoolean completed = new AtomicBoolean();
+                final Handler<AsyncResult<T>> done = result -> {
+                    if (!completed.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    try {
+                        if (result.succeeded()) {
+                            queryLogger.complete(entry, resultSet);
+                        } else {
+                            queryLogger.fail(entry, result.cause());
+                        }
+
+                        handler.handle(result);
+                    } finally {
+                        report(timer, metrics);
+                        current.release();
+                    }
+                };
+
+                try {
+                    final Host coordinator = resultSet.getExecutionInfo().getQueriedHost();
+                    final long latency = System.nanoTime() - started;
+
+                    if (circuitBreakers != null) {
+                        circuitBreakers.onSuccess(name, statement, coordinator, latency);
+                    }
+
+                    if (autotuner != null) {
+                        autotuner.record(coordinator, latency);
+                    }
+
+                    if (metrics != null && cluster != null) {
+                        metrics.coordinatorSelected(isReplica(cluster, current.getSession(), statement, coordinator));
+                    }
+
+                    consumer.consume(resultSet, done);
+                } catch (final RuntimeException e) {
+                    done.handle(createAsyncResult(e));
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable throwable) {
+                current.release();
+
+                if (timer != null) {
+                    timer.end(PhaseTimer.Phase.EXECUTE);
+                }
+
+                final Throwable error = circuitBreakers == null ? throwable : circuitBreakers.onFailure(name, statement, throwable);
+
+                queryLogger.fail(entry, error);
+
+                try {
+                    handler.handle(createAsyncResult(error));
+                } finally {
+                    report(timer, metrics);
+                }
+            }
+        });
+    }
+
+    /**
+     * Acquires the session a request runs on, which is the session of its lane if it has a dedicated one. A session
+     * that a reconnect swapped out between reading and acquiring it is draining, so the session that replaced it is
+     * acquired instead. Lane requests are rejected once the service is stopped too, even if their lane session is not
+     * drained yet.
+     *
+     * @return The acquired session, or null if the service is not accepting requests.
+     */
+    private TrackedSession acquireSession(final Lanes.Lane lane) {
+        while (true) {
+            final TrackedSession serviceSession = session.get();
+            final TrackedSession laneSession = lane == null ? null : lane.getSession();
+            final TrackedSession current = laneSession != null ? laneSession : serviceSession;
+
+            if (serviceSession == null || current == null) {
+                return null;
+            }
+
+            if (current.tryAcquire()) {
+                return current;
+            }
+
+            if (session.get() == serviceSession && (lane == null || lane.getSession() == laneSession)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Ends the dispatch phase of a timed request, after its handler returned, and records its phases.
+     */
+    private void report(final PhaseTimer timer, final Metrics metrics) {
+        if (timer != null) {
+            timer.end(PhaseTimer.Phase.DISPATCH);
+            timer.report(metrics);
+        }
+    }
+
+    /**
+     * Whether the coordinator of a request is a replica of the data it accessed.
+     *
+     * @return True or false, or null if the statement has no routing key or keyspace to tell.
+     */
+    private Boolean isReplica(final Cluster cluster, final Session session, final Statement statement, final Host coordinator) {
+        final ByteBuffer routingKey = statement.getRoutingKey();
+        final String keyspace = statement.getKeyspace() != null ? statement.getKeyspace() : session.getLoggedKeyspace();
+
+        if (routingKey == null || keyspace == null || coordinator == null) {
+            return null;
+        }
+
+        return cluster.getMetadata().getReplicas(keyspace, routingKey).contains(coordinator);
+    }
+
+    protected static <T> AsyncResult<T> createAsyncResult(final T result) {
+        return new AsyncResult<T>() {
+            @Override
+            public T result() {
+                return result;
+            }
+
+            @Override
+            public Throwable cause() {
+                return null;
+            }
+
+            @Override
+            public boolean succeeded() {
+                return true;
+            }
+
+            @Override
+            public boolean failed() {
+                return false;
+            }
+        };
+    }
+
+    protected static <T> AsyncResult<T> createAsyncResult(final Throwable error) {
+        return new AsyncResult<T>() {
+            @Override
+            public T result() {
+                return null;
+            }
+
+            @Override
+            public Throwable cause() {
+                return error;
+            }
+
+            @Override
+            public boolean succeeded() {
+                return false;
+            }
+
+            @Override
+            public boolean failed() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Wraps a handler so that it is called back on the context of the caller rather than on a driver I/O thread.
+     */
+    private <T> Handler<AsyncResult<T>> onContext(final Handler<AsyncResult<T>> handler) {
+        final Context context = vertx.context();
+
+        return result -> context.runOnContext(v -> handler.handle(result));
+    }
+
+    private IllegalStateException notAcceptingRequests() {
+        return new IllegalStateException("Cassandra service is not accepting requests");
+    }
+
+    private IllegalStateException largeObjectsDisabled() {
+        return new IllegalStateException("The large object store is not enabled");
+    }
+
+    private JsonObject simpleResult(final String result, final String message) {
+        final JsonObject response = new JsonObject();
+
+        response.putString("result", result);
+        response.putString("message", message);
+
+        return response;
+    }
+
+    /**
+     * Converts a result set, up to the row and size limits of the request. If rows remain, the result is marked as
+     * truncated and the rest of it is kept under a continuation token.
+     *
+     * @param fetch Whether further pages are fetched, blocking, or only the rows fetched already are converted.
+     */
+    private JsonObject resultSetAsJson(final ResultSet resultSet, final String name, final JsonObject request, final PhaseTimer timer,
+                                       final ResultMemory.Account account, final boolean fetch) {
+
+        final ResultLimitOptions limits = config.getResultLimitOptions();
+        final long maxRows = limit(limits == null ? Long.MAX_VALUE : limits.getMaxRows(), request, "max_rows");
+        final long maxBytes = limit(limits == null ? Long.MAX_VALUE : limits.getMaxBytes(), request, "max_bytes");
+        final JsonObject result = new JsonObject();
+        final JsonArray columnObjects = new JsonArray();
+        final JsonArray rowObjects = new JsonArray();
+
+        // Named statements get their columns from the cached metadata, and only if the client does not have them yet
+        final ResultMetadataCache.ResultMetadata metadata = name == null
+                ? null
+                : resultMetadata.get(name, resultSet.getColumnDefinitions());
+
+        result.putString("result", "OK");
+
+        if (metadata == null) {
+            addColumns(resultSet.getColumnDefinitions(), columnObjects);
+            result.putArray("columns", columnObjects);
+        } else {
+            result.putString("metadata_id", metadata.getId());
+
+            if (request == null || !metadata.getId().equals(request.getString("metadata_id"))) {
+                result.putArray("columns", metadata.getColumns());
+            }
+        }
+
+        result.putArray("rows", rowObjects);
+
+        final Iterator<Row> rows = resultSet.iterator();
+
+        int r = 0;
+        long bytes = 0;
+        while (r < maxRows && bytes < maxBytes && (fetch ? hasNext(resultSet, rows, timer) : resultSet.getAvailableWithoutFetching() > 0)) {
+            final Row row = rows.next();
+            final JsonArray rowObject = new JsonArray();
+            final long rowBytes = addValues(row, rowObject);
+
+            rowObjects.add(rowObject);
+            account.add(rowBytes);
+            bytes += rowBytes;
+            r++;
+        }
+
+        result.putNumber("count", r);
+
+        if (resultSet.getAvailableWithoutFetching() > 0 || !resultSet.isFullyFetched()) {
+            final ResultLimitOptions cursorLimits = limits == null ? new ResultLimitOptions() : limits;
+            final String continuation = cursors.open(resultSet, name, request, cursorLimits.getCursorTimeoutMillis(), cursorLimits.getMaxCursors());
+            final Metrics metrics = this.metrics;
+
+            result.putBoolean("truncated", true);
+
+            if (continuation != null) {
+                result.putString("continuation", continuation);
+            }
+
+            if (metrics != null) {
+                metrics.resultTruncated();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts the merged rows of a bucketed read, like the rows of any other result.
+     */
+    private JsonObject mergedAsJson(final String name, final JsonObject request, final int buckets, final BucketedRead.Result merged,
+                                    final ResultMemory.Account account) {
+
+        final JsonObject result = new JsonObject();
+        final JsonArray columnObjects = new JsonArray();
+        final JsonArray rowObjects = new JsonArray();
+        final ResultMetadataCache.ResultMetadata metadata = merged.getColumns() == null
+                ? null
+                : resultMetadata.get(name, merged.getColumns());
+
+        result.putString("result", "OK");
+
+        if (metadata == null) {
+            result.putArray("columns", columnObjects);
+        } else {
+            result.putString("metadata_id", metadata.getId());
+
+            if (request == null || !metadata.getId().equals(request.getString("metadata_id"))) {
+                result.putArray("columns", metadata.getColumns());
+            }
+        }
+
+        result.putArray("rows", rowObjects);
+
+        for (final Row row : merged.getRows()) {
+            final JsonArray rowObject = new JsonArray();
+
+            account.add(addValues(row, rowObject));
+            rowObjects.add(rowObject);
+        }
+
+        result.putNumber("count", merged.getRows().size());
+        result.putNumber("buckets", buckets);
+
+        if (merged.isTruncated()) {
+            result.putBoolean("truncated", true);
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds the values of a row to a JSON array, with a JSON null for every column without a value, so that each value
+     * lines up with its column whether the statement is named or raw.
+     *
+     * @return The size of the values, as accounted for in the result memory.
+     */
+    private static long addValues(final Row row, final JsonArray values) {
+        final ColumnDefinitions columnDefinitions = row.getColumnDefinitions();
+        long bytes = 0;
+
+        for (int i = 0; i < columnDefinitions.size(); i++) {
+            if (row.isNull(i)) {
+                values.add(null);
+                continue;
+            }
+
+            final ByteBuffer serialized = row.getBytesUnsafe(i);
+
+            bytes += serialized.remaining() + VALUE_OVERHEAD_BYTES;
+            values.add(columnDefinitions.getType(i).deserialize(serialized, PROTOCOL_VERSION));
+        }
+
+        return bytes;
+    }
+
+    /**
+     * The values of a request converted to the types the driver binds to the variables of a statement. JSON values
+     * arrive as numbers of whatever type they decoded to, and as strings for UUIDs, so integral numbers are converted
+     * to the integral type of their variable, any number to a floating point or decimal variable, and strings to a
+     * UUID for uuid and timeuuid variables. Other values are bound as they are, and fail to bind if they do not fit.
+     */
+    private static Object[] bindable(final ColumnDefinitions variables, final Object[] values) {
+        final Object[] converted = new Object[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            converted[i] = i < variables.size() ? bindable(variables.getType(i), values[i]) : values[i];
+        }
+
+        return converted;
+    }
+
+    private static Object bindable(final DataType type, final Object value) {
+        if (value instanceof String) {
+            final DataType.Name name = type.getName();
+
+            return name == DataType.Name.UUID || name == DataType.Name.TIMEUUID ? UUID.fromString((String) value) : value;
+        }
+
+        if (!(value instanceof Number)) {
+            return value;
+        }
+
+        final Number number = (Number) value;
+        final boolean integral = number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+
+        switch (type.getName()) {
+            case INT:
+                return integral && number.longValue() == number.intValue() ? number.intValue() : value;
+            case BIGINT:
+            case COUNTER:
+                return integral ? number.longValue() : value;
+            case VARINT:
+                return integral ? BigInteger.valueOf(number.longValue()) : value;
+            case FLOAT:
+                return number.floatValue();
+            case DOUBLE:
+                return number.doubleValue();
+            case DECIMAL:
+                return number instanceof BigDecimal ? value : new BigDecimal(number.toString());
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * The size of the values of a row, as accounted for in the result memory once they are added to a response.
+     */
+    protected static long estimatedBytes(final Row row) {
+        final ColumnDefinitions columnDefinitions = row.getColumnDefinitions();
+        long bytes = 0;
+
+        for (int i = 0; i < columnDefinitions.size(); i++) {
+            final ByteBuffer serialized = row.getBytesUnsafe(i);
+
+            if (serialized != null) {
+                bytes += serialized.remaining() + VALUE_OVERHEAD_BYTES;
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Adds the columns of a raw statement result to a JSON array.
+     */
+    private static void addColumns(final ColumnDefinitions columnDefinitions, final JsonArray columns) {
+        for (int i = 0; i < columnDefinitions.size(); i++) {
+            final JsonObject column = new JsonObject();
+
+            column.putString("name", columnDefinitions.getName(i));
+            column.putString("type", columnDefinitions.getType(i).getName().name());
+            columns.add(column);
+        }
+    }
+
+    /**
+     * The lower of a configured limit and the limit given in a request, if any.
+     */
+    private static long limit(final long configured, final JsonObject request, final String field) {
+        final Number requested = request == null ? null : request.getNumber(field);
+
+        if (requested == null || requested.longValue() < 1) {
+            return configured;
+        }
+
+        return Math.min(configured, requested.longValue());
+    }
+
+    /**
+     * Whether a result set has more rows. If the next page has to be fetched first, the fetch is timed separately from
+     * the conversion of the rows.
+     */
+    private static boolean hasNext(final ResultSet resultSet, final Iterator<Row> rows, final PhaseTimer timer) {
+        if (timer == null || resultSet.getAvailableWithoutFetching() > 0 || resultSet.isFullyFetched()) {
+            return rows.hasNext();
+        }
+
+        timer.end(PhaseTimer.Phase.CONVERT);
+
+        final boolean more = rows.hasNext();
+
+        timer.end(PhaseTimer.Phase.FETCH);
+
+        return more;
+    }
+
+    /**
+     * A statement binder, with the prepared statement it was created for.
+     */
+    private static class MappedBinder<T> {
+        private final PreparedStatement statement;
+        private final Mapping<T> mapping;
+        private final StatementBinder<T> binder;
+
+        private MappedBinder(final PreparedStatement statement, final Mapping<T> mapping, final StatementBinder<T> binder) {
+            this.statement = statement;
+            this.mapping = mapping;
+            this.binder = binder;
+        }
+    }
+
+    /**
+     * Consumes the result set of a successful request, calling back once it is done with it.
+     */
+    interface ResultConsumer<T> {
+        void consume(ResultSet resultSet, Handler<AsyncResult<T>> done);
+    }
+
+    /**
+     * The components of the service opened for a reconfiguration, and which of them it changes.
+     */
+    private static class Components {
+        private final boolean recorderChanged;
+        private final boolean largeObjectsChanged;
+
+        private WorkloadRecorder recorder;
+        private LargeObjectStore largeObjects;
+
+        private Components(final boolean recorderChanged, final boolean largeObjectsChanged) {
+            this.recorderChanged = recorderChanged;
+            this.largeObjectsChanged = largeObjectsChanged;
+        }
+
+        private void close() {
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
     }
 }
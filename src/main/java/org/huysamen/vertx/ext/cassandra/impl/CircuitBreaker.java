@@ -0,0 +1,238 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import org.huysamen.vertx.ext.cassandra.config.CircuitBreakerOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker measuring error and slow call rates over a fixed window.
+ *
+ * <p>While closed, all requests are allowed. Once a window holds at least the minimum number of requests and either
+ * rate crosses its threshold the circuit opens, rejecting requests until the open period has elapsed. It then goes
+ * half open, letting a limited number of probe requests through: if they all succeed the circuit closes, if any of
+ * them fails it opens again. Only the probes of the current half open period decide it; requests admitted before it
+ * report back without effect. Probes which are not sent after all are released, and if the probes have not all
+ * reported back within the open period, the circuit opens again rather than waiting for them forever.</p>
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Returned by {@link #tryAcquire()} when the request is rejected.
+     */
+    protected static final long DENIED = -1;
+
+    /**
+     * Returned by {@link #tryAcquire()} when the request is allowed without being a probe.
+     */
+    protected static final long ALLOWED = 0;
+
+    interface Listener {
+        void onStateChange(CircuitBreaker breaker, State from, State to);
+    }
+
+    private final String name;
+    private final CircuitBreakerOptions options;
+    private final Listener listener;
+    private final long windowNanos;
+    private final long openNanos;
+    private final long slowCallNanos;
+
+    private State state = State.CLOSED;
+    private long windowStart = System.nanoTime();
+    private long openedAt;
+    private long halfOpenedAt;
+    private long generation;
+    private int requests;
+    private int failures;
+    private int slowCalls;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    protected CircuitBreaker(final String name, final CircuitBreakerOptions options, final Listener listener) {
+        this.name = name;
+        this.options = options;
+        this.listener = listener;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(options.getWindowMillis());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(options.getOpenMillis());
+        this.slowCallNanos = options.getSlowCallMillis() < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(options.getSlowCallMillis());
+    }
+
+    protected String getName() {
+        return name;
+    }
+
+    protected synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether a request may be sent, counting it as a probe when the circuit is half open. A request allowed as
+     * a probe must report its outcome through {@link #onSuccess} or {@link #onFailure}, or else be {@link #release}d.
+     *
+     * @return {@link #DENIED} if the request is rejected, {@link #ALLOWED} if it is allowed, or else the probe it is.
+     */
+    protected long tryAcquire() {
+        State from = null;
+        State to = null;
+        long permit = ALLOWED;
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+
+            if (state == State.HALF_OPEN && now - halfOpenedAt >= openNanos) {
+                // The probes did not all report back in time
+                from = transition(State.OPEN);
+                to = State.OPEN;
+                permit = DENIED;
+            } else {
+                if (state == State.OPEN) {
+                    if (now - openedAt < openNanos) {
+                        return DENIED;
+                    }
+
+                    from = transition(State.HALF_OPEN);
+                    to = State.HALF_OPEN;
+                }
+
+                if (state == State.HALF_OPEN) {
+                    if (probesIssued >= options.getHalfOpenProbes()) {
+                        permit = DENIED;
+                    } else {
+                        probesIssued++;
+                        permit = generation;
+                    }
+                }
+            }
+        }
+
+        notify(from, to);
+        return permit;
+    }
+
+    /**
+     * Returns a probe for a request which was not sent after all, so that another request can take its place.
+     *
+     * @param permit The permit returned by {@link #tryAcquire()}.
+     */
+    protected synchronized void release(final long permit) {
+        if (permit > ALLOWED && permit == generation && state == State.HALF_OPEN && probesIssued > probesSucceeded) {
+            probesIssued--;
+        }
+    }
+
+    /**
+     * Checks whether the circuit currently lets requests through, without counting a probe.
+     *
+     * @return True if a request would be allowed.
+     */
+    protected synchronized boolean isAllowing() {
+        switch (state) {
+            case OPEN:
+                return System.nanoTime() - openedAt >= openNanos;
+            case HALF_OPEN:
+                return probesIssued < options.getHalfOpenProbes() && System.nanoTime() - halfOpenedAt < openNanos;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @param permit The permit returned by {@link #tryAcquire()} for the request.
+     */
+    protected void onSuccess(final long permit, final long latencyNanos) {
+        record(permit, false, latencyNanos >= slowCallNanos);
+    }
+
+    /**
+     * @param permit The permit returned by {@link #tryAcquire()} for the request.
+     */
+    protected void onFailure(final long permit) {
+        record(permit, true, false);
+    }
+
+    private void record(final long permit, final boolean failed, final boolean slow) {
+        State from = null;
+        State to = null;
+
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                // Requests admitted while the circuit was closed, or in an earlier half open period, are not probes
+                if (permit != generation) {
+                    return;
+                }
+
+                if (failed || slow) {
+                    from = transition(State.OPEN);
+                    to = State.OPEN;
+                } else if (++probesSucceeded >= options.getHalfOpenProbes()) {
+                    from = transition(State.CLOSED);
+                    to = State.CLOSED;
+                }
+            } else if (state == State.CLOSED) {
+                final long now = System.nanoTime();
+
+                if (now - windowStart >= windowNanos) {
+                    resetWindow(now);
+                }
+
+                requests++;
+
+                if (failed) {
+                    failures++;
+                }
+
+                if (slow) {
+                    slowCalls++;
+                }
+
+                if (requests >= options.getMinimumRequests()
+                        && (failures >= requests * options.getErrorRate() || slowCalls >= requests * options.getSlowCallRate())) {
+
+                    from = transition(State.OPEN);
+                    to = State.OPEN;
+                }
+            }
+        }
+
+        notify(from, to);
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private State transition(final State to) {
+        final State from = state;
+
+        state = to;
+        probesIssued = 0;
+        probesSucceeded = 0;
+
+        if (to == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (to == State.HALF_OPEN) {
+            halfOpenedAt = System.nanoTime();
+            generation++;
+        } else if (to == State.CLOSED) {
+            resetWindow(System.nanoTime());
+        }
+
+        return from;
+    }
+
+    private void resetWindow(final long now) {
+        windowStart = now;
+        requests = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void notify(final State from, final State to) {
+        if (from != null && from != to && listener != null) {
+            listener.onStateChange(this, from, to);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.google.common.collect.AbstractIterator;
+import org.huysamen.vertx.ext.cassandra.CircuitBreakerOpenException;
+import org.huysamen.vertx.ext.cassandra.config.CircuitBreakerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Circuit breakers keyed by named statement and by coordinator host.
+ *
+ * <p>Statement breakers are checked before a request is sent. Host breakers are applied by wrapping the load balancing
+ * policy, so that hosts with an open circuit are left out of query plans. The coordinator tried for each request is
+ * remembered so that failures, which carry no execution info, can be attributed to a host.</p>
+ *
+ * <p>Only requests admitted through {@link #acquire} report their outcome, so only they are let through as probes of
+ * a half open circuit. Other requests, such as prepares and trace fetches, are sent to a half open host only while it
+ * has probes left, without taking one. A probe taken for a host the driver then moves on from is released.</p>
+ */
+class CircuitBreakers implements CircuitBreaker.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakers.class);
+
+    private static final String STATEMENT = "statement";
+    private static final String HOST = "host";
+
+    private final CircuitBreakerOptions options;
+    private final Metrics metrics;
+    private final ConcurrentMap<String, CircuitBreaker> statementBreakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Host, CircuitBreaker> hostBreakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Statement, Attempt> attempts = new ConcurrentHashMap<>();
+
+    protected CircuitBreakers(final CircuitBreakerOptions options, final Metrics metrics) {
+        this.options = options;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wraps a load balancing policy so that hosts with an open circuit are skipped.
+     *
+     * @param childPolicy The policy to wrap.
+     *
+     * @return The wrapped policy, or the child policy if host circuit breakers are disabled.
+     */
+    protected LoadBalancingPolicy wrap(final LoadBalancingPolicy childPolicy) {
+        return options.isHostsEnabled() ? new HostCircuitBreakerPolicy(childPolicy) : childPolicy;
+    }
+
+    /**
+     * Admits a request for a named statement, and starts tracking the coordinator the statement is sent to.
+     *
+     * @param name The statement name, or null for raw statements.
+     * @param statement The statement about to be executed.
+     *
+     * @throws CircuitBreakerOpenException If the statement circuit is open.
+     */
+    protected void acquire(final String name, final Statement statement) {
+        final Attempt attempt = new Attempt();
+
+        if (name != null && options.isStatementsEnabled()) {
+            final CircuitBreaker breaker = statementBreakers.computeIfAbsent(name, key -> create(STATEMENT, key));
+
+            attempt.statementPermit = breaker.tryAcquire();
+
+            if (attempt.statementPermit == CircuitBreaker.DENIED) {
+                metrics.circuitBreakerRejected(STATEMENT, name);
+                throw new CircuitBreakerOpenException("Circuit breaker for statement '" + name + "' is open");
+            }
+        }
+
+        attempts.put(statement, attempt);
+    }
+
+    protected void onSuccess(final String name, final Statement statement, final Host coordinator, final long latencyNanos) {
+        final Attempt attempt = attempts.remove(statement);
+
+        if (name != null && options.isStatementsEnabled()) {
+            statementBreakers.get(name).onSuccess(attempt == null ? CircuitBreaker.ALLOWED : attempt.statementPermit, latencyNanos);
+        }
+
+        if (coordinator != null && options.isHostsEnabled()) {
+            if (attempt != null && attempt.host != null && !attempt.host.equals(coordinator)) {
+                releaseHost(attempt);
+            }
+
+            hostBreaker(coordinator).onSuccess(hostPermit(attempt, coordinator), latencyNanos);
+        }
+    }
+
+    /**
+     * Records a failed request. Only failures telling of an unhealthy cluster or host count against the breakers:
+     * timeouts, unavailable replicas, and every host tried failing, which is how the driver reports hosts that were
+     * overloaded, bootstrapping or timed out on the client side. Other errors, such as invalid queries, are the fault
+     * of the request, and release its permits instead.
+     *
+     * @return The error to report to the caller, which is a {@link CircuitBreakerOpenException} if the request could
+     * not be sent because the circuit of every host was open.
+     */
+    protected Throwable onFailure(final String name, final Statement statement, final Throwable error) {
+        final Attempt attempt = attempts.remove(statement);
+        final Host coordinator = attempt == null ? null : attempt.host;
+
+        if (error instanceof NoHostAvailableException && ((NoHostAvailableException) error).getErrors().isEmpty()
+                && options.isHostsEnabled() && !hostBreakers.isEmpty()) {
+
+            // Nothing was tried, so every host was left out of the query plan, and the statement probe was not used
+            if (name != null && options.isStatementsEnabled() && attempt != null) {
+                statementBreakers.get(name).release(attempt.statementPermit);
+            }
+
+            return new CircuitBreakerOpenException("Circuit breakers for all hosts are open");
+        }
+
+        if (!isUnhealthy(error)) {
+            if (name != null && options.isStatementsEnabled() && attempt != null) {
+                statementBreakers.get(name).release(attempt.statementPermit);
+            }
+
+            if (coordinator != null && options.isHostsEnabled()) {
+                releaseHost(attempt);
+            }
+
+            return error;
+        }
+
+        if (name != null && options.isStatementsEnabled()) {
+            statementBreakers.get(name).onFailure(attempt == null ? CircuitBreaker.ALLOWED : attempt.statementPermit);
+        }
+
+        if (coordinator != null && options.isHostsEnabled()) {
+            hostBreaker(coordinator).onFailure(hostPermit(attempt, coordinator));
+        }
+
+        return error;
+    }
+
+    private static boolean isUnhealthy(final Throwable error) {
+        return error instanceof ReadTimeoutException
+                || error instanceof WriteTimeoutException
+                || error instanceof UnavailableException
+                || error instanceof NoHostAvailableException;
+    }
+
+    /**
+     * The permit a request holds on the breaker of the host that coordinated it.
+     */
+    private static long hostPermit(final Attempt attempt, final Host coordinator) {
+        return attempt != null && coordinator.equals(attempt.host) ? attempt.hostPermit : CircuitBreaker.ALLOWED;
+    }
+
+    /**
+     * Releases the permits of a request which could not be sent after all, without recording an outcome.
+     */
+    protected void abandon(final String name, final Statement statement) {
+        final Attempt attempt = attempts.remove(statement);
+
+        if (attempt == null) {
+            return;
+        }
+
+        if (name != null && options.isStatementsEnabled()) {
+            statementBreakers.get(name).release(attempt.statementPermit);
+        }
+
+        if (attempt.host != null) {
+            releaseHost(attempt);
+        }
+    }
+
+    private void releaseHost(final Attempt attempt) {
+        final CircuitBreaker breaker = hostBreakers.get(attempt.host);
+
+        if (breaker != null) {
+            breaker.release(attempt.hostPermit);
+        }
+    }
+
+    private CircuitBreaker hostBreaker(final Host host) {
+        return hostBreakers.computeIfAbsent(host, key -> create(HOST, key.getAddress().toString()));
+    }
+
+    private CircuitBreaker create(final String type, final String name) {
+        final CircuitBreaker breaker = new CircuitBreaker(type + "." + name, options, this);
+
+        metrics.circuitBreakerCreated(type, name, breaker);
+
+        return breaker;
+    }
+
+    @Override
+    public void onStateChange(final CircuitBreaker breaker, final CircuitBreaker.State from, final CircuitBreaker.State to) {
+        logger.info("Circuit breaker {} changed from {} to {}", breaker.getName(), from, to);
+        metrics.circuitBreakerTransition(breaker, to);
+    }
+
+    /**
+     * Load balancing policy leaving hosts with an open circuit out of query plans.
+     */
+    private class HostCircuitBreakerPolicy implements LoadBalancingPolicy {
+
+        private final LoadBalancingPolicy childPolicy;
+
+        private HostCircuitBreakerPolicy(final LoadBalancingPolicy childPolicy) {
+            this.childPolicy = childPolicy;
+        }
+
+        @Override
+        public void init(final Cluster cluster, final Collection<Host> hosts) {
+            childPolicy.init(cluster, hosts);
+        }
+
+        @Override
+        public HostDistance distance(final Host host) {
+            return childPolicy.distance(host);
+        }
+
+        @Override
+        public Iterator<Host> newQueryPlan(final String loggedKeyspace, final Statement statement) {
+            final Iterator<Host> childPlan = childPolicy.newQueryPlan(loggedKeyspace, statement);
+
+            return new AbstractIterator<Host>() {
+                @Override
+                protected Host computeNext() {
+                    final Attempt attempt = statement == null ? null : attempts.get(statement);
+
+                    // The driver moved on from the previous host, so its probe, if it took one, is not reported
+                    if (attempt != null && attempt.host != null) {
+                        releaseHost(attempt);
+                        attempt.host = null;
+                    }
+
+                    while (childPlan.hasNext()) {
+                        final Host host = childPlan.next();
+                        final CircuitBreaker breaker = hostBreakers.get(host);
+
+                        if (breaker == null) {
+                            if (attempt != null) {
+                                attempt.host = host;
+                                attempt.hostPermit = CircuitBreaker.ALLOWED;
+                            }
+
+                            return host;
+                        }
+
+                        if (attempt == null) {
+                            if (breaker.isAllowing()) {
+                                return host;
+                            }
+                        } else {
+                            final long permit = breaker.tryAcquire();
+
+                            if (permit != CircuitBreaker.DENIED) {
+                                attempt.host = host;
+                                attempt.hostPermit = permit;
+                                return host;
+                            }
+                        }
+
+                        metrics.circuitBreakerRejected(HOST, host.getAddress().toString());
+                    }
+
+                    return endOfData();
+                }
+            };
+        }
+
+        @Override
+        public void onAdd(final Host host) {
+            childPolicy.onAdd(host);
+        }
+
+        @Override
+        public void onUp(final Host host) {
+            childPolicy.onUp(host);
+        }
+
+        @Override
+        public void onSuspected(final Host host) {
+            childPolicy.onSuspected(host);
+        }
+
+        @Override
+        public void onDown(final Host host) {
+            childPolicy.onDown(host);
+        }
+
+        @Override
+        public void onRemove(final Host host) {
+            hostBreakers.remove(host);
+            childPolicy.onRemove(host);
+        }
+    }
+
+    /**
+     * A request admitted through {@link #acquire}, with the permits it holds.
+     */
+    private static class Attempt {
+        private volatile long statementPermit = CircuitBreaker.ALLOWED;
+        private volatile Host host;
+        private volatile long hostPermit = CircuitBreaker.ALLOWED;
+    }
+}
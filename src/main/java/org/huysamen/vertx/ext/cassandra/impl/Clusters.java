@@ -0,0 +1,542 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CircuitBreakerOpenException;
+import org.huysamen.vertx.ext.cassandra.config.ClusterOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The secondary clusters of a service. A named statement can be routed to any of the clusters, have its writes
+ * mirrored asynchronously to a secondary cluster, or have its reads fall back to another cluster when its own cluster
+ * is unavailable or slow. Each secondary cluster is run by a service of its own, with its own configuration.
+ */
+class Clusters {
+
+    protected static final String CLUSTER = "cluster";
+    protected static final String MIRROR = "mirror";
+    protected static final String FALLBACK = "fallback";
+    protected static final String FALLBACK_AFTER_MILLIS = "fallback_after_millis";
+
+    private static final List<String> FIELDS = Arrays.asList(CLUSTER, MIRROR, FALLBACK, FALLBACK_AFTER_MILLIS);
+    private static final int MAX_CONTINUATIONS = 1024;
+
+    private final CassandraServiceImpl primary;
+    private final Vertx vertx;
+    private final Map<String, CassandraServiceImpl> services = new LinkedHashMap<>();
+    private final Map<String, Mirror> mirrors = new LinkedHashMap<>();
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+    private final Map<String, String> continuations = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > MAX_CONTINUATIONS;
+        }
+    };
+
+    protected Clusters(final CassandraServiceImpl primary, final Map<String, ClusterOptions> options) {
+        this.primary = primary;
+        this.vertx = primary.getVertx();
+
+        options.forEach((name, clusterOptions) -> {
+            final CassandraServiceImpl service = new CassandraServiceImpl(vertx, clusterOptions.getConfig());
+
+            services.put(name, service);
+            mirrors.put(name, new Mirror(clusterOptions, service));
+        });
+    }
+
+    protected void start() {
+        services.values().forEach(CassandraServiceImpl::start);
+    }
+
+    /**
+     * Stops the secondary clusters.
+     *
+     * @param closed Run once all of them are closed.
+     */
+    protected void stop(final Runnable closed) {
+        final AtomicInteger closing = new AtomicInteger(services.size());
+
+        if (services.isEmpty()) {
+            closed.run();
+        }
+
+        services.values().forEach(service -> service.stop(result -> {
+            if (closing.decrementAndGet() == 0) {
+                closed.run();
+            }
+        }));
+
+        mirrors.values().forEach(Mirror::clear);
+
+        synchronized (continuations) {
+            continuations.clear();
+        }
+    }
+
+    protected void reconnect() {
+        services.values().forEach(CassandraServiceImpl::reconnect);
+    }
+
+    protected Collection<Mirror> getMirrors() {
+        return mirrors.values();
+    }
+
+    /**
+     * Prepares a statement on the clusters named by its options, if they name any.
+     *
+     * @return Whether the statement is routed, in which case the handler is called once it is prepared.
+     */
+    protected boolean prepare(final String name, final String statement, final JsonObject options,
+                              final Handler<AsyncResult<JsonObject>> handler) {
+
+        final Route route;
+
+        try {
+            route = route(statement, options);
+        } catch (final IllegalArgumentException e) {
+            handler.handle(CassandraServiceImpl.createAsyncResult(e));
+            return true;
+        }
+
+        if (route == null) {
+            routes.remove(name);
+            return false;
+        }
+
+        final JsonObject clusterOptions = withoutRouting(options);
+        final List<String> clusters = new ArrayList<>();
+
+        for (final String cluster : Arrays.asList(route.cluster, route.mirror, route.fallback)) {
+            if (cluster != null && !clusters.contains(cluster)) {
+                clusters.add(cluster);
+            }
+        }
+
+        // Every cluster the statement may run on has to know it, and the result is that of its own cluster
+        final AtomicInteger pending = new AtomicInteger(clusters.size());
+        final AtomicReference<AsyncResult<JsonObject>> outcome = new AtomicReference<>();
+
+        for (final String cluster : clusters) {
+            service(cluster).prepareDirect(name, statement, clusterOptions, result -> {
+                if (result.failed()) {
+                    outcome.set(result);
+                } else if (cluster.equals(route.cluster)) {
+                    outcome.compareAndSet(null, result);
+                }
+
+                if (pending.decrementAndGet() == 0) {
+                    if (outcome.get().succeeded()) {
+                        routes.put(name, route);
+                    }
+
+                    handler.handle(outcome.get());
+                }
+            });
+        }
+
+        return true;
+    }
+
+    /**
+     * Executes a named statement on its clusters, if it is routed.
+     *
+     * @return Whether the statement is routed, in which case the handler is called with its result.
+     */
+    protected boolean prepared(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final String name = statement.getString("name");
+        final Route route = name == null ? null : routes.get(name);
+
+        if (route == null) {
+            return false;
+        }
+
+        if (route.fallback != null) {
+            executeWithFallback(route, statement, handler);
+        } else if (route.mirror != null) {
+            // The mirrored copy carries the write timestamp of the original, so that the secondary cluster resolves
+            // concurrent writes to the same row in the same order as the primary, whatever order they arrive in
+            final JsonObject stamped = statement.getValue(RequestOptions.TIMESTAMP) != null
+                    ? statement
+                    : statement.copy().putNumber(RequestOptions.TIMESTAMP, nextTimestamp());
+
+            execute(route.cluster, stamped, result -> {
+                if (result.succeeded() && !"BAD".equals(result.result().getString("result"))) {
+                    mirrors.get(route.mirror).submit(stamped);
+                }
+
+                handler.handle(result);
+            });
+        } else {
+            execute(route.cluster, statement, handler);
+        }
+
+        return true;
+    }
+
+    /**
+     * A write timestamp in microseconds since the epoch, increasing with every call, like the timestamps the driver
+     * generates itself.
+     */
+    private long nextTimestamp() {
+        while (true) {
+            final long last = lastTimestamp.get();
+            final long next = Math.max(last + 1, TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+
+            if (lastTimestamp.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Fetches more of a result from the secondary cluster which returned it, if one did.
+     *
+     * @return Whether the continuation belongs to a secondary cluster, in which case the handler is called with the
+     * next part of the result.
+     */
+    protected boolean fetchMore(final String continuation, final Handler<AsyncResult<JsonObject>> handler) {
+        final String cluster;
+
+        synchronized (continuations) {
+            cluster = continuation == null ? null : continuations.remove(continuation);
+        }
+
+        if (cluster == null) {
+            return false;
+        }
+
+        services.get(cluster).fetchMore(continuation, remembering(cluster, handler));
+        return true;
+    }
+
+    private void execute(final String cluster, final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final long started = System.nanoTime();
+
+        service(cluster).preparedDirect(statement, remembering(cluster, result -> {
+            final Metrics metrics = primary.getMetrics();
+
+            if (metrics != null) {
+                metrics.clusterCompleted(cluster, System.nanoTime() - started, result.failed());
+            }
+
+            handler.handle(result);
+        }));
+    }
+
+    /**
+     * Executes a read on its cluster, and on its fallback cluster if its own cluster is unavailable or has not answered
+     * in time. The first success of the two is used. A failure of the fallback only answers once its own cluster has
+     * failed too, so that a slow success of its own cluster is not lost.
+     */
+    private void executeWithFallback(final Route route, final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicBoolean fellBack = new AtomicBoolean();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final AtomicReference<AsyncResult<JsonObject>> fallbackFailure = new AtomicReference<>();
+
+        final Runnable fallBack = () -> {
+            if (!fellBack.compareAndSet(false, true)) {
+                return;
+            }
+
+            final Metrics metrics = primary.getMetrics();
+
+            if (metrics != null) {
+                metrics.clusterFallback(route.fallback);
+            }
+
+            execute(route.fallback, statement, result -> {
+                if (result.failed()) {
+                    fallbackFailure.set(result);
+
+                    if (!failed.get()) {
+                        return;
+                    }
+                }
+
+                if (done.compareAndSet(false, true)) {
+                    handler.handle(result);
+                }
+            });
+        };
+
+        final long timer = route.fallbackAfterMillis == null ? -1 : vertx.setTimer(route.fallbackAfterMillis, id -> {
+            if (!done.get()) {
+                fallBack.run();
+            }
+        });
+
+        execute(route.cluster, statement, result -> {
+            if (timer != -1) {
+                vertx.cancelTimer(timer);
+            }
+
+            // Once the fallback is running, it answers unless this cluster succeeds first
+            if (result.failed() && (isUnavailable(result.cause()) || fellBack.get())) {
+                failed.set(true);
+                fallBack.run();
+
+                // The fallback may have failed before this cluster did
+                final AsyncResult<JsonObject> fallbackResult = fallbackFailure.get();
+
+                if (fallbackResult != null && done.compareAndSet(false, true)) {
+                    handler.handle(fallbackResult);
+                }
+
+                return;
+            }
+
+            if (done.compareAndSet(false, true)) {
+                handler.handle(result);
+            }
+        });
+    }
+
+    private Handler<AsyncResult<JsonObject>> remembering(final String cluster, final Handler<AsyncResult<JsonObject>> handler) {
+        if (ClusterOptions.PRIMARY.equals(cluster)) {
+            return handler;
+        }
+
+        return result -> {
+            if (result.succeeded() && result.result() != null && result.result().getString("continuation") != null) {
+                synchronized (continuations) {
+                    continuations.put(result.result().getString("continuation"), cluster);
+                }
+            }
+
+            handler.handle(result);
+        };
+    }
+
+    private CassandraServiceImpl service(final String cluster) {
+        return ClusterOptions.PRIMARY.equals(cluster) ? primary : services.get(cluster);
+    }
+
+    private Route route(final String statement, final JsonObject options) {
+        if (options == null) {
+            return null;
+        }
+
+        final String cluster = options.getString(CLUSTER);
+        final String mirror = options.getString(MIRROR);
+        final String fallback = options.getString(FALLBACK);
+        final Long fallbackAfterMillis = options.getLong(FALLBACK_AFTER_MILLIS);
+
+        if (cluster == null && mirror == null && fallback == null && fallbackAfterMillis == null) {
+            return null;
+        }
+
+        final Route route = new Route(cluster == null ? ClusterOptions.PRIMARY : cluster, mirror, fallback, fallbackAfterMillis);
+        final boolean select = statement.toLowerCase().startsWith("select");
+
+        if (service(route.cluster) == null) {
+            throw new IllegalArgumentException("Unknown cluster: " + route.cluster);
+        }
+
+        if (mirror != null) {
+            if (!mirrors.containsKey(mirror)) {
+                throw new IllegalArgumentException("Unknown mirror cluster: " + mirror);
+            }
+
+            if (mirror.equals(route.cluster)) {
+                throw new IllegalArgumentException("A statement cannot be mirrored to its own cluster");
+            }
+
+            if (select) {
+                throw new IllegalArgumentException("Only writes can be mirrored");
+            }
+        }
+
+        if (fallback != null) {
+            if (service(fallback) == null) {
+                throw new IllegalArgumentException("Unknown fallback cluster: " + fallback);
+            }
+
+            if (fallback.equals(route.cluster)) {
+                throw new IllegalArgumentException("A statement cannot fall back to its own cluster");
+            }
+
+            if (!select) {
+                throw new IllegalArgumentException("Only reads can fall back");
+            }
+        }
+
+        if (fallbackAfterMillis != null) {
+            if (fallback == null) {
+                throw new IllegalArgumentException("A fallback_after_millis needs a fallback cluster");
+            }
+
+            if (fallbackAfterMillis < 1) {
+                throw new IllegalArgumentException("The fallback_after_millis must be at least 1");
+            }
+        }
+
+        return route;
+    }
+
+    private static JsonObject withoutRouting(final JsonObject options) {
+        final JsonObject stripped = new JsonObject();
+
+        for (final String field : options.getFieldNames()) {
+            if (!FIELDS.contains(field)) {
+                stripped.putValue(field, options.getValue(field));
+            }
+        }
+
+        return stripped;
+    }
+
+    /**
+     * Whether a request failed because its cluster could not serve it, rather than because of the request itself.
+     */
+    private static boolean isUnavailable(final Throwable error) {
+        return error instanceof NoHostAvailableException
+                || error instanceof UnavailableException
+                || error instanceof ReadTimeoutException
+                || error instanceof CircuitBreakerOpenException;
+    }
+
+    private static class Route {
+        private final String cluster;
+        private final String mirror;
+        private final String fallback;
+        private final Long fallbackAfterMillis;
+
+        private Route(final String cluster, final String mirror, final String fallback, final Long fallbackAfterMillis) {
+            this.cluster = cluster;
+            this.mirror = mirror;
+            this.fallback = fallback;
+            this.fallbackAfterMillis = fallbackAfterMillis;
+        }
+    }
+
+    /**
+     * Mirrors writes to a secondary cluster in the background. Writes wait for one of a bounded number of in flight
+     * slots, and are dropped rather than mirrored if too many are waiting already, or once they have waited too long.
+     */
+    protected class Mirror {
+        private final ClusterOptions options;
+        private final CassandraServiceImpl service;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Queue<Write> queue = new ConcurrentLinkedQueue<>();
+
+        private Mirror(final ClusterOptions options, final CassandraServiceImpl service) {
+            this.options = options;
+            this.service = service;
+        }
+
+        protected String getName() {
+            return options.getName();
+        }
+
+        protected int getInFlight() {
+            return inFlight.get();
+        }
+
+        protected int getPending() {
+            return pending.get();
+        }
+
+        private void submit(final JsonObject statement) {
+            if (pending.incrementAndGet() > options.getMirrorMaxPending()) {
+                pending.decrementAndGet();
+                dropped("full");
+                return;
+            }
+
+            queue.add(new Write(statement.copy()));
+            drain();
+        }
+
+        private void drain() {
+            while (!queue.isEmpty() && tryAcquire()) {
+                final Write write = queue.poll();
+
+                if (write == null) {
+                    inFlight.decrementAndGet();
+                    continue;
+                }
+
+                pending.decrementAndGet();
+
+                if (System.nanoTime() - write.submitted > TimeUnit.MILLISECONDS.toNanos(options.getMirrorMaxLagMillis())) {
+                    inFlight.decrementAndGet();
+                    dropped("lagging");
+                    continue;
+                }
+
+                service.preparedDirect(write.statement, result -> {
+                    final Metrics metrics = primary.getMetrics();
+                    final boolean failed = result.failed() || "BAD".equals(result.result().getString("result"));
+
+                    if (metrics != null) {
+                        metrics.mirrorCompleted(getName(), System.nanoTime() - write.submitted, failed);
+                    }
+
+                    inFlight.decrementAndGet();
+                    drain();
+                });
+            }
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                final int current = inFlight.get();
+
+                if (current >= options.getMirrorMaxInFlight()) {
+                    return false;
+                }
+
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void dropped(final String reason) {
+            final Metrics metrics = primary.getMetrics();
+
+            if (metrics != null) {
+                metrics.mirrorDropped(getName(), reason);
+            }
+        }
+
+        private void clear() {
+            while (queue.poll() != null) {
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    private static class Write {
+        private final JsonObject statement;
+        private final long submitted = System.nanoTime();
+
+        private Write(final JsonObject statement) {
+            this.statement = statement;
+        }
+    }
+}
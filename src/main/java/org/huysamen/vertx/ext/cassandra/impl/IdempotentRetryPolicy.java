@@ -0,0 +1,39 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.policies.DefaultRetryPolicy;
+import com.datastax.driver.core.policies.RetryPolicy;
+
+/**
+ * Retry policy for statements flagged as idempotent. It behaves like the {@link DefaultRetryPolicy}, but also retries a
+ * write once on a write timeout, as applying an idempotent write twice is harmless.
+ */
+class IdempotentRetryPolicy implements RetryPolicy {
+
+    protected static final IdempotentRetryPolicy INSTANCE = new IdempotentRetryPolicy();
+
+    private IdempotentRetryPolicy() {}
+
+    @Override
+    public RetryDecision onReadTimeout(final Statement statement, final ConsistencyLevel cl, final int requiredResponses,
+                                       final int receivedResponses, final boolean dataRetrieved, final int nbRetry) {
+
+        return DefaultRetryPolicy.INSTANCE.onReadTimeout(statement, cl, requiredResponses, receivedResponses, dataRetrieved, nbRetry);
+    }
+
+    @Override
+    public RetryDecision onWriteTimeout(final Statement statement, final ConsistencyLevel cl, final WriteType writeType,
+                                        final int requiredAcks, final int receivedAcks, final int nbRetry) {
+
+        return nbRetry == 0 ? RetryDecision.retry(cl) : RetryDecision.rethrow();
+    }
+
+    @Override
+    public RetryDecision onUnavailable(final Statement statement, final ConsistencyLevel cl, final int requiredReplica,
+                                       final int aliveReplica, final int nbRetry) {
+
+        return DefaultRetryPolicy.INSTANCE.onUnavailable(statement, cl, requiredReplica, aliveReplica, nbRetry);
+    }
+}
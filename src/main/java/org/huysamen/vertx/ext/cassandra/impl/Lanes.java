@@ -0,0 +1,235 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Cluster;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.huysamen.vertx.ext.cassandra.config.LaneOptions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The traffic lanes of a cluster. Each lane bounds the number of its requests in flight, queues requests beyond that
+ * up to a limit and a timeout, and may have a session of its own so that it does not share connections with the other
+ * lanes.
+ */
+class Lanes {
+
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    private final String defaultLane;
+
+    protected Lanes(final Vertx vertx, final Map<String, LaneOptions> options, final String defaultLane) {
+        options.forEach((name, laneOptions) -> lanes.put(name, new Lane(vertx, laneOptions)));
+
+        this.defaultLane = defaultLane;
+    }
+
+    /**
+     * Connects the sessions of the lanes which have one of their own. Blocks, like connecting the session of the
+     * service does.
+     */
+    protected void connect(final Cluster cluster) {
+        swapSessions(connectSessions(cluster));
+    }
+
+    /**
+     * Connects new sessions for the lanes which have one of their own, without using them yet. Blocks.
+     *
+     * @return The new sessions, by lane.
+     */
+    protected Map<Lane, TrackedSession> connectSessions(final Cluster cluster) {
+        final Map<Lane, TrackedSession> sessions = new LinkedHashMap<>();
+
+        try {
+            for (final Lane lane : lanes.values()) {
+                if (lane.options.isDedicatedSession()) {
+                    sessions.put(lane, new TrackedSession(cluster.connect()));
+                }
+            }
+        } catch (final RuntimeException e) {
+            sessions.values().forEach(session -> session.getSession().closeAsync());
+            throw e;
+        }
+
+        return sessions;
+    }
+
+    /**
+     * Replaces the sessions of the lanes with new ones.
+     *
+     * @return The replaced sessions, to be drained and closed.
+     */
+    protected List<TrackedSession> swapSessions(final Map<Lane, TrackedSession> sessions) {
+        final List<TrackedSession> stale = new ArrayList<>();
+
+        sessions.forEach((lane, session) -> {
+            if (lane.session != null) {
+                stale.add(lane.session);
+            }
+
+            lane.session = session;
+        });
+
+        return stale;
+    }
+
+    /**
+     * The sessions of the lanes which have one of their own.
+     */
+    protected List<TrackedSession> getSessions() {
+        final List<TrackedSession> sessions = new ArrayList<>();
+
+        for (final Lane lane : lanes.values()) {
+            if (lane.session != null) {
+                sessions.add(lane.session);
+            }
+        }
+
+        return sessions;
+    }
+
+    protected Collection<Lane> getLanes() {
+        return lanes.values();
+    }
+
+    /**
+     * The lane of a request.
+     *
+     * @param name The lane named by the request or its statement, or null to use the default lane.
+     *
+     * @return The lane, or null if the request bypasses the lanes.
+     * @throws IllegalArgumentException If there is no lane with the name.
+     */
+    protected Lane select(final String name) {
+        final String selected = name == null ? defaultLane : name;
+
+        if (selected == null) {
+            return null;
+        }
+
+        final Lane lane = lanes.get(selected);
+
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown lane: " + selected);
+        }
+
+        return lane;
+    }
+
+    protected static class Lane {
+        private final Vertx vertx;
+        private final LaneOptions options;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Queue<Waiter> queue = new ConcurrentLinkedQueue<>();
+
+        private volatile TrackedSession session;
+
+        private Lane(final Vertx vertx, final LaneOptions options) {
+            this.vertx = vertx;
+            this.options = options;
+        }
+
+        protected String getName() {
+            return options.getName();
+        }
+
+        /**
+         * The session of the lane, or null if it shares the session of the service.
+         */
+        protected TrackedSession getSession() {
+            return session;
+        }
+
+        protected int getInFlight() {
+            return inFlight.get();
+        }
+
+        protected int getQueued() {
+            return queued.get();
+        }
+
+        /**
+         * Runs a request now if the lane has room for it, or once it does, in arrival order.
+         *
+         * @param proceed Runs the request, which must {@link #release} the lane once it completes.
+         * @param reject Called if the queue of the lane is full, or the request waited too long.
+         */
+        protected void acquire(final Runnable proceed, final Handler<Throwable> reject) {
+            if (queue.isEmpty() && tryAcquire()) {
+                proceed.run();
+                return;
+            }
+
+            if (queued.incrementAndGet() > options.getMaxQueued()) {
+                queued.decrementAndGet();
+                reject.handle(new IllegalStateException("The queue of lane " + getName() + " is full"));
+                return;
+            }
+
+            final Waiter waiter = new Waiter(proceed);
+
+            queue.add(waiter);
+            waiter.timer = vertx.setTimer(options.getQueueTimeoutMillis(), id -> {
+                if (waiter.done.compareAndSet(false, true)) {
+                    queue.remove(waiter);
+                    queued.decrementAndGet();
+                    reject.handle(new IllegalStateException("Timed out waiting for lane " + getName()));
+                }
+            });
+
+            // A request may have completed while this one was being queued
+            drain();
+        }
+
+        protected void release() {
+            inFlight.decrementAndGet();
+            drain();
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                final int current = inFlight.get();
+
+                if (current >= options.getMaxInFlight()) {
+                    return false;
+                }
+
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void drain() {
+            while (!queue.isEmpty() && tryAcquire()) {
+                final Waiter waiter = queue.poll();
+
+                if (waiter != null && waiter.done.compareAndSet(false, true)) {
+                    queued.decrementAndGet();
+                    vertx.cancelTimer(waiter.timer);
+                    waiter.proceed.run();
+                } else {
+                    inFlight.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static class Waiter {
+        private final Runnable proceed;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile long timer;
+
+        private Waiter(final Runnable proceed) {
+            this.proceed = proceed;
+        }
+    }
+}
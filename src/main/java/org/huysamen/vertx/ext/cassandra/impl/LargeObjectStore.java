@@ -0,0 +1,604 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.utils.UUIDs;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import org.huysamen.vertx.ext.cassandra.config.LargeObjectOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Stores objects of any size as fixed-size chunks, each in its own partition so that an object is spread over the
+ * cluster. Every chunk carries a CRC32 checksum, and a manifest row with the length, number of chunks and checksum of
+ * the whole object is written once all its chunks have been, so that readers never see a partly written object.
+ *
+ * <p>Each write stores its chunks under a new generation, which the manifest refers to, so that rewriting an object
+ * never touches the chunks of the version being read. The manifest is swapped with a conditional update, and the
+ * chunks of the previous generation are deleted a grace period after it has been, so that reads of that version which
+ * already started can complete. Reads taking longer than that fail on a missing chunk. A write that fails or loses a
+ * race with another write of the same object deletes the chunks it wrote. Deleting an object deletes the chunks of its
+ * current version right away.</p>
+ *
+ * <p>All callbacks are made on the context of the caller, where the streams are read from and written to.</p>
+ */
+class LargeObjectStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LargeObjectStore.class);
+
+    // The manifest of an object is kept in the row of this chunk number
+    private static final int MANIFEST = -1;
+
+    private static final String WRITE_CHUNK = "large_objects.write_chunk";
+    private static final String WRITE_MANIFEST = "large_objects.write_manifest";
+    private static final String REPLACE_MANIFEST = "large_objects.replace_manifest";
+    private static final String DELETE_MANIFEST = "large_objects.delete_manifest";
+    private static final String READ_CHUNK = "large_objects.read_chunk";
+    private static final String READ_MANIFEST = "large_objects.read_manifest";
+    private static final String DELETE_CHUNK = "large_objects.delete_chunk";
+
+    private final CassandraServiceImpl service;
+    private final LargeObjectOptions options;
+
+    protected LargeObjectStore(final CassandraServiceImpl service, final LargeObjectOptions options) {
+        this.service = service;
+        this.options = options;
+    }
+
+    /**
+     * Creates the table if needed and registers the statements of the store with the service, which prepares them
+     * again whenever it connects a new session. Blocks, like connecting the session does.
+     */
+    protected void prepare(final Session session) {
+        final String table = options.getTable();
+
+        if (options.isCreateTable()) {
+            session.execute("CREATE TABLE IF NOT EXISTS " + table
+                    + " (id text, chunk int, data blob, crc bigint, length bigint, chunks int, generation timeuuid,"
+                    + " PRIMARY KEY ((id, chunk)))");
+        }
+
+        service.register(WRITE_CHUNK, session.prepare("INSERT INTO " + table + " (id, chunk, data, crc) VALUES (?, ?, ?, ?)"));
+        service.register(WRITE_MANIFEST, session.prepare("INSERT INTO " + table + " (id, chunk, length, chunks, crc, generation)"
+                + " VALUES (?, " + MANIFEST + ", ?, ?, ?, ?) IF NOT EXISTS"));
+        service.register(REPLACE_MANIFEST, session.prepare("UPDATE " + table + " SET length = ?, chunks = ?, crc = ?, generation = ?"
+                + " WHERE id = ? AND chunk = " + MANIFEST + " IF generation = ?"));
+        service.register(READ_CHUNK, session.prepare("SELECT data, crc FROM " + table + " WHERE id = ? AND chunk = ?"));
+        service.register(READ_MANIFEST, session.prepare("SELECT length, chunks, crc, generation FROM " + table + " WHERE id = ? AND chunk = " + MANIFEST));
+        service.register(DELETE_MANIFEST, session.prepare("DELETE FROM " + table + " WHERE id = ? AND chunk = " + MANIFEST));
+        service.register(DELETE_CHUNK, session.prepare("DELETE FROM " + table + " WHERE id = ? AND chunk = ?"));
+    }
+
+    protected void write(final Context context, final String id, final ReadStream<Buffer> source,
+                         final Handler<AsyncResult<JsonObject>> handler) {
+
+        new ObjectWriter(context, id, source, handler).start();
+    }
+
+    protected void read(final Context context, final String id, final Handler<AsyncResult<ReadStream<Buffer>>> handler) {
+        readManifest(context, id, result -> {
+            if (result.failed()) {
+                handler.handle(CassandraServiceImpl.createAsyncResult(result.cause()));
+            } else if (result.result() == null) {
+                handler.handle(CassandraServiceImpl.createAsyncResult(new IllegalArgumentException("No large object " + id)));
+            } else {
+                final Row manifest = result.result();
+
+                handler.handle(CassandraServiceImpl.createAsyncResult(new ObjectReadStream(context, id,
+                        chunkKey(id, manifest.getUUID("generation")), manifest.getLong("length"), manifest.getInt("chunks"),
+                        manifest.getLong("crc"))));
+            }
+        });
+    }
+
+    /**
+     * Deletes the manifest of an object, so that it can no longer be read, and then the chunks of its generation. A
+     * write of the object racing with the delete fails to swap the manifest, and deletes its own chunks.
+     */
+    protected void delete(final Context context, final String id, final Handler<AsyncResult<JsonObject>> handler) {
+        readManifest(context, id, result -> {
+            if (result.failed()) {
+                handler.handle(CassandraServiceImpl.createAsyncResult(result.cause()));
+                return;
+            }
+
+            final Row manifest = result.result();
+            final int chunks = manifest == null ? 0 : manifest.getInt("chunks");
+            final String key = chunkKey(id, manifest == null ? null : manifest.getUUID("generation"));
+
+            execute(context, DELETE_MANIFEST, deleted -> {
+                if (deleted.failed()) {
+                    handler.handle(CassandraServiceImpl.createAsyncResult(deleted.cause()));
+                    return;
+                }
+
+                new ChunkDeleter(context, id, key, chunks, handler).start();
+            }, id);
+        });
+    }
+
+    /**
+     * Deletes the chunks of a replaced version of an object once the grace period for reads of it has passed. Chunks
+     * are left behind if the service stops before then.
+     */
+    private void deletePrevious(final Context context, final String id, final String key, final int chunks) {
+        final Runnable delete = () -> new ChunkDeleter(context, id, key, chunks, deleted -> {
+            if (deleted.failed()) {
+                logger.warn("Unable to delete the previous chunks of large object " + id, deleted.cause());
+            }
+        }).start();
+
+        if (options.getGracePeriodMillis() == 0) {
+            delete.run();
+        } else {
+            service.getVertx().setTimer(options.getGracePeriodMillis(), timer -> delete.run());
+        }
+    }
+
+    private void readManifest(final Context context, final String id, final Handler<AsyncResult<Row>> handler) {
+        execute(context, READ_MANIFEST, handler, id);
+    }
+
+    /**
+     * Executes one of the statements of the store and calls back on the given context with the first row of its
+     * result, if any.
+     */
+    private void execute(final Context context, final String name, final Handler<AsyncResult<Row>> handler, final Object... values) {
+        service.<Row>executeRegistered(name, (resultSet, done) -> done.handle(CassandraServiceImpl.createAsyncResult(resultSet.one())),
+                result -> context.runOnContext(v -> handler.handle(result)), values);
+    }
+
+    /**
+     * The partition key of the chunks of a generation of an object. Chunks are numbered from zero, so they never share
+     * a row with the manifest of another object, even one whose id looks like a chunk key.
+     */
+    private static String chunkKey(final String id, final UUID generation) {
+        return generation == null ? id : id + "/" + generation;
+    }
+
+    private static long checksum(final ByteBuffer bytes) {
+        final CRC32 crc = new CRC32();
+
+        crc.update(bytes.duplicate());
+
+        return crc.getValue();
+    }
+
+    /**
+     * Splits a stream into chunks and writes up to the configured number of them concurrently, pausing the stream while
+     * that many are being written. Data arriving while the stream pauses is held until there is room for its chunks.
+     */
+    private class ObjectWriter {
+        private final Context context;
+        private final String id;
+        private final UUID generation = UUIDs.timeBased();
+        private final String key;
+        private final ReadStream<Buffer> source;
+        private final Handler<AsyncResult<JsonObject>> handler;
+        private final CRC32 crc = new CRC32();
+
+        private Buffer pending = Buffer.buffer();
+        private long length;
+        private int chunks;
+        private int inFlight;
+        private boolean paused;
+        private boolean ended;
+        private boolean finished;
+        private boolean failed;
+        private boolean cleaned;
+
+        private ObjectWriter(final Context context, final String id, final ReadStream<Buffer> source,
+                             final Handler<AsyncResult<JsonObject>> handler) {
+
+            this.context = context;
+            this.id = id;
+            this.key = chunkKey(id, generation);
+            this.source = source;
+            this.handler = handler;
+        }
+
+        private void start() {
+            source.exceptionHandler(this::fail);
+            source.endHandler(v -> {
+                ended = true;
+                writeReady();
+            });
+            source.handler(this::append);
+        }
+
+        private void append(final Buffer data) {
+            if (finished) {
+                return;
+            }
+
+            pending.appendBuffer(data);
+            writeReady();
+        }
+
+        /**
+         * Writes the complete chunks pending while fewer than the configured number are in flight, and once the stream
+         * has ended, the last partial chunk and then the manifest. The stream is paused while chunks cannot be written.
+         */
+        private void writeReady() {
+            if (finished) {
+                return;
+            }
+
+            final int chunkSize = options.getChunkSize();
+            int offset = 0;
+
+            while (inFlight < options.getParallelism() && pending.length() - offset >= chunkSize) {
+                writeChunk(pending.getBytes(offset, offset + chunkSize));
+                offset += chunkSize;
+            }
+
+            if (offset > 0) {
+                pending = pending.getBuffer(offset, pending.length());
+            }
+
+            if (ended) {
+                if (pending.length() > 0 && pending.length() < chunkSize && inFlight < options.getParallelism()) {
+                    writeChunk(pending.getBytes());
+                    pending = Buffer.buffer();
+                }
+
+                writeManifestIfDone();
+                return;
+            }
+
+            final boolean full = inFlight >= options.getParallelism() || pending.length() >= chunkSize;
+
+            if (full && !paused) {
+                paused = true;
+                source.pause();
+            } else if (!full && paused) {
+                paused = false;
+                source.resume();
+            }
+        }
+
+        private void writeChunk(final byte[] bytes) {
+            final ByteBuffer data = ByteBuffer.wrap(bytes);
+            final long started = System.nanoTime();
+
+            crc.update(bytes);
+            length += bytes.length;
+            inFlight++;
+
+            execute(context, WRITE_CHUNK, result -> {
+                inFlight--;
+
+                if (result.failed()) {
+                    fail(result.cause());
+                }
+
+                if (failed) {
+                    cleanUp();
+                    return;
+                }
+
+                final Metrics metrics = service.getMetrics();
+
+                if (metrics != null) {
+                    metrics.largeObjectChunk("write", bytes.length, System.nanoTime() - started);
+                }
+
+                writeReady();
+            }, key, chunks++, data, checksum(data));
+        }
+
+        /**
+         * Swaps the manifest over to the new generation once every chunk has been written, and then deletes the
+         * chunks of the previous generation.
+         */
+        private void writeManifestIfDone() {
+            if (!ended || inFlight > 0 || pending.length() > 0 || finished) {
+                return;
+            }
+
+            finished = true;
+
+            readManifest(context, id, read -> {
+                if (read.failed()) {
+                    fail(read.cause());
+                    return;
+                }
+
+                final Row previous = read.result();
+                final Handler<AsyncResult<Row>> swapped = result -> {
+                    if (result.failed()) {
+                        // The manifest may have been swapped all the same, so the chunks it may refer to are kept
+                        failed = true;
+                        handler.handle(CassandraServiceImpl.createAsyncResult(result.cause()));
+                        return;
+                    }
+
+                    if (!result.result().getBool("[applied]")) {
+                        fail(new IllegalStateException("Large object " + id + " was written or deleted concurrently"));
+                        return;
+                    }
+
+                    if (previous != null) {
+                        deletePrevious(context, id, chunkKey(id, previous.getUUID("generation")), previous.getInt("chunks"));
+                    }
+
+                    final JsonObject response = new JsonObject();
+
+                    response.putString("result", "OK");
+                    response.putString("id", id);
+                    response.putNumber("length", length);
+                    response.putNumber("chunks", chunks);
+
+                    handler.handle(CassandraServiceImpl.createAsyncResult(response));
+                };
+
+                if (previous == null) {
+                    execute(context, WRITE_MANIFEST, swapped, id, length, chunks, crc.getValue(), generation);
+                } else {
+                    execute(context, REPLACE_MANIFEST, swapped, length, chunks, crc.getValue(), generation, id,
+                            previous.getUUID("generation"));
+                }
+            });
+        }
+
+        private void fail(final Throwable error) {
+            if (failed) {
+                return;
+            }
+
+            finished = true;
+            failed = true;
+
+            if (!ended) {
+                source.pause();
+            }
+
+            handler.handle(CassandraServiceImpl.createAsyncResult(error));
+            cleanUp();
+        }
+
+        /**
+         * Deletes the chunks written by a failed write, once none are in flight any more.
+         */
+        private void cleanUp() {
+            if (inFlight > 0 || cleaned) {
+                return;
+            }
+
+            cleaned = true;
+
+            new ChunkDeleter(context, id, key, chunks, deleted -> {
+                if (deleted.failed()) {
+                    logger.warn("Unable to delete the chunks of failed write of large object " + id, deleted.cause());
+                }
+            }).start();
+        }
+    }
+
+    /**
+     * Reads the chunks of an object, fetching up to the configured number of them ahead of the one due next and
+     * emitting them in order. Nothing is fetched until a data handler is set, and no further chunks are fetched while
+     * the stream is paused and its window is full.
+     */
+    private class ObjectReadStream implements ReadStream<Buffer> {
+        private final Context context;
+        private final String id;
+        private final String key;
+        private final long length;
+        private final int chunks;
+        private final long expectedCrc;
+        private final CRC32 crc = new CRC32();
+        private final Map<Integer, ByteBuffer> fetched = new HashMap<>();
+
+        private Handler<Buffer> dataHandler;
+        private Handler<Void> endHandler;
+        private Handler<Throwable> exceptionHandler;
+        private int nextFetch;
+        private int nextEmit;
+        private long emitted;
+        private boolean paused;
+        private boolean finished;
+
+        private ObjectReadStream(final Context context, final String id, final String key, final long length, final int chunks,
+                                 final long expectedCrc) {
+
+            this.context = context;
+            this.id = id;
+            this.key = key;
+            this.length = length;
+            this.chunks = chunks;
+            this.expectedCrc = expectedCrc;
+        }
+
+        @Override
+        public ReadStream<Buffer> exceptionHandler(final Handler<Throwable> handler) {
+            this.exceptionHandler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> handler(final Handler<Buffer> handler) {
+            this.dataHandler = handler;
+            pump();
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> resume() {
+            paused = false;
+            pump();
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> endHandler(final Handler<Void> handler) {
+            this.endHandler = handler;
+            return this;
+        }
+
+        private void pump() {
+            if (finished || dataHandler == null) {
+                return;
+            }
+
+            while (!paused && fetched.containsKey(nextEmit)) {
+                final ByteBuffer bytes = fetched.remove(nextEmit++);
+
+                crc.update(bytes.duplicate());
+                emitted += bytes.remaining();
+                dataHandler.handle(BlobPipe.wrap(bytes));
+
+                if (finished) {
+                    return;
+                }
+            }
+
+            if (nextEmit == chunks) {
+                if (emitted != length || crc.getValue() != expectedCrc) {
+                    fail(new IllegalStateException("Large object " + id + " does not match its manifest"));
+                    return;
+                }
+
+                finished = true;
+
+                if (endHandler != null) {
+                    endHandler.handle(null);
+                }
+
+                return;
+            }
+
+            while (nextFetch < chunks && nextFetch < nextEmit + options.getParallelism()) {
+                fetch(nextFetch++);
+            }
+        }
+
+        private void fetch(final int chunk) {
+            final long started = System.nanoTime();
+
+            execute(context, READ_CHUNK, result -> {
+                if (finished) {
+                    return;
+                }
+
+                if (result.failed()) {
+                    fail(result.cause());
+                    return;
+                }
+
+                final Row row = result.result();
+
+                if (row == null || row.isNull("data")) {
+                    fail(new IllegalStateException("Chunk " + chunk + " of large object " + id + " is missing"));
+                    return;
+                }
+
+                final ByteBuffer bytes = row.getBytesUnsafe("data");
+                final Metrics metrics = service.getMetrics();
+
+                if (checksum(bytes) != row.getLong("crc")) {
+                    if (metrics != null) {
+                        metrics.largeObjectChecksumFailed();
+                    }
+
+                    fail(new IllegalStateException("Chunk " + chunk + " of large object " + id + " failed its checksum"));
+                    return;
+                }
+
+                if (metrics != null) {
+                    metrics.largeObjectChunk("read", bytes.remaining(), System.nanoTime() - started);
+                }
+
+                fetched.put(chunk, bytes);
+                pump();
+            }, key, chunk);
+        }
+
+        private void fail(final Throwable error) {
+            finished = true;
+            fetched.clear();
+
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(error);
+            } else {
+                logger.warn("Unable to read large object " + id, error);
+            }
+        }
+    }
+
+    /**
+     * Deletes the chunks of a generation of an object, up to the configured number of them concurrently.
+     */
+    private class ChunkDeleter {
+        private final Context context;
+        private final String id;
+        private final String key;
+        private final int chunks;
+        private final Handler<AsyncResult<JsonObject>> handler;
+
+        private int next;
+        private int inFlight;
+        private boolean finished;
+
+        private ChunkDeleter(final Context context, final String id, final String key, final int chunks,
+                             final Handler<AsyncResult<JsonObject>> handler) {
+
+            this.context = context;
+            this.id = id;
+            this.key = key;
+            this.chunks = chunks;
+            this.handler = handler;
+        }
+
+        private void start() {
+            while (!finished && next < chunks && inFlight < options.getParallelism()) {
+                inFlight++;
+
+                execute(context, DELETE_CHUNK, result -> {
+                    inFlight--;
+
+                    if (finished) {
+                        return;
+                    }
+
+                    if (result.failed()) {
+                        finished = true;
+                        handler.handle(CassandraServiceImpl.createAsyncResult(result.cause()));
+                        return;
+                    }
+
+                    start();
+                }, key, next++);
+            }
+
+            if (!finished && next == chunks && inFlight == 0) {
+                finished = true;
+
+                final JsonObject response = new JsonObject();
+
+                response.putString("result", "OK");
+                response.putString("id", id);
+                response.putNumber("chunks", chunks);
+
+                handler.handle(CassandraServiceImpl.createAsyncResult(response));
+            }
+        }
+    }
+}
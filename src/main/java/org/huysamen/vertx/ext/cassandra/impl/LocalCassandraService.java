@@ -0,0 +1,189 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CassandraService;
+
+import java.util.function.Supplier;
+
+/**
+ * In-JVM handle on a Cassandra service deployed in the same Vert.x instance. Calls are delegated directly to the
+ * service and results are handed back on the caller's context without being copied or encoded, as would happen when
+ * going through the event bus. The local service is looked up on every call, so that calls go over the event bus
+ * while none is registered, such as after it was undeployed.
+ */
+class LocalCassandraService implements CassandraService {
+
+    private final Vertx vertx;
+    private final Supplier<CassandraService> local;
+    private final CassandraService remote;
+
+    protected LocalCassandraService(final Vertx vertx, final Supplier<CassandraService> local, final CassandraService remote) {
+        this.vertx = vertx;
+        this.local = local;
+        this.remote = remote;
+    }
+
+    @Override
+    public void start() {
+        target().start();
+    }
+
+    @Override
+    public void stop() {
+        target().stop();
+    }
+
+    @Override
+    public void stop(final Handler<AsyncResult<Void>> handler) {
+        final CassandraService target = target();
+
+        target.stop(onContext(target, handler));
+    }
+
+    @Override
+    public void reconnect() {
+        target().reconnect();
+    }
+
+    @Override
+    public void reconfigure(final JsonObject config, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.reconfigure(config, onContext(target, handler));
+    }
+
+    @Override
+    public void metrics(final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.metrics(onContext(target, handler));
+    }
+
+    @Override
+    public void execute(final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.execute(statement, onContext(target, handler));
+    }
+
+    @Override
+    public void executeWithOptions(final String statement, final JsonObject options, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.executeWithOptions(statement, options, onContext(target, handler));
+    }
+
+    @Override
+    public void prepare(final String name, final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.prepare(name, statement, onContext(target, handler));
+    }
+
+    @Override
+    public void prepareWithOptions(final String name, final String statement, final JsonObject options,
+                                   final Handler<AsyncResult<JsonObject>> handler) {
+
+        final CassandraService target = target();
+
+        target.prepareWithOptions(name, statement, options, onContext(target, handler));
+    }
+
+    @Override
+    public void prepared(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.prepared(statement, onContext(target, handler));
+    }
+
+    @Override
+    public void resultMetadata(final String name, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.resultMetadata(name, onContext(target, handler));
+    }
+
+    @Override
+    public void fetchMore(final String continuation, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.fetchMore(continuation, onContext(target, handler));
+    }
+
+    @Override
+    public void keyspaces(final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.keyspaces(onContext(target, handler));
+    }
+
+    @Override
+    public void tableMetadata(final String keyspace, final String table, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.tableMetadata(keyspace, table, onContext(target, handler));
+    }
+
+    @Override
+    public void executeSchemaChange(final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.executeSchemaChange(statement, onContext(target, handler));
+    }
+
+    @Override
+    public void locality(final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.locality(onContext(target, handler));
+    }
+
+    @Override
+    public void warmUp(final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.warmUp(onContext(target, handler));
+    }
+
+    @Override
+    public void bucketedRead(final JsonObject request, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.bucketedRead(request, onContext(target, handler));
+    }
+
+    @Override
+    public void pipeline(final JsonArray operations, final Handler<AsyncResult<JsonObject>> handler) {
+        final CassandraService target = target();
+
+        target.pipeline(operations, onContext(target, handler));
+    }
+
+    /**
+     * The service registered locally, or else the event bus proxy.
+     */
+    private CassandraService target() {
+        final CassandraService service = local.get();
+
+        return service == null ? remote : service;
+    }
+
+    /**
+     * Wraps a handler so that it is called back on the context of the caller, like an event bus reply would be, rather
+     * than on a driver I/O thread.
+     */
+    private <T> Handler<AsyncResult<T>> onContext(final CassandraService target, final Handler<AsyncResult<T>> handler) {
+        if (target == remote) {
+            return handler;
+        }
+
+        final Context context = vertx.context();
+
+        return result -> context.runOnContext(v -> handler.handle(result));
+    }
+}
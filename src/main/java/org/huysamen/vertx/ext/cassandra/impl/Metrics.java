@@ -15,6 +15,8 @@ import org.huysamen.vertx.ext.cassandra.config.CassandraConfiguration;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Metrics container
@@ -45,6 +47,46 @@ class Metrics implements AutoCloseable {
         registry.remove(name);
         registry.register(name, (Gauge<Boolean>) service::isClosed);
 
+        name = MetricRegistry.name("results", "memory");
+        registry.remove(name);
+        registry.register(name, (Gauge<Long>) () -> service.getResultMemory().getUsed());
+
+        name = MetricRegistry.name("results", "waiting");
+        registry.remove(name);
+        registry.register(name, (Gauge<Integer>) () -> service.getResultMemory().getWaiting());
+
+        name = MetricRegistry.name("results", "cursors");
+        registry.remove(name);
+        registry.register(name, (Gauge<Integer>) () -> service.getCursors().size());
+
+        final Lanes lanes = service.getLanes();
+
+        if (lanes != null) {
+            for (final Lanes.Lane lane : lanes.getLanes()) {
+                name = MetricRegistry.name("lanes", lane.getName(), "in-flight");
+                registry.remove(name);
+                registry.register(name, (Gauge<Integer>) lane::getInFlight);
+
+                name = MetricRegistry.name("lanes", lane.getName(), "queued");
+                registry.remove(name);
+                registry.register(name, (Gauge<Integer>) lane::getQueued);
+            }
+        }
+
+        final Clusters clusters = service.getClusters();
+
+        if (clusters != null) {
+            for (final Clusters.Mirror mirror : clusters.getMirrors()) {
+                name = MetricRegistry.name("clusters", mirror.getName(), "mirror", "in-flight");
+                registry.remove(name);
+                registry.register(name, (Gauge<Integer>) mirror::getInFlight);
+
+                name = MetricRegistry.name("clusters", mirror.getName(), "mirror", "pending");
+                registry.remove(name);
+                registry.register(name, (Gauge<Integer>) mirror::getPending);
+            }
+        }
+
         listener = new GaugeStateListener();
         cluster.register(listener);
 
@@ -60,6 +102,126 @@ class Metrics implements AutoCloseable {
         }
     }
 
+    protected void circuitBreakerCreated(final String type, final String name, final CircuitBreaker breaker) {
+        final String metric = MetricRegistry.name("circuit-breakers", type + "." + name, "state");
+
+        registry.remove(metric);
+        registry.register(metric, (Gauge<String>) () -> breaker.getState().name());
+    }
+
+    protected void circuitBreakerRejected(final String type, final String name) {
+        registry.counter(MetricRegistry.name("circuit-breakers", type + "." + name, "rejected")).inc();
+    }
+
+    protected void circuitBreakerTransition(final CircuitBreaker breaker, final CircuitBreaker.State to) {
+        registry.counter(MetricRegistry.name("circuit-breakers", breaker.getName(), "transitions", to.name().toLowerCase())).inc();
+    }
+
+    protected void drained(final String reason, final TrackedSession.DrainResult result) {
+        registry.counter(MetricRegistry.name("drain", reason, "drained")).inc(result.getDrained());
+        registry.counter(MetricRegistry.name("drain", reason, "aborted")).inc(result.getAborted());
+    }
+
+    protected void autotunerCreated(final HostDistance distance, final Supplier<Integer> connections, final Supplier<Integer> requestsPerConnection) {
+        String name = MetricRegistry.name("autotune", distance.name().toLowerCase(), "connections");
+        registry.remove(name);
+        registry.register(name, (Gauge<Integer>) connections::get);
+
+        name = MetricRegistry.name("autotune", distance.name().toLowerCase(), "requests-per-connection");
+        registry.remove(name);
+        registry.register(name, (Gauge<Integer>) requestsPerConnection::get);
+    }
+
+    protected void autotunerDecision(final HostDistance distance) {
+        registry.counter(MetricRegistry.name("autotune", distance.name().toLowerCase(), "decisions")).inc();
+    }
+
+    /**
+     * Counts whether a request was coordinated by a replica of its data, or whether that is unknown (null).
+     */
+    protected void coordinatorSelected(final Boolean replica) {
+        final String kind = replica == null ? "unknown" : replica ? "replica" : "non-replica";
+
+        registry.counter(MetricRegistry.name("coordinator", kind)).inc();
+    }
+
+    /**
+     * Records the time a request spent in one of its phases.
+     */
+    protected void phaseCompleted(final PhaseTimer.Phase phase, final long nanos) {
+        registry.timer(MetricRegistry.name("phases", phase.getKey())).update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    protected void recorderDropped() {
+        registry.counter(MetricRegistry.name("recorder", "dropped")).inc();
+    }
+
+    /**
+     * Records a large object chunk read or written, and the time it took.
+     */
+    protected void largeObjectChunk(final String operation, final long bytes, final long nanos) {
+        registry.meter(MetricRegistry.name("large-objects", operation, "bytes")).mark(bytes);
+        registry.timer(MetricRegistry.name("large-objects", operation, "chunks")).update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time a request waited for its lane, and the time it took once it was let through.
+     */
+    protected void laneCompleted(final String lane, final long queuedNanos, final long latencyNanos) {
+        registry.timer(MetricRegistry.name("lanes", lane, "queue-time")).update(queuedNanos, TimeUnit.NANOSECONDS);
+        registry.timer(MetricRegistry.name("lanes", lane, "latency")).update(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    protected void laneRejected(final String lane) {
+        registry.counter(MetricRegistry.name("lanes", lane, "rejected")).inc();
+    }
+
+    /**
+     * Records the time a request routed to one of the clusters of the service took, and whether it failed.
+     */
+    protected void clusterCompleted(final String cluster, final long nanos, final boolean failed) {
+        registry.timer(MetricRegistry.name("clusters", cluster, "latency")).update(nanos, TimeUnit.NANOSECONDS);
+
+        if (failed) {
+            registry.counter(MetricRegistry.name("clusters", cluster, "errors")).inc();
+        }
+    }
+
+    protected void clusterFallback(final String cluster) {
+        registry.counter(MetricRegistry.name("clusters", cluster, "fallbacks")).inc();
+    }
+
+    /**
+     * Records how long after its original a write was mirrored to a cluster, and whether mirroring it failed.
+     */
+    protected void mirrorCompleted(final String cluster, final long lagNanos, final boolean failed) {
+        registry.timer(MetricRegistry.name("clusters", cluster, "mirror", "lag")).update(lagNanos, TimeUnit.NANOSECONDS);
+
+        if (failed) {
+            registry.counter(MetricRegistry.name("clusters", cluster, "mirror", "failed")).inc();
+        }
+    }
+
+    protected void mirrorDropped(final String cluster, final String reason) {
+        registry.counter(MetricRegistry.name("clusters", cluster, "mirror", "dropped", reason)).inc();
+    }
+
+    protected void resultTruncated() {
+        registry.counter(MetricRegistry.name("results", "truncated")).inc();
+    }
+
+    protected void resultThrottled() {
+        registry.counter(MetricRegistry.name("results", "throttled")).inc();
+    }
+
+    protected void resultRejected() {
+        registry.counter(MetricRegistry.name("results", "rejected")).inc();
+    }
+
+    protected void largeObjectChecksumFailed() {
+        registry.counter(MetricRegistry.name("large-objects", "checksum-failures")).inc();
+    }
+
     private JsonObject getConfiguration(final CassandraConfiguration configurator, final Configuration configuration) {
         final JsonObject json = new JsonObject();
 
@@ -0,0 +1,102 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Time spent by a single request in each of its phases, measured with {@link System#nanoTime()}.
+ *
+ * <p>A timer is only created when phase timing is enabled, so requests that are not timed allocate nothing. The phases
+ * of a request are timed one after the other on whichever thread runs them, each phase ending where the next begins.</p>
+ */
+class PhaseTimer {
+
+    protected enum Phase {
+        /** From the caller sending the request to the service receiving it, if the caller passed its send time. */
+        DELIVERY,
+        /** Validating the request, binding values and building the statement. */
+        BIND,
+        /** Waiting for the result memory budget and the traffic lane, and handing the statement to the session. */
+        QUEUE,
+        /** Driver queueing, the network round trip and the server executing the statement. */
+        EXECUTE,
+        /** Fetching result pages beyond the first one. */
+        FETCH,
+        /** Converting the result set to JSON. */
+        CONVERT,
+        /** Handing the response to the caller's handler. */
+        DISPATCH;
+
+        private final String key = name().toLowerCase();
+
+        protected String getKey() {
+            return key;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[] nanos = new long[PHASES.length];
+    private final boolean[] recorded = new boolean[PHASES.length];
+    private long mark;
+
+    /**
+     * Starts timing a request.
+     *
+     * @param request The request message, which may carry the <code>sent_nanos</code> at which the caller sent it. This
+     *                is only comparable within the same JVM, so it is meant for callers using local delivery.
+     */
+    protected PhaseTimer(final JsonObject request) {
+        mark = System.nanoTime();
+
+        final Number sent = request == null ? null : request.getNumber("sent_nanos");
+
+        if (sent != null && mark - sent.longValue() >= 0) {
+            add(Phase.DELIVERY, mark - sent.longValue());
+        }
+    }
+
+    /**
+     * Ends a phase, attributing the time since the previous phase ended to it.
+     */
+    protected void end(final Phase phase) {
+        final long now = System.nanoTime();
+
+        add(phase, now - mark);
+        mark = now;
+    }
+
+    private void add(final Phase phase, final long elapsed) {
+        nanos[phase.ordinal()] += elapsed;
+        recorded[phase.ordinal()] = true;
+    }
+
+    /**
+     * The phases timed so far, in nanoseconds keyed by phase name.
+     */
+    protected JsonObject asJson() {
+        final JsonObject json = new JsonObject();
+
+        for (final Phase phase : PHASES) {
+            if (recorded[phase.ordinal()]) {
+                json.putNumber(phase.getKey(), nanos[phase.ordinal()]);
+            }
+        }
+
+        return json;
+    }
+
+    /**
+     * Records the timed phases in the phase histograms.
+     */
+    protected void report(final Metrics metrics) {
+        if (metrics == null) {
+            return;
+        }
+
+        for (final Phase phase : PHASES) {
+            if (recorded[phase.ordinal()]) {
+                metrics.phaseCompleted(phase, nanos[phase.ordinal()]);
+            }
+        }
+    }
+}
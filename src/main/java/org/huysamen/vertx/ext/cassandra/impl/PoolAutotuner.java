@@ -0,0 +1,218 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.config.AutotuneOptions;
+import org.huysamen.vertx.ext.cassandra.config.impl.JsonCassandraConfigurationImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adjusts the connection pool sizes and simultaneous request thresholds from the observed load.
+ *
+ * <p>Completed requests are sampled per coordinator host. At every interval the average number of requests in flight
+ * on each host is derived from its throughput and mean latency (Little's law), and the busiest host of each distance
+ * determines the pool size for that distance. The requests per connection threshold is lowered when the mean latency is
+ * above target, spreading requests over more connections, and raised again when it is well below.</p>
+ *
+ * <p>When <code>pooling</code> is configured, its values bound the tuning: the core connections stay between the
+ * configured core and maximum connections, the maximum connections never exceed the configured maximum, and the
+ * requests per connection threshold stays above the configured minimum and at most the configured maximum, which is
+ * left as it is. The bounds are taken when the autotuner starts, so it is restarted when the pooling is reconfigured.
+ * </p>
+ */
+class PoolAutotuner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolAutotuner.class);
+
+    private final CassandraServiceImpl service;
+    private final AutotuneOptions options;
+    private final long latencyTargetNanos;
+    private final Map<HostDistance, Integer> requestsPerConnection = new ConcurrentHashMap<>();
+    private final Map<HostDistance, Integer> connections = new ConcurrentHashMap<>();
+    private final Map<HostDistance, Bounds> bounds = new ConcurrentHashMap<>();
+
+    private volatile ConcurrentMap<Host, Sample> samples = new ConcurrentHashMap<>();
+    private long timer = -1;
+    private long lastTick;
+
+    protected PoolAutotuner(final CassandraServiceImpl service, final AutotuneOptions options) {
+        this.service = service;
+        this.options = options;
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(options.getLatencyTargetMillis());
+    }
+
+    protected void start(final Metrics metrics) {
+        // The configured options are kept apart from those of the cluster, which the autotuner changes
+        final PoolingOptions configured = service.getConfig().getPoolingOptions();
+
+        for (final HostDistance distance : new HostDistance[] { HostDistance.LOCAL, HostDistance.REMOTE }) {
+            final PoolingOptions pooling = service.getCluster().getConfiguration().getPoolingOptions();
+            final int threshold = pooling.getMaxSimultaneousRequestsPerConnectionThreshold(distance);
+            final Bounds limits = new Bounds(options, configured, distance);
+
+            bounds.put(distance, limits);
+            requestsPerConnection.put(distance, clamp(threshold, limits.minRequests, limits.maxRequests));
+            connections.put(distance, clamp(pooling.getCoreConnectionsPerHost(distance), limits.minConnections, limits.maxConnections));
+            metrics.autotunerCreated(distance, () -> connections.get(distance), () -> requestsPerConnection.get(distance));
+        }
+
+        lastTick = System.nanoTime();
+        timer = service.getVertx().setPeriodic(options.getIntervalMillis(), id -> tune(metrics));
+    }
+
+    protected void stop() {
+        if (timer != -1) {
+            service.getVertx().cancelTimer(timer);
+            timer = -1;
+        }
+    }
+
+    protected void record(final Host host, final long latencyNanos) {
+        if (host == null) {
+            return;
+        }
+
+        final Sample sample = samples.computeIfAbsent(host, key -> new Sample());
+
+        sample.count.incrementAndGet();
+        sample.latencyNanos.addAndGet(latencyNanos);
+    }
+
+    private void tune(final Metrics metrics) {
+        final Cluster cluster = service.getCluster();
+
+        if (cluster == null) {
+            return;
+        }
+
+        final ConcurrentMap<Host, Sample> sampled = samples;
+        final long now = System.nanoTime();
+        final long elapsed = now - lastTick;
+
+        samples = new ConcurrentHashMap<>();
+        lastTick = now;
+
+        final LoadBalancingPolicy policy = cluster.getConfiguration().getPolicies().getLoadBalancingPolicy();
+        final Map<HostDistance, double[]> load = new ConcurrentHashMap<>();
+
+        // Per distance: the highest average concurrency of any host, and the total count and latency
+        sampled.forEach((host, sample) -> {
+            final HostDistance distance = policy.distance(host);
+            final long count = sample.count.get();
+
+            if (distance == HostDistance.IGNORED || count == 0) {
+                return;
+            }
+
+            final double[] aggregate = load.computeIfAbsent(distance, key -> new double[3]);
+            final double concurrency = sample.latencyNanos.get() / (double) elapsed;
+
+            aggregate[0] = Math.max(aggregate[0], concurrency);
+            aggregate[1] += count;
+            aggregate[2] += sample.latencyNanos.get();
+        });
+
+        load.forEach((distance, aggregate) -> tune(cluster, metrics, distance, aggregate[0], aggregate[2] / aggregate[1]));
+    }
+
+    private void tune(final Cluster cluster, final Metrics metrics, final HostDistance distance,
+                      final double concurrency, final double meanLatencyNanos) {
+
+        final int currentThreshold = requestsPerConnection.get(distance);
+        int threshold = currentThreshold;
+
+        if (meanLatencyNanos > latencyTargetNanos) {
+            threshold = (int) (threshold * 0.75);
+        } else if (meanLatencyNanos < latencyTargetNanos / 2) {
+            threshold = (int) Math.ceil(threshold * 1.25);
+        }
+
+        final Bounds limits = bounds.get(distance);
+
+        threshold = clamp(threshold, limits.minRequests, limits.maxRequests);
+
+        final int currentConnections = connections.get(distance);
+        final int core = clamp((int) Math.ceil(concurrency / threshold), limits.minConnections, limits.maxConnections);
+        final int max = clamp(core * 2, core, limits.maxConnections);
+
+        if (threshold == currentThreshold && core == currentConnections) {
+            return;
+        }
+
+        final String suffix = distance == HostDistance.LOCAL ? "_local" : "_remote";
+        final JsonObject pooling = new JsonObject()
+                .putNumber("core_connections_per_host" + suffix, core)
+                .putNumber("max_connections_per_host" + suffix, max)
+                .putNumber("max_simultaneous_requests" + suffix, threshold);
+
+        // A configured minimum is left as it is, and the threshold is kept above it
+        if (!limits.configured) {
+            pooling.putNumber("min_simultaneous_requests" + suffix, Math.max(threshold / 4, 1));
+        }
+
+        try {
+            JsonCassandraConfigurationImpl.applyPoolingOptions(pooling, cluster.getConfiguration().getPoolingOptions());
+        } catch (final IllegalArgumentException e) {
+            logger.warn("Unable to apply autotuned pooling options " + pooling.encode(), e);
+            return;
+        }
+
+        requestsPerConnection.put(distance, threshold);
+        connections.put(distance, core);
+        metrics.autotunerDecision(distance);
+
+        logger.info("Autotuned {} pools: concurrency {}, mean latency {} ms, connections {} -> {} (max {}), requests per connection {} -> {}",
+                distance, String.format("%.1f", concurrency), String.format("%.2f", meanLatencyNanos / 1000000d),
+                currentConnections, core, max, currentThreshold, threshold);
+    }
+
+    private static int clamp(final int value, final int min, final int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * The range the autotuner keeps the pool of a distance in: that of its own options, narrowed to the configured
+     * pooling, if any. Where the two do not overlap, the configured pooling wins.
+     */
+    private static class Bounds {
+        private final boolean configured;
+        private final int minConnections;
+        private final int maxConnections;
+        private final int minRequests;
+        private final int maxRequests;
+
+        private Bounds(final AutotuneOptions options, final PoolingOptions pooling, final HostDistance distance) {
+            configured = pooling != null;
+
+            if (!configured) {
+                minConnections = options.getMinConnections();
+                maxConnections = options.getMaxConnections();
+                minRequests = options.getMinRequestsPerConnection();
+                maxRequests = options.getMaxRequestsPerConnection();
+                return;
+            }
+
+            maxConnections = Math.min(options.getMaxConnections(), pooling.getMaxConnectionsPerHost(distance));
+            minConnections = Math.min(maxConnections, Math.max(options.getMinConnections(), pooling.getCoreConnectionsPerHost(distance)));
+            maxRequests = Math.min(options.getMaxRequestsPerConnection(), pooling.getMaxSimultaneousRequestsPerConnectionThreshold(distance));
+            minRequests = Math.min(maxRequests, Math.max(options.getMinRequestsPerConnection(),
+                    pooling.getMinSimultaneousRequestsPerConnectionThreshold(distance) + 1));
+        }
+    }
+
+    private static class Sample {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong latencyNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,242 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.*;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.config.CassandraConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slow query log and sampled server side tracing.
+ */
+class QueryLogger {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryLogger.class);
+
+    private static final String REDACTED = "<redacted>";
+    private static final long TRACE_FETCH_DELAY_MILLIS = 500;
+    private static final int TRACE_FETCH_ATTEMPTS = 5;
+
+    private static final String SELECT_TRACE_SESSION =
+            "SELECT coordinator, duration, request, parameters FROM system_traces.sessions WHERE session_id = ?";
+    private static final String SELECT_TRACE_EVENTS =
+            "SELECT activity, source, source_elapsed, thread FROM system_traces.events WHERE session_id = ?";
+
+    private final CassandraServiceImpl service;
+    private final long thresholdNanos;
+    private final boolean redactValues;
+    private final double traceProbability;
+    private final String address;
+
+    protected QueryLogger(final CassandraServiceImpl service) {
+        final CassandraConfiguration config = service.getConfig();
+
+        this.service = service;
+        this.thresholdNanos = config.getSlowQueryThresholdMillis() < 0
+                ? -1
+                : TimeUnit.MILLISECONDS.toNanos(config.getSlowQueryThresholdMillis());
+        this.redactValues = config.isQueryLogRedactValues();
+        this.traceProbability = config.getTraceProbability();
+        this.address = config.getQueryLogAddress();
+    }
+
+    /**
+     * Marks the start of a request, enabling tracing on the statement if it is sampled.
+     *
+     * @param name The name of the prepared statement, or null for raw statements.
+     * @param query The CQL text of the statement.
+     * @param values The bound values, or null if there are none.
+     * @param statement The statement about to be executed.
+     *
+     * @return The entry to complete once the request finishes.
+     */
+    protected Entry begin(final String name, final String query, final JsonArray values, final Statement statement) {
+        if (traceProbability > 0 && ThreadLocalRandom.current().nextDouble() < traceProbability) {
+            statement.enableTracing();
+        }
+
+        return new Entry(name, query, values, statement, System.nanoTime());
+    }
+
+    protected void complete(final Entry entry, final ResultSet resultSet) {
+        final long elapsed = System.nanoTime() - entry.started;
+        final ExecutionInfo info = resultSet.getExecutionInfo();
+
+        if (thresholdNanos >= 0 && elapsed >= thresholdNanos) {
+            final JsonObject record = record(entry, elapsed);
+
+            record.putString("coordinator", info.getQueriedHost() == null ? null : info.getQueriedHost().getAddress().toString());
+            record.putNumber("pages", resultSet.getAllExecutionInfo().size());
+
+            if (info.getAchievedConsistencyLevel() != null) {
+                record.putString("consistency", info.getAchievedConsistencyLevel().name());
+            }
+
+            emit(record);
+        }
+
+        if (entry.statement.isTracing() && info.getQueryTrace() != null) {
+            fetchTrace(entry, info.getQueryTrace().getTraceId(), TRACE_FETCH_ATTEMPTS);
+        }
+    }
+
+    protected void fail(final Entry entry, final Throwable error) {
+        final long elapsed = System.nanoTime() - entry.started;
+
+        if (thresholdNanos >= 0 && elapsed >= thresholdNanos) {
+            final JsonObject record = record(entry, elapsed);
+
+            record.putString("error", error.getClass().getSimpleName() + ": " + error.getMessage());
+            emit(record);
+        }
+    }
+
+    private JsonObject record(final Entry entry, final long elapsed) {
+        final JsonObject record = new JsonObject();
+
+        record.putString("type", "slow_query");
+        record.putString("name", entry.name);
+        record.putString("statement", entry.query);
+        record.putString("consistency", consistency(entry.statement));
+        record.putNumber("elapsed_millis", elapsed / 1000000d);
+
+        if (entry.values != null) {
+            record.putArray("values", redactValues ? redact(entry.values) : entry.values);
+        }
+
+        return record;
+    }
+
+    private String consistency(final Statement statement) {
+        if (statement.getConsistencyLevel() != null) {
+            return statement.getConsistencyLevel().name();
+        }
+
+        final QueryOptions queryOptions = service.getCluster().getConfiguration().getQueryOptions();
+
+        return queryOptions.getConsistencyLevel() == null ? null : queryOptions.getConsistencyLevel().name();
+    }
+
+    private JsonArray redact(final JsonArray values) {
+        final JsonArray redacted = new JsonArray();
+
+        for (int i = 0; i < values.size(); i++) {
+            final Object value = values.get(i);
+
+            if (value instanceof JsonArray) {
+                redacted.addArray(redact((JsonArray) value));
+            } else {
+                redacted.addString(REDACTED);
+            }
+        }
+
+        return redacted;
+    }
+
+    private void fetchTrace(final Entry entry, final UUID traceId, final int attempts) {
+        service.getVertx().setTimer(TRACE_FETCH_DELAY_MILLIS, timer -> {
+            final Session session = service.getSession();
+
+            if (session == null || session.isClosed()) {
+                return;
+            }
+
+            Futures.addCallback(session.executeAsync(new SimpleStatement(SELECT_TRACE_SESSION, traceId)), new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(final ResultSet resultSet) {
+                    final Row row = resultSet.one();
+
+                    // The trace is written asynchronously by the coordinator, so it might not be complete yet
+                    if (row == null || row.isNull("duration")) {
+                        if (attempts > 1) {
+                            fetchTrace(entry, traceId, attempts - 1);
+                        } else {
+                            logger.debug("Trace {} was not available after {} attempts", traceId, TRACE_FETCH_ATTEMPTS);
+                        }
+
+                        return;
+                    }
+
+                    fetchTraceEvents(entry, traceId, row);
+                }
+
+                @Override
+                public void onFailure(final Throwable throwable) {
+                    logger.warn("Unable to fetch trace " + traceId, throwable);
+                }
+            });
+        });
+    }
+
+    private void fetchTraceEvents(final Entry entry, final UUID traceId, final Row sessionRow) {
+        final Session session = service.getSession();
+
+        Futures.addCallback(session.executeAsync(new SimpleStatement(SELECT_TRACE_EVENTS, traceId)), new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(final ResultSet resultSet) {
+                final JsonObject record = new JsonObject();
+                final JsonArray events = new JsonArray();
+
+                record.putString("type", "trace");
+                record.putString("trace_id", traceId.toString());
+                record.putString("name", entry.name);
+                record.putString("statement", entry.query);
+                record.putString("coordinator", sessionRow.getInet("coordinator").toString());
+                record.putString("request", sessionRow.getString("request"));
+                record.putNumber("duration_micros", sessionRow.getInt("duration"));
+                record.putArray("events", events);
+
+                for (final Row row : resultSet) {
+                    final JsonObject event = new JsonObject();
+
+                    event.putString("activity", row.getString("activity"));
+                    event.putString("source", row.getInet("source").toString());
+                    event.putNumber("source_elapsed_micros", row.getInt("source_elapsed"));
+                    event.putString("thread", row.getString("thread"));
+                    events.addObject(event);
+                }
+
+                emit(record);
+            }
+
+            @Override
+            public void onFailure(final Throwable throwable) {
+                logger.warn("Unable to fetch events for trace " + traceId, throwable);
+            }
+        });
+    }
+
+    private void emit(final JsonObject record) {
+        logger.info(record.encode());
+
+        if (address != null) {
+            service.getVertx().eventBus().publish(address, record);
+        }
+    }
+
+    /**
+     * State captured at the start of a single request.
+     */
+    protected static class Entry {
+        private final String name;
+        private final String query;
+        private final JsonArray values;
+        private final Statement statement;
+        private final long started;
+
+        private Entry(final String name, final String query, final JsonArray values, final Statement statement, final long started) {
+            this.name = name;
+            this.query = query;
+            this.values = values;
+            this.statement = statement;
+            this.started = started;
+        }
+    }
+}
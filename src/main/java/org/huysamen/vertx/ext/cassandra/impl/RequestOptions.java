@@ -0,0 +1,118 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.config.impl.JsonCassandraConfigurationImpl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Per request statement options, which override the cluster wide query options.
+ */
+class RequestOptions {
+
+    protected static final String CONSISTENCY = "consistency";
+    protected static final String SERIAL_CONSISTENCY = "serial_consistency";
+    protected static final String IDEMPOTENT = "idempotent";
+    protected static final String FETCH_SIZE = "fetch_size";
+    protected static final String TIMESTAMP = "timestamp";
+    protected static final String ROUTING_KEY = "routing_key";
+    protected static final String LANE = "lane";
+
+    protected static final List<String> FIELDS = Arrays.asList(CONSISTENCY, SERIAL_CONSISTENCY, IDEMPOTENT, FETCH_SIZE, TIMESTAMP, ROUTING_KEY, LANE);
+
+    private RequestOptions() {}
+
+    /**
+     * Collect the request option fields present in a request, on top of a set of defaults.
+     *
+     * @param defaults The default options, or null if there are none.
+     * @param request The request, which may contain other fields too.
+     *
+     * @return The merged options, or null if there are none.
+     */
+    protected static JsonObject merge(final JsonObject defaults, final JsonObject request) {
+        JsonObject options = defaults == null ? null : defaults.copy();
+
+        if (request == null) {
+            return options;
+        }
+
+        for (final String field : FIELDS) {
+            if (request.containsField(field)) {
+                if (options == null) {
+                    options = new JsonObject();
+                }
+
+                options.putValue(field, request.getValue(field));
+            }
+        }
+
+        return options;
+    }
+
+    /**
+     * Apply options to a statement.
+     *
+     * @param options The options, may be null.
+     * @param statement The statement to apply them to.
+     *
+     * @throws IllegalArgumentException If an option is invalid, or not of the type it should be.
+     */
+    protected static void apply(final JsonObject options, final Statement statement) {
+        if (options == null) {
+            return;
+        }
+
+        final String consistency = field(options, CONSISTENCY, String.class, "a string");
+        final String serialConsistency = field(options, SERIAL_CONSISTENCY, String.class, "a string");
+        final Boolean idempotent = field(options, IDEMPOTENT, Boolean.class, "a boolean");
+        final Number fetchSize = field(options, FETCH_SIZE, Number.class, "a number");
+        final Number timestamp = field(options, TIMESTAMP, Number.class, "a number");
+        final String routingKey = field(options, ROUTING_KEY, String.class, "a string");
+
+        if (consistency != null) {
+            statement.setConsistencyLevel(JsonCassandraConfigurationImpl.parseConsistency(consistency));
+        }
+
+        if (serialConsistency != null) {
+            statement.setSerialConsistencyLevel(JsonCassandraConfigurationImpl.parseConsistency(serialConsistency));
+        }
+
+        if (Boolean.TRUE.equals(idempotent)) {
+            statement.setRetryPolicy(IdempotentRetryPolicy.INSTANCE);
+        }
+
+        if (fetchSize != null) {
+            statement.setFetchSize(fetchSize.intValue());
+        }
+
+        if (timestamp != null) {
+            statement.setDefaultTimestamp(timestamp.longValue());
+        }
+
+        // Bound statements compute their routing key from the bound partition key values, so for them the routing key
+        // only picks the service instance a routing proxy sends the request to
+        if (routingKey != null && statement instanceof SimpleStatement) {
+            ((SimpleStatement) statement).setRoutingKey(ByteBuffer.wrap(Base64.getDecoder().decode(routingKey)));
+        }
+    }
+
+    /**
+     * Gets an option, checking its type up front, as the typed getters of a JSON object throw a ClassCastException
+     * instead.
+     */
+    private static <T> T field(final JsonObject options, final String field, final Class<T> type, final String description) {
+        final Object value = options.getValue(field);
+
+        if (value != null && !type.isInstance(value)) {
+            throw new IllegalArgumentException("The " + field + " option must be " + description);
+        }
+
+        return type.cast(value);
+    }
+}
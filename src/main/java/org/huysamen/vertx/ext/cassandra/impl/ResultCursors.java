@@ -0,0 +1,91 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.ResultSet;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The remainders of truncated results, kept under a continuation token until they are fetched or expire. A cursor is
+ * removed when it is taken, so each continuation token can be used once.
+ */
+class ResultCursors {
+
+    private final Vertx vertx;
+    private final ConcurrentMap<String, Cursor> cursors = new ConcurrentHashMap<>();
+
+    protected ResultCursors(final Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    protected int size() {
+        return cursors.size();
+    }
+
+    /**
+     * Keeps the remainder of a result.
+     *
+     * @return The continuation token, or null if the maximum number of cursors is kept already.
+     */
+    protected String open(final ResultSet resultSet, final String name, final JsonObject request, final long timeoutMillis,
+                          final int maxCursors) {
+
+        if (cursors.size() >= maxCursors) {
+            return null;
+        }
+
+        final String token = UUID.randomUUID().toString();
+        final Cursor cursor = new Cursor(resultSet, name, request);
+
+        cursors.put(token, cursor);
+        cursor.timer = vertx.setTimer(timeoutMillis, id -> cursors.remove(token, cursor));
+
+        return token;
+    }
+
+    /**
+     * Removes and returns a cursor, or null if the token is unknown or has expired.
+     */
+    protected Cursor take(final String token) {
+        final Cursor cursor = cursors.remove(token);
+
+        if (cursor != null) {
+            vertx.cancelTimer(cursor.timer);
+        }
+
+        return cursor;
+    }
+
+    protected void clear() {
+        cursors.values().forEach(cursor -> vertx.cancelTimer(cursor.timer));
+        cursors.clear();
+    }
+
+    protected static class Cursor {
+        private final ResultSet resultSet;
+        private final String name;
+        private final JsonObject request;
+        private volatile long timer;
+
+        private Cursor(final ResultSet resultSet, final String name, final JsonObject request) {
+            this.resultSet = resultSet;
+            this.name = name;
+            this.request = request;
+        }
+
+        protected ResultSet getResultSet() {
+            return resultSet;
+        }
+
+        protected String getName() {
+            return name;
+        }
+
+        protected JsonObject getRequest() {
+            return request;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts for the estimated memory held by responses being built, and holds back new requests while it exceeds the
+ * budget. A request reserves the most its response may hold when it is admitted, so that the budget bounds the
+ * requests executing as well as the responses being converted. Waiting requests are let through in arrival order as
+ * memory is released, or fail once they have waited too long.
+ */
+class ResultMemory {
+
+    private final Vertx vertx;
+    private final AtomicLong used = new AtomicLong();
+    private final Queue<Waiter> waiting = new ConcurrentLinkedQueue<>();
+
+    private volatile long budget = Long.MAX_VALUE;
+
+    protected ResultMemory(final Vertx vertx) {
+        this.vertx = vertx;
+    }
+
+    protected long getUsed() {
+        return used.get();
+    }
+
+    protected int getWaiting() {
+        return waiting.size();
+    }
+
+    /**
+     * Runs a request now if its reservation fits in the budget, or once enough memory has been released. A request
+     * reserving more than the whole budget runs once no memory is used at all.
+     *
+     * @param budget The memory budget in bytes.
+     * @param maxWaitMillis How long the request may wait.
+     * @param account The account the reservation is held by until it is closed, or null to reserve nothing.
+     * @param reserve The number of bytes to reserve.
+     * @param proceed Runs the request.
+     * @param reject Called if the request waited too long.
+     *
+     * @return True if the request had to wait.
+     */
+    protected boolean admit(final long budget, final long maxWaitMillis, final Account account, final long reserve,
+                            final Runnable proceed, final Handler<Throwable> reject) {
+
+        this.budget = budget;
+
+        if (waiting.isEmpty() && reserve(account, reserve)) {
+            proceed.run();
+            return false;
+        }
+
+        final Waiter waiter = new Waiter(account, reserve, proceed);
+
+        waiting.add(waiter);
+        waiter.timer = vertx.setTimer(maxWaitMillis, id -> {
+            if (waiter.done.compareAndSet(false, true)) {
+                waiting.remove(waiter);
+                reject.handle(new IllegalStateException("Result memory budget exceeded"));
+            }
+        });
+
+        // Memory may have been released while the request was being queued
+        drain();
+
+        return true;
+    }
+
+    /**
+     * Opens an account for the memory of a response, which must be closed once the response has been handed on.
+     */
+    protected Account open() {
+        return new Account();
+    }
+
+    private boolean reserve(final Account account, final long reserve) {
+        final long amount = account == null ? 0 : reserve;
+
+        while (true) {
+            final long current = used.get();
+
+            if (current > 0 && (current >= budget || amount > budget - current)) {
+                return false;
+            }
+
+            if (used.compareAndSet(current, current + amount)) {
+                if (account != null) {
+                    account.reserved(amount);
+                }
+
+                return true;
+            }
+        }
+    }
+
+    private void drain() {
+        // Requests are run outside of the lock, as they may complete and release memory on this thread
+        admitWaiting().forEach(Runnable::run);
+    }
+
+    private synchronized List<Runnable> admitWaiting() {
+        final List<Runnable> admitted = new ArrayList<>();
+
+        while (true) {
+            final Waiter waiter = waiting.peek();
+
+            if (waiter == null) {
+                return admitted;
+            }
+
+            if (waiter.done.get()) {
+                waiting.remove(waiter);
+                continue;
+            }
+
+            // Requests are let through in order, so a large reservation is not overtaken by smaller ones
+            if (!reserve(waiter.account, waiter.reserve)) {
+                return admitted;
+            }
+
+            waiting.remove(waiter);
+
+            if (waiter.done.compareAndSet(false, true)) {
+                vertx.cancelTimer(waiter.timer);
+                admitted.add(waiter.proceed);
+            } else if (waiter.account != null) {
+                admitted.add(waiter.account::close);
+            }
+        }
+    }
+
+    private static class Waiter {
+        private final Account account;
+        private final long reserve;
+        private final Runnable proceed;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile long timer;
+
+        private Waiter(final Account account, final long reserve, final Runnable proceed) {
+            this.account = account;
+            this.reserve = reserve;
+            this.proceed = proceed;
+        }
+    }
+
+    /**
+     * The memory held by a single response, which is the larger of the memory reserved for it and the memory its
+     * values take up so far.
+     */
+    protected class Account implements AutoCloseable {
+        private long reserved;
+        private long bytes;
+        private boolean admitted;
+        private boolean closed;
+
+        private synchronized void reserved(final long amount) {
+            admitted = true;
+
+            // The request was rejected or completed while its reservation was made
+            if (closed) {
+                used.addAndGet(-amount);
+                return;
+            }
+
+            reserved += amount;
+        }
+
+        /**
+         * Whether the request of the response has been admitted, so that further requests made on its behalf are not
+         * held back again.
+         */
+        protected synchronized boolean isAdmitted() {
+            return admitted;
+        }
+
+        protected synchronized void add(final long bytes) {
+            if (closed) {
+                return;
+            }
+
+            final long held = Math.max(reserved, this.bytes);
+
+            this.bytes += bytes;
+            used.addAndGet(Math.max(reserved, this.bytes) - held);
+        }
+
+        protected synchronized long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+
+                closed = true;
+                used.addAndGet(-Math.max(reserved, bytes));
+            }
+
+            drain();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Result metadata of named prepared statements, so that clients which already know it can be sent results without it.
+ *
+ * <p>The metadata id is derived from the column names and types. When the schema changes the columns of a statement
+ * change too, so a new id is derived and clients holding the old one are sent the columns again.</p>
+ */
+class ResultMetadataCache {
+
+    private final Map<String, ResultMetadata> metadata = new ConcurrentHashMap<>();
+
+    /**
+     * Get the result metadata of a named statement, deriving it again if the column definitions changed.
+     *
+     * @param name The statement name.
+     * @param definitions The column definitions of a result of the statement.
+     *
+     * @return The result metadata.
+     */
+    protected ResultMetadata get(final String name, final ColumnDefinitions definitions) {
+        final ResultMetadata cached = metadata.get(name);
+
+        if (cached != null && cached.matches(definitions)) {
+            return cached;
+        }
+
+        final ResultMetadata derived = new ResultMetadata(definitions);
+
+        metadata.put(name, derived);
+
+        return derived;
+    }
+
+    /**
+     * Get the last known result metadata of a named statement.
+     *
+     * @param name The statement name.
+     *
+     * @return The result metadata, or null if the statement has not returned a result yet.
+     */
+    protected ResultMetadata get(final String name) {
+        return metadata.get(name);
+    }
+
+    protected void invalidate(final String name) {
+        metadata.remove(name);
+    }
+
+    protected static JsonArray columnsAsJson(final ColumnDefinitions definitions) {
+        final JsonArray columns = new JsonArray();
+
+        for (int i = 0; i < definitions.size(); i++) {
+            final JsonObject column = new JsonObject();
+
+            column.putString("name", definitions.getName(i));
+            column.putString("type", definitions.getType(i).getName().name());
+            columns.addObject(column);
+        }
+
+        return columns;
+    }
+
+    protected static class ResultMetadata {
+        private final String[] names;
+        private final String[] types;
+        private final JsonArray columns;
+        private final String id;
+
+        private ResultMetadata(final ColumnDefinitions definitions) {
+            this.names = new String[definitions.size()];
+            this.types = new String[definitions.size()];
+            this.columns = columnsAsJson(definitions);
+            this.id = Hashing.md5().hashString(columns.encode(), Charsets.UTF_8).toString();
+
+            for (int i = 0; i < definitions.size(); i++) {
+                names[i] = definitions.getName(i);
+                types[i] = definitions.getType(i).getName().name();
+            }
+        }
+
+        protected String getId() {
+            return id;
+        }
+
+        /**
+         * A copy of the columns, as the cached instance is shared between responses.
+         */
+        protected JsonArray getColumns() {
+            return columns.copy();
+        }
+
+        private boolean matches(final ColumnDefinitions definitions) {
+            if (definitions.size() != names.length) {
+                return false;
+            }
+
+            for (int i = 0; i < names.length; i++) {
+                if (!names[i].equals(definitions.getName(i)) || !types[i].equals(definitions.getType(i).getName().name())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
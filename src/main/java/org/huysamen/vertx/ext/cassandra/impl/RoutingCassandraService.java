@@ -0,0 +1,442 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CassandraService;
+import org.huysamen.vertx.ext.cassandra.config.RoutingOptions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Event bus proxy which routes each request to one of the service instances advertising themselves on an address,
+ * preferring instances in the rack of the caller, then in its datacenter. Among the preferred instances requests are
+ * spread round robin, except that requests with a routing key go to the same instance for the same key.
+ *
+ * <p>Named statements and continuations belong to an instance, so statements are prepared on every known instance,
+ * and a continuation is fetched from the instance which returned it. The proxy keeps the statements it prepared, and
+ * prepares them on instances advertising themselves later before routing to them.</p>
+ */
+class RoutingCassandraService implements CassandraService {
+
+    private static final int MAX_CONTINUATIONS = 1024;
+    private static final String NO_PREPARED_STATEMENT = "No prepared statement matching name found";
+
+    private final Vertx vertx;
+    private final String datacenter;
+    private final String rack;
+    private final CassandraService fallback;
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, BiConsumer<CassandraService, Handler<AsyncResult<JsonObject>>>> catalogue = new LinkedHashMap<>();
+
+    private final Map<String, Instance> continuations = new LinkedHashMap<String, Instance>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Instance> eldest) {
+            return size() > MAX_CONTINUATIONS;
+        }
+    };
+
+    protected RoutingCassandraService(final Vertx vertx, final String address, final String datacenter, final String rack) {
+        this.vertx = vertx;
+        this.datacenter = datacenter;
+        this.rack = rack;
+        this.fallback = vertx.eventBus().createProxy(CassandraService.class, address);
+
+        vertx.eventBus().<JsonObject>consumer(address + ".instances", message -> advertised(message.body()));
+    }
+
+    private void advertised(final JsonObject advertisement) {
+        final String address = advertisement.getString("address");
+
+        if (address == null) {
+            return;
+        }
+
+        if (advertisement.getBoolean("leaving", false)) {
+            instances.remove(address);
+            return;
+        }
+
+        final Long ttlMillis = advertisement.getLong("ttl_millis");
+        final long expires = System.currentTimeMillis() + (ttlMillis == null ? 3 * RoutingOptions.DEFAULT_ADVERTISE_INTERVAL_MILLIS : ttlMillis);
+        final Instance known = instances.get(address);
+
+        if (known != null) {
+            known.expires = expires;
+            return;
+        }
+
+        final Instance instance = new Instance(address, advertisement.getString("dc"), advertisement.getString("rack"),
+                vertx.eventBus().createProxy(CassandraService.class, address));
+
+        instance.expires = expires;
+
+        if (instances.putIfAbsent(address, instance) == null) {
+            replay(instance);
+        }
+    }
+
+    /**
+     * Prepares the catalogued statements on an instance, which is not routed to until all of them completed. A
+     * statement which fails to prepare does not keep the instance out of routing, as it fails on the others as well.
+     */
+    private void replay(final Instance instance) {
+        if (!instance.replaying.compareAndSet(false, true)) {
+            return;
+        }
+
+        instance.ready = false;
+
+        final List<BiConsumer<CassandraService, Handler<AsyncResult<JsonObject>>>> preparations;
+
+        synchronized (catalogue) {
+            preparations = new ArrayList<>(catalogue.values());
+        }
+
+        if (preparations.isEmpty()) {
+            instance.ready = true;
+            instance.replaying.set(false);
+            return;
+        }
+
+        final AtomicInteger pending = new AtomicInteger(preparations.size());
+
+        for (final BiConsumer<CassandraService, Handler<AsyncResult<JsonObject>>> preparation : preparations) {
+            preparation.accept(instance.service, result -> {
+                if (pending.decrementAndGet() == 0) {
+                    instance.ready = true;
+                    instance.replaying.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * The live instances closest to the caller, which have the catalogued statements prepared.
+     */
+    private List<Instance> closest() {
+        final long now = System.currentTimeMillis();
+        final List<Instance> closest = new ArrayList<>();
+        int closestScore = -1;
+
+        for (final Instance instance : instances.values()) {
+            if (instance.expires < now) {
+                instances.remove(instance.address, instance);
+                continue;
+            }
+
+            if (!instance.ready) {
+                continue;
+            }
+
+            final boolean sameDatacenter = datacenter != null && datacenter.equals(instance.datacenter);
+            final int score = sameDatacenter ? rack != null && rack.equals(instance.rack) ? 2 : 1 : 0;
+
+            if (score > closestScore) {
+                closest.clear();
+                closestScore = score;
+            }
+
+            if (score == closestScore) {
+                closest.add(instance);
+            }
+        }
+
+        return closest;
+    }
+
+    private Instance route(final String routingKey) {
+        final List<Instance> closest = closest();
+
+        if (closest.isEmpty()) {
+            return null;
+        }
+
+        if (routingKey == null) {
+            return closest.get((next.getAndIncrement() & Integer.MAX_VALUE) % closest.size());
+        }
+
+        // Rendezvous hashing keeps a key on the same instance while the closest instances stay the same
+        Instance chosen = null;
+        long chosenWeight = Long.MIN_VALUE;
+
+        for (final Instance instance : closest) {
+            final long weight = Hashing.murmur3_128().newHasher()
+                    .putString(routingKey, Charsets.UTF_8)
+                    .putString(instance.address, Charsets.UTF_8)
+                    .hash().asLong();
+
+            if (chosen == null || weight > chosenWeight) {
+                chosen = instance;
+                chosenWeight = weight;
+            }
+        }
+
+        return chosen;
+    }
+
+    private CassandraService service(final String routingKey) {
+        final Instance instance = route(routingKey);
+
+        return instance == null ? fallback : instance.service;
+    }
+
+    /**
+     * Sends a request to an instance, remembering the instance of any continuation it returns.
+     */
+    private void send(final String routingKey, final BiConsumer<CassandraService, Handler<AsyncResult<JsonObject>>> request,
+                      final Handler<AsyncResult<JsonObject>> handler) {
+
+        final Instance instance = route(routingKey);
+
+        if (instance == null) {
+            request.accept(fallback, handler);
+            return;
+        }
+
+        request.accept(instance.service, remembering(instance, handler));
+    }
+
+    /**
+     * Sends a request for a named statement to an instance. An instance which does not know a catalogued statement,
+     * such as one restarted at the same address, has the catalogue prepared on it again, and the request goes to
+     * another instance.
+     */
+    private void sendNamed(final String name, final String routingKey,
+                           final BiConsumer<CassandraService, Handler<AsyncResult<JsonObject>>> request,
+                           final Handler<AsyncResult<JsonObject>> handler) {
+
+        final Instance instance = route(routingKey);
+
+        if (instance == null) {
+            request.accept(fallback, handler);
+            return;
+        }
+
+        request.accept(instance.service, result -> {
+            if (result.succeeded() && result.result() != null && "BAD".equals(result.result().getString("result"))
+                    && NO_PREPARED_STATEMENT.equals(result.result().getString("message")) && catalogued(name)) {
+
+                replay(instance);
+                send(routingKey, request, handler);
+                return;
+            }
+
+            remembering(instance, handler).handle(result);
+        });
+    }
+
+    private boolean catalogued(final String name) {
+        synchronized (catalogue) {
+            return name != null && catalogue.containsKey(name);
+        }
+    }
+
+    /**
+     * Prepares a statement on every known instance, and keeps it to prepare on instances advertising themselves later.
+     */
+    private void prepareOnAll(final String name, final BiConsumer<CassandraService, Handler<AsyncResult<JsonObject>>> preparation,
+                              final Handler<AsyncResult<JsonObject>> handler) {
+
+        synchronized (catalogue) {
+            catalogue.put(name, preparation);
+        }
+
+        sendToAll(preparation, handler);
+    }
+
+    private Handler<AsyncResult<JsonObject>> remembering(final Instance instance, final Handler<AsyncResult<JsonObject>> handler) {
+        return result -> {
+            if (result.succeeded() && result.result() != null && result.result().getString("continuation") != null) {
+                synchronized (continuations) {
+                    continuations.put(result.result().getString("continuation"), instance);
+                }
+            }
+
+            handler.handle(result);
+        };
+    }
+
+    /**
+     * Sends a request to every known instance, succeeding with the first result once all of them succeed.
+     */
+    private void sendToAll(final BiConsumer<CassandraService, Handler<AsyncResult<JsonObject>>> request,
+                           final Handler<AsyncResult<JsonObject>> handler) {
+
+        final List<Instance> all = new ArrayList<>(instances.values());
+
+        if (all.isEmpty()) {
+            request.accept(fallback, handler);
+            return;
+        }
+
+        final AtomicInteger pending = new AtomicInteger(all.size());
+        final AtomicReference<AsyncResult<JsonObject>> outcome = new AtomicReference<>();
+
+        for (final Instance instance : all) {
+            request.accept(instance.service, result -> {
+                if (result.failed()) {
+                    outcome.set(result);
+                } else {
+                    outcome.compareAndSet(null, result);
+                }
+
+                if (pending.decrementAndGet() == 0) {
+                    handler.handle(outcome.get());
+                }
+            });
+        }
+    }
+
+    @Override
+    public void start() {
+        fallback.start();
+    }
+
+    @Override
+    public void stop() {
+        fallback.stop();
+    }
+
+    @Override
+    public void stop(final Handler<AsyncResult<Void>> handler) {
+        fallback.stop(handler);
+    }
+
+    @Override
+    public void reconnect() {
+        fallback.reconnect();
+    }
+
+    @Override
+    public void reconfigure(final JsonObject config, final Handler<AsyncResult<JsonObject>> handler) {
+        fallback.reconfigure(config, handler);
+    }
+
+    @Override
+    public void metrics(final Handler<AsyncResult<JsonObject>> handler) {
+        service(null).metrics(handler);
+    }
+
+    @Override
+    public void execute(final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        send(null, (service, done) -> service.execute(statement, done), handler);
+    }
+
+    @Override
+    public void executeWithOptions(final String statement, final JsonObject options, final Handler<AsyncResult<JsonObject>> handler) {
+        send(routingKey(options), (service, done) -> service.executeWithOptions(statement, options, done), handler);
+    }
+
+    @Override
+    public void prepare(final String name, final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        prepareOnAll(name, (service, done) -> service.prepare(name, statement, done), handler);
+    }
+
+    @Override
+    public void prepareWithOptions(final String name, final String statement, final JsonObject options,
+                                   final Handler<AsyncResult<JsonObject>> handler) {
+
+        prepareOnAll(name, (service, done) -> service.prepareWithOptions(name, statement, options, done), handler);
+    }
+
+    @Override
+    public void prepared(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+        sendNamed(statement.getString("name"), routingKey(statement), (service, done) -> service.prepared(statement, done), handler);
+    }
+
+    @Override
+    public void resultMetadata(final String name, final Handler<AsyncResult<JsonObject>> handler) {
+        service(null).resultMetadata(name, handler);
+    }
+
+    @Override
+    public void fetchMore(final String continuation, final Handler<AsyncResult<JsonObject>> handler) {
+        final Instance instance;
+
+        synchronized (continuations) {
+            instance = continuations.remove(continuation);
+        }
+
+        if (instance == null) {
+            fallback.fetchMore(continuation, handler);
+            return;
+        }
+
+        instance.service.fetchMore(continuation, remembering(instance, handler));
+    }
+
+    @Override
+    public void keyspaces(final Handler<AsyncResult<JsonObject>> handler) {
+        service(null).keyspaces(handler);
+    }
+
+    @Override
+    public void tableMetadata(final String keyspace, final String table, final Handler<AsyncResult<JsonObject>> handler) {
+        service(null).tableMetadata(keyspace, table, handler);
+    }
+
+    @Override
+    public void executeSchemaChange(final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+        service(null).executeSchemaChange(statement, handler);
+    }
+
+    @Override
+    public void locality(final Handler<AsyncResult<JsonObject>> handler) {
+        service(null).locality(handler);
+    }
+
+    @Override
+    public void warmUp(final Handler<AsyncResult<JsonObject>> handler) {
+        sendToAll(CassandraService::warmUp, handler);
+    }
+
+    @Override
+    public void bucketedRead(final JsonObject request, final Handler<AsyncResult<JsonObject>> handler) {
+        sendNamed(request.getString("name"), routingKey(request), (service, done) -> service.bucketedRead(request, done), handler);
+    }
+
+    @Override
+    public void pipeline(final JsonArray operations, final Handler<AsyncResult<JsonObject>> handler) {
+        service(null).pipeline(operations, handler);
+    }
+
+    private static String routingKey(final JsonObject options) {
+        final Object routingKey = options == null ? null : options.getValue(RequestOptions.ROUTING_KEY);
+
+        // A routing key of the wrong type is rejected by the instance the request is sent to
+        return routingKey instanceof String ? (String) routingKey : null;
+    }
+
+    private static class Instance {
+        private final String address;
+        private final String datacenter;
+        private final String rack;
+        private final CassandraService service;
+
+        private final AtomicBoolean replaying = new AtomicBoolean();
+
+        private volatile long expires;
+        private volatile boolean ready;
+
+        private Instance(final String address, final String datacenter, final String rack, final CassandraService service) {
+            this.address = address;
+            this.datacenter = datacenter;
+            this.rack = rack;
+            this.service = service;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads every row of a result set into a list, for the in-JVM contracts, which return whole results. Further pages
+ * are fetched without blocking the driver thread the previous page arrived on. The estimated size of the rows is added
+ * to the result memory account of the request, and a result holding more rows or bytes than its limits fails rather
+ * than being read in full, as a list has no way to tell that it was cut short.
+ */
+class RowCollector<T> {
+
+    private final ResultSet resultSet;
+    private final long maxRows;
+    private final long maxBytes;
+    private final ResultMemory.Account account;
+    private final Function<Row, T> reader;
+    private final Handler<AsyncResult<List<T>>> handler;
+    private final List<T> collected;
+
+    private long bytes;
+
+    /**
+     * @param resultSet The result set to read.
+     * @param maxRows The number of rows the result may hold.
+     * @param maxBytes The estimated size the rows of the result may have.
+     * @param account The account the size of the rows is added to.
+     * @param reader Reads a row into the value collected for it.
+     * @param handler Called with the collected values.
+     */
+    protected RowCollector(final ResultSet resultSet, final long maxRows, final long maxBytes, final ResultMemory.Account account,
+                           final Function<Row, T> reader, final Handler<AsyncResult<List<T>>> handler) {
+
+        this.resultSet = resultSet;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.account = account;
+        this.reader = reader;
+        this.handler = handler;
+        this.collected = new ArrayList<>(resultSet.getAvailableWithoutFetching());
+    }
+
+    protected void start() {
+        collect();
+    }
+
+    private void collect() {
+        try {
+            while (resultSet.getAvailableWithoutFetching() > 0) {
+                final Row row = resultSet.one();
+                final long rowBytes = CassandraServiceImpl.estimatedBytes(row);
+
+                if (collected.size() >= maxRows) {
+                    throw new IllegalStateException("The result holds more than the limit of " + maxRows + " rows");
+                }
+
+                if (bytes + rowBytes > maxBytes) {
+                    throw new IllegalStateException("The result holds more than the limit of " + maxBytes + " bytes");
+                }
+
+                bytes += rowBytes;
+                account.add(rowBytes);
+                collected.add(reader.apply(row));
+            }
+        } catch (final RuntimeException e) {
+            handler.handle(CassandraServiceImpl.createAsyncResult(e));
+            return;
+        }
+
+        if (resultSet.isFullyFetched()) {
+            handler.handle(CassandraServiceImpl.createAsyncResult(collected));
+            return;
+        }
+
+        Futures.addCallback(resultSet.fetchMoreResults(), new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(final Object page) {
+                collect();
+            }
+
+            @Override
+            public void onFailure(final Throwable throwable) {
+                handler.handle(CassandraServiceImpl.createAsyncResult(throwable));
+            }
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Waits, with timers rather than by blocking, for the hosts the load balancing policy can reach to agree on the schema
+ * version after a schema change. Every check reads <code>system.peers</code>, which holds the schema version of every
+ * other host as seen by the gossip of the host answering it, and then <code>system.local</code> until the host which
+ * answered the first read has reported its own version. Reads go wherever the load balancing policy sends them, and
+ * every further read moves on to another host, so the check also completes with a single reachable host.
+ */
+class SchemaAgreement {
+
+    private static final long CHECK_INTERVAL_MILLIS = 200;
+    private static final String PEERS = "SELECT peer, rpc_address, schema_version FROM system.peers";
+    private static final String LOCAL = "SELECT schema_version FROM system.local WHERE key = 'local'";
+
+    private final CassandraServiceImpl service;
+    private final Vertx vertx;
+    private final Context context;
+    private final long deadline;
+    private final Handler<AsyncResult<Boolean>> handler;
+
+    protected SchemaAgreement(final CassandraServiceImpl service, final Vertx vertx, final Context context, final long timeoutMillis,
+                              final Handler<AsyncResult<Boolean>> handler) {
+
+        this.service = service;
+        this.vertx = vertx;
+        this.context = context;
+        this.deadline = System.currentTimeMillis() + timeoutMillis;
+        this.handler = handler;
+    }
+
+    protected void start() {
+        context.runOnContext(v -> check());
+    }
+
+    private void check() {
+        final LoadBalancingPolicy policy = service.getCluster().getConfiguration().getPolicies().getLoadBalancingPolicy();
+        final List<Host> reachable = new ArrayList<>();
+
+        for (final Host host : service.getCluster().getMetadata().getAllHosts()) {
+            if (host.isUp() && policy.distance(host) != HostDistance.IGNORED) {
+                reachable.add(host);
+            }
+        }
+
+        if (reachable.size() <= 1) {
+            handler.handle(CassandraServiceImpl.createAsyncResult(true));
+            return;
+        }
+
+        service.executeInternal(new SimpleStatement(PEERS), (resultSet, done) -> {
+            final View view = new View(resultSet.getExecutionInfo().getQueriedHost());
+
+            for (final Row row : resultSet) {
+                final InetAddress rpcAddress = row.getInet("rpc_address");
+                final InetAddress address = rpcAddress == null || rpcAddress.isAnyLocalAddress() ? row.getInet("peer") : rpcAddress;
+
+                view.peers.put(address, row.getUUID("schema_version"));
+            }
+
+            done.handle(CassandraServiceImpl.createAsyncResult(view));
+        }, result -> {
+            if (result.failed()) {
+                context.runOnContext(v -> checked(reachable, null));
+            } else {
+                readLocal(reachable, result.result(), reachable.size());
+            }
+        });
+    }
+
+    /**
+     * Reads the schema version of the host answering, until the host which answered the read of the peers has been
+     * heard from, or every reachable host could have been.
+     */
+    private void readLocal(final List<Host> reachable, final View view, final int remaining) {
+        if (view.coordinator == null || view.own.containsKey(view.coordinator.getAddress()) || remaining == 0) {
+            context.runOnContext(v -> checked(reachable, view));
+            return;
+        }
+
+        service.executeInternal(new SimpleStatement(LOCAL), (resultSet, done) -> {
+            final Row row = resultSet.one();
+            final Host queried = resultSet.getExecutionInfo().getQueriedHost();
+
+            if (row != null && queried != null) {
+                view.own.put(queried.getAddress(), row.getUUID("schema_version"));
+            }
+
+            done.handle(CassandraServiceImpl.createAsyncResult(view));
+        }, result -> {
+            if (result.failed()) {
+                context.runOnContext(v -> checked(reachable, null));
+            } else {
+                readLocal(reachable, view, remaining - 1);
+            }
+        });
+    }
+
+    private void checked(final List<Host> reachable, final View view) {
+        if (view != null && agree(reachable, view)) {
+            handler.handle(CassandraServiceImpl.createAsyncResult(true));
+            return;
+        }
+
+        if (System.currentTimeMillis() + CHECK_INTERVAL_MILLIS > deadline) {
+            handler.handle(CassandraServiceImpl.createAsyncResult(false));
+            return;
+        }
+
+        vertx.setTimer(CHECK_INTERVAL_MILLIS, id -> check());
+    }
+
+    private static boolean agree(final List<Host> reachable, final View view) {
+        UUID agreed = null;
+
+        for (final Host host : reachable) {
+            final UUID own = view.own.get(host.getAddress());
+            final UUID seen = view.peers.get(host.getAddress());
+
+            if (own != null && seen != null && !own.equals(seen)) {
+                return false;
+            }
+
+            final UUID version = own != null ? own : seen;
+
+            if (version == null || agreed != null && !agreed.equals(version)) {
+                return false;
+            }
+
+            agreed = version;
+        }
+
+        return true;
+    }
+
+    private static class View {
+        private final Host coordinator;
+        private final Map<InetAddress, UUID> peers = new HashMap<>();
+        private final Map<InetAddress, UUID> own = new HashMap<>();
+
+        private View(final Host coordinator) {
+            this.coordinator = coordinator;
+        }
+    }
+}
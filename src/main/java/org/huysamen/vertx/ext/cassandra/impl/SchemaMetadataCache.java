@@ -0,0 +1,152 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.TableMetadata;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keyspace and table metadata of the cluster, as JSON. The driver keeps its schema metadata up to date by refreshing
+ * it on schema change events, replacing the metadata of the keyspaces and tables which changed. The JSON is derived
+ * again whenever the driver metadata it was derived from has been replaced, so the cluster is never queried for it.
+ */
+class SchemaMetadataCache {
+
+    private final Map<String, CachedTable> tables = new ConcurrentHashMap<>();
+
+    private volatile CachedKeyspaces keyspaces;
+
+    /**
+     * Get the keyspaces of the cluster, with their replication options and the names of their tables.
+     */
+    protected JsonObject keyspaces(final Metadata metadata) {
+        final List<Object> sources = new ArrayList<>();
+
+        for (final KeyspaceMetadata keyspace : metadata.getKeyspaces()) {
+            sources.add(keyspace);
+            sources.addAll(keyspace.getTables());
+        }
+
+        final CachedKeyspaces cached = keyspaces;
+
+        if (cached != null && cached.matches(sources)) {
+            return cached.json.copy();
+        }
+
+        final JsonArray keyspaceObjects = new JsonArray();
+
+        for (final KeyspaceMetadata keyspace : metadata.getKeyspaces()) {
+            final JsonObject replication = new JsonObject();
+            final JsonArray tableNames = new JsonArray();
+
+            keyspace.getReplication().forEach(replication::putString);
+            keyspace.getTables().forEach(table -> tableNames.addString(table.getName()));
+
+            keyspaceObjects.addObject(new JsonObject()
+                    .putString("name", keyspace.getName())
+                    .putObject("replication", replication)
+                    .putBoolean("durable_writes", keyspace.isDurableWrites())
+                    .putArray("tables", tableNames));
+        }
+
+        final JsonObject json = new JsonObject()
+                .putString("result", "OK")
+                .putArray("keyspaces", keyspaceObjects);
+
+        keyspaces = new CachedKeyspaces(sources, json);
+
+        return json.copy();
+    }
+
+    /**
+     * Get the columns and primary key of a table.
+     *
+     * @throws IllegalArgumentException If there is no such keyspace or table.
+     */
+    protected JsonObject table(final Metadata metadata, final String keyspaceName, final String tableName) {
+        final KeyspaceMetadata keyspace = keyspaceName == null ? null : metadata.getKeyspace(keyspaceName);
+        final TableMetadata table = keyspace == null || tableName == null ? null : keyspace.getTable(tableName);
+
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown table: " + keyspaceName + "." + tableName);
+        }
+
+        final String key = keyspace.getName() + "." + table.getName();
+        final CachedTable cached = tables.get(key);
+
+        if (cached != null && cached.table == table) {
+            return cached.json.copy();
+        }
+
+        final JsonArray columns = new JsonArray();
+        final JsonArray partitionKey = new JsonArray();
+        final JsonArray clusteringColumns = new JsonArray();
+
+        for (final ColumnMetadata column : table.getColumns()) {
+            columns.addObject(new JsonObject()
+                    .putString("name", column.getName())
+                    .putString("type", column.getType().toString()));
+        }
+
+        table.getPartitionKey().forEach(column -> partitionKey.addString(column.getName()));
+
+        for (int i = 0; i < table.getClusteringColumns().size(); i++) {
+            clusteringColumns.addObject(new JsonObject()
+                    .putString("name", table.getClusteringColumns().get(i).getName())
+                    .putString("order", table.getClusteringOrder().get(i).name()));
+        }
+
+        final JsonObject json = new JsonObject()
+                .putString("result", "OK")
+                .putString("keyspace", keyspace.getName())
+                .putString("table", table.getName())
+                .putArray("columns", columns)
+                .putArray("partition_key", partitionKey)
+                .putArray("clustering_columns", clusteringColumns);
+
+        tables.put(key, new CachedTable(table, json));
+
+        return json.copy();
+    }
+
+    private static class CachedKeyspaces {
+        private final List<Object> sources;
+        private final JsonObject json;
+
+        private CachedKeyspaces(final List<Object> sources, final JsonObject json) {
+            this.sources = sources;
+            this.json = json;
+        }
+
+        private boolean matches(final List<Object> current) {
+            if (current.size() != sources.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < current.size(); i++) {
+                if (current.get(i) != sources.get(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static class CachedTable {
+        private final TableMetadata table;
+        private final JsonObject json;
+
+        private CachedTable(final TableMetadata table, final JsonObject json) {
+            this.table = table;
+            this.json = json;
+        }
+    }
+}
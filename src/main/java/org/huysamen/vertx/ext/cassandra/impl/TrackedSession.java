@@ -0,0 +1,128 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Session;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A session together with the number of requests in flight on it, so that it can be drained before being closed.
+ */
+class TrackedSession {
+
+    private final Session session;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean drained = new AtomicBoolean();
+
+    private volatile boolean admitting = true;
+    private volatile Runnable onEmpty;
+
+    protected TrackedSession(final Session session) {
+        this.session = session;
+    }
+
+    protected Session getSession() {
+        return session;
+    }
+
+    protected int getInFlight() {
+        return inFlight.get();
+    }
+
+    protected boolean isClosed() {
+        return session.isClosed();
+    }
+
+    /**
+     * Registers a new request on the session.
+     *
+     * @return False if the session is draining and no longer admits requests.
+     */
+    protected boolean tryAcquire() {
+        if (!admitting) {
+            return false;
+        }
+
+        inFlight.incrementAndGet();
+
+        // Re-check, as draining may have started between the first check and the increment
+        if (!admitting) {
+            release();
+            return false;
+        }
+
+        return true;
+    }
+
+    protected void release() {
+        if (inFlight.decrementAndGet() == 0 && !admitting) {
+            final Runnable callback = onEmpty;
+
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * Stops admitting requests and waits for the requests in flight to complete, up to a deadline.
+     *
+     * @param vertx The Vert.x instance used for the deadline timer.
+     * @param timeoutMillis The maximum time to wait for in flight requests.
+     * @param handler Called once with the result, either when all requests completed or when the deadline passed.
+     */
+    protected void drain(final Vertx vertx, final long timeoutMillis, final Handler<DrainResult> handler) {
+        final int started = inFlight.get();
+        final long[] timer = new long[] { -1 };
+
+        final Runnable complete = () -> {
+            if (drained.compareAndSet(false, true)) {
+                if (timer[0] != -1) {
+                    vertx.cancelTimer(timer[0]);
+                }
+
+                final int aborted = inFlight.get();
+                handler.handle(new DrainResult(Math.max(started - aborted, 0), aborted));
+            }
+        };
+
+        onEmpty = complete;
+        admitting = false;
+
+        if (inFlight.get() == 0) {
+            complete.run();
+            return;
+        }
+
+        timer[0] = vertx.setTimer(Math.max(timeoutMillis, 1), id -> complete.run());
+    }
+
+    /**
+     * Outcome of draining a session.
+     */
+    protected static class DrainResult {
+        private final int drained;
+        private final int aborted;
+
+        private DrainResult(final int drained, final int aborted) {
+            this.drained = drained;
+            this.aborted = aborted;
+        }
+
+        /**
+         * The number of requests that completed while draining.
+         */
+        protected int getDrained() {
+            return drained;
+        }
+
+        /**
+         * The number of requests still in flight when the deadline passed.
+         */
+        protected int getAborted() {
+            return aborted;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.config.WarmUpOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Warms a started service up before it takes traffic. The statement catalogue is prepared first, which the driver
+ * prepares on every host. Probe queries are then spread over the local hosts, so that the connections of their pools
+ * have carried a request, and finally the warm-up queries are run to exercise the request paths of the service and the
+ * driver until they are compiled.
+ */
+class WarmUp {
+
+    private static final String PROBE = "SELECT release_version FROM system.local";
+
+    private final CassandraServiceImpl service;
+    private final WarmUpOptions options;
+    private final Context context;
+    private final Handler<AsyncResult<JsonObject>> handler;
+    private final JsonObject result = new JsonObject();
+    private final long started = System.nanoTime();
+
+    protected WarmUp(final CassandraServiceImpl service, final WarmUpOptions options, final Context context,
+                     final Handler<AsyncResult<JsonObject>> handler) {
+
+        this.service = service;
+        this.options = options;
+        this.context = context;
+        this.handler = handler;
+    }
+
+    protected void start() {
+        context.runOnContext(v -> prepareStatements());
+    }
+
+    private void prepareStatements() {
+        final JsonArray statements = options.getStatements();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        new Batch(statements.size(), (index, next) -> {
+            final JsonObject statement = statements.get(index);
+
+            service.prepareWithOptions(statement.getString("name"), statement.getString("statement"), statement.getObject("options"), prepared -> {
+                if (prepared.failed()) {
+                    error.compareAndSet(null, new IllegalStateException("Unable to prepare warm-up statement " + statement.getString("name"),
+                            prepared.cause()));
+                }
+
+                next.run();
+            });
+        }, () -> {
+            if (error.get() != null) {
+                handler.handle(CassandraServiceImpl.createAsyncResult(error.get()));
+                return;
+            }
+
+            result.putNumber("statements", statements.size());
+            probeHosts();
+        }).start();
+    }
+
+    private void probeHosts() {
+        final Cluster cluster = service.getCluster();
+        final LoadBalancingPolicy policy = cluster.getConfiguration().getPolicies().getLoadBalancingPolicy();
+        final List<Host> local = new ArrayList<>();
+        final Set<Host> reached = ConcurrentHashMap.newKeySet();
+        final AtomicInteger errors = new AtomicInteger();
+
+        for (final Host host : cluster.getMetadata().getAllHosts()) {
+            if (host.isUp() && policy.distance(host) == HostDistance.LOCAL) {
+                local.add(host);
+            }
+        }
+
+        // Probes carry no routing key, so the load balancing policy spreads them over the local hosts in turn
+        new Batch(local.size() * options.getProbesPerHost(), (index, next) ->
+                service.executeInternal(new SimpleStatement(PROBE),
+                        (resultSet, done) -> done.handle(CassandraServiceImpl.createAsyncResult(resultSet.getExecutionInfo().getQueriedHost())),
+                        probed -> {
+                            if (probed.succeeded()) {
+                                reached.add(probed.result());
+                            } else {
+                                errors.incrementAndGet();
+                            }
+
+                            next.run();
+                        }), () -> {
+
+            final JsonArray unreached = new JsonArray();
+
+            for (final Host host : local) {
+                if (!reached.contains(host)) {
+                    unreached.addString(host.getAddress().getHostAddress());
+                }
+            }
+
+            result.putObject("hosts", new JsonObject()
+                    .putNumber("local", local.size())
+                    .putNumber("reached", local.size() - unreached.size())
+                    .putArray("unreached", unreached)
+                    .putNumber("errors", errors.get()));
+
+            runQueries();
+        }).start();
+    }
+
+    private void runQueries() {
+        final JsonArray queries = options.getQueries();
+        final AtomicInteger errors = new AtomicInteger();
+
+        new Batch(queries.size() == 0 ? 0 : queries.size() * options.getIterations(), (index, next) -> {
+            final JsonObject query = queries.get(index % queries.size());
+            final Handler<AsyncResult<JsonObject>> done = executed -> {
+                if (executed.failed() || !"OK".equals(executed.result().getString("result"))) {
+                    errors.incrementAndGet();
+                }
+
+                next.run();
+            };
+
+            if ("prepared".equals(query.getString("type"))) {
+                final JsonObject request = new JsonObject()
+                        .putString("name", query.getString("name"))
+                        .putArray("values", query.getArray("values", new JsonArray()));
+                final JsonObject requestOptions = query.getObject("options");
+
+                if (requestOptions != null) {
+                    requestOptions.getFieldNames().forEach(field -> request.putValue(field, requestOptions.getValue(field)));
+                }
+
+                service.prepared(request, done);
+            } else {
+                service.executeWithOptions(query.getString("statement"), query.getObject("options"), done);
+            }
+        }, () -> {
+            result.putObject("queries", new JsonObject()
+                    .putNumber("executed", queries.size() * options.getIterations())
+                    .putNumber("errors", errors.get()));
+            result.putString("result", "OK");
+            result.putNumber("millis", (System.nanoTime() - started) / 1000000);
+
+            handler.handle(CassandraServiceImpl.createAsyncResult(result));
+        }).start();
+    }
+
+    private interface Step {
+        void run(int index, Runnable next);
+    }
+
+    /**
+     * Runs a number of steps, no more than the warm-up concurrency at a time, then runs a completion. Each step calls
+     * back on the context of the warm-up before the next one is started.
+     */
+    private class Batch {
+        private final int total;
+        private final Step step;
+        private final Runnable then;
+        private final AtomicInteger issued = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+
+        private Batch(final int total, final Step step, final Runnable then) {
+            this.total = total;
+            this.step = step;
+            this.then = then;
+        }
+
+        private void start() {
+            if (total == 0) {
+                then.run();
+                return;
+            }
+
+            for (int i = 0; i < Math.min(total, options.getConcurrency()); i++) {
+                next();
+            }
+        }
+
+        private void next() {
+            final int index = issued.getAndIncrement();
+
+            if (index >= total) {
+                return;
+            }
+
+            step.run(index, () -> context.runOnContext(v -> {
+                if (completed.incrementAndGet() == total) {
+                    then.run();
+                } else {
+                    next();
+                }
+            }));
+        }
+    }
+}
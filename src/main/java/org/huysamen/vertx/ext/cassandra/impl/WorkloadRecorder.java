@@ -0,0 +1,178 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import com.datastax.driver.core.Statement;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.config.RecorderOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the operations executed by the service to a {@link WorkloadRecording} file.
+ *
+ * <p>Requests only encode their message and offer it to a bounded queue, which a background thread drains to the file.
+ * When the writer cannot keep up the queue fills, and further operations are dropped and counted rather than slowing
+ * requests down.</p>
+ */
+class WorkloadRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadRecorder.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final RecorderOptions options;
+    private final Metrics metrics;
+    private final BlockingQueue<Operation> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final long started = System.nanoTime();
+
+    private volatile boolean closed;
+
+    protected WorkloadRecorder(final RecorderOptions options, final Metrics metrics) throws IOException {
+        this.options = options;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(options.getQueueSize());
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(options.getPath()), 65536));
+
+        WorkloadRecording.writeHeader(out);
+
+        final Thread writer = new Thread(() -> write(out), "vertx-cassandra-recorder");
+        writer.setDaemon(true);
+        writer.start();
+
+        logger.info("Recording workload to {}", options.getPath());
+    }
+
+    /**
+     * Records a statement prepared under a name. The request holds its CQL text as <code>query</code> and its default
+     * <code>options</code>, if any.
+     */
+    protected void prepared(final String name, final String query, final JsonObject options) {
+        final JsonObject request = new JsonObject().putString("query", query);
+
+        if (options != null) {
+            request.putObject("options", options);
+        }
+
+        offer(new Operation(WorkloadRecording.Type.PREPARE, System.nanoTime() - started, name, request.encode(), null));
+    }
+
+    /**
+     * Records the execution of a statement. Executions of a prepared statement are only recorded with a request naming
+     * it, which replays them. Those without one, such as typed writes and reads, the statements of the service itself
+     * and the queries of a bucketed read, are not recorded.
+     *
+     * @param name The name of the prepared statement, or null for raw statements.
+     * @param query The CQL text of the statement.
+     * @param request The request message, or null.
+     * @param statement The statement about to be executed.
+     */
+    protected void executed(final String name, final String query, final JsonObject request, final Statement statement) {
+        if (name != null && (request == null || !name.equals(request.getString("name")))) {
+            return;
+        }
+
+        final long offset = System.nanoTime() - started;
+        final String consistency = statement.getConsistencyLevel() == null ? null : statement.getConsistencyLevel().name();
+
+        if (name == null) {
+            offer(new Operation(WorkloadRecording.Type.EXECUTE, offset, query, request == null ? null : request.encode(), consistency));
+        } else {
+            offer(new Operation(WorkloadRecording.Type.PREPARED, offset, name, request == null ? null : request.encode(), consistency));
+        }
+    }
+
+    /**
+     * Records a bucketed read of a prepared statement, once for all of its buckets.
+     */
+    protected void bucketedRead(final String name, final JsonObject request) {
+        offer(new Operation(WorkloadRecording.Type.BUCKETED_READ, System.nanoTime() - started, name, request.encode(), null));
+    }
+
+    private void offer(final Operation operation) {
+        if (closed || !queue.offer(operation)) {
+            dropped.incrementAndGet();
+
+            if (metrics != null) {
+                metrics.recorderDropped();
+            }
+        }
+    }
+
+    /**
+     * Stops recording without waiting for the writer, which writes the operations still queued and then closes the
+     * file on its own.
+     */
+    protected void close() {
+        closed = true;
+    }
+
+    private void write(final DataOutputStream out) {
+        long written = 0;
+
+        try {
+            while (true) {
+                final Operation operation = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (operation == null) {
+                    // No more operations are queued once the recorder is closed, so the writer is done when it catches up
+                    if (closed) {
+                        break;
+                    }
+
+                    continue;
+                }
+
+                WorkloadRecording.writeRecord(out, operation.type, operation.offsetNanos, operation.statement,
+                        operation.request, operation.consistency);
+                written++;
+
+                // Flush whenever the writer catches up, so that the file is usable even if the service is killed
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (final IOException e) {
+            logger.error("Unable to write workload recording " + options.getPath() + ", recording stopped", e);
+            closed = true;
+            queue.clear();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (final IOException e) {
+                logger.warn("Unable to close workload recording " + options.getPath(), e);
+            }
+        }
+
+        logger.info("Recorded {} operations to {}, dropped {}", written, options.getPath(), dropped.get());
+    }
+
+    private static class Operation {
+        private final WorkloadRecording.Type type;
+        private final long offsetNanos;
+        private final String statement;
+        private final String request;
+        private final String consistency;
+
+        private Operation(final WorkloadRecording.Type type, final long offsetNanos, final String statement,
+                          final String request, final String consistency) {
+
+            this.type = type;
+            this.offsetNanos = offsetNanos;
+            this.statement = statement;
+            this.request = request;
+            this.consistency = consistency;
+        }
+    }
+}
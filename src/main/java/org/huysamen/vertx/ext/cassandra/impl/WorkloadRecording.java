@@ -0,0 +1,214 @@
+package org.huysamen.vertx.ext.cassandra.impl;
+
+import io.vertx.core.json.JsonObject;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The file format of workload recordings, written by the service when recording is enabled and read by the replay tool.
+ *
+ * <p>A recording starts with a magic number and a version, followed by one record per operation. Each record holds its
+ * type, the nanoseconds since the recording started, the statement name or CQL text, the request message with the bound
+ * values and options, and the effective consistency level. Strings are written as a length followed by UTF-8 bytes,
+ * with a length of -1 for null.</p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class WorkloadRecording {
+
+    protected static final int MAGIC = 0x5643574c;
+    protected static final int VERSION = 1;
+
+    public enum Type {
+        /** A statement prepared under a name, with its default options. */
+        PREPARE,
+        /** A raw CQL statement, with its options. */
+        EXECUTE,
+        /** An execution of a named prepared statement. */
+        PREPARED,
+        /** A bucketed read of a named prepared statement, with all of its buckets. */
+        BUCKETED_READ
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private WorkloadRecording() {}
+
+    /**
+     * Opens a recording for reading.
+     *
+     * @param path The recording file.
+     *
+     * @return The reader, positioned at the first record.
+     *
+     * @throws IOException If the file cannot be read or is not a recording.
+     */
+    public static Reader open(final String path) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 65536));
+
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a workload recording: " + path);
+            }
+
+            final int version = in.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported workload recording version " + version + ": " + path);
+            }
+        } catch (final IOException e) {
+            in.close();
+            throw e;
+        }
+
+        return new Reader(in);
+    }
+
+    protected static void writeHeader(final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    protected static void writeRecord(final DataOutputStream out, final Type type, final long offsetNanos,
+                                      final String statement, final String request, final String consistency) throws IOException {
+
+        out.writeByte(type.ordinal());
+        out.writeLong(offsetNanos);
+        writeString(out, statement);
+        writeString(out, request);
+        writeString(out, consistency);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sequential reader of the records in a recording.
+     */
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        private Reader(final DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return The record, or null at the end of the recording.
+         *
+         * @throws IOException If the recording cannot be read.
+         */
+        public Record next() throws IOException {
+            final int type;
+
+            try {
+                type = in.readUnsignedByte();
+            } catch (final EOFException e) {
+                return null;
+            }
+
+            if (type >= TYPES.length) {
+                throw new IOException("Unknown workload record type " + type);
+            }
+
+            final long offsetNanos = in.readLong();
+            final String statement = readString(in);
+            final String request = readString(in);
+            final String consistency = readString(in);
+
+            return new Record(TYPES[type], offsetNanos, statement, request == null ? null : new JsonObject(request), consistency);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * A single recorded operation.
+     */
+    public static class Record {
+        private final Type type;
+        private final long offsetNanos;
+        private final String statement;
+        private final JsonObject request;
+        private final String consistency;
+
+        private Record(final Type type, final long offsetNanos, final String statement, final JsonObject request,
+                       final String consistency) {
+
+            this.type = type;
+            this.offsetNanos = offsetNanos;
+            this.statement = statement;
+            this.request = request;
+            this.consistency = consistency;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * The time the operation was issued, in nanoseconds since the recording started.
+         */
+        public long getOffsetNanos() {
+            return offsetNanos;
+        }
+
+        /**
+         * The statement name for prepared executions, or the CQL text otherwise.
+         */
+        public String getStatement() {
+            return statement;
+        }
+
+        /**
+         * The request message with the values and options, or null if the operation had none.
+         */
+        public JsonObject getRequest() {
+            return request;
+        }
+
+        /**
+         * The consistency level the statement was executed at, or null if it used the cluster default.
+         */
+        public String getConsistency() {
+            return consistency;
+        }
+    }
+}
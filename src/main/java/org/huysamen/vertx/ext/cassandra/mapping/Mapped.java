@@ -0,0 +1,26 @@
+package org.huysamen.vertx.ext.cassandra.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose instances are read from rows and bound to prepared statements by a generated {@link Mapping}.
+ * The {@link org.huysamen.vertx.ext.cassandra.mapping.processor.MappingProcessor} generates the mapping as
+ * <code>&lt;ClassName&gt;Mapping</code> in the package of the class.
+ *
+ * <p>Every field which is not static or transient is mapped, to the column named by its {@link Column} annotation or
+ * else to its name in snake case. Fields are accessed directly unless they are private, in which case they need a
+ * getter and setter. The class needs a constructor without arguments which is not private.</p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Mapped {
+}
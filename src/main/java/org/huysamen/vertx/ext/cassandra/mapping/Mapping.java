@@ -0,0 +1,37 @@
+package org.huysamen.vertx.ext.cassandra.mapping;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.PreparedStatement;
+
+/**
+ * Maps the rows of results to objects of a class, and binds objects of the class to prepared statements. Mappings are
+ * generated for {@link Mapped} classes, and resolve the columns or variables they map once, so that mapping a row or
+ * binding an object only goes by index.
+ *
+ * @param <T> The mapped class.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public interface Mapping<T> {
+
+    /**
+     * Create a mapper for the rows of results with the given columns. Columns which are not mapped are ignored, and
+     * fields without a column are left as constructed.
+     *
+     * @param columns The columns of the result.
+     * @return The row mapper.
+     */
+    public RowMapper<T> rowMapper(final ColumnDefinitions columns);
+
+    /**
+     * Create a binder for a prepared statement, which binds each of its variables to the field mapped to the column of
+     * the same name.
+     *
+     * @param statement The prepared statement.
+     * @return The statement binder.
+     * @throws IllegalArgumentException If a variable of the statement has no field mapped to it.
+     */
+    public StatementBinder<T> binder(final PreparedStatement statement);
+}
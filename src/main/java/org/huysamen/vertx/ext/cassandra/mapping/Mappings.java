@@ -0,0 +1,41 @@
+package org.huysamen.vertx.ext.cassandra.mapping;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Looks up the generated mappings of {@link Mapped} classes.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public final class Mappings {
+
+    private static final ConcurrentMap<Class<?>, Mapping<?>> mappings = new ConcurrentHashMap<>();
+
+    private Mappings() {
+    }
+
+    /**
+     * Get the generated mapping of a class.
+     *
+     * @param type The mapped class.
+     * @return The mapping.
+     * @throws IllegalArgumentException If no mapping was generated for the class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Mapping<T> of(final Class<T> type) {
+        return (Mapping<T>) mappings.computeIfAbsent(type, Mappings::load);
+    }
+
+    private static Mapping<?> load(final Class<?> type) {
+        final String name = type.getName().replace('$', '_') + "Mapping";
+
+        try {
+            return (Mapping<?>) Class.forName(name, true, type.getClassLoader()).getField("INSTANCE").get(null);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No mapping generated for " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.huysamen.vertx.ext.cassandra.mapping;
+
+import com.datastax.driver.core.Row;
+
+/**
+ * Maps rows, of results with the columns the mapper was created for, to objects.
+ *
+ * @param <T> The mapped class.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public interface RowMapper<T> {
+
+    public T map(final Row row);
+}
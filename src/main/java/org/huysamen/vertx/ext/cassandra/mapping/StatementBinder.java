@@ -0,0 +1,17 @@
+package org.huysamen.vertx.ext.cassandra.mapping;
+
+import com.datastax.driver.core.BoundStatement;
+
+/**
+ * Binds objects to the prepared statement the binder was created for.
+ *
+ * @param <T> The mapped class.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public interface StatementBinder<T> {
+
+    public BoundStatement bind(final T object);
+}
@@ -0,0 +1,310 @@
+package org.huysamen.vertx.ext.cassandra.mapping.processor;
+
+import org.huysamen.vertx.ext.cassandra.mapping.Column;
+import org.huysamen.vertx.ext.cassandra.mapping.Mapped;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the {@link org.huysamen.vertx.ext.cassandra.mapping.Mapping} of every {@link Mapped} class. The generated
+ * code reads and binds values by index with the typed accessors of the driver, without reflection.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+@SupportedAnnotationTypes("org.huysamen.vertx.ext.cassandra.mapping.Mapped")
+public class MappingProcessor extends AbstractProcessor {
+
+    /**
+     * The driver accessor, without its <code>get</code> or <code>set</code> prefix, of each supported field type.
+     */
+    private static final Map<String, String> ACCESSORS = new HashMap<>();
+
+    static {
+        ACCESSORS.put("java.lang.String", "String");
+        ACCESSORS.put("int", "Int");
+        ACCESSORS.put("java.lang.Integer", "Int");
+        ACCESSORS.put("long", "Long");
+        ACCESSORS.put("java.lang.Long", "Long");
+        ACCESSORS.put("boolean", "Bool");
+        ACCESSORS.put("java.lang.Boolean", "Bool");
+        ACCESSORS.put("double", "Double");
+        ACCESSORS.put("java.lang.Double", "Double");
+        ACCESSORS.put("float", "Float");
+        ACCESSORS.put("java.lang.Float", "Float");
+        ACCESSORS.put("java.util.UUID", "UUID");
+        ACCESSORS.put("java.util.Date", "Date");
+        ACCESSORS.put("java.math.BigDecimal", "Decimal");
+        ACCESSORS.put("java.math.BigInteger", "Varint");
+        ACCESSORS.put("java.nio.ByteBuffer", "Bytes");
+        ACCESSORS.put("java.net.InetAddress", "Inet");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final Element element : roundEnv.getElementsAnnotatedWith(Mapped.class)) {
+            final TypeElement type = (TypeElement) element;
+
+            try {
+                generate(type, fields(type));
+            } catch (final IllegalArgumentException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), type);
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write mapping: " + e.getMessage(), type);
+            }
+        }
+
+        return true;
+    }
+
+    private List<Field> fields(final TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new IllegalArgumentException("Only concrete classes can be mapped");
+        }
+
+        if (type.getModifiers().contains(Modifier.PRIVATE)
+                || type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                || type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER) {
+
+            throw new IllegalArgumentException("Mapped classes must be top level or static nested classes, and not private");
+        }
+
+        final List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+        boolean constructible = false;
+
+        for (final ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                constructible = true;
+            }
+        }
+
+        if (!constructible) {
+            throw new IllegalArgumentException("Mapped classes need a constructor without arguments which is not private");
+        }
+
+        final List<Field> fields = new ArrayList<>();
+
+        for (final VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+
+            final String name = field.getSimpleName().toString();
+            final String typeName = field.asType().toString();
+            final String accessor = ACCESSORS.get(typeName);
+
+            if (accessor == null) {
+                throw new IllegalArgumentException("Field " + name + " has a type which cannot be mapped: " + typeName);
+            }
+
+            final Column column = field.getAnnotation(Column.class);
+            final Field mapped = new Field();
+
+            mapped.column = column == null ? snakeCase(name) : column.value();
+            mapped.accessor = accessor;
+            mapped.boxed = !field.asType().getKind().isPrimitive() && !"String".equals(accessor) && typeName.startsWith("java.lang.");
+
+            if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                final String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                final String getter = field.asType().getKind() == TypeKind.BOOLEAN && hasMethod(methods, "is" + property, 0)
+                        ? "is" + property
+                        : "get" + property;
+
+                if (!hasMethod(methods, getter, 0) || !hasMethod(methods, "set" + property, 1)) {
+                    throw new IllegalArgumentException("Private field " + name + " needs a getter and a setter");
+                }
+
+                mapped.read = getter + "()";
+                mapped.write = "set" + property + "(%s)";
+            } else {
+                mapped.read = name;
+                mapped.write = name + " = %s";
+            }
+
+            fields.add(mapped);
+        }
+
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Mapped classes need at least one field");
+        }
+
+        return fields;
+    }
+
+    private static boolean hasMethod(final List<ExecutableElement> methods, final String name, final int parameters) {
+        for (final ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                    && !method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC)) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String snakeCase(final String name) {
+        final StringBuilder snake = new StringBuilder();
+
+        for (final char c : name.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                if (snake.length() > 0) {
+                    snake.append('_');
+                }
+
+                snake.append(Character.toLowerCase(c));
+            } else {
+                snake.append(c);
+            }
+        }
+
+        return snake.toString();
+    }
+
+    private void generate(final TypeElement type, final List<Field> fields) throws IOException {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String typeName = type.getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_')
+                + "Mapping";
+
+        final StringBuilder source = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("import com.datastax.driver.core.BoundStatement;\n");
+        source.append("import com.datastax.driver.core.ColumnDefinitions;\n");
+        source.append("import com.datastax.driver.core.PreparedStatement;\n");
+        source.append("import org.huysamen.vertx.ext.cassandra.mapping.Mapping;\n");
+        source.append("import org.huysamen.vertx.ext.cassandra.mapping.RowMapper;\n");
+        source.append("import org.huysamen.vertx.ext.cassandra.mapping.StatementBinder;\n\n");
+        source.append("import java.util.Arrays;\n");
+        source.append("import java.util.List;\n\n");
+        source.append("/**\n");
+        source.append(" * Mapping of {@link ").append(typeName).append("}, generated by ").append(getClass().getSimpleName()).append(".\n");
+        source.append(" */\n");
+        source.append("public final class ").append(simpleName).append(" implements Mapping<").append(typeName).append("> {\n\n");
+        source.append("    public static final ").append(simpleName).append(" INSTANCE = new ").append(simpleName).append("();\n\n");
+        source.append("    private static final List<String> COLUMNS = Arrays.asList(");
+
+        for (int i = 0; i < fields.size(); i++) {
+            source.append(i == 0 ? "" : ", ").append('"').append(fields.get(i).column).append('"');
+        }
+
+        source.append(");\n\n");
+        source.append("    private ").append(simpleName).append("() {\n");
+        source.append("    }\n\n");
+
+        // Rows are mapped with the indices of the columns captured when the mapper is created
+        source.append("    @Override\n");
+        source.append("    public RowMapper<").append(typeName).append("> rowMapper(final ColumnDefinitions columns) {\n");
+
+        for (int i = 0; i < fields.size(); i++) {
+            source.append("        final int column").append(i).append(" = columns.contains(COLUMNS.get(").append(i)
+                    .append(")) ? columns.getIndexOf(COLUMNS.get(").append(i).append(")) : -1;\n");
+        }
+
+        source.append("\n");
+        source.append("        return row -> {\n");
+        source.append("            final ").append(typeName).append(" object = new ").append(typeName).append("();\n\n");
+
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+            final String value = field.boxed
+                    ? "row.isNull(column" + i + ") ? null : row.get" + field.accessor + "(column" + i + ")"
+                    : "row.get" + field.accessor + "(column" + i + ")";
+
+            source.append("            if (column").append(i).append(" >= 0) {\n");
+            source.append("                object.").append(String.format(field.write, value)).append(";\n");
+            source.append("            }\n\n");
+        }
+
+        source.append("            return object;\n");
+        source.append("        };\n");
+        source.append("    }\n\n");
+
+        // Each variable of the statement is bound from the field of the same column, looked up once per statement
+        source.append("    @Override\n");
+        source.append("    public StatementBinder<").append(typeName).append("> binder(final PreparedStatement statement) {\n");
+        source.append("        final ColumnDefinitions variables = statement.getVariables();\n");
+        source.append("        final int[] fields = new int[variables.size()];\n\n");
+        source.append("        for (int i = 0; i < fields.length; i++) {\n");
+        source.append("            fields[i] = COLUMNS.indexOf(variables.getName(i));\n\n");
+        source.append("            if (fields[i] < 0) {\n");
+        source.append("                throw new IllegalArgumentException(\"No field of ").append(type.getSimpleName())
+                .append(" is mapped to variable \" + variables.getName(i));\n");
+        source.append("            }\n");
+        source.append("        }\n\n");
+        source.append("        return object -> {\n");
+        source.append("            final BoundStatement bound = statement.bind();\n\n");
+        source.append("            for (int i = 0; i < fields.length; i++) {\n");
+        source.append("                switch (fields[i]) {\n");
+
+        for (int i = 0; i < fields.size(); i++) {
+            final Field field = fields.get(i);
+
+            source.append("                    case ").append(i).append(":\n");
+
+            if (field.boxed) {
+                source.append("                        if (object.").append(field.read).append(" == null) {\n");
+                source.append("                            bound.setBytesUnsafe(i, null);\n");
+                source.append("                        } else {\n");
+                source.append("                            bound.set").append(field.accessor).append("(i, object.").append(field.read).append(");\n");
+                source.append("                        }\n");
+            } else {
+                source.append("                        bound.set").append(field.accessor).append("(i, object.").append(field.read).append(");\n");
+            }
+
+            source.append("                        break;\n");
+        }
+
+        source.append("                }\n");
+        source.append("            }\n\n");
+        source.append("            return bound;\n");
+        source.append("        };\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try (final Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private static class Field {
+        private String column;
+        private String accessor;
+        private boolean boxed;
+        private String read;
+        private String write;
+    }
+}
@@ -0,0 +1,117 @@
+package org.huysamen.vertx.ext.cassandra.tools;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed-size latency histogram with log-linear buckets, accurate to within 1.6% of any recorded value. Not thread
+ * safe: record from a single thread and {@link #add(LatencyHistogram) merge} histograms for a report.
+ */
+class LatencyHistogram {
+
+    private static final int LINEAR = 128;
+    private static final int SUB_BUCKETS = 64;
+
+    private final long[] counts = new long[LINEAR + 57 * SUB_BUCKETS];
+    private long count;
+    private long max;
+
+    protected void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+
+        counts[index(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Records a latency, adding the samples a closed loop would have taken had it not waited on this slow request, to
+     * correct for coordinated omission.
+     *
+     * @param nanos The measured latency.
+     * @param expectedIntervalNanos The expected time between requests, or 0 to record the latency only.
+     */
+    protected void record(final long nanos, final long expectedIntervalNanos) {
+        record(nanos);
+
+        if (expectedIntervalNanos <= 0) {
+            return;
+        }
+
+        for (long missed = nanos - expectedIntervalNanos; missed >= expectedIntervalNanos; missed -= expectedIntervalNanos) {
+            record(missed);
+        }
+    }
+
+    protected void add(final LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    protected long getCount() {
+        return count;
+    }
+
+    protected long getMax() {
+        return max;
+    }
+
+    /**
+     * The highest value recorded in the bucket that holds the given percentile.
+     */
+    protected long percentile(final double percentile) {
+        final long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen >= target) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    protected void report() {
+        if (count == 0) {
+            System.out.println("No latencies recorded");
+            return;
+        }
+
+        for (final double percentile : new double[] { 50, 90, 99, 99.9, 99.99 }) {
+            System.out.println(String.format("p%-10s %.3f ms", percentile, millis(percentile(percentile))));
+        }
+
+        System.out.println(String.format("max         %.3f ms", millis(max)));
+    }
+
+    private static int index(final long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValue(final int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+
+        final int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        final long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((sub + 1) << shift) - 1;
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
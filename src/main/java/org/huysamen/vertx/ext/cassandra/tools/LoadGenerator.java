@@ -0,0 +1,375 @@
+package org.huysamen.vertx.ext.cassandra.tools;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CassandraService;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives a Cassandra service through its event bus proxy from several client verticles, with a weighted mix of
+ * operations, and reports the throughput and latency percentiles.
+ *
+ * <p>In the <code>open</code> mode each client issues requests at a fixed rate regardless of how long they take, and
+ * latencies are measured from when a request was due, so they include any time spent waiting to be sent. In the
+ * <code>closed</code> mode each client keeps a fixed number of requests in flight. Closed loops under-report latency
+ * when the service stalls (coordinated omission), which is corrected for if <code>expected_interval_micros</code> is
+ * given.</p>
+ *
+ * <p>Usage: <code>LoadGenerator load.json</code>, where the load file holds:</p>
+ *
+ * <pre>
+ * {
+ *     "service": { "seeds": [ "127.0.0.1" ] },
+ *     "address": "load.cassandra",
+ *     "local": false,
+ *     "clients": 4,
+ *     "mode": "open",
+ *     "rate": 20000,
+ *     "concurrency": 32,
+ *     "expected_interval_micros": 0,
+ *     "warmup_seconds": 10,
+ *     "duration_seconds": 60,
+ *     "setup": [ { "name": "read_user", "statement": "SELECT * FROM users WHERE id = ?", "options": { ... } } ],
+ *     "operations": [
+ *         { "weight": 80, "type": "prepared", "name": "read_user", "values": [ [ "$random(1000000)" ] ] },
+ *         { "weight": 20, "type": "execute", "statement": "UPDATE users SET seen = now() WHERE id = 1", "options": { ... } }
+ *     ]
+ * }
+ * </pre>
+ *
+ * <p>The service is created from <code>service</code> and registered on the event bus under <code>address</code>, and
+ * also for local delivery if <code>local</code> is true. Statements in <code>setup</code> are prepared before the run.
+ * Value templates <code>$random(n)</code>, <code>$sequence</code>, <code>$uuid</code> and <code>$text(n)</code> are
+ * replaced by a random number below n, an increasing number, a random UUID and n random letters. They are sent as JSON
+ * numbers and strings, which the service converts to the type of the variable they are bound to, so that numbers bind
+ * to int, bigint and other numeric columns, and UUIDs to uuid and timeuuid columns.</p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class LoadGenerator {
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadGenerator load.json");
+            System.exit(1);
+        }
+
+        final JsonObject load = new JsonObject(new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8));
+        final String address = load.getString("address", "load.cassandra");
+        final int clients = load.getInteger("clients") == null ? 1 : load.getInteger("clients");
+        final long warmupNanos = TimeUnit.SECONDS.toNanos(load.getLong("warmup_seconds") == null ? 10 : load.getLong("warmup_seconds"));
+        final long durationNanos = TimeUnit.SECONDS.toNanos(load.getLong("duration_seconds") == null ? 60 : load.getLong("duration_seconds"));
+
+        final Vertx vertx = Vertx.vertx();
+        final CassandraService service = CassandraService.create(vertx, load.getObject("service", new JsonObject()));
+
+        service.start();
+        vertx.eventBus().registerService(service, address);
+
+        if (load.getBoolean("local", false)) {
+            CassandraService.factory.registerLocal(vertx, address, service);
+        }
+
+        try {
+            setup(CassandraService.createEventBusProxy(vertx, address), load.getArray("setup", new JsonArray()));
+
+            final Run run = new Run(load, clients, System.nanoTime() + warmupNanos, durationNanos);
+
+            for (int i = 0; i < clients; i++) {
+                vertx.deployVerticle(new LoadClient(address, load, run), result -> {
+                    if (result.failed()) {
+                        result.cause().printStackTrace();
+                    }
+                });
+            }
+
+            System.out.println(String.format("Warming up for %d s, then measuring for %d s", TimeUnit.NANOSECONDS.toSeconds(warmupNanos),
+                    TimeUnit.NANOSECONDS.toSeconds(durationNanos)));
+
+            run.done.await();
+            run.report();
+        } finally {
+            if (load.getBoolean("local", false)) {
+                CassandraService.factory.unregisterLocal(vertx, address, service);
+            }
+
+            service.stop();
+            vertx.close();
+        }
+    }
+
+    private static void setup(final CassandraService service, final JsonArray statements) throws InterruptedException {
+        for (int i = 0; i < statements.size(); i++) {
+            final JsonObject statement = statements.get(i);
+            final CountDownLatch latch = new CountDownLatch(1);
+            final AtomicReference<Throwable> error = new AtomicReference<>();
+
+            service.prepareWithOptions(statement.getString("name"), statement.getString("statement"), statement.getObject("options"), result -> {
+                if (result.failed()) {
+                    error.set(result.cause());
+                }
+
+                latch.countDown();
+            });
+
+            latch.await();
+
+            if (error.get() != null) {
+                throw new IllegalStateException("Unable to prepare " + statement.getString("name"), error.get());
+            }
+        }
+    }
+
+    /**
+     * The shared state of a run: its measurement window and the results of the clients.
+     */
+    private static class Run {
+        private final String mode;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final CountDownLatch done;
+
+        private Run(final JsonObject load, final int clients, final long measureFrom, final long durationNanos) {
+            this.mode = load.getString("mode", "open");
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureFrom + durationNanos;
+            this.done = new CountDownLatch(clients);
+        }
+
+        private synchronized void finished(final LatencyHistogram clientLatencies, final long clientCompleted, final long clientErrors) {
+            latencies.add(clientLatencies);
+            completed.addAndGet(clientCompleted);
+            errors.addAndGet(clientErrors);
+            done.countDown();
+        }
+
+        private synchronized void report() {
+            final double seconds = (measureUntil - measureFrom) / 1000000000d;
+
+            System.out.println(String.format("Mode:        %s", mode));
+            System.out.println(String.format("Operations:  %,d (%,d errors)", completed.get(), errors.get()));
+            System.out.println(String.format("Throughput:  %,.0f ops/s", completed.get() / seconds));
+            latencies.report();
+        }
+    }
+
+    /**
+     * A client issuing operations from its own event loop.
+     */
+    private static class LoadClient extends AbstractVerticle {
+
+        private final String address;
+        private final Run run;
+        private final JsonArray operations;
+        private final int[] cumulativeWeights;
+        private final boolean open;
+        private final long intervalNanos;
+        private final int concurrency;
+        private final long expectedIntervalNanos;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private CassandraService service;
+        private long started;
+        private long issued;
+        private long completed;
+        private long errors;
+        private int inFlight;
+        private boolean reported;
+        private long timer = -1;
+
+        private static final AtomicLong sequence = new AtomicLong();
+
+        private LoadClient(final String address, final JsonObject load, final Run run) {
+            this.address = address;
+            this.run = run;
+            this.operations = load.getArray("operations", new JsonArray());
+            this.cumulativeWeights = new int[operations.size()];
+            this.open = "open".equals(run.mode);
+
+            final Number rate = load.getNumber("rate");
+            final int clients = (int) run.done.getCount();
+            final Integer concurrency = load.getInteger("concurrency");
+            final Long expectedIntervalMicros = load.getLong("expected_interval_micros");
+
+            this.intervalNanos = rate == null ? TimeUnit.MILLISECONDS.toNanos(1) : (long) (1000000000d * clients / rate.doubleValue());
+            this.concurrency = concurrency == null ? 16 : concurrency;
+            this.expectedIntervalNanos = expectedIntervalMicros == null ? 0 : TimeUnit.MICROSECONDS.toNanos(expectedIntervalMicros);
+
+            int total = 0;
+
+            for (int i = 0; i < operations.size(); i++) {
+                final Integer weight = operations.<JsonObject>get(i).getInteger("weight");
+
+                total += weight == null ? 1 : weight;
+                cumulativeWeights[i] = total;
+            }
+
+            if (total == 0) {
+                throw new IllegalArgumentException("No operations configured");
+            }
+        }
+
+        @Override
+        public void start() {
+            service = CassandraService.createEventBusProxy(vertx, address);
+            started = System.nanoTime();
+
+            if (open) {
+                // Issue every request that has become due since the last tick, each timed from when it was due
+                timer = vertx.setPeriodic(1, id -> tick());
+            } else {
+                for (int i = 0; i < concurrency; i++) {
+                    next(System.nanoTime());
+                }
+
+                timer = vertx.setPeriodic(100, id -> checkFinished());
+            }
+        }
+
+        private void tick() {
+            final long now = System.nanoTime();
+
+            if (now < run.measureUntil) {
+                final long due = (now - started) / intervalNanos;
+
+                while (issued <= due) {
+                    issue(started + issued * intervalNanos);
+                }
+            }
+
+            checkFinished();
+        }
+
+        private void next(final long due) {
+            if (due < run.measureUntil) {
+                issue(due);
+            }
+        }
+
+        private void issue(final long due) {
+            final JsonObject operation = pick();
+            final Handler<AsyncResult<JsonObject>> handler = result -> {
+                final long now = System.nanoTime();
+
+                inFlight--;
+
+                if (due >= run.measureFrom && due < run.measureUntil) {
+                    completed++;
+                    latencies.record(now - due, open ? 0 : expectedIntervalNanos);
+
+                    if (result.failed() || !"OK".equals(result.result().getString("result"))) {
+                        errors++;
+                    }
+                }
+
+                if (!open) {
+                    next(now);
+                }
+            };
+
+            issued++;
+            inFlight++;
+
+            if ("prepared".equals(operation.getString("type"))) {
+                final JsonObject request = new JsonObject()
+                        .putString("name", operation.getString("name"))
+                        .putArray("values", generate(operation.getArray("values", new JsonArray())));
+                final JsonObject options = operation.getObject("options");
+
+                if (options != null) {
+                    options.getFieldNames().forEach(field -> request.putValue(field, options.getValue(field)));
+                }
+
+                service.prepared(request, handler);
+            } else if (operation.getObject("options") != null) {
+                service.executeWithOptions(operation.getString("statement"), operation.getObject("options"), handler);
+            } else {
+                service.execute(operation.getString("statement"), handler);
+            }
+        }
+
+        private void checkFinished() {
+            if (!reported && System.nanoTime() >= run.measureUntil && inFlight == 0) {
+                reported = true;
+                vertx.cancelTimer(timer);
+                run.finished(latencies, completed, errors);
+            }
+        }
+
+        private JsonObject pick() {
+            final int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return operations.get(i);
+                }
+            }
+
+            return operations.get(operations.size() - 1);
+        }
+
+        private static JsonArray generate(final JsonArray template) {
+            final JsonArray generated = new JsonArray();
+
+            for (int i = 0; i < template.size(); i++) {
+                final Object value = template.get(i);
+
+                if (value instanceof JsonArray) {
+                    generated.addArray(generate((JsonArray) value));
+                } else if (value instanceof String) {
+                    generated.add(generate((String) value));
+                } else {
+                    generated.add(value);
+                }
+            }
+
+            return generated;
+        }
+
+        private static Object generate(final String template) {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            if (template.startsWith("$random(") && template.endsWith(")")) {
+                return random.nextLong(Long.parseLong(template.substring(8, template.length() - 1)));
+            }
+
+            if (template.equals("$sequence")) {
+                return sequence.incrementAndGet();
+            }
+
+            if (template.equals("$uuid")) {
+                return UUID.randomUUID().toString();
+            }
+
+            if (template.startsWith("$text(") && template.endsWith(")")) {
+                final char[] text = new char[Integer.parseInt(template.substring(6, template.length() - 1))];
+
+                for (int i = 0; i < text.length; i++) {
+                    text[i] = (char) ('a' + random.nextInt(26));
+                }
+
+                return new String(text);
+            }
+
+            return template;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.huysamen.vertx.ext.cassandra.tools;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CassandraService;
+import org.huysamen.vertx.ext.cassandra.impl.WorkloadRecording;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a workload recording against a Cassandra service, at the recorded rate or a multiple of it, and reports the
+ * throughput and latency percentiles. Pointing the service configuration at a local stand-in server makes runs
+ * comparable between versions of this library.
+ *
+ * <p>Latencies are measured from the time an operation was due according to the recording, not from the time it was
+ * actually sent, so that a replay falling behind does not hide the delays it causes.</p>
+ *
+ * <p>Usage: <code>WorkloadReplay recording config.json [rate] [max-in-flight]</code>, where a rate of 2 replays twice
+ * as fast as recorded and a rate of 0 replays as fast as possible.</p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class WorkloadReplay {
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: WorkloadReplay recording config.json [rate] [max-in-flight]");
+            System.exit(1);
+        }
+
+        final String recording = args[0];
+        final JsonObject config = new JsonObject(new String(Files.readAllBytes(Paths.get(args[1])), StandardCharsets.UTF_8));
+        final double rate = args.length > 2 ? Double.parseDouble(args[2]) : 1d;
+        final int maxInFlight = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+
+        final Vertx vertx = Vertx.vertx();
+        final CassandraService service = CassandraService.create(vertx, config);
+
+        service.start();
+
+        try {
+            replay(service, recording, rate, maxInFlight);
+        } finally {
+            service.stop();
+            vertx.close();
+        }
+    }
+
+    private static void replay(final CassandraService service, final String recording, final double rate,
+                               final int maxInFlight) throws Exception {
+
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final AtomicLong errors = new AtomicLong();
+        final long started = System.nanoTime();
+        long issued = 0;
+        long skipped = 0;
+
+        try (final WorkloadRecording.Reader reader = WorkloadRecording.open(recording)) {
+            WorkloadRecording.Record record;
+
+            while ((record = reader.next()) != null) {
+                if (!replayable(record)) {
+                    skipped++;
+                    continue;
+                }
+
+                if (record.getType() == WorkloadRecording.Type.PREPARE) {
+                    prepare(service, record);
+                    continue;
+                }
+
+                final long due = rate > 0 ? started + (long) (record.getOffsetNanos() / rate) : System.nanoTime();
+
+                while (System.nanoTime() < due) {
+                    LockSupport.parkNanos(due - System.nanoTime());
+                }
+
+                inFlight.acquire();
+                issued++;
+
+                final Handler<AsyncResult<JsonObject>> handler = result -> {
+                    synchronized (latencies) {
+                        latencies.record(System.nanoTime() - due);
+                    }
+
+                    if (result.failed() || !"OK".equals(result.result().getString("result"))) {
+                        errors.incrementAndGet();
+                    }
+
+                    inFlight.release();
+                };
+
+                try {
+                    if (record.getType() == WorkloadRecording.Type.EXECUTE) {
+                        if (record.getRequest() == null) {
+                            service.execute(record.getStatement(), handler);
+                        } else {
+                            service.executeWithOptions(record.getStatement(), record.getRequest(), handler);
+                        }
+                    } else if (record.getType() == WorkloadRecording.Type.BUCKETED_READ) {
+                        service.bucketedRead(record.getRequest(), handler);
+                    } else {
+                        service.prepared(record.getRequest(), handler);
+                    }
+                } catch (final RuntimeException e) {
+                    errors.incrementAndGet();
+                    inFlight.release();
+                }
+            }
+        }
+
+        // Wait for the operations still in flight
+        inFlight.acquire(maxInFlight);
+
+        final long elapsed = System.nanoTime() - started;
+
+        System.out.println(String.format("Operations:  %,d (%,d errors, %,d skipped)", issued, errors.get(), skipped));
+        System.out.println(String.format("Throughput:  %,.0f ops/s", issued / (elapsed / 1000000000d)));
+
+        synchronized (latencies) {
+            latencies.report();
+        }
+    }
+
+    /**
+     * Whether a record holds what is needed to replay it. Recordings of earlier versions hold executions of prepared
+     * statements without a request, which cannot be replayed.
+     */
+    private static boolean replayable(final WorkloadRecording.Record record) {
+        switch (record.getType()) {
+            case PREPARE:
+                return record.getRequest() != null && record.getRequest().getString("query") != null;
+            case EXECUTE:
+                return record.getStatement() != null;
+            default:
+                return record.getRequest() != null && record.getRequest().getString("name") != null;
+        }
+    }
+
+    private static void prepare(final CassandraService service, final WorkloadRecording.Record record) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final JsonObject request = record.getRequest();
+
+        service.prepareWithOptions(record.getStatement(), request.getString("query"), request.getObject("options"), result -> {
+            if (result.failed()) {
+                error.set(result.cause());
+            }
+
+            latch.countDown();
+        });
+
+        latch.await();
+
+        if (error.get() != null) {
+            throw new IllegalStateException("Unable to prepare " + record.getStatement(), error.get());
+        }
+    }
+}
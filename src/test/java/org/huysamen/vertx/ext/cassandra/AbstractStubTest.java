@@ -0,0 +1,85 @@
+package org.huysamen.vertx.ext.cassandra;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.stub.StubCassandraCluster;
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs a service against a single node {@link StubCassandraCluster}. Tests prime the stub, then start the service with
+ * the configuration they need on top of the seeds and port of the stub.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public abstract class AbstractStubTest {
+
+    protected static final int PORT = 19242;
+    protected static final long TIMEOUT_SECONDS = 10;
+
+    protected StubCassandraCluster stub;
+    protected Vertx vertx;
+    protected CassandraService service;
+
+    @Before
+    public void startStub() throws Exception {
+        stub = new StubCassandraCluster(1).setPort(PORT).start();
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void stopStub() {
+        if (service != null) {
+            service.stop();
+        }
+
+        vertx.close();
+        stub.close();
+    }
+
+    protected CassandraService startService(final JsonObject config) {
+        final JsonArray seeds = new JsonArray();
+
+        stub.getSeeds().forEach(seeds::addString);
+
+        service = CassandraService.create(vertx, config.putArray("seeds", seeds).putNumber("port", PORT));
+        service.start();
+
+        return service;
+    }
+
+    /**
+     * Calls the service and waits for its result.
+     */
+    protected static <T> AsyncResult<T> await(final Consumer<Handler<AsyncResult<T>>> call) throws Exception {
+        final CompletableFuture<AsyncResult<T>> result = new CompletableFuture<>();
+
+        call.accept(result::complete);
+
+        return result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Calls the service without waiting, for requests that have to be in flight at the same time.
+     */
+    protected static <T> CompletableFuture<AsyncResult<T>> send(final Consumer<Handler<AsyncResult<T>>> call) {
+        final CompletableFuture<AsyncResult<T>> result = new CompletableFuture<>();
+
+        call.accept(result::complete);
+
+        return result;
+    }
+
+    protected static <T> AsyncResult<T> await(final CompletableFuture<AsyncResult<T>> sent) throws Exception {
+        return sent.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,81 @@
+package org.huysamen.vertx.ext.cassandra;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.stub.StubError;
+import org.huysamen.vertx.ext.cassandra.stub.StubResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Statement circuit breakers opening on server side failures, and not on errors of the request itself.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class CircuitBreakersTest extends AbstractStubTest {
+
+    private static final String UNAVAILABLE = "SELECT v FROM unavailable WHERE k = ?";
+    private static final String INVALID = "SELECT v FROM invalid WHERE k = ?";
+    private static final int MINIMUM_REQUESTS = 4;
+
+    @Before
+    public void start() throws Exception {
+        stub.prime(UNAVAILABLE, StubResult.error(StubError.unavailable()).variables(DataType.cint()));
+        stub.prime(INVALID, StubResult.error(StubError.invalid("Undefined column name v")).variables(DataType.cint()));
+
+        startService(new JsonObject().putObject("circuit_breakers", new JsonObject()
+                .putBoolean("statements", true)
+                .putBoolean("hosts", false)
+                .putNumber("window_millis", 60000)
+                .putNumber("minimum_requests", MINIMUM_REQUESTS)
+                .putNumber("error_rate", 0.5)
+                .putNumber("open_millis", 60000)));
+
+        final AsyncResult<JsonObject> unavailable = await(handler -> service.prepare("unavailable", UNAVAILABLE, handler));
+        final AsyncResult<JsonObject> invalid = await(handler -> service.prepare("invalid", INVALID, handler));
+
+        assertTrue(unavailable.succeeded());
+        assertTrue(invalid.succeeded());
+    }
+
+    private AsyncResult<JsonObject> read(final String name) throws Exception {
+        final JsonObject request = new JsonObject()
+                .putString("name", name)
+                .putArray("values", new JsonArray().addArray(new JsonArray().addNumber(1)));
+
+        return await(handler -> service.prepared(request, handler));
+    }
+
+    @Test
+    public void opensOnServerSideFailures() throws Exception {
+        for (int i = 0; i < MINIMUM_REQUESTS; i++) {
+            final AsyncResult<JsonObject> result = read("unavailable");
+
+            assertTrue(result.failed());
+            assertTrue(result.cause() instanceof UnavailableException);
+        }
+
+        final AsyncResult<JsonObject> rejected = read("unavailable");
+
+        assertTrue(rejected.failed());
+        assertTrue(rejected.cause() instanceof CircuitBreakerOpenException);
+    }
+
+    @Test
+    public void ignoresErrorsOfTheRequest() throws Exception {
+        for (int i = 0; i < MINIMUM_REQUESTS * 2; i++) {
+            final AsyncResult<JsonObject> result = read("invalid");
+
+            assertTrue(result.failed());
+            assertTrue(result.cause() instanceof InvalidQueryException);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.huysamen.vertx.ext.cassandra;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.stub.StubResult;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stopping a service while requests are in flight.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class DrainingTest extends AbstractStubTest {
+
+    private static final String WRITE = "INSERT INTO items (id) VALUES (1)";
+
+    @Test
+    public void stopWaitsForRequestsInFlight() throws Exception {
+        stub.prime(WRITE, StubResult.empty().withLatency(500));
+        startService(new JsonObject().putNumber("drain_timeout_millis", 5000));
+
+        final CompletableFuture<AsyncResult<JsonObject>> inFlight = send(handler -> service.execute(WRITE, handler));
+        final CompletableFuture<Boolean> drained = new CompletableFuture<>();
+
+        // The request has to have completed by the time the service reports being stopped
+        service.stop(stopped -> drained.complete(stopped.succeeded() && inFlight.isDone()));
+
+        assertTrue(await(inFlight).succeeded());
+        assertTrue(drained.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final AsyncResult<JsonObject> rejected = await(handler -> service.execute(WRITE, handler));
+
+        assertTrue(rejected.failed());
+        assertTrue(rejected.cause() instanceof IllegalStateException);
+
+        service = null;
+    }
+}
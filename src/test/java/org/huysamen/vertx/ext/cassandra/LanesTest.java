@@ -0,0 +1,80 @@
+package org.huysamen.vertx.ext.cassandra;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.stub.StubResult;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Requests waiting for, and being rejected by, a traffic lane.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class LanesTest extends AbstractStubTest {
+
+    private static final String WRITE = "INSERT INTO items (id) VALUES (1)";
+    private static final JsonObject BULK = new JsonObject().putString("lane", "bulk");
+
+    private void start(final int maxQueued, final long queueTimeoutMillis) {
+        stub.prime(WRITE, StubResult.empty().withLatency(300));
+
+        startService(new JsonObject().putObject("lanes", new JsonObject()
+                .putObject("bulk", new JsonObject()
+                        .putNumber("max_in_flight", 1)
+                        .putNumber("max_queued", maxQueued)
+                        .putNumber("queue_timeout_millis", queueTimeoutMillis))));
+    }
+
+    @Test
+    public void queuedRequestRunsOnceTheLaneIsFree() throws Exception {
+        start(1, 5000);
+
+        final CompletableFuture<AsyncResult<JsonObject>> first = send(handler -> service.executeWithOptions(WRITE, BULK, handler));
+        final CompletableFuture<AsyncResult<JsonObject>> second = send(handler -> service.executeWithOptions(WRITE, BULK, handler));
+
+        assertTrue(await(first).succeeded());
+        assertTrue(await(second).succeeded());
+    }
+
+    @Test
+    public void requestBeyondTheQueueIsRejected() throws Exception {
+        start(0, 5000);
+
+        final CompletableFuture<AsyncResult<JsonObject>> first = send(handler -> service.executeWithOptions(WRITE, BULK, handler));
+        final AsyncResult<JsonObject> second = await(handler -> service.executeWithOptions(WRITE, BULK, handler));
+
+        assertTrue(second.failed());
+        assertTrue(second.cause() instanceof IllegalStateException);
+        assertTrue(await(first).succeeded());
+    }
+
+    @Test
+    public void queuedRequestTimesOut() throws Exception {
+        start(1, 50);
+
+        final CompletableFuture<AsyncResult<JsonObject>> first = send(handler -> service.executeWithOptions(WRITE, BULK, handler));
+        final AsyncResult<JsonObject> second = await(handler -> service.executeWithOptions(WRITE, BULK, handler));
+
+        assertTrue(second.failed());
+        assertEquals("Timed out waiting for lane bulk", second.cause().getMessage());
+        assertTrue(await(first).succeeded());
+    }
+
+    @Test
+    public void unknownLaneIsRejected() throws Exception {
+        start(1, 5000);
+
+        final JsonObject options = new JsonObject().putString("lane", "unknown");
+        final AsyncResult<JsonObject> result = await(handler -> service.executeWithOptions(WRITE, options, handler));
+
+        assertTrue(result.failed());
+        assertTrue(result.cause() instanceof IllegalArgumentException);
+    }
+}
@@ -0,0 +1,88 @@
+package org.huysamen.vertx.ext.cassandra;
+
+import com.datastax.driver.core.DataType;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.stub.StubResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Truncated results and the continuations that page through the rest of them.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class PagingTest extends AbstractStubTest {
+
+    private static final String QUERY = "SELECT id FROM items";
+    private static final int ROWS = 25;
+
+    @Before
+    public void start() {
+        stub.prime(QUERY, StubResult.rows()
+                .column("id", DataType.bigint())
+                .row(1L)
+                .repeat(ROWS));
+
+        startService(new JsonObject());
+    }
+
+    @Test
+    public void pagesThroughContinuations() throws Exception {
+        final JsonObject options = new JsonObject().putNumber("fetch_size", 10).putNumber("max_rows", 10);
+        AsyncResult<JsonObject> result = await(handler -> service.executeWithOptions(QUERY, options, handler));
+
+        assertTrue(result.succeeded());
+        assertEquals(10, (int) result.result().getInteger("count"));
+        assertTrue(result.result().getBoolean("truncated", false));
+
+        int rows = result.result().getInteger("count");
+        int parts = 1;
+
+        while (result.result().getString("continuation") != null) {
+            final String continuation = result.result().getString("continuation");
+
+            result = await(handler -> service.fetchMore(continuation, handler));
+
+            assertTrue(result.succeeded());
+            assertEquals("OK", result.result().getString("result"));
+
+            rows += result.result().getInteger("count");
+            parts++;
+        }
+
+        assertEquals(ROWS, rows);
+        assertEquals(3, parts);
+        assertFalse(result.result().getBoolean("truncated", false));
+    }
+
+    @Test
+    public void continuationIsUsedOnce() throws Exception {
+        final JsonObject options = new JsonObject().putNumber("fetch_size", 10).putNumber("max_rows", 10);
+        final AsyncResult<JsonObject> first = await(handler -> service.executeWithOptions(QUERY, options, handler));
+        final String continuation = first.result().getString("continuation");
+
+        assertNotNull(continuation);
+
+        final AsyncResult<JsonObject> next = await(handler -> service.fetchMore(continuation, handler));
+        final AsyncResult<JsonObject> again = await(handler -> service.fetchMore(continuation, handler));
+
+        assertEquals("OK", next.result().getString("result"));
+        assertEquals("BAD", again.result().getString("result"));
+    }
+
+    @Test
+    public void unknownContinuationIsRejected() throws Exception {
+        final AsyncResult<JsonObject> result = await(handler -> service.fetchMore("unknown", handler));
+
+        assertTrue(result.succeeded());
+        assertEquals("BAD", result.result().getString("result"));
+    }
+}
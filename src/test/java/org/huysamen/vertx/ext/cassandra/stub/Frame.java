@@ -0,0 +1,74 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A native protocol frame: its header fields and body.
+ */
+class Frame {
+
+    protected static final int ERROR = 0x00;
+    protected static final int STARTUP = 0x01;
+    protected static final int READY = 0x02;
+    protected static final int OPTIONS = 0x05;
+    protected static final int SUPPORTED = 0x06;
+    protected static final int QUERY = 0x07;
+    protected static final int RESULT = 0x08;
+    protected static final int PREPARE = 0x09;
+    protected static final int EXECUTE = 0x0A;
+    protected static final int REGISTER = 0x0B;
+    protected static final int BATCH = 0x0D;
+
+    private final int version;
+    private final int stream;
+    private final int opcode;
+    private final ByteBuf body;
+
+    protected Frame(final int version, final int stream, final int opcode, final ByteBuf body) {
+        this.version = version;
+        this.stream = stream;
+        this.opcode = opcode;
+        this.body = body;
+    }
+
+    protected int getVersion() {
+        return version;
+    }
+
+    protected int getStream() {
+        return stream;
+    }
+
+    protected int getOpcode() {
+        return opcode;
+    }
+
+    protected ByteBuf getBody() {
+        return body;
+    }
+
+    /**
+     * The size of the frame header, which has a one byte stream id up to version 2 and a two byte one from version 3.
+     */
+    protected static int headerSize(final int version) {
+        return version < 3 ? 8 : 9;
+    }
+
+    /**
+     * Writes a response frame with the same version and stream as this request.
+     */
+    protected void writeResponse(final ByteBuf out, final int opcode, final ByteBuf responseBody) {
+        out.writeByte(0x80 | version);
+        out.writeByte(0);
+
+        if (version < 3) {
+            out.writeByte(stream);
+        } else {
+            out.writeShort(stream);
+        }
+
+        out.writeByte(opcode);
+        out.writeInt(responseBody.readableBytes());
+        out.writeBytes(responseBody);
+    }
+}
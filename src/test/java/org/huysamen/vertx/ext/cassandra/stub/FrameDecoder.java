@@ -0,0 +1,41 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.util.List;
+
+/**
+ * Splits the inbound bytes into request frames, whichever protocol version they use.
+ */
+class FrameDecoder extends ByteToMessageDecoder {
+
+    @Override
+    protected void decode(final ChannelHandlerContext ctx, final ByteBuf in, final List<Object> out) {
+        if (in.readableBytes() < 1) {
+            return;
+        }
+
+        final int version = in.getUnsignedByte(in.readerIndex()) & 0x7F;
+        final int headerSize = Frame.headerSize(version);
+
+        if (in.readableBytes() < headerSize) {
+            return;
+        }
+
+        final int length = in.getInt(in.readerIndex() + headerSize - 4);
+
+        if (in.readableBytes() < headerSize + length) {
+            return;
+        }
+
+        in.skipBytes(2);
+
+        final int stream = version < 3 ? in.readByte() : in.readShort();
+        final int opcode = in.readUnsignedByte();
+
+        in.skipBytes(4);
+        out.add(new Frame(version, stream, opcode, in.readSlice(length).retain()));
+    }
+}
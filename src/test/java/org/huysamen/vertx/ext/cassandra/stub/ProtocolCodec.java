@@ -0,0 +1,146 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import com.datastax.driver.core.DataType;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reading and writing of the native protocol notations: [string], [long string], [bytes], [short bytes], [string map],
+ * [string multimap] and [option].
+ */
+final class ProtocolCodec {
+
+    private ProtocolCodec() {}
+
+    protected static String readString(final ByteBuf buffer) {
+        final int length = buffer.readUnsignedShort();
+        final byte[] bytes = new byte[length];
+
+        buffer.readBytes(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected static String readLongString(final ByteBuf buffer) {
+        final int length = buffer.readInt();
+        final byte[] bytes = new byte[length];
+
+        buffer.readBytes(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected static byte[] readShortBytes(final ByteBuf buffer) {
+        final byte[] bytes = new byte[buffer.readUnsignedShort()];
+
+        buffer.readBytes(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Reads a [bytes] value.
+     *
+     * @return The value, or null if its length is negative.
+     */
+    protected static ByteBuffer readBytes(final ByteBuf buffer) {
+        final int length = buffer.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+
+        buffer.readBytes(bytes);
+
+        return ByteBuffer.wrap(bytes);
+    }
+
+    protected static void skipStringMap(final ByteBuf buffer) {
+        final int size = buffer.readUnsignedShort();
+
+        for (int i = 0; i < size; i++) {
+            readString(buffer);
+            readString(buffer);
+        }
+    }
+
+    protected static void writeString(final ByteBuf buffer, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        buffer.writeShort(bytes.length);
+        buffer.writeBytes(bytes);
+    }
+
+    protected static void writeShortBytes(final ByteBuf buffer, final byte[] value) {
+        buffer.writeShort(value.length);
+        buffer.writeBytes(value);
+    }
+
+    protected static void writeBytes(final ByteBuf buffer, final ByteBuffer value) {
+        if (value == null) {
+            buffer.writeInt(-1);
+            return;
+        }
+
+        buffer.writeInt(value.remaining());
+        buffer.writeBytes(value.duplicate());
+    }
+
+    protected static void writeStringMultimap(final ByteBuf buffer, final Map<String, List<String>> map) {
+        buffer.writeShort(map.size());
+
+        for (final Map.Entry<String, List<String>> entry : map.entrySet()) {
+            writeString(buffer, entry.getKey());
+            buffer.writeShort(entry.getValue().size());
+
+            for (final String value : entry.getValue()) {
+                writeString(buffer, value);
+            }
+        }
+    }
+
+    /**
+     * Writes the [option] describing a column type.
+     */
+    protected static void writeType(final ByteBuf buffer, final DataType type) {
+        switch (type.getName()) {
+            case ASCII:     buffer.writeShort(0x0001); break;
+            case BIGINT:    buffer.writeShort(0x0002); break;
+            case BLOB:      buffer.writeShort(0x0003); break;
+            case BOOLEAN:   buffer.writeShort(0x0004); break;
+            case COUNTER:   buffer.writeShort(0x0005); break;
+            case DECIMAL:   buffer.writeShort(0x0006); break;
+            case DOUBLE:    buffer.writeShort(0x0007); break;
+            case FLOAT:     buffer.writeShort(0x0008); break;
+            case INT:       buffer.writeShort(0x0009); break;
+            case TIMESTAMP: buffer.writeShort(0x000B); break;
+            case UUID:      buffer.writeShort(0x000C); break;
+            case TEXT:
+            case VARCHAR:   buffer.writeShort(0x000D); break;
+            case VARINT:    buffer.writeShort(0x000E); break;
+            case TIMEUUID:  buffer.writeShort(0x000F); break;
+            case INET:      buffer.writeShort(0x0010); break;
+            case LIST:
+                buffer.writeShort(0x0020);
+                writeType(buffer, type.getTypeArguments().get(0));
+                break;
+            case MAP:
+                buffer.writeShort(0x0021);
+                writeType(buffer, type.getTypeArguments().get(0));
+                writeType(buffer, type.getTypeArguments().get(1));
+                break;
+            case SET:
+                buffer.writeShort(0x0022);
+                writeType(buffer, type.getTypeArguments().get(0));
+                break;
+            default:
+                throw new IllegalArgumentException("Column type not supported by the stub server: " + type);
+        }
+    }
+}
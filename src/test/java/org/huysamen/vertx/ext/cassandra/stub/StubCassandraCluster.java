@@ -0,0 +1,259 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * An in-JVM stand-in for a Cassandra cluster, speaking enough of the native protocol (versions 2 and 3) for the driver
+ * to connect, prepare and execute statements, run batches and page through results.
+ *
+ * <p>Statements are answered from primed {@link StubResult}s, matched on their CQL text. Unprimed statements return no
+ * rows, and statements with bind markers must be primed with the types of their variables to be prepared. Each node
+ * listens on its own loopback address, <code>127.0.0.1</code>, <code>127.0.0.2</code> and so on, all on the same port,
+ * and can be given extra latency, fail a fraction of requests, or be stopped and started to exercise failover.</p>
+ *
+ * <p>Usage: <code>StubCassandraCluster [nodes] [port] [primes.json]</code>, where the primes file holds an array of
+ * {@link StubResult#fromJson(JsonObject) results} each with the <code>query</code> or <code>pattern</code> it answers.
+ * </p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class StubCassandraCluster implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubCassandraCluster.class);
+
+    public static final int DEFAULT_PORT = 9042;
+    public static final String DEFAULT_CLUSTER_NAME = "stub";
+    public static final String DEFAULT_DATACENTER = "datacenter1";
+
+    private final List<StubCassandraNode> nodes = new ArrayList<>();
+    private final Map<String, StubResult> primes = new ConcurrentHashMap<>();
+    private final List<PatternPrime> patternPrimes = new CopyOnWriteArrayList<>();
+    private final UUID schemaVersion = UUID.randomUUID();
+
+    private int port = DEFAULT_PORT;
+    private String clusterName = DEFAULT_CLUSTER_NAME;
+    private String datacenter = DEFAULT_DATACENTER;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+
+    public StubCassandraCluster(final int nodeCount) {
+        if (nodeCount < 1 || nodeCount > 254) {
+            throw new IllegalArgumentException("A stub cluster has between 1 and 254 nodes.");
+        }
+
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(new StubCassandraNode(this, i, nodeCount));
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        final StubCassandraCluster cluster = new StubCassandraCluster(nodeCount)
+                .setPort(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+
+        if (args.length > 2) {
+            cluster.prime(new JsonArray(new String(Files.readAllBytes(Paths.get(args[2])), StandardCharsets.UTF_8)));
+        }
+
+        cluster.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(cluster::close));
+
+        logger.info("Stub cluster '{}' listening on {}, port {}", cluster.clusterName, cluster.getSeeds(), cluster.port);
+    }
+
+    public StubCassandraCluster setPort(final int port) {
+        this.port = port;
+        return this;
+    }
+
+    public StubCassandraCluster setClusterName(final String clusterName) {
+        this.clusterName = clusterName;
+        return this;
+    }
+
+    public StubCassandraCluster setDatacenter(final String datacenter) {
+        this.datacenter = datacenter;
+        return this;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    protected String getClusterName() {
+        return clusterName;
+    }
+
+    protected String getDatacenter() {
+        return datacenter;
+    }
+
+    protected UUID getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    protected EventLoopGroup getBossGroup() {
+        return bossGroup;
+    }
+
+    protected EventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
+
+    protected List<StubCassandraNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * The addresses of the nodes, to use as seeds in the service configuration.
+     */
+    public List<String> getSeeds() {
+        final List<String> seeds = new ArrayList<>();
+
+        nodes.forEach(node -> seeds.add(node.getAddress().getHostAddress()));
+
+        return seeds;
+    }
+
+    /**
+     * A node of the cluster, by its index starting at 0.
+     */
+    public StubCassandraNode node(final int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * Answers a statement with a result. The CQL text is matched ignoring surrounding and repeated whitespace.
+     */
+    public StubCassandraCluster prime(final String query, final StubResult result) {
+        primes.put(normalise(query), result);
+        return this;
+    }
+
+    /**
+     * Answers all statements matching a pattern with a result. Exact primes take precedence over patterns, and
+     * patterns are tried in the order they were primed.
+     */
+    public StubCassandraCluster prime(final Pattern pattern, final StubResult result) {
+        patternPrimes.add(new PatternPrime(pattern, result));
+        return this;
+    }
+
+    /**
+     * Primes results from their JSON descriptions, each with the <code>query</code> or <code>pattern</code> it answers.
+     */
+    public StubCassandraCluster prime(final JsonArray results) {
+        for (int i = 0; i < results.size(); i++) {
+            final JsonObject json = results.get(i);
+            final StubResult result = StubResult.fromJson(json);
+
+            if (json.getString("query") != null) {
+                prime(json.getString("query"), result);
+            } else if (json.getString("pattern") != null) {
+                prime(Pattern.compile(json.getString("pattern"), Pattern.CASE_INSENSITIVE | Pattern.DOTALL), result);
+            } else {
+                throw new IllegalArgumentException("A primed result needs a query or pattern: " + json.encode());
+            }
+        }
+
+        return this;
+    }
+
+    public void clearPrimes() {
+        primes.clear();
+        patternPrimes.clear();
+    }
+
+    /**
+     * The primed result for a statement.
+     *
+     * @return The result, or null if the statement is not primed.
+     */
+    protected StubResult findPrime(final String query) {
+        final String normalised = normalise(query);
+        final StubResult result = primes.get(normalised);
+
+        if (result != null) {
+            return result;
+        }
+
+        for (final PatternPrime prime : patternPrimes) {
+            if (prime.pattern.matcher(normalised).matches()) {
+                return prime.result;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Starts all nodes.
+     */
+    public synchronized StubCassandraCluster start() throws InterruptedException {
+        if (workerGroup == null) {
+            bossGroup = new NioEventLoopGroup(1);
+            workerGroup = new NioEventLoopGroup();
+        }
+
+        for (final StubCassandraNode node : nodes) {
+            node.start();
+        }
+
+        return this;
+    }
+
+    /**
+     * Stops all nodes and releases their threads.
+     */
+    @Override
+    public synchronized void close() {
+        for (final StubCassandraNode node : nodes) {
+            node.stop();
+        }
+
+        if (workerGroup != null) {
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+            bossGroup = null;
+            workerGroup = null;
+        }
+    }
+
+    protected static String normalise(final String query) {
+        String normalised = query.trim().replaceAll("\\s+", " ");
+
+        if (normalised.endsWith(";")) {
+            normalised = normalised.substring(0, normalised.length() - 1).trim();
+        }
+
+        return normalised;
+    }
+
+    private static class PatternPrime {
+        private final Pattern pattern;
+        private final StubResult result;
+
+        private PatternPrime(final Pattern pattern, final StubResult result) {
+            this.pattern = pattern;
+            this.result = result;
+        }
+    }
+}
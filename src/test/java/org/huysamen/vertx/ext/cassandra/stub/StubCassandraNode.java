@@ -0,0 +1,212 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import com.datastax.driver.core.DataType;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single node of a {@link StubCassandraCluster}.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class StubCassandraNode {
+
+    protected static final String RELEASE_VERSION = "2.1.0";
+
+    private final StubCassandraCluster cluster;
+    private final InetAddress address;
+    private final String token;
+    private final UUID hostId;
+    private final Map<String, String> prepared = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    private volatile long latencyMillis;
+    private volatile double errorRate;
+    private volatile StubError error;
+    private Channel serverChannel;
+
+    protected StubCassandraNode(final StubCassandraCluster cluster, final int index, final int nodeCount) {
+        this.cluster = cluster;
+
+        try {
+            this.address = InetAddress.getByAddress(new byte[] { 127, 0, 0, (byte) (index + 1) });
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Murmur3 tokens spread evenly over the ring
+        final BigInteger step = BigInteger.ONE.shiftLeft(64).divide(BigInteger.valueOf(nodeCount));
+        this.token = BigInteger.valueOf(Long.MIN_VALUE).add(step.multiply(BigInteger.valueOf(index))).toString();
+        this.hostId = UUID.nameUUIDFromBytes(address.getAddress());
+    }
+
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * The number of statements executed on this node, including those of the driver's control connection.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public boolean isRunning() {
+        return serverChannel != null;
+    }
+
+    /**
+     * Delays every response of this node, on top of any latency of the primed result.
+     */
+    public StubCassandraNode setLatencyMillis(final long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Fails a fraction of the statements executed on this node, other than those on system tables.
+     *
+     * @param rate The fraction of statements, between 0 and 1, failing. Zero stops injecting errors.
+     * @param error The error replied with.
+     */
+    public StubCassandraNode setError(final double rate, final StubError error) {
+        this.error = error;
+        this.errorRate = rate;
+        return this;
+    }
+
+    /**
+     * Starts accepting connections, or does nothing if the node is running.
+     */
+    public synchronized void start() throws InterruptedException {
+        if (serverChannel != null) {
+            return;
+        }
+
+        final ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(cluster.getBossGroup(), cluster.getWorkerGroup())
+                .channel(NioServerSocketChannel.class)
+                .option(ChannelOption.SO_REUSEADDR, true)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        channels.add(channel);
+                        channel.pipeline().addLast(new FrameDecoder(), new StubProtocolHandler(StubCassandraNode.this));
+                    }
+                });
+
+        serverChannel = bootstrap.bind(address, cluster.getPort()).sync().channel();
+    }
+
+    /**
+     * Closes all connections and stops accepting new ones, as if the node went down. Statements prepared on the node
+     * are forgotten, as they would be by a restarted Cassandra node.
+     */
+    public synchronized void stop() {
+        if (serverChannel == null) {
+            return;
+        }
+
+        serverChannel.close().syncUninterruptibly();
+        channels.close().syncUninterruptibly();
+        serverChannel = null;
+        prepared.clear();
+    }
+
+    protected StubCassandraCluster getCluster() {
+        return cluster;
+    }
+
+    protected long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    protected double getErrorRate() {
+        return errorRate;
+    }
+
+    protected StubError getError() {
+        return error;
+    }
+
+    protected void requested() {
+        requests.incrementAndGet();
+    }
+
+    protected void prepared(final String id, final String query) {
+        prepared.put(id, query);
+    }
+
+    protected String getPrepared(final String id) {
+        return prepared.get(id);
+    }
+
+    /**
+     * The row of this node in <code>system.local</code>, as read by the driver's control connection.
+     */
+    protected StubResult localResult() {
+        return StubResult.rows()
+                .column("key", DataType.text())
+                .column("bootstrapped", DataType.text())
+                .column("cluster_name", DataType.text())
+                .column("cql_version", DataType.text())
+                .column("data_center", DataType.text())
+                .column("host_id", DataType.uuid())
+                .column("native_protocol_version", DataType.text())
+                .column("partitioner", DataType.text())
+                .column("rack", DataType.text())
+                .column("release_version", DataType.text())
+                .column("schema_version", DataType.uuid())
+                .column("tokens", DataType.set(DataType.text()))
+                .column("broadcast_address", DataType.inet())
+                .column("listen_address", DataType.inet())
+                .column("rpc_address", DataType.inet())
+                .row("local", "COMPLETED", cluster.getClusterName(), "3.2.0", cluster.getDatacenter(), hostId, "3",
+                        "org.apache.cassandra.dht.Murmur3Partitioner", "rack1", RELEASE_VERSION, cluster.getSchemaVersion(),
+                        Collections.singleton(token), address, address, address);
+    }
+
+    /**
+     * The rows of the other nodes in <code>system.peers</code>, whether they are running or not.
+     */
+    protected StubResult peersResult() {
+        final StubResult result = StubResult.rows()
+                .column("peer", DataType.inet())
+                .column("data_center", DataType.text())
+                .column("host_id", DataType.uuid())
+                .column("rack", DataType.text())
+                .column("release_version", DataType.text())
+                .column("rpc_address", DataType.inet())
+                .column("schema_version", DataType.uuid())
+                .column("tokens", DataType.set(DataType.text()));
+
+        for (final StubCassandraNode node : cluster.getNodes()) {
+            if (node != this) {
+                result.row(node.address, cluster.getDatacenter(), node.hostId, "rack1", RELEASE_VERSION, node.address,
+                        cluster.getSchemaVersion(), Collections.singleton(node.token));
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,152 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * An error the stub server replies with instead of a result, as the driver would receive it from Cassandra.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class StubError {
+
+    private static final int SERVER_ERROR = 0x0000;
+    private static final int PROTOCOL_ERROR = 0x000A;
+    private static final int UNAVAILABLE = 0x1000;
+    private static final int OVERLOADED = 0x1001;
+    private static final int WRITE_TIMEOUT = 0x1100;
+    private static final int READ_TIMEOUT = 0x1200;
+    private static final int SYNTAX_ERROR = 0x2000;
+    private static final int INVALID = 0x2200;
+    private static final int UNPREPARED = 0x2500;
+
+    private final int code;
+    private final String message;
+
+    private StubError(final int code, final String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    /**
+     * A read timeout, with fewer replicas having responded than required by the consistency level.
+     */
+    public static StubError readTimeout() {
+        return new StubError(READ_TIMEOUT, "Operation timed out - received only 0 responses.");
+    }
+
+    /**
+     * A write timeout of a simple write.
+     */
+    public static StubError writeTimeout() {
+        return new StubError(WRITE_TIMEOUT, "Operation timed out - received only 0 responses.");
+    }
+
+    /**
+     * Not enough replicas alive to satisfy the consistency level.
+     */
+    public static StubError unavailable() {
+        return new StubError(UNAVAILABLE, "Cannot achieve consistency level");
+    }
+
+    public static StubError overloaded() {
+        return new StubError(OVERLOADED, "Server is overloaded");
+    }
+
+    public static StubError serverError(final String message) {
+        return new StubError(SERVER_ERROR, message);
+    }
+
+    public static StubError syntaxError(final String message) {
+        return new StubError(SYNTAX_ERROR, message);
+    }
+
+    public static StubError invalid(final String message) {
+        return new StubError(INVALID, message);
+    }
+
+    protected static StubError protocolError(final String message) {
+        return new StubError(PROTOCOL_ERROR, message);
+    }
+
+    protected static StubError unprepared(final byte[] id) {
+        return new StubError(UNPREPARED, "Prepared statement not found on this node") {
+            @Override
+            protected void writeDetails(final ByteBuf body, final int consistency) {
+                ProtocolCodec.writeShortBytes(body, id);
+            }
+        };
+    }
+
+    /**
+     * Creates an error from its JSON description: a <code>type</code> of <code>read_timeout</code>,
+     * <code>write_timeout</code>, <code>unavailable</code>, <code>overloaded</code>, <code>server_error</code>,
+     * <code>syntax_error</code> or <code>invalid</code>, and an optional <code>message</code>.
+     */
+    public static StubError fromJson(final JsonObject json) {
+        final String type = json.getString("type", "server_error");
+        final String message = json.getString("message", "Injected error");
+
+        switch (type) {
+            case "read_timeout":
+                return readTimeout();
+            case "write_timeout":
+                return writeTimeout();
+            case "unavailable":
+                return unavailable();
+            case "overloaded":
+                return overloaded();
+            case "server_error":
+                return serverError(message);
+            case "syntax_error":
+                return syntaxError(message);
+            case "invalid":
+                return invalid(message);
+            default:
+                throw new IllegalArgumentException("Unknown stub error type: " + type);
+        }
+    }
+
+    /**
+     * Writes the body of the error frame.
+     *
+     * @param body The body to write to.
+     * @param consistency The consistency level of the request, reported by timeout and unavailable errors.
+     */
+    protected void write(final ByteBuf body, final int consistency) {
+        body.writeInt(code);
+        ProtocolCodec.writeString(body, message);
+        writeDetails(body, consistency);
+    }
+
+    protected void writeDetails(final ByteBuf body, final int consistency) {
+        switch (code) {
+            case UNAVAILABLE:
+                body.writeShort(consistency);
+                body.writeInt(1);
+                body.writeInt(0);
+                break;
+            case WRITE_TIMEOUT:
+                body.writeShort(consistency);
+                body.writeInt(0);
+                body.writeInt(1);
+                ProtocolCodec.writeString(body, "SIMPLE");
+                break;
+            case READ_TIMEOUT:
+                body.writeShort(consistency);
+                body.writeInt(0);
+                body.writeInt(1);
+                body.writeByte(0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("0x%04X %s", code, message);
+    }
+}
@@ -0,0 +1,426 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import com.datastax.driver.core.DataType;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers the requests of one connection to a stub node.
+ */
+class StubProtocolHandler extends SimpleChannelInboundHandler<Frame> {
+
+    private static final int RESULT_VOID = 0x0001;
+    private static final int RESULT_ROWS = 0x0002;
+    private static final int RESULT_SET_KEYSPACE = 0x0003;
+    private static final int RESULT_PREPARED = 0x0004;
+
+    private static final int METADATA_GLOBAL_TABLES_SPEC = 0x0001;
+    private static final int METADATA_HAS_MORE_PAGES = 0x0002;
+    private static final int METADATA_NO_METADATA = 0x0004;
+
+    private static final String STUB_KEYSPACE = "stub";
+    private static final String STUB_TABLE = "stub";
+
+    private static final StubResult NO_ROWS = StubResult.rows();
+    private static final StubResult NO_RESULT = StubResult.empty();
+
+    private static final Map<String, List<String>> SUPPORTED = new HashMap<>();
+
+    static {
+        SUPPORTED.put("CQL_VERSION", Collections.singletonList("3.2.0"));
+        SUPPORTED.put("COMPRESSION", Collections.emptyList());
+    }
+
+    private final StubCassandraNode node;
+
+    protected StubProtocolHandler(final StubCassandraNode node) {
+        this.node = node;
+    }
+
+    @Override
+    protected void channelRead0(final ChannelHandlerContext ctx, final Frame frame) {
+        try {
+            if (frame.getVersion() < 2 || frame.getVersion() > 3) {
+                error(ctx, frame, StubError.protocolError("Invalid or unsupported protocol version: " + frame.getVersion()), 0, 0);
+                return;
+            }
+
+            final ByteBuf body = frame.getBody();
+
+            switch (frame.getOpcode()) {
+                case Frame.STARTUP:
+                    ProtocolCodec.skipStringMap(body);
+                    respond(ctx, frame, Frame.READY, ctx.alloc().buffer(0), 0);
+                    break;
+                case Frame.OPTIONS:
+                    final ByteBuf supported = ctx.alloc().buffer();
+                    ProtocolCodec.writeStringMultimap(supported, SUPPORTED);
+                    respond(ctx, frame, Frame.SUPPORTED, supported, 0);
+                    break;
+                case Frame.REGISTER:
+                    respond(ctx, frame, Frame.READY, ctx.alloc().buffer(0), 0);
+                    break;
+                case Frame.QUERY:
+                    final String query = ProtocolCodec.readLongString(body);
+                    execute(ctx, frame, query, QueryParameters.read(body));
+                    break;
+                case Frame.PREPARE:
+                    prepare(ctx, frame, ProtocolCodec.readLongString(body));
+                    break;
+                case Frame.EXECUTE:
+                    final byte[] id = ProtocolCodec.readShortBytes(body);
+                    final String prepared = node.getPrepared(hex(id));
+
+                    if (prepared == null) {
+                        error(ctx, frame, StubError.unprepared(id), 0, 0);
+                    } else {
+                        execute(ctx, frame, prepared, QueryParameters.read(body));
+                    }
+                    break;
+                case Frame.BATCH:
+                    batch(ctx, frame, body);
+                    break;
+                default:
+                    error(ctx, frame, StubError.protocolError("Unsupported opcode: " + frame.getOpcode()), 0, 0);
+                    break;
+            }
+        } finally {
+            frame.getBody().release();
+        }
+    }
+
+    @Override
+    public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+        ctx.close();
+    }
+
+    private void execute(final ChannelHandlerContext ctx, final Frame frame, final String query, final QueryParameters parameters) {
+        node.requested();
+
+        final String normalised = StubCassandraCluster.normalise(query).toLowerCase();
+
+        if (normalised.startsWith("use ")) {
+            final ByteBuf body = ctx.alloc().buffer();
+
+            body.writeInt(RESULT_SET_KEYSPACE);
+            ProtocolCodec.writeString(body, normalised.substring(4).replace("\"", "").trim());
+            respond(ctx, frame, Frame.RESULT, body, node.getLatencyMillis());
+            return;
+        }
+
+        if (normalised.contains(" from system.local")) {
+            rows(ctx, frame, node.localResult(), parameters, 0);
+            return;
+        }
+
+        if (normalised.contains(" from system.peers")) {
+            rows(ctx, frame, node.peersResult(), parameters, 0);
+            return;
+        }
+
+        if (normalised.contains(" from system.") || normalised.contains(" from system_traces.")) {
+            rows(ctx, frame, NO_ROWS, parameters, 0);
+            return;
+        }
+
+        final StubResult primed = node.getCluster().findPrime(query);
+        final StubResult result = primed != null ? primed : normalised.startsWith("select") ? NO_ROWS : NO_RESULT;
+        final long latency = node.getLatencyMillis() + result.getLatencyMillis();
+        final StubError injected = injectedError(result);
+
+        if (injected != null) {
+            error(ctx, frame, injected, parameters.consistency, latency);
+        } else if (result.hasRows()) {
+            rows(ctx, frame, result, parameters, latency);
+        } else {
+            final ByteBuf body = ctx.alloc().buffer(4);
+
+            body.writeInt(RESULT_VOID);
+            respond(ctx, frame, Frame.RESULT, body, latency);
+        }
+    }
+
+    private void prepare(final ChannelHandlerContext ctx, final Frame frame, final String query) {
+        final StubResult primed = node.getCluster().findPrime(query);
+        final List<DataType> variables = primed == null ? Collections.<DataType>emptyList() : primed.getVariables();
+        final int markers = countBindMarkers(query);
+
+        if (markers != variables.size()) {
+            error(ctx, frame, StubError.invalid("The stub server needs the types of the " + markers
+                    + " bind variables of the statement to be primed: " + query), 0, node.getLatencyMillis());
+            return;
+        }
+
+        final byte[] id = Hashing.md5().hashString(query, StandardCharsets.UTF_8).asBytes();
+        final ByteBuf body = ctx.alloc().buffer();
+
+        node.prepared(hex(id), query);
+
+        body.writeInt(RESULT_PREPARED);
+        ProtocolCodec.writeShortBytes(body, id);
+
+        // Bind variables metadata
+        if (variables.isEmpty()) {
+            body.writeInt(0);
+            body.writeInt(0);
+        } else {
+            body.writeInt(METADATA_GLOBAL_TABLES_SPEC);
+            body.writeInt(variables.size());
+            ProtocolCodec.writeString(body, STUB_KEYSPACE);
+            ProtocolCodec.writeString(body, STUB_TABLE);
+
+            for (int i = 0; i < variables.size(); i++) {
+                ProtocolCodec.writeString(body, "v" + i);
+                ProtocolCodec.writeType(body, variables.get(i));
+            }
+        }
+
+        // Result metadata
+        if (primed == null || !primed.hasRows() || primed.getColumnNames().isEmpty()) {
+            body.writeInt(METADATA_NO_METADATA);
+            body.writeInt(0);
+        } else {
+            writeColumns(body, primed, METADATA_GLOBAL_TABLES_SPEC);
+        }
+
+        respond(ctx, frame, Frame.RESULT, body, node.getLatencyMillis());
+    }
+
+    private void batch(final ChannelHandlerContext ctx, final Frame frame, final ByteBuf body) {
+        node.requested();
+
+        body.readByte();
+
+        final int count = body.readUnsignedShort();
+        long latency = node.getLatencyMillis();
+        StubError injected = null;
+
+        for (int i = 0; i < count; i++) {
+            final String query;
+
+            if (body.readByte() == 0) {
+                query = ProtocolCodec.readLongString(body);
+            } else {
+                final byte[] id = ProtocolCodec.readShortBytes(body);
+
+                query = node.getPrepared(hex(id));
+
+                if (query == null) {
+                    error(ctx, frame, StubError.unprepared(id), 0, 0);
+                    return;
+                }
+            }
+
+            final int values = body.readUnsignedShort();
+
+            for (int v = 0; v < values; v++) {
+                ProtocolCodec.readBytes(body);
+            }
+
+            final StubResult primed = node.getCluster().findPrime(query);
+
+            if (primed != null) {
+                latency = Math.max(latency, node.getLatencyMillis() + primed.getLatencyMillis());
+
+                if (injected == null) {
+                    injected = injectedError(primed);
+                }
+            }
+        }
+
+        final int consistency = body.readUnsignedShort();
+
+        if (injected == null) {
+            injected = injectedError(NO_RESULT);
+        }
+
+        if (injected != null) {
+            error(ctx, frame, injected, consistency, latency);
+            return;
+        }
+
+        final ByteBuf response = ctx.alloc().buffer(4);
+
+        response.writeInt(RESULT_VOID);
+        respond(ctx, frame, Frame.RESULT, response, latency);
+    }
+
+    /**
+     * Writes a page of rows, starting at the offset in the paging state of the request.
+     */
+    private void rows(final ChannelHandlerContext ctx, final Frame frame, final StubResult result,
+                      final QueryParameters parameters, final long latency) {
+
+        final int total = result.getRowCount();
+        final int start = Math.min(parameters.pagingOffset, total);
+        final int end = parameters.pageSize > 0 ? (int) Math.min((long) start + parameters.pageSize, total) : total;
+        final ByteBuf body = ctx.alloc().buffer();
+
+        int flags = parameters.skipMetadata ? METADATA_NO_METADATA : METADATA_GLOBAL_TABLES_SPEC;
+
+        if (end < total) {
+            flags |= METADATA_HAS_MORE_PAGES;
+        }
+
+        body.writeInt(RESULT_ROWS);
+        body.writeInt(flags);
+        body.writeInt(result.getColumnNames().size());
+
+        if (end < total) {
+            ProtocolCodec.writeBytes(body, ByteBuffer.allocate(4).putInt(0, end));
+        }
+
+        if (!parameters.skipMetadata) {
+            writeColumnSpecs(body, result);
+        }
+
+        body.writeInt(end - start);
+
+        for (int r = start; r < end; r++) {
+            for (final ByteBuffer cell : result.getRow(r, frame.getVersion())) {
+                ProtocolCodec.writeBytes(body, cell);
+            }
+        }
+
+        respond(ctx, frame, Frame.RESULT, body, latency);
+    }
+
+    private static void writeColumns(final ByteBuf body, final StubResult result, final int flags) {
+        body.writeInt(flags);
+        body.writeInt(result.getColumnNames().size());
+        writeColumnSpecs(body, result);
+    }
+
+    private static void writeColumnSpecs(final ByteBuf body, final StubResult result) {
+        ProtocolCodec.writeString(body, STUB_KEYSPACE);
+        ProtocolCodec.writeString(body, STUB_TABLE);
+
+        for (int i = 0; i < result.getColumnNames().size(); i++) {
+            ProtocolCodec.writeString(body, result.getColumnNames().get(i));
+            ProtocolCodec.writeType(body, result.getColumnTypes().get(i));
+        }
+    }
+
+    /**
+     * The error to reply with, if the node or the result injects one for this request.
+     */
+    private StubError injectedError(final StubResult result) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (node.getError() != null && node.getErrorRate() > 0 && random.nextDouble() < node.getErrorRate()) {
+            return node.getError();
+        }
+
+        if (result.getError() != null && result.getErrorRate() > 0 && random.nextDouble() < result.getErrorRate()) {
+            return result.getError();
+        }
+
+        return null;
+    }
+
+    private void error(final ChannelHandlerContext ctx, final Frame frame, final StubError error, final int consistency,
+                       final long latency) {
+
+        final ByteBuf body = ctx.alloc().buffer();
+
+        error.write(body, consistency);
+        respond(ctx, frame, Frame.ERROR, body, latency);
+    }
+
+    private void respond(final ChannelHandlerContext ctx, final Frame frame, final int opcode, final ByteBuf body,
+                         final long latencyMillis) {
+
+        final ByteBuf out = ctx.alloc().buffer(Frame.headerSize(frame.getVersion()) + body.readableBytes());
+
+        frame.writeResponse(out, opcode, body);
+        body.release();
+
+        if (latencyMillis > 0) {
+            ctx.executor().schedule(() -> ctx.writeAndFlush(out), latencyMillis, TimeUnit.MILLISECONDS);
+        } else {
+            ctx.writeAndFlush(out);
+        }
+    }
+
+    /**
+     * Counts the bind markers of a statement, ignoring question marks in string literals.
+     */
+    protected static int countBindMarkers(final String query) {
+        boolean quoted = false;
+        int count = 0;
+
+        for (int i = 0; i < query.length(); i++) {
+            final char c = query.charAt(i);
+
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static String hex(final byte[] id) {
+        return BaseEncoding.base16().encode(id);
+    }
+
+    /**
+     * The parameters of a QUERY or EXECUTE request that affect the response.
+     */
+    private static class QueryParameters {
+        private int consistency;
+        private boolean skipMetadata;
+        private int pageSize = -1;
+        private int pagingOffset;
+
+        private static QueryParameters read(final ByteBuf body) {
+            final QueryParameters parameters = new QueryParameters();
+
+            parameters.consistency = body.readUnsignedShort();
+
+            final int flags = body.readUnsignedByte();
+
+            if ((flags & 0x01) != 0) {
+                final int values = body.readUnsignedShort();
+
+                for (int i = 0; i < values; i++) {
+                    if ((flags & 0x40) != 0) {
+                        ProtocolCodec.readString(body);
+                    }
+
+                    ProtocolCodec.readBytes(body);
+                }
+            }
+
+            parameters.skipMetadata = (flags & 0x02) != 0;
+
+            if ((flags & 0x04) != 0) {
+                parameters.pageSize = body.readInt();
+            }
+
+            if ((flags & 0x08) != 0) {
+                final ByteBuffer state = ProtocolCodec.readBytes(body);
+
+                if (state != null && state.remaining() == 4) {
+                    parameters.pagingOffset = state.getInt(0);
+                }
+            }
+
+            return parameters;
+        }
+    }
+}
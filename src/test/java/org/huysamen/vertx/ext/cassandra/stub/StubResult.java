@@ -0,0 +1,348 @@
+package org.huysamen.vertx.ext.cassandra.stub;
+
+import com.datastax.driver.core.DataType;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The scripted response of the stub server to a statement: rows or no result, the types of its bind variables, an
+ * added latency and an error injected at some rate.
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class StubResult {
+
+    private final boolean rows;
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<DataType> columnTypes = new ArrayList<>();
+    private final List<Object[]> rowValues = new ArrayList<>();
+    private final List<DataType> variables = new ArrayList<>();
+    private final ByteBuffer[][][] serialized = new ByteBuffer[4][][];
+
+    private int repeat = 1;
+    private long latencyMillis;
+    private double errorRate;
+    private StubError error;
+
+    private StubResult(final boolean rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * A result with rows. Columns and rows are added with {@link #column(String, DataType)} and {@link #row(Object...)}.
+     */
+    public static StubResult rows() {
+        return new StubResult(true);
+    }
+
+    /**
+     * A result without rows, as returned for writes.
+     */
+    public static StubResult empty() {
+        return new StubResult(false);
+    }
+
+    /**
+     * A result that always fails.
+     */
+    public static StubResult error(final StubError error) {
+        return new StubResult(false).withError(1, error);
+    }
+
+    public StubResult column(final String name, final DataType type) {
+        columnNames.add(name);
+        columnTypes.add(type);
+        return this;
+    }
+
+    /**
+     * Adds a row, with a value per column in the Java type the driver uses for the column type.
+     */
+    public StubResult row(final Object... values) {
+        if (values.length != columnNames.size()) {
+            throw new IllegalArgumentException("Expected " + columnNames.size() + " values, got " + values.length);
+        }
+
+        rowValues.add(values);
+        return this;
+    }
+
+    /**
+     * Repeats the rows, to produce large results that are paged without listing every row.
+     */
+    public StubResult repeat(final int repeat) {
+        this.repeat = repeat;
+        return this;
+    }
+
+    /**
+     * The types of the bind variables of the statement, needed for statements with bind markers to be prepared.
+     */
+    public StubResult variables(final DataType... types) {
+        variables.addAll(Arrays.asList(types));
+        return this;
+    }
+
+    /**
+     * Delays every response to the statement.
+     */
+    public StubResult withLatency(final long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Replies to a fraction of the requests for the statement with an error instead of the result.
+     *
+     * @param rate The fraction of requests, between 0 and 1, failing.
+     * @param error The error replied with.
+     */
+    public StubResult withError(final double rate, final StubError error) {
+        this.errorRate = rate;
+        this.error = error;
+        return this;
+    }
+
+    protected boolean hasRows() {
+        return rows;
+    }
+
+    protected List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    protected List<DataType> getColumnTypes() {
+        return columnTypes;
+    }
+
+    protected List<DataType> getVariables() {
+        return variables;
+    }
+
+    protected long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    protected double getErrorRate() {
+        return errorRate;
+    }
+
+    protected StubError getError() {
+        return error;
+    }
+
+    protected int getRowCount() {
+        return rowValues.size() * repeat;
+    }
+
+    /**
+     * The serialized cells of a row, serialized once per protocol version as collections are encoded differently.
+     */
+    protected ByteBuffer[] getRow(final int index, final int protocolVersion) {
+        ByteBuffer[][] cells = serialized[protocolVersion];
+
+        if (cells == null) {
+            cells = new ByteBuffer[rowValues.size()][];
+
+            for (int r = 0; r < cells.length; r++) {
+                final Object[] values = rowValues.get(r);
+
+                cells[r] = new ByteBuffer[values.length];
+
+                for (int c = 0; c < values.length; c++) {
+                    cells[r][c] = values[c] == null ? null : columnTypes.get(c).serialize(values[c], protocolVersion);
+                }
+            }
+
+            serialized[protocolVersion] = cells;
+        }
+
+        return cells[index % cells.length];
+    }
+
+    /**
+     * Creates a result from its JSON description:
+     *
+     * <pre>
+     * {
+     *     "columns": [ { "name": "id", "type": "bigint" }, { "name": "tags", "type": "set&lt;text&gt;" } ],
+     *     "rows": [ [ 1, [ "a", "b" ] ] ],
+     *     "repeat": 1000,
+     *     "variables": [ "bigint" ],
+     *     "latency_millis": 2,
+     *     "error": { "type": "read_timeout", "rate": 0.01 }
+     * }
+     * </pre>
+     *
+     * A result without <code>columns</code> has no rows. Blobs are given as base64 text and timestamps as milliseconds.
+     */
+    public static StubResult fromJson(final JsonObject json) {
+        final JsonArray columns = json.getArray("columns");
+        final StubResult result = columns == null ? empty() : rows();
+
+        if (columns != null) {
+            for (int i = 0; i < columns.size(); i++) {
+                final JsonObject column = columns.get(i);
+
+                result.column(column.getString("name"), parseType(column.getString("type")));
+            }
+
+            final JsonArray rows = json.getArray("rows", new JsonArray());
+
+            for (int i = 0; i < rows.size(); i++) {
+                final JsonArray row = rows.get(i);
+                final Object[] values = new Object[row.size()];
+
+                for (int c = 0; c < values.length; c++) {
+                    values[c] = convert(row.get(c), result.columnTypes.get(c));
+                }
+
+                result.row(values);
+            }
+        }
+
+        final JsonArray variables = json.getArray("variables", new JsonArray());
+
+        for (int i = 0; i < variables.size(); i++) {
+            result.variables(parseType(variables.<String>get(i)));
+        }
+
+        final Integer repeat = json.getInteger("repeat");
+        final Long latencyMillis = json.getLong("latency_millis");
+        final JsonObject error = json.getObject("error");
+
+        if (repeat != null) {
+            result.repeat(repeat);
+        }
+
+        if (latencyMillis != null) {
+            result.withLatency(latencyMillis);
+        }
+
+        if (error != null) {
+            final Number rate = error.getNumber("rate");
+
+            result.withError(rate == null ? 1 : rate.doubleValue(), StubError.fromJson(error));
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses a CQL type name, such as <code>bigint</code>, <code>list&lt;text&gt;</code> or
+     * <code>map&lt;text, int&gt;</code>.
+     */
+    protected static DataType parseType(final String type) {
+        final String name = type.trim().toLowerCase();
+        final int open = name.indexOf('<');
+
+        if (open < 0) {
+            for (final DataType primitive : DataType.allPrimitiveTypes()) {
+                if (primitive.getName().toString().equals(name)) {
+                    return primitive;
+                }
+            }
+
+            throw new IllegalArgumentException("Unknown column type: " + type);
+        }
+
+        final String arguments = name.substring(open + 1, name.lastIndexOf('>'));
+
+        switch (name.substring(0, open).trim()) {
+            case "list":
+                return DataType.list(parseType(arguments));
+            case "set":
+                return DataType.set(parseType(arguments));
+            case "map":
+                final int comma = arguments.indexOf(',');
+                return DataType.map(parseType(arguments.substring(0, comma)), parseType(arguments.substring(comma + 1)));
+            default:
+                throw new IllegalArgumentException("Unknown column type: " + type);
+        }
+    }
+
+    private static Object convert(final Object value, final DataType type) {
+        if (value == null) {
+            return null;
+        }
+
+        switch (type.getName()) {
+            // Numbers may also be given as text, as map keys are
+            case BIGINT:
+            case COUNTER:
+                return new BigDecimal(value.toString()).longValue();
+            case INT:
+                return new BigDecimal(value.toString()).intValue();
+            case DOUBLE:
+                return new BigDecimal(value.toString()).doubleValue();
+            case FLOAT:
+                return new BigDecimal(value.toString()).floatValue();
+            case DECIMAL:
+                return new BigDecimal(value.toString());
+            case VARINT:
+                return new BigInteger(value.toString());
+            case TIMESTAMP:
+                return new Date(new BigDecimal(value.toString()).longValue());
+            case UUID:
+            case TIMEUUID:
+                return UUID.fromString((String) value);
+            case BLOB:
+                return ByteBuffer.wrap(Base64.getDecoder().decode((String) value));
+            case INET:
+                try {
+                    return InetAddress.getByName((String) value);
+                } catch (final UnknownHostException e) {
+                    throw new IllegalArgumentException("Invalid inet value: " + value, e);
+                }
+            case LIST: {
+                final JsonArray array = (JsonArray) value;
+                final List<Object> list = new ArrayList<>();
+
+                for (int i = 0; i < array.size(); i++) {
+                    list.add(convert(array.get(i), type.getTypeArguments().get(0)));
+                }
+
+                return list;
+            }
+            case SET: {
+                final JsonArray array = (JsonArray) value;
+                final HashSet<Object> set = new HashSet<>();
+
+                for (int i = 0; i < array.size(); i++) {
+                    set.add(convert(array.get(i), type.getTypeArguments().get(0)));
+                }
+
+                return set;
+            }
+            case MAP: {
+                final JsonObject object = (JsonObject) value;
+                final Map<Object, Object> map = new HashMap<>();
+
+                for (final String key : object.getFieldNames()) {
+                    map.put(convert(key, type.getTypeArguments().get(0)), convert(object.getValue(key), type.getTypeArguments().get(1)));
+                }
+
+                return map;
+            }
+            default:
+                return value;
+        }
+    }
+}
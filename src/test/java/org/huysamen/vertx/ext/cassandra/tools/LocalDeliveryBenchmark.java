@@ -0,0 +1,232 @@
+package org.huysamen.vertx.ext.cassandra.tools;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CassandraService;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares calling a Cassandra service through the event bus proxy against the in-JVM local delivery handle. The
+ * service used is a stand-in that replies immediately with a canned result, so the measured difference is the cost of
+ * the event bus hop and the copying of requests and results.
+ *
+ * <p>Usage: <code>LocalDeliveryBenchmark [iterations] [rows]</code></p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class LocalDeliveryBenchmark {
+
+    private static final String REMOTE_ADDRESS = "benchmark.cassandra.remote";
+    private static final String LOCAL_ADDRESS = "benchmark.cassandra.local";
+
+    public static void main(final String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int rows = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        final Vertx vertx = Vertx.vertx();
+        final CannedCassandraService service = new CannedCassandraService(rows);
+
+        vertx.eventBus().registerService(service, REMOTE_ADDRESS);
+        CassandraService.factory.registerLocal(vertx, LOCAL_ADDRESS, service);
+
+        final CassandraService remote = vertx.eventBus().createProxy(CassandraService.class, REMOTE_ADDRESS);
+        final CassandraService local = CassandraService.factory.createEventBusProxy(vertx, LOCAL_ADDRESS);
+
+        // Warm up both paths before measuring
+        run(vertx, remote, iterations / 10);
+        run(vertx, local, iterations / 10);
+
+        final long remoteNanos = run(vertx, remote, iterations);
+        final long localNanos = run(vertx, local, iterations);
+        final int resultBytes = service.result.encode().length();
+
+        System.out.println(String.format("Result size:     %d rows, %d bytes encoded", rows, resultBytes));
+        report("Event bus proxy", iterations, remoteNanos);
+        report("Local delivery", iterations, localNanos);
+        System.out.println(String.format("Saved per call:  %.2f us, %d result bytes not copied",
+                (remoteNanos - localNanos) / (double) iterations / 1000d, resultBytes));
+
+        vertx.close();
+    }
+
+    private static long run(final Vertx vertx, final CassandraService service, final int iterations) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long started = System.nanoTime();
+
+        vertx.runOnContext(v -> call(service, iterations, latch));
+        latch.await();
+
+        return System.nanoTime() - started;
+    }
+
+    private static void call(final CassandraService service, final int remaining, final CountDownLatch latch) {
+        if (remaining == 0) {
+            latch.countDown();
+            return;
+        }
+
+        service.execute("SELECT * FROM benchmark", result -> {
+            if (result.failed()) {
+                throw new IllegalStateException(result.cause());
+            }
+
+            call(service, remaining - 1, latch);
+        });
+    }
+
+    private static void report(final String name, final int iterations, final long nanos) {
+        System.out.println(String.format("%-16s %,.0f calls/s, %.2f us/call",
+                name + ":", iterations / (nanos / 1000000000d), nanos / (double) iterations / 1000d));
+    }
+
+    /**
+     * Stand-in service that replies to every request with the same result.
+     */
+    private static class CannedCassandraService implements CassandraService {
+
+        private final JsonObject result = new JsonObject();
+
+        private CannedCassandraService(final int rows) {
+            final JsonArray columns = new JsonArray();
+            final JsonArray rowObjects = new JsonArray();
+
+            columns.addObject(new JsonObject().putString("name", "id").putString("type", "BIGINT"));
+            columns.addObject(new JsonObject().putString("name", "name").putString("type", "VARCHAR"));
+
+            for (int i = 0; i < rows; i++) {
+                rowObjects.addArray(new JsonArray().addNumber(i).addString("name-" + i));
+            }
+
+            result.putString("result", "OK");
+            result.putNumber("count", rows);
+            result.putArray("columns", columns);
+            result.putArray("rows", rowObjects);
+        }
+
+        @Override
+        public void start() {}
+
+        @Override
+        public void stop() {}
+
+        @Override
+        public void stop(final Handler<AsyncResult<Void>> handler) {
+            reply(handler, null);
+        }
+
+        @Override
+        public void reconnect() {}
+
+        @Override
+        public void reconfigure(final JsonObject config, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void metrics(final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void execute(final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void executeWithOptions(final String statement, final JsonObject options, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void prepare(final String name, final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void prepareWithOptions(final String name, final String statement, final JsonObject options,
+                                       final Handler<AsyncResult<JsonObject>> handler) {
+
+            reply(handler, result);
+        }
+
+        @Override
+        public void prepared(final JsonObject statement, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void resultMetadata(final String name, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void fetchMore(final String continuation, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void keyspaces(final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void tableMetadata(final String keyspace, final String table, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void executeSchemaChange(final String statement, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void locality(final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void warmUp(final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void bucketedRead(final JsonObject request, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        @Override
+        public void pipeline(final JsonArray operations, final Handler<AsyncResult<JsonObject>> handler) {
+            reply(handler, result);
+        }
+
+        private static <T> void reply(final Handler<AsyncResult<T>> handler, final T value) {
+            handler.handle(new AsyncResult<T>() {
+                @Override
+                public T result() {
+                    return value;
+                }
+
+                @Override
+                public Throwable cause() {
+                    return null;
+                }
+
+                @Override
+                public boolean succeeded() {
+                    return true;
+                }
+
+                @Override
+                public boolean failed() {
+                    return false;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.huysamen.vertx.ext.cassandra.tools;
+
+import com.datastax.driver.core.DataType;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.huysamen.vertx.ext.cassandra.CassandraMappedService;
+import org.huysamen.vertx.ext.cassandra.CassandraService;
+import org.huysamen.vertx.ext.cassandra.mapping.Mapped;
+import org.huysamen.vertx.ext.cassandra.mapping.Mapping;
+import org.huysamen.vertx.ext.cassandra.mapping.Mappings;
+import org.huysamen.vertx.ext.cassandra.stub.StubCassandraCluster;
+import org.huysamen.vertx.ext.cassandra.stub.StubResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares reading rows into objects through the JSON results of a Cassandra service against reading them through a
+ * generated mapping. Both paths query a stub cluster through local delivery, so they share the cost of the request
+ * and the difference is that of converting rows to JSON and JSON to objects.
+ *
+ * <p>Usage: <code>RowMapperBenchmark [iterations] [rows]</code></p>
+ *
+ * @author <a href="http://nico.huysamen.org">Nicolaas Frederick Huysamen</a>
+ * @since 1.0
+ * @version 1.0
+ */
+public class RowMapperBenchmark {
+
+    private static final String ADDRESS = "benchmark.cassandra.mapped";
+    private static final String QUERY = "SELECT id, name, email, age, active FROM users WHERE bucket = ?";
+    private static final int PORT = 19142;
+
+    public static void main(final String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int rows = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        final StubCassandraCluster stub = new StubCassandraCluster(1).setPort(PORT);
+
+        stub.prime(QUERY, StubResult.rows()
+                .column("id", DataType.bigint())
+                .column("name", DataType.text())
+                .column("email", DataType.text())
+                .column("age", DataType.cint())
+                .column("active", DataType.cboolean())
+                .row(1L, "alice", "alice@example.com", 42, true)
+                .repeat(rows)
+                .variables(DataType.cint()));
+        stub.start();
+
+        final JsonArray seeds = new JsonArray();
+
+        stub.getSeeds().forEach(seeds::addString);
+
+        final Vertx vertx = Vertx.vertx();
+        final CassandraService service = CassandraService.create(vertx, new JsonObject()
+                .putArray("seeds", seeds)
+                .putNumber("port", PORT));
+
+        try {
+            service.start();
+            CassandraService.factory.registerLocal(vertx, ADDRESS, service);
+
+            final CassandraService json = CassandraService.createEventBusProxy(vertx, ADDRESS);
+            final CassandraMappedService mapped = CassandraMappedService.createLocal(vertx, ADDRESS);
+            final Mapping<User> mapping = Mappings.of(User.class);
+
+            prepare(json);
+
+            // Warm up both paths before measuring
+            run(vertx, done -> readJson(json, done), iterations / 10);
+            run(vertx, done -> readMapped(mapped, mapping, done), iterations / 10);
+
+            final long jsonNanos = run(vertx, done -> readJson(json, done), iterations);
+            final long mappedNanos = run(vertx, done -> readMapped(mapped, mapping, done), iterations);
+
+            System.out.println(String.format("Result size:     %d rows", rows));
+            report("JSON", iterations, rows, jsonNanos);
+            report("Mapped", iterations, rows, mappedNanos);
+            System.out.println(String.format("Saved per row:   %.0f ns", (jsonNanos - mappedNanos) / (double) iterations / rows));
+        } finally {
+            CassandraService.factory.unregisterLocal(vertx, ADDRESS, service);
+            service.stop();
+            vertx.close();
+            stub.close();
+        }
+    }
+
+    private static void prepare(final CassandraService service) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        service.prepare("read_users", QUERY, result -> {
+            if (result.failed()) {
+                error.set(result.cause());
+            }
+
+            latch.countDown();
+        });
+
+        latch.await();
+
+        if (error.get() != null) {
+            throw new IllegalStateException("Unable to prepare the benchmark statement", error.get());
+        }
+    }
+
+    private static JsonObject request() {
+        return new JsonObject()
+                .putString("name", "read_users")
+                .putArray("values", new JsonArray().addArray(new JsonArray().addNumber(1)));
+    }
+
+    /**
+     * Reads the rows as JSON and converts them into objects, as an in-JVM consumer of the JSON results would.
+     */
+    private static void readJson(final CassandraService service, final Handler<Throwable> done) {
+        service.prepared(request(), result -> {
+            if (result.failed()) {
+                done.handle(result.cause());
+                return;
+            }
+
+            final JsonArray rows = result.result().getArray("rows");
+            final List<User> users = new ArrayList<>(rows.size());
+
+            for (int i = 0; i < rows.size(); i++) {
+                final JsonArray row = rows.get(i);
+                final User user = new User();
+
+                user.id = ((Number) row.get(0)).longValue();
+                user.name = row.get(1);
+                user.email = row.get(2);
+                user.age = ((Number) row.get(3)).intValue();
+                user.active = row.get(4);
+                users.add(user);
+            }
+
+            done.handle(users.size() == rows.size() ? null : new IllegalStateException("Rows were not converted"));
+        });
+    }
+
+    private static void readMapped(final CassandraMappedService service, final Mapping<User> mapping, final Handler<Throwable> done) {
+        service.select(request(), mapping, result -> done.handle(result.failed() ? result.cause() : null));
+    }
+
+    private static long run(final Vertx vertx, final Read read, final int iterations) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long started = System.nanoTime();
+
+        vertx.runOnContext(v -> call(read, iterations, latch));
+        latch.await();
+
+        return System.nanoTime() - started;
+    }
+
+    private static void call(final Read read, final int remaining, final CountDownLatch latch) {
+        if (remaining == 0) {
+            latch.countDown();
+            return;
+        }
+
+        read.read(error -> {
+            if (error != null) {
+                throw new IllegalStateException(error);
+            }
+
+            call(read, remaining - 1, latch);
+        });
+    }
+
+    private static void report(final String label, final int iterations, final int rows, final long nanos) {
+        System.out.println(String.format("%-16s %.2f us per call, %,.0f rows/s", label + ":", nanos / (double) iterations / 1000d,
+                (double) iterations * rows / (nanos / 1000000000d)));
+    }
+
+    private interface Read {
+        void read(Handler<Throwable> done);
+    }
+
+    @Mapped
+    public static class User {
+        long id;
+        String name;
+        String email;
+        int age;
+        boolean active;
+    }
+}